@@ -18,6 +18,7 @@ public class AWS_S3 extends StorageService {
     private String secretKey;
     private boolean versioningEnabled;
     private String encryptionType;
+    private int simulatedObjectCount;
     
     public AWS_S3(String serviceId, Map<String, Object> config) {
         super(serviceId, config);
@@ -27,6 +28,7 @@ public class AWS_S3 extends StorageService {
         this.secretKey = (String) config.get("secret_key");
         this.versioningEnabled = (Boolean) config.getOrDefault("versioning", true);
         this.encryptionType = (String) config.getOrDefault("encryption", "AES256");
+        this.simulatedObjectCount = ((Number) config.getOrDefault("simulated_object_count", 2500)).intValue();
     }
     
     @Override
@@ -248,25 +250,36 @@ public class AWS_S3 extends StorageService {
         try {
             Thread.sleep(100);
             
-            List<FileInfo> files = new ArrayList<>();
+            // Like ListObjectsV2: keys in lexicographic order, at most 1000 per page, starting after the cursor
+            String after = ListingCursor.decode(listRequest);
+            ListingFilter filter = new ListingFilter(listRequest);
+            int pageSize = Math.min(Math.max(1, listRequest.getMaxResults()), 1000);
             
-            // Simulate listing S3 objects
-            int maxResults = Math.min(listRequest.getMaxResults(), 1000);
+            List<FileInfo> files = new ArrayList<>();
+            boolean hasMore = false;
+            for (int i = firstObjectAfter(after); i < simulatedObjectCount; i++) {
+                String fileName = simulatedKey(i);
+                if (!filter.matchesName(fileName, fileName)) {
+                    continue;
+                }
+                int hash = Objects.hash(bucketName, listRequest.getDirectoryPath(), fileName);
+                long size = Math.floorMod(hash, 1024 * 1024); // Up to 1MB
+                if (!filter.matchesAttributes(size, false)) {
+                    continue;
+                }
+                if (files.size() == pageSize) {
+                    hasMore = true;
+                    break;
+                }
             
-            for (int i = 0; i < maxResults; i++) {
-                String fileName = "file_" + i + ".txt";
                 String fullPath = listRequest.getDirectoryPath() + "/" + fileName;
-                long size = (long) (Math.random() * 1024 * 1024); // Random size up to 1MB
-                LocalDateTime lastModified = LocalDateTime.now().minusDays((long) (Math.random() * 30));
-                
+                LocalDateTime lastModified = LocalDateTime.now().minusDays(Math.floorMod(hash, 30));
                 FileInfo fileInfo = new FileInfo(fileName, fullPath, size, false, lastModified);
-                fileInfo.setEtag("\"" + UUID.randomUUID().toString().replace("-", "") + "\"");
+                fileInfo.setEtag(String.format("\"%08x%08x\"", hash, size));
                 files.add(fileInfo);
             }
             
-            // Simulate pagination
-            boolean hasMore = files.size() == maxResults;
-            String nextToken = hasMore ? "token_" + UUID.randomUUID().toString() : null;
+            String nextToken = hasMore ? ListingCursor.encode(listRequest, files.get(files.size() - 1).getName()) : null;
             
             return FileListResult.success(files, nextToken, hasMore, files.size());
             
@@ -276,6 +289,28 @@ public class AWS_S3 extends StorageService {
         }
     }
     
+    // Simulated keys are zero-padded so index order is key order
+    private static String simulatedKey(int index) {
+        return String.format("file_%06d.txt", index);
+    }
+    
+    private int firstObjectAfter(String after) {
+        if (after == null) {
+            return 0;
+        }
+        int low = 0;
+        int high = simulatedObjectCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (simulatedKey(mid).compareTo(after) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
     @Override
     public FileMetadata getMetadata(String path) throws StorageException {
         if (!isConnected) {
@@ -0,0 +1,291 @@
+package abstraction.filestorage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Concurrent bulk uploads, downloads, deletes and copies across StorageService backends
+ *
+ * Every backend gets its own lane: a fixed pool sized to that backend's concurrency
+ * limit, so a slow backend never holds up work queued for another. Copies run in the
+ * target's lane and take a read permit on the source, which bounds reads from it by
+ * the same limit. Items are queued largest first by default, so big transfers do not
+ * end up alone at the tail of a batch. Failures that StorageException marks retryable,
+ * and I/O errors while streaming, are retried with jittered exponential backoff. A
+ * retry is re-queued rather than sleeping in the lane. Results come back in
+ * submission order together with batch totals.
+ */
+public class BulkOperationEngine implements AutoCloseable {
+    
+    public enum SizeOrder { LARGEST_FIRST, SMALLEST_FIRST, SUBMISSION }
+    
+    private final int defaultConcurrency;
+    private final int maxRetries;
+    private final long retryBaseDelayMs;
+    private final long retryMaxDelayMs;
+    private final SizeOrder sizeOrder;
+    
+    // Backends are keyed by identity; StorageService does not define equality
+    private final Map<StorageService, ThreadPoolExecutor> lanes = new IdentityHashMap<>();
+    private final Map<StorageService, Semaphore> readPermits = new IdentityHashMap<>();
+    private final Map<StorageService, Integer> concurrencyOverrides = new IdentityHashMap<>();
+    private final ScheduledExecutorService retryScheduler;
+    private volatile boolean closed;
+    
+    public BulkOperationEngine(Map<String, Object> config) {
+        this.defaultConcurrency = ((Number) config.getOrDefault("backend_concurrency", 8)).intValue();
+        this.maxRetries = ((Number) config.getOrDefault("max_retries", 3)).intValue();
+        this.retryBaseDelayMs = ((Number) config.getOrDefault("retry_base_delay_ms", 100)).longValue();
+        this.retryMaxDelayMs = ((Number) config.getOrDefault("retry_max_delay_ms", 5000)).longValue();
+        this.sizeOrder = SizeOrder.valueOf(((String) config.getOrDefault("size_order", "LARGEST_FIRST")).toUpperCase());
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "BulkOperation-Retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Overrides the concurrency limit for one backend, e.g. a remote API with a low rate limit.
+     */
+    public synchronized void setBackendConcurrency(StorageService service, int concurrency) {
+        concurrencyOverrides.put(service, concurrency);
+        ThreadPoolExecutor lane = lanes.get(service);
+        if (lane != null) {
+            if (concurrency > lane.getMaximumPoolSize()) {
+                lane.setMaximumPoolSize(concurrency);
+                lane.setCorePoolSize(concurrency);
+            } else {
+                lane.setCorePoolSize(concurrency);
+                lane.setMaximumPoolSize(concurrency);
+            }
+        }
+        readPermits.remove(service);
+    }
+    
+    /**
+     * Runs a batch and blocks until every item has finished or exhausted its retries.
+     */
+    public BulkResult execute(List<BulkItem> items) throws StorageException {
+        try {
+            return submit(items).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("Bulk operation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new StorageException("Bulk operation failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+    
+    /**
+     * Queues a batch on the backends' lanes; the future completes once every item has a result.
+     */
+    public CompletableFuture<BulkResult> submit(List<BulkItem> items) {
+        if (closed) {
+            throw new IllegalStateException("Bulk operation engine is closed");
+        }
+        long start = System.nanoTime();
+        
+        List<BulkTask> tasks = new ArrayList<>(items.size());
+        for (BulkItem item : items) {
+            tasks.add(new BulkTask(item));
+        }
+        
+        List<BulkTask> queueOrder = new ArrayList<>(tasks);
+        if (sizeOrder == SizeOrder.LARGEST_FIRST) {
+            queueOrder.sort((a, b) -> Long.compare(b.item.getSize(), a.item.getSize()));
+        } else if (sizeOrder == SizeOrder.SMALLEST_FIRST) {
+            queueOrder.sort(Comparator.comparingLong(task -> task.item.getSize()));
+        }
+        for (BulkTask task : queueOrder) {
+            task.dispatch();
+        }
+        
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[tasks.size()];
+        for (int i = 0; i < tasks.size(); i++) {
+            futures[i] = tasks.get(i).future;
+        }
+        return CompletableFuture.allOf(futures).thenApply(done -> {
+            List<BulkItemResult> results = new ArrayList<>(tasks.size());
+            for (BulkTask task : tasks) {
+                results.add(task.future.join());
+            }
+            return new BulkResult(results, (System.nanoTime() - start) / 1_000_000);
+        });
+    }
+    
+    private class BulkTask implements Runnable {
+        final BulkItem item;
+        final CompletableFuture<BulkItemResult> future = new CompletableFuture<>();
+        final long startNanos = System.nanoTime();
+        int attempts;
+        
+        BulkTask(BulkItem item) {
+            this.item = item;
+        }
+        
+        void dispatch() {
+            try {
+                laneFor(item.getType() == BulkItem.Type.COPY ? item.getTargetService() : item.getService()).execute(this);
+            } catch (RejectedExecutionException e) {
+                fail("Bulk operation engine is closed");
+            }
+        }
+        
+        @Override
+        public void run() {
+            attempts++;
+            try {
+                long bytes = perform(item);
+                future.complete(new BulkItemResult(item, true, bytes, attempts, elapsedMs(), null));
+            } catch (Exception e) {
+                if (attempts <= maxRetries && isRetryable(e) && !closed) {
+                    try {
+                        retryScheduler.schedule(this::dispatch, backoffMs(attempts), TimeUnit.MILLISECONDS);
+                        return;
+                    } catch (RejectedExecutionException rejected) {
+                        // Closed while retrying; report the last failure
+                    }
+                }
+                fail(e.getMessage());
+            }
+        }
+        
+        private void fail(String message) {
+            future.complete(new BulkItemResult(item, false, 0, attempts, elapsedMs(), message));
+        }
+        
+        private long elapsedMs() {
+            return (System.nanoTime() - startNanos) / 1_000_000;
+        }
+    }
+    
+    private long perform(BulkItem item) throws StorageException, IOException {
+        switch (item.getType()) {
+            case UPLOAD:
+                try (InputStream content = item.getSource().open()) {
+                    return upload(item.getService(), item.getPath(), content, item.getSize(), item.getContentType(),
+                                  item.isOverwrite());
+                }
+                
+            case DOWNLOAD:
+                DownloadResult download = item.getService().download(new DownloadRequest(item.getPath()));
+                try (InputStream content = download.getContentStream()) {
+                    if (item.getLocalPath().getParent() != null) {
+                        Files.createDirectories(item.getLocalPath().getParent());
+                    }
+                    return Files.copy(content, item.getLocalPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                
+            case DELETE:
+                DeleteResult delete = item.getService().delete(new DeleteRequest(item.getPath(), item.isPermanent()));
+                if (!delete.isSuccess()) {
+                    throw new StorageException("Delete failed for " + item.getPath() + ": " + delete.getErrorMessage());
+                }
+                return 0;
+                
+            case COPY:
+                Semaphore permits = readPermitsFor(item.getService());
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new StorageException("Copy interrupted", e);
+                }
+                try {
+                    DownloadResult source = item.getService().download(new DownloadRequest(item.getPath()));
+                    String contentType = source.getMetadata() != null && source.getMetadata().getContentType() != null ?
+                        source.getMetadata().getContentType() : item.getContentType();
+                    try (InputStream content = source.getContentStream()) {
+                        return upload(item.getTargetService(), item.getTargetPath(), content, source.getContentLength(),
+                                      contentType, item.isOverwrite());
+                    }
+                } finally {
+                    permits.release();
+                }
+                
+            default:
+                throw new StorageException("Unsupported bulk operation: " + item.getType());
+        }
+    }
+    
+    private static long upload(StorageService service, String path, InputStream content, long size,
+                               String contentType, boolean overwrite) throws StorageException {
+        UploadRequest request = new UploadRequest(path, content, size, contentType);
+        request.setOverwrite(overwrite);
+        UploadResult result;
+        try {
+            result = service.upload(request).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("Upload interrupted", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof StorageException ?
+                (StorageException) e.getCause() : new StorageException("Upload failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        if (!result.isSuccess()) {
+            throw new StorageException("Upload failed for " + path + ": " + result.getErrorMessage());
+        }
+        return result.getUploadedSize();
+    }
+    
+    private static boolean isRetryable(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof StorageException) {
+            return ((StorageException) cause).isRetryable() || cause.getCause() instanceof IOException;
+        }
+        return cause instanceof IOException;
+    }
+    
+    private long backoffMs(int attempt) {
+        long delay = Math.min(retryMaxDelayMs, retryBaseDelayMs << Math.min(attempt - 1, 20));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+    
+    private synchronized ThreadPoolExecutor laneFor(StorageService service) {
+        if (closed) {
+            throw new RejectedExecutionException("closed");
+        }
+        return lanes.computeIfAbsent(service, s -> {
+            int concurrency = concurrencyOverrides.getOrDefault(s, defaultConcurrency);
+            ThreadPoolExecutor lane = new ThreadPoolExecutor(concurrency, concurrency, 30, TimeUnit.SECONDS,
+                                                             new LinkedBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r, "BulkOperation-" + s.getServiceId());
+                thread.setDaemon(true);
+                return thread;
+            });
+            lane.allowCoreThreadTimeOut(true);
+            return lane;
+        });
+    }
+    
+    private synchronized Semaphore readPermitsFor(StorageService service) {
+        return readPermits.computeIfAbsent(service,
+            s -> new Semaphore(concurrencyOverrides.getOrDefault(s, defaultConcurrency)));
+    }
+    
+    /**
+     * Stops accepting work; queued items still run, but failures are no longer retried.
+     */
+    @Override
+    public void close() {
+        List<ThreadPoolExecutor> toShutdown;
+        synchronized (this) {
+            closed = true;
+            toShutdown = new ArrayList<>(lanes.values());
+            lanes.clear();
+        }
+        // Pending retries still fire and fail fast against the closed lanes
+        retryScheduler.shutdown();
+        for (ThreadPoolExecutor lane : toShutdown) {
+            lane.shutdown();
+        }
+    }
+}
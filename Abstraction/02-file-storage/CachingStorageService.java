@@ -0,0 +1,430 @@
+package abstraction.filestorage;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Read-through metadata and listing cache for any StorageService
+ *
+ * getMetadata and listFiles results are kept in one LRU bounded by an estimate of their
+ * size in bytes, each with its own TTL. Uploads and deletes through this service drop
+ * the entries for the path, everything under it and the listings of its ancestors. Over
+ * a LocalFileSystem, directories with cached entries are also registered with a
+ * WatchService so changes made outside this service are picked up; recursive listings
+ * only watch their top directory and otherwise rely on the TTL. Hits, misses, evictions
+ * and invalidations are counted in StorageMetrics.
+ */
+public class CachingStorageService extends StorageService {
+    
+    private static class CacheEntry {
+        final String key;
+        final String path;
+        final boolean listing;
+        final Object value;
+        final long weight;
+        final long expiresAt;
+        
+        CacheEntry(String key, String path, boolean listing, Object value, long weight, long expiresAt) {
+            this.key = key;
+            this.path = path;
+            this.listing = listing;
+            this.value = value;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+    
+    private final StorageService delegate;
+    private final long maxBytes;
+    private final long metadataTtlNanos;
+    private final long listingTtlNanos;
+    private final boolean watchLocalChanges;
+    private final int maxWatchedDirectories;
+    
+    // Access-ordered for LRU; the path indexes find entries to invalidate by prefix
+    private final Object lock = new Object();
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final TreeMap<String, Set<String>> keysByPath = new TreeMap<>();
+    private long cachedBytes;
+    private long generation;
+    
+    // Local backend change notifications
+    private WatchService watchService;
+    private Thread watchThread;
+    private Path watchRoot;
+    private final Map<WatchKey, String> watchedDirectories = new HashMap<>();
+    private final Set<String> watchedPaths = new HashSet<>();
+    
+    public CachingStorageService(String serviceId, StorageService delegate, Map<String, Object> config) {
+        super(serviceId, config);
+        this.delegate = delegate;
+        this.maxBytes = ((Number) config.getOrDefault("cache_max_bytes", 16L * 1024 * 1024)).longValue();
+        this.metadataTtlNanos = ((Number) config.getOrDefault("metadata_ttl_ms", 30000)).longValue() * 1_000_000L;
+        this.listingTtlNanos = ((Number) config.getOrDefault("listing_ttl_ms", 10000)).longValue() * 1_000_000L;
+        this.watchLocalChanges = (Boolean) config.getOrDefault("watch_local_changes", true);
+        this.maxWatchedDirectories = ((Number) config.getOrDefault("max_watched_directories", 1024)).intValue();
+    }
+    
+    @Override
+    public void connect() throws StorageException {
+        if (!delegate.isConnected()) {
+            delegate.connect();
+        }
+        if (watchLocalChanges && delegate instanceof LocalFileSystem && watchService == null) {
+            try {
+                watchRoot = Paths.get(((LocalFileSystem) delegate).getRootDirectory());
+                watchService = watchRoot.getFileSystem().newWatchService();
+                watchThread = new Thread(this::processWatchEvents, "StorageCache-Watch-" + serviceId);
+                watchThread.setDaemon(true);
+                watchThread.start();
+            } catch (IOException e) {
+                // Falls back to TTL expiry only
+                System.err.println("Change notifications unavailable: " + e.getMessage());
+                watchService = null;
+            }
+        }
+        isConnected = true;
+        System.out.println("Caching storage connected over: " + delegate.getServiceId());
+    }
+    
+    @Override
+    public CompletableFuture<UploadResult> upload(UploadRequest uploadRequest) throws StorageException {
+        String path = normalize(uploadRequest.getFilePath());
+        invalidate(path);
+        return delegate.upload(uploadRequest).whenComplete((result, error) -> {
+            invalidate(path);
+            if (result != null && result.isSuccess()) {
+                metrics.addBytesTransferred(result.getUploadedSize());
+            }
+        });
+    }
+    
+    @Override
+    public DownloadResult download(DownloadRequest downloadRequest) throws StorageException {
+        long loadGeneration = currentGeneration();
+        DownloadResult result = delegate.download(downloadRequest);
+        // The backend resolved the metadata to serve the download; keep it for later lookups
+        metrics.addBytesTransferred(result.getContentLength());
+        if (result.isSuccess() && result.getMetadata() != null) {
+            String path = normalize(downloadRequest.getFilePath());
+            put("M:" + path, path, false, result.getMetadata(), weigh(result.getMetadata()),
+                metadataTtlNanos, loadGeneration);
+        }
+        return result;
+    }
+    
+    @Override
+    public DeleteResult delete(DeleteRequest deleteRequest) throws StorageException {
+        String path = normalize(deleteRequest.getFilePath());
+        try {
+            return delegate.delete(deleteRequest);
+        } finally {
+            invalidate(path);
+        }
+    }
+    
+    @Override
+    public FileListResult listFiles(ListRequest listRequest) throws StorageException {
+        String directory = normalize(listRequest.getDirectoryPath());
+        String key = listingKey(directory, listRequest);
+        FileListResult cached = (FileListResult) lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+        
+        long loadGeneration = currentGeneration();
+        FileListResult result = delegate.listFiles(listRequest);
+        if (result.isSuccess()) {
+            put(key, directory, true, result, weigh(result), listingTtlNanos, loadGeneration);
+        }
+        return result;
+    }
+    
+    @Override
+    public FileMetadata getMetadata(String path) throws StorageException {
+        String normalized = normalize(path);
+        String key = "M:" + normalized;
+        FileMetadata cached = (FileMetadata) lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+        
+        long loadGeneration = currentGeneration();
+        FileMetadata metadata = delegate.getMetadata(path);
+        put(key, normalized, false, metadata, weigh(metadata), metadataTtlNanos, loadGeneration);
+        return metadata;
+    }
+    
+    @Override
+    protected void postOperationHook(FileOperation operation, OperationResult result) {
+        super.postOperationHook(operation, result);
+        // upload() and delete() invalidate as they complete; repeated here so subclasses
+        // overriding them still keep the cache consistent through performFileOperation
+        if (operation.getType() == FileOperation.OperationType.UPLOAD) {
+            invalidate(normalize(operation.getUploadRequest().getFilePath()));
+        } else if (operation.getType() == FileOperation.OperationType.DELETE) {
+            invalidate(normalize(operation.getDeleteRequest().getFilePath()));
+        }
+    }
+    
+    private Object lookup(String key) {
+        synchronized (lock) {
+            CacheEntry entry = entries.get(key);
+            if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+                metrics.incrementCacheHit();
+                return entry.value;
+            }
+            if (entry != null) {
+                remove(entry);
+            }
+            metrics.incrementCacheMiss();
+            return null;
+        }
+    }
+    
+    private long currentGeneration() {
+        synchronized (lock) {
+            return generation;
+        }
+    }
+    
+    // A load that raced with an invalidation is not cached, since it may predate the change
+    private void put(String key, String path, boolean listing, Object value, long weight, long ttlNanos,
+                     long loadGeneration) {
+        if (weight > maxBytes / 4) {
+            return;
+        }
+        String watchDirectory;
+        synchronized (lock) {
+            if (generation != loadGeneration) {
+                return;
+            }
+            CacheEntry previous = entries.get(key);
+            if (previous != null) {
+                remove(previous);
+            }
+            CacheEntry entry = new CacheEntry(key, path, listing, value, weight, System.nanoTime() + ttlNanos);
+            entries.put(key, entry);
+            keysByPath.computeIfAbsent(path, p -> new HashSet<>()).add(key);
+            cachedBytes += weight;
+            
+            long evicted = 0;
+            Iterator<CacheEntry> eldest = entries.values().iterator();
+            while (cachedBytes > maxBytes && eldest.hasNext()) {
+                CacheEntry victim = eldest.next();
+                eldest.remove();
+                unindex(victim);
+                evicted++;
+            }
+            if (evicted > 0) {
+                metrics.addCacheEvictions(evicted);
+            }
+            watchDirectory = listing ? path : parentOf(path);
+        }
+        watch(watchDirectory);
+    }
+    
+    private void remove(CacheEntry entry) {
+        entries.remove(entry.key);
+        unindex(entry);
+    }
+    
+    private void unindex(CacheEntry entry) {
+        cachedBytes -= entry.weight;
+        Set<String> keys = keysByPath.get(entry.path);
+        if (keys != null) {
+            keys.remove(entry.key);
+            if (keys.isEmpty()) {
+                keysByPath.remove(entry.path);
+            }
+        }
+    }
+    
+    /**
+     * Drops cached metadata and listings for a path, everything below it and the listings
+     * of its ancestor directories.
+     */
+    public void invalidate(String path) {
+        synchronized (lock) {
+            generation++;
+            List<String> keys = new ArrayList<>();
+            Set<String> exact = keysByPath.get(path);
+            if (exact != null) {
+                keys.addAll(exact);
+            }
+            String childPrefix = path.isEmpty() ? "" : path + "/";
+            for (Set<String> below : keysByPath.subMap(childPrefix, true, childPrefix + Character.MAX_VALUE, true).values()) {
+                keys.addAll(below);
+            }
+            for (String ancestor = parentOf(path); ancestor != null; ancestor = parentOf(ancestor)) {
+                Set<String> ancestorKeys = keysByPath.get(ancestor);
+                if (ancestorKeys != null) {
+                    for (String key : ancestorKeys) {
+                        if (key.startsWith("L:")) {
+                            keys.add(key);
+                        }
+                    }
+                }
+            }
+            
+            long removed = 0;
+            for (String key : keys) {
+                CacheEntry entry = entries.get(key);
+                if (entry != null) {
+                    remove(entry);
+                    removed++;
+                }
+            }
+            if (removed > 0) {
+                metrics.addCacheInvalidations(removed);
+            }
+        }
+    }
+    
+    public void invalidateAll() {
+        synchronized (lock) {
+            generation++;
+            metrics.addCacheInvalidations(entries.size());
+            entries.clear();
+            keysByPath.clear();
+            cachedBytes = 0;
+        }
+    }
+    
+    private void watch(String directory) {
+        if (watchService == null || directory == null) {
+            return;
+        }
+        synchronized (watchedDirectories) {
+            if (watchedDirectories.size() >= maxWatchedDirectories || watchedPaths.contains(directory)) {
+                return;
+            }
+            try {
+                Path dir = directory.isEmpty() ? watchRoot : watchRoot.resolve(directory);
+                if (Files.isDirectory(dir)) {
+                    WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                                                StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                    watchedDirectories.put(key, directory);
+                    watchedPaths.add(directory);
+                }
+            } catch (IOException | ClosedWatchServiceException e) {
+                // Entries in this directory fall back to TTL expiry
+            }
+        }
+    }
+    
+    private void processWatchEvents() {
+        WatchService service = watchService;
+        while (true) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            
+            String directory;
+            synchronized (watchedDirectories) {
+                directory = watchedDirectories.get(key);
+            }
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                    invalidateAll();
+                } else {
+                    String name = event.context().toString();
+                    invalidate(directory.isEmpty() ? name : directory + "/" + name);
+                }
+            }
+            if (!key.reset()) {
+                synchronized (watchedDirectories) {
+                    watchedDirectories.remove(key);
+                    watchedPaths.remove(directory);
+                }
+                if (directory != null) {
+                    invalidate(directory);
+                }
+            }
+        }
+    }
+    
+    private static String listingKey(String directory, ListRequest request) {
+        StringBuilder key = new StringBuilder("L:").append(directory)
+            .append('\u0000').append(request.getPrefix())
+            .append('\u0000').append(request.getMaxResults())
+            .append('\u0000').append(request.getContinuationToken())
+            .append('\u0000').append(request.isRecursive());
+        if (request.getFilters() != null) {
+            key.append('\u0000').append(new TreeMap<>(request.getFilters()));
+        }
+        return key.toString();
+    }
+    
+    // Rough heap footprint, used only to bound the cache
+    private static long weigh(FileMetadata metadata) {
+        long weight = 256 + length(metadata.getFileName()) + length(metadata.getFilePath());
+        if (metadata.getCustomMetadata() != null) {
+            for (Map.Entry<String, String> entry : metadata.getCustomMetadata().entrySet()) {
+                weight += 64 + length(entry.getKey()) + length(entry.getValue());
+            }
+        }
+        return weight;
+    }
+    
+    private static long weigh(FileListResult result) {
+        long weight = 128;
+        if (result.getFiles() != null) {
+            for (FileInfo file : result.getFiles()) {
+                weight += 160 + length(file.getName()) + length(file.getPath()) + length(file.getEtag());
+            }
+        }
+        return weight;
+    }
+    
+    private static long length(String value) {
+        return value == null ? 0 : 40 + 2L * value.length();
+    }
+    
+    private static String parentOf(String path) {
+        if (path.isEmpty()) {
+            return null;
+        }
+        int slash = path.lastIndexOf('/');
+        return slash < 0 ? "" : path.substring(0, slash);
+    }
+    
+    private static String normalize(String path) {
+        String normalized = path == null ? "" : path.replace('\\', '/');
+        while (normalized.startsWith("/")) {
+            normalized = normalized.substring(1);
+        }
+        while (normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return normalized;
+    }
+    
+    @Override
+    public void disconnect() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close watch service: " + e.getMessage());
+            }
+            watchService = null;
+            synchronized (watchedDirectories) {
+                watchedDirectories.clear();
+                watchedPaths.clear();
+            }
+        }
+        invalidateAll();
+        delegate.disconnect();
+        super.disconnect();
+    }
+    
+    public StorageService getDelegate() { return delegate; }
+    public long getCachedBytes() { synchronized (lock) { return cachedBytes; } }
+    public int getCachedEntryCount() { synchronized (lock) { return entries.size(); } }
+}
@@ -0,0 +1,911 @@
+package abstraction.filestorage;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Deduplicating decorator for any StorageService
+ *
+ * Uploads are cut into content-defined chunks with a rolling hash, so an insert or edit
+ * only changes the chunks around it. Each chunk is stored once in the wrapped service
+ * under its SHA-256; the file's own path holds a small manifest listing its chunks. A
+ * local ChunkIndex records which chunks the backend already has, so re-uploading a
+ * mostly unchanged file only transfers the new chunks. ETags are the SHA-256 of the
+ * content. Chunks are reference counted and removed once no manifest uses them. The
+ * index is the only record of those references, so a backend must be written through a
+ * single instance. Backends restricting file extensions must allow "chunk".
+ */
+public class DeduplicatingStorageService extends StorageService {
+    
+    static final String CHUNK_DIRECTORY = ".dedup-chunks";
+    private static final String MANIFEST_HEADER = "DEDUP-MANIFEST 1";
+    
+    private final StorageService delegate;
+    private final ContentDefinedChunker chunker;
+    private final ChunkIndex index;
+    private final long progressIntervalBytes;
+    private final long progressIntervalMs;
+    
+    // Dedup statistics
+    private long logicalBytes;
+    private long uploadedChunkBytes;
+    private long deduplicatedBytes;
+    
+    public DeduplicatingStorageService(String serviceId, StorageService delegate, Map<String, Object> config) {
+        super(serviceId, config);
+        this.delegate = delegate;
+        this.chunker = new ContentDefinedChunker(
+            ((Number) config.getOrDefault("chunk_min_size", 16 * 1024)).intValue(),
+            ((Number) config.getOrDefault("chunk_avg_size", 64 * 1024)).intValue(),
+            ((Number) config.getOrDefault("chunk_max_size", 256 * 1024)).intValue());
+        this.index = new ChunkIndex(Paths.get((String) config.getOrDefault("chunk_index_path",
+                                                                            "dedup-index/" + serviceId + ".log")));
+        this.progressIntervalBytes = ((Number) config.getOrDefault("progress_interval_bytes", 1024 * 1024)).longValue();
+        this.progressIntervalMs = ((Number) config.getOrDefault("progress_interval_ms", 100)).longValue();
+    }
+    
+    @Override
+    public void connect() throws StorageException {
+        if (!delegate.isConnected()) {
+            delegate.connect();
+        }
+        try {
+            index.load();
+            // Chunks left unreferenced by interrupted uploads
+            deleteChunks(index.collectUnreferenced());
+        } catch (IOException e) {
+            throw new ConnectionException("Failed to load chunk index", e);
+        }
+        isConnected = true;
+        System.out.println("Deduplicating storage connected over: " + delegate.getServiceId());
+    }
+    
+    @Override
+    public CompletableFuture<UploadResult> upload(UploadRequest uploadRequest) throws StorageException {
+        if (!isConnected) {
+            throw new StorageException("Not connected to deduplicating storage");
+        }
+        
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return performDeduplicatedUpload(uploadRequest);
+            } catch (Exception e) {
+                if (uploadRequest.getProgressCallback() != null) {
+                    uploadRequest.getProgressCallback().onError(e.getMessage());
+                }
+                return UploadResult.failure(uploadRequest.getFilePath(), e.getMessage());
+            }
+        });
+    }
+    
+    private UploadResult performDeduplicatedUpload(UploadRequest request) throws StorageException, IOException {
+        String path = normalize(request.getFilePath());
+        if (isChunkPath(path)) {
+            throw new StorageException("Path is reserved for chunk storage: " + path, "RESERVED_PATH", false);
+        }
+        if (!request.isOverwrite() && index.getManifest(path) != null) {
+            throw new StorageException("File already exists: " + path, "FILE_EXISTS", false);
+        }
+        
+        ProgressThrottle progress = new ProgressThrottle(request.getProgressCallback(), request.getFileSize(),
+                                                         progressIntervalBytes, progressIntervalMs);
+        MessageDigest contentDigest = sha256();
+        List<ChunkRef> chunks = new ArrayList<>();
+        long size = 0;
+        long uploaded = 0;
+        Manifest manifest = null;
+        Manifest replaced = null;
+        boolean journaled = false;
+        boolean committed = false;
+        
+        try (InputStream input = request.getFileStream()) {
+            // Holds at least one maximum-size chunk ahead of the cut point
+            byte[] buffer = new byte[chunker.getMaxSize() * 2];
+            int start = 0;
+            int end = 0;
+            boolean eof = false;
+            while (true) {
+                if (!eof && end - start < chunker.getMaxSize()) {
+                    System.arraycopy(buffer, start, buffer, 0, end - start);
+                    end -= start;
+                    start = 0;
+                    int read;
+                    while (end < buffer.length && (read = input.read(buffer, end, buffer.length - end)) > 0) {
+                        end += read;
+                    }
+                    eof = end < buffer.length;
+                }
+                if (start == end) {
+                    break;
+                }
+                
+                int length = chunker.nextChunkLength(buffer, start, end - start);
+                contentDigest.update(buffer, start, length);
+                String hash = toHex(sha256().digest(Arrays.copyOfRange(buffer, start, start + length)));
+                
+                // The reference is taken before the upload so a concurrent delete cannot remove the chunk
+                if (!index.acquire(hash, length)) {
+                    uploadChunk(hash, buffer, start, length);
+                    index.markStored(hash);
+                    uploaded += length;
+                }
+                chunks.add(new ChunkRef(hash, length));
+                size += length;
+                progress.advance(length);
+                start += length;
+            }
+            
+            String etag = "\"" + toHex(contentDigest.digest()) + "\"";
+            manifest = new Manifest(size, etag, chunks);
+            byte[] manifestBytes = manifest.encode();
+            UploadRequest manifestUpload = new UploadRequest(path, new ByteArrayInputStream(manifestBytes),
+                                                             manifestBytes.length, request.getContentType());
+            manifestUpload.setMetadata(request.getMetadata());
+            manifestUpload.setOverwrite(true);
+            
+            // Journaled before the upload, so a crash in between cannot leave a stored manifest
+            // whose chunks the next connect collects as unreferenced
+            replaced = index.putManifest(path, manifest);
+            journaled = true;
+            UploadResult stored = awaitUpload(delegate.upload(manifestUpload));
+            committed = true;
+            
+            // Replacing a manifest releases the chunks only the old version used
+            if (replaced != null) {
+                deleteChunks(index.release(replaced.chunks));
+            }
+            
+            synchronized (this) {
+                logicalBytes += size;
+                uploadedChunkBytes += uploaded;
+                deduplicatedBytes += size - uploaded;
+            }
+            metrics.addBytesTransferred(uploaded + manifestBytes.length);
+            progress.complete();
+            
+            return UploadResult.success(stored.getFileId(), path, size, etag, stored.getVersionId());
+            
+        } finally {
+            if (journaled && !committed) {
+                deleteChunks(index.restoreManifest(path, manifest, replaced));
+            } else if (!committed) {
+                deleteChunks(index.release(chunks));
+            }
+        }
+    }
+    
+    private void uploadChunk(String hash, byte[] buffer, int offset, int length) throws StorageException {
+        UploadRequest chunkUpload = new UploadRequest(chunkPath(hash), new ByteArrayInputStream(buffer, offset, length),
+                                                      length, "application/octet-stream");
+        chunkUpload.setOverwrite(true);
+        awaitUpload(delegate.upload(chunkUpload));
+    }
+    
+    private static UploadResult awaitUpload(CompletableFuture<UploadResult> future) throws StorageException {
+        UploadResult result;
+        try {
+            result = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("Upload interrupted", e);
+        } catch (Exception e) {
+            throw new StorageException("Upload failed: " + e.getMessage(), e);
+        }
+        if (!result.isSuccess()) {
+            throw new StorageException("Upload failed for " + result.getFilePath() + ": " + result.getErrorMessage(),
+                                       "UPLOAD_FAILED", true);
+        }
+        return result;
+    }
+    
+    @Override
+    public DownloadResult download(DownloadRequest downloadRequest) throws StorageException {
+        if (!isConnected) {
+            throw new StorageException("Not connected to deduplicating storage");
+        }
+        
+        String path = normalize(downloadRequest.getFilePath());
+        Manifest manifest = readManifest(path);
+        if (manifest == null) {
+            // Not written through this layer
+            return delegate.download(downloadRequest);
+        }
+        
+        long start = 0;
+        long length = manifest.size;
+        if (downloadRequest.getRangeStart() >= 0 && downloadRequest.getRangeEnd() >= 0) {
+            start = downloadRequest.getRangeStart();
+            long end = downloadRequest.getRangeEnd();
+            if (start >= manifest.size || end >= manifest.size || start > end) {
+                throw new StorageException("Invalid range: " + start + "-" + end + " for file size " + manifest.size);
+            }
+            length = end - start + 1;
+        }
+        
+        FileMetadata metadata = describe(path, manifest, delegate.getMetadata(path));
+        metrics.addBytesTransferred(length);
+        return DownloadResult.success(new ChunkedContentStream(manifest.chunks, start, length), metadata, length);
+    }
+    
+    /**
+     * Reads the chunks of a manifest in order, fetching each from the wrapped service on demand.
+     */
+    private class ChunkedContentStream extends InputStream {
+        private final List<ChunkRef> chunks;
+        private int chunkIndex;
+        private long skipInChunk;
+        private long remaining;
+        private InputStream current;
+        
+        ChunkedContentStream(List<ChunkRef> chunks, long start, long length) {
+            this.chunks = chunks;
+            this.remaining = length;
+            long offset = 0;
+            while (chunkIndex < chunks.size() && offset + chunks.get(chunkIndex).length <= start) {
+                offset += chunks.get(chunkIndex++).length;
+            }
+            this.skipInChunk = start - offset;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) > 0 ? one[0] & 0xFF : -1;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (remaining > 0) {
+                if (current == null && !openNext()) {
+                    break;
+                }
+                int bytesRead = current.read(b, off, (int) Math.min(len, remaining));
+                if (bytesRead > 0) {
+                    remaining -= bytesRead;
+                    return bytesRead;
+                }
+                current.close();
+                current = null;
+            }
+            return -1;
+        }
+        
+        private boolean openNext() throws IOException {
+            if (chunkIndex >= chunks.size()) {
+                return false;
+            }
+            ChunkRef chunk = chunks.get(chunkIndex++);
+            try {
+                DownloadRequest request = skipInChunk > 0 ?
+                    new DownloadRequest(chunkPath(chunk.hash), skipInChunk, chunk.length - 1) :
+                    new DownloadRequest(chunkPath(chunk.hash));
+                skipInChunk = 0;
+                current = delegate.download(request).getContentStream();
+                return true;
+            } catch (StorageException e) {
+                throw new IOException("Missing chunk " + chunk.hash + ": " + e.getMessage(), e);
+            }
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+    }
+    
+    @Override
+    public DeleteResult delete(DeleteRequest deleteRequest) throws StorageException {
+        if (!isConnected) {
+            throw new StorageException("Not connected to deduplicating storage");
+        }
+        
+        String path = normalize(deleteRequest.getFilePath());
+        if (isChunkPath(path)) {
+            // Chunks are freed by reference count; deleting them directly would orphan manifests
+            throw new StorageException("Path is reserved for chunk storage: " + path, "RESERVED_PATH", false);
+        }
+        DeleteResult result = delegate.delete(deleteRequest);
+        if (result.isSuccess()) {
+            try {
+                deleteChunks(deleteRequest.isRecursive() ? index.removeManifestsUnder(path) : index.removeManifest(path));
+            } catch (IOException e) {
+                throw new StorageException("Failed to update chunk index: " + e.getMessage(), e);
+            }
+        }
+        return result;
+    }
+    
+    @Override
+    public FileListResult listFiles(ListRequest listRequest) throws StorageException {
+        // Hide chunk storage and report logical sizes and content ETags for manifests
+        String base = normalize(listRequest.getDirectoryPath());
+        if (isChunkPath(base)) {
+            return FileListResult.success(new ArrayList<>(), null, false, 0);
+        }
+        
+        int pageSize = Math.max(1, listRequest.getMaxResults());
+        List<FileInfo> files = new ArrayList<>(Math.min(pageSize, 1024));
+        ListRequest request = listRequest;
+        FileListResult result;
+        while (true) {
+            // Ask only for what the page still needs, so the delegate's token resumes
+            // right after the last entry this page consumed
+            ListRequest fetch = request.withContinuationToken(request.getContinuationToken());
+            fetch.setMaxResults(pageSize - files.size());
+            result = delegate.listFiles(fetch);
+            if (!result.isSuccess() || result.getFiles() == null) {
+                return result;
+            }
+            
+            boolean endsInChunkTree = false;
+            for (FileInfo file : result.getFiles()) {
+                String fullPath = base.isEmpty() ? normalize(file.getPath()) : base + "/" + normalize(file.getPath());
+                endsInChunkTree = fullPath.startsWith(CHUNK_DIRECTORY + "/");
+                if (isChunkPath(fullPath)) {
+                    continue;
+                }
+                Manifest manifest = index.getManifest(fullPath);
+                if (manifest != null && !file.isDirectory()) {
+                    FileInfo logical = new FileInfo(file.getName(), file.getPath(), manifest.size, false, file.getLastModified());
+                    logical.setEtag(manifest.etag);
+                    files.add(logical);
+                } else {
+                    files.add(file);
+                }
+            }
+            if (files.size() >= pageSize || !result.hasMore()) {
+                break;
+            }
+            
+            // Everything from inside the chunk tree to its end is hidden, so jump the cursor past it
+            // rather than paging through every chunk
+            String token = endsInChunkTree ?
+                ListingCursor.encode(fetch, ListingCursor.endOfSubtree(CHUNK_DIRECTORY)) : result.getNextContinuationToken();
+            request = fetch.withContinuationToken(token);
+        }
+        return FileListResult.success(files, result.getNextContinuationToken(), result.hasMore(), files.size());
+    }
+    
+    private static boolean isChunkPath(String path) {
+        return path.equals(CHUNK_DIRECTORY) || path.startsWith(CHUNK_DIRECTORY + "/");
+    }
+    
+    @Override
+    public FileMetadata getMetadata(String path) throws StorageException {
+        String normalized = normalize(path);
+        FileMetadata stored = delegate.getMetadata(normalized);
+        Manifest manifest = index.getManifest(normalized);
+        return manifest != null ? describe(normalized, manifest, stored) : stored;
+    }
+    
+    private static FileMetadata describe(String path, Manifest manifest, FileMetadata stored) {
+        FileMetadata metadata = new FileMetadata(stored.getFileName(), path, manifest.size, stored.getContentType());
+        metadata.setModifiedTime(stored.getModifiedTime());
+        metadata.setEtag(manifest.etag);
+        metadata.setVersionId(stored.getVersionId());
+        Map<String, String> custom = stored.getCustomMetadata() != null ?
+            new HashMap<>(stored.getCustomMetadata()) : new HashMap<>();
+        custom.put("dedup-chunks", String.valueOf(manifest.chunks.size()));
+        metadata.setCustomMetadata(custom);
+        return metadata;
+    }
+    
+    // The local index is consulted first; files it does not know are read as stored, and
+    // anything without a manifest header is a plain file written straight to the backend
+    private Manifest readManifest(String path) throws StorageException {
+        Manifest known = index.getManifest(path);
+        if (known != null) {
+            return known;
+        }
+        DownloadResult stored = delegate.download(new DownloadRequest(path));
+        try (InputStream in = new BufferedInputStream(stored.getContentStream())) {
+            in.mark(MANIFEST_HEADER.length() + 1);
+            byte[] header = in.readNBytes(MANIFEST_HEADER.length());
+            if (!MANIFEST_HEADER.equals(new String(header, StandardCharsets.UTF_8))) {
+                return null;
+            }
+            in.reset();
+            return Manifest.decode(in);
+        } catch (IOException e) {
+            throw new StorageException("Failed to read manifest for " + path + ": " + e.getMessage(), e);
+        }
+    }
+    
+    private void deleteChunks(List<String> hashes) {
+        for (String hash : hashes) {
+            try {
+                DeleteResult result = delegate.delete(new DeleteRequest(chunkPath(hash), true));
+                if (!result.isSuccess()) {
+                    System.err.println("Failed to delete unreferenced chunk " + hash + ": " + result.getErrorMessage());
+                }
+            } catch (StorageException e) {
+                System.err.println("Failed to delete unreferenced chunk " + hash + ": " + e.getMessage());
+            }
+        }
+    }
+    
+    static String chunkPath(String hash) {
+        return CHUNK_DIRECTORY + "/" + hash.substring(0, 2) + "/" + hash + ".chunk";
+    }
+    
+    private static String normalize(String path) {
+        String normalized = path.replace('\\', '/');
+        while (normalized.startsWith("/")) {
+            normalized = normalized.substring(1);
+        }
+        while (normalized.endsWith("/")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        return normalized;
+    }
+    
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+    
+    @Override
+    public void disconnect() {
+        try {
+            index.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close chunk index: " + e.getMessage());
+        }
+        delegate.disconnect();
+        super.disconnect();
+    }
+    
+    // Dedup statistics
+    public StorageService getDelegate() { return delegate; }
+    public synchronized long getLogicalBytesUploaded() { return logicalBytes; }
+    public synchronized long getChunkBytesUploaded() { return uploadedChunkBytes; }
+    public synchronized long getDeduplicatedBytes() { return deduplicatedBytes; }
+    public synchronized double getDeduplicationRatio() {
+        return logicalBytes > 0 ? (double) deduplicatedBytes / logicalBytes : 0;
+    }
+    public long getStoredChunkCount() { return index.getChunkCount(); }
+    public long getStoredChunkBytes() { return index.getStoredBytes(); }
+}
+
+/**
+ * Content-defined chunking with a gear rolling hash (FastCDC-style)
+ *
+ * A cut is made where the top bits of the hash are zero. Below the average size a
+ * stricter mask is used and above it a looser one, which keeps chunk sizes close to
+ * the average. The gear table is fixed, so the same content always cuts the same way.
+ */
+class ContentDefinedChunker {
+    private static final long[] GEAR = new long[256];
+    
+    static {
+        // Deterministic table: chunk boundaries must not change between runs
+        long seed = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < GEAR.length; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            long z = seed;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            GEAR[i] = z ^ (z >>> 31);
+        }
+    }
+    
+    private final int minSize;
+    private final int avgSize;
+    private final int maxSize;
+    private final long strictMask;
+    private final long looseMask;
+    
+    ContentDefinedChunker(int minSize, int avgSize, int maxSize) {
+        if (minSize <= 0 || minSize > avgSize || avgSize > maxSize) {
+            throw new IllegalArgumentException("Chunk sizes must satisfy 0 < min <= avg <= max");
+        }
+        this.minSize = minSize;
+        this.avgSize = avgSize;
+        this.maxSize = maxSize;
+        int bits = 63 - Long.numberOfLeadingZeros(avgSize);
+        this.strictMask = topBits(bits + 1);
+        this.looseMask = topBits(Math.max(1, bits - 1));
+    }
+    
+    private static long topBits(int count) {
+        return count >= 64 ? -1L : ((1L << count) - 1) << (64 - count);
+    }
+    
+    /**
+     * Returns the length of the next chunk starting at offset; length is what is buffered,
+     * which must be at least maxSize unless the input ends within it.
+     */
+    int nextChunkLength(byte[] data, int offset, int length) {
+        if (length <= minSize) {
+            return length;
+        }
+        int limit = Math.min(length, maxSize);
+        int normal = Math.min(limit, avgSize);
+        long hash = 0;
+        int i = minSize;
+        for (; i < normal; i++) {
+            hash = (hash << 1) + GEAR[data[offset + i] & 0xFF];
+            if ((hash & strictMask) == 0) {
+                return i + 1;
+            }
+        }
+        for (; i < limit; i++) {
+            hash = (hash << 1) + GEAR[data[offset + i] & 0xFF];
+            if ((hash & looseMask) == 0) {
+                return i + 1;
+            }
+        }
+        return limit;
+    }
+    
+    int getMaxSize() { return maxSize; }
+}
+
+// Chunk reference within a manifest
+class ChunkRef {
+    final String hash;
+    final int length;
+    
+    ChunkRef(String hash, int length) {
+        this.hash = hash;
+        this.length = length;
+    }
+}
+
+// Manifest stored at a deduplicated file's path
+class Manifest {
+    final long size;
+    final String etag;
+    final List<ChunkRef> chunks;
+    
+    Manifest(long size, String etag, List<ChunkRef> chunks) {
+        this.size = size;
+        this.etag = etag;
+        this.chunks = chunks;
+    }
+    
+    byte[] encode() {
+        StringBuilder text = new StringBuilder(64 + chunks.size() * 80);
+        text.append("DEDUP-MANIFEST 1\n");
+        text.append("size ").append(size).append('\n');
+        text.append("etag ").append(etag).append('\n');
+        for (ChunkRef chunk : chunks) {
+            text.append(chunk.hash).append(' ').append(chunk.length).append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    static Manifest decode(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        reader.readLine(); // header
+        long size = Long.parseLong(field(reader.readLine(), "size"));
+        String etag = field(reader.readLine(), "etag");
+        List<ChunkRef> chunks = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null && !line.isEmpty()) {
+            int space = line.indexOf(' ');
+            chunks.add(new ChunkRef(line.substring(0, space), Integer.parseInt(line.substring(space + 1))));
+        }
+        return new Manifest(size, etag, chunks);
+    }
+    
+    private static String field(String line, String name) throws IOException {
+        if (line == null || !line.startsWith(name + " ")) {
+            throw new IOException("Malformed manifest: expected " + name);
+        }
+        return line.substring(name.length() + 1);
+    }
+}
+
+/**
+ * Local index of stored chunks and the manifests referencing them
+ *
+ * Kept in memory and journaled to a tab-separated log (C stored chunk, X removed chunk,
+ * M manifest, D deleted manifest); the log is rewritten compactly once it is mostly
+ * superseded entries. Reference counts are derived from the manifests on load; uploads
+ * in progress hold references too, so a chunk is never deleted while one may still use it.
+ */
+class ChunkIndex implements Closeable {
+    private static class ChunkEntry {
+        final int size;
+        int references;
+        boolean stored;
+        
+        ChunkEntry(int size) {
+            this.size = size;
+        }
+    }
+    
+    private final Path journalPath;
+    private final Map<String, ChunkEntry> chunks = new HashMap<>();
+    private final Map<String, Manifest> manifests = new HashMap<>();
+    private FileOutputStream journalFile;
+    private Writer journal;
+    private long journalEntries;
+    private long storedBytes;
+    
+    ChunkIndex(Path journalPath) {
+        this.journalPath = journalPath;
+    }
+    
+    synchronized void load() throws IOException {
+        close();
+        chunks.clear();
+        manifests.clear();
+        storedBytes = 0;
+        journalEntries = 0;
+        if (journalPath.getParent() != null) {
+            Files.createDirectories(journalPath.getParent());
+        }
+        
+        if (Files.exists(journalPath)) {
+            try (BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    replay(line.split("\t"));
+                    journalEntries++;
+                }
+            }
+        }
+        for (Manifest manifest : manifests.values()) {
+            for (ChunkRef chunk : manifest.chunks) {
+                ChunkEntry entry = chunks.get(chunk.hash);
+                if (entry != null) {
+                    entry.references++;
+                }
+            }
+        }
+        openJournal();
+    }
+    
+    private void openJournal() throws IOException {
+        journalFile = new FileOutputStream(journalPath.toFile(), true);
+        journal = new BufferedWriter(new OutputStreamWriter(journalFile, StandardCharsets.UTF_8));
+    }
+    
+    private void replay(String[] fields) {
+        switch (fields[0]) {
+            case "C":
+                if (fields.length == 3 && !chunks.containsKey(fields[1])) {
+                    ChunkEntry entry = new ChunkEntry(Integer.parseInt(fields[2]));
+                    entry.stored = true;
+                    chunks.put(fields[1], entry);
+                    storedBytes += entry.size;
+                }
+                break;
+            case "X":
+                ChunkEntry removed = chunks.remove(fields[1]);
+                if (removed != null) {
+                    storedBytes -= removed.size;
+                }
+                break;
+            case "M":
+                if (fields.length >= 4) {
+                    List<ChunkRef> refs = new ArrayList<>();
+                    for (int i = 4; i < fields.length; i++) {
+                        int colon = fields[i].indexOf(':');
+                        refs.add(new ChunkRef(fields[i].substring(0, colon), Integer.parseInt(fields[i].substring(colon + 1))));
+                    }
+                    manifests.put(fields[1], new Manifest(Long.parseLong(fields[2]), fields[3], refs));
+                }
+                break;
+            case "D":
+                manifests.remove(fields[1]);
+                break;
+            default:
+                // Torn last line from a crash; ignored
+        }
+    }
+    
+    /**
+     * Takes a reference on a chunk; returns true if it is already stored and need not be uploaded.
+     */
+    synchronized boolean acquire(String hash, int size) {
+        ChunkEntry entry = chunks.computeIfAbsent(hash, h -> new ChunkEntry(size));
+        entry.references++;
+        return entry.stored;
+    }
+    
+    synchronized void markStored(String hash) throws IOException {
+        ChunkEntry entry = chunks.get(hash);
+        if (entry != null && !entry.stored) {
+            entry.stored = true;
+            storedBytes += entry.size;
+            append("C\t" + hash + "\t" + entry.size);
+        }
+    }
+    
+    /**
+     * Drops references taken by acquire; returns stored chunks that are no longer referenced.
+     */
+    synchronized List<String> release(List<ChunkRef> refs) throws IOException {
+        List<String> unreferenced = new ArrayList<>();
+        for (ChunkRef ref : refs) {
+            ChunkEntry entry = chunks.get(ref.hash);
+            if (entry == null) {
+                continue;
+            }
+            if (--entry.references <= 0) {
+                chunks.remove(ref.hash);
+                if (entry.stored) {
+                    storedBytes -= entry.size;
+                    append("X\t" + ref.hash);
+                    unreferenced.add(ref.hash);
+                }
+            }
+        }
+        flush();
+        return unreferenced;
+    }
+    
+    /**
+     * Durably records a manifest whose chunk references were taken with acquire; returns the
+     * manifest it replaces, whose references the caller releases once the new one is stored.
+     * Until then a crash leaves them uncounted, so the next load collects them.
+     */
+    synchronized Manifest putManifest(String path, Manifest manifest) throws IOException {
+        appendManifest(path, manifest);
+        Manifest previous = manifests.put(path, manifest);
+        flush();
+        compactIfNeeded();
+        return previous;
+    }
+    
+    /**
+     * Undoes putManifest after the manifest failed to store; returns the chunks that became
+     * unreferenced.
+     */
+    synchronized List<String> restoreManifest(String path, Manifest failed, Manifest previous) throws IOException {
+        if (manifests.get(path) != failed) {
+            // A later upload already replaced it and releases its references
+            return previous != null ? release(previous.chunks) : Collections.emptyList();
+        }
+        if (previous == null) {
+            return removeManifest(path);
+        }
+        appendManifest(path, previous);
+        manifests.put(path, previous);
+        List<String> unreferenced = release(failed.chunks);
+        compactIfNeeded();
+        return unreferenced;
+    }
+    
+    private void appendManifest(String path, Manifest manifest) throws IOException {
+        StringBuilder line = new StringBuilder("M\t").append(path).append('\t')
+            .append(manifest.size).append('\t').append(manifest.etag);
+        for (ChunkRef chunk : manifest.chunks) {
+            line.append('\t').append(chunk.hash).append(':').append(chunk.length);
+        }
+        append(line.toString());
+    }
+    
+    synchronized List<String> removeManifest(String path) throws IOException {
+        Manifest removed = manifests.remove(path);
+        if (removed == null) {
+            return Collections.emptyList();
+        }
+        append("D\t" + path);
+        List<String> unreferenced = release(removed.chunks);
+        compactIfNeeded();
+        return unreferenced;
+    }
+    
+    synchronized List<String> removeManifestsUnder(String directory) throws IOException {
+        String prefix = directory.isEmpty() ? "" : directory + "/";
+        List<String> paths = new ArrayList<>();
+        for (String path : manifests.keySet()) {
+            if (path.equals(directory) || path.startsWith(prefix)) {
+                paths.add(path);
+            }
+        }
+        List<String> unreferenced = new ArrayList<>();
+        for (String path : paths) {
+            unreferenced.addAll(removeManifest(path));
+        }
+        return unreferenced;
+    }
+    
+    // Stored chunks no manifest refers to, e.g. after a crash mid-upload
+    synchronized List<String> collectUnreferenced() throws IOException {
+        List<String> unreferenced = new ArrayList<>();
+        Iterator<Map.Entry<String, ChunkEntry>> entries = chunks.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, ChunkEntry> entry = entries.next();
+            if (entry.getValue().references <= 0) {
+                entries.remove();
+                storedBytes -= entry.getValue().size;
+                append("X\t" + entry.getKey());
+                unreferenced.add(entry.getKey());
+            }
+        }
+        flush();
+        return unreferenced;
+    }
+    
+    synchronized Manifest getManifest(String path) {
+        return manifests.get(path);
+    }
+    
+    private void append(String line) throws IOException {
+        if (journal == null) {
+            throw new IOException("Chunk index is not loaded");
+        }
+        journal.write(line);
+        journal.write('\n');
+        journalEntries++;
+    }
+    
+    // Forced to disk, so a journaled manifest survives a crash before its upload finishes
+    private void flush() throws IOException {
+        if (journal != null) {
+            journal.flush();
+            journalFile.getFD().sync();
+        }
+    }
+    
+    private void compactIfNeeded() throws IOException {
+        long live = chunks.size() + manifests.size();
+        if (journalEntries < 1024 || journalEntries < live * 2) {
+            return;
+        }
+        Path temp = journalPath.resolveSibling(journalPath.getFileName() + ".tmp");
+        long entries = 0;
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(file, StandardCharsets.UTF_8))) {
+            for (Map.Entry<String, ChunkEntry> chunk : chunks.entrySet()) {
+                if (chunk.getValue().stored) {
+                    out.write("C\t" + chunk.getKey() + "\t" + chunk.getValue().size + "\n");
+                    entries++;
+                }
+            }
+            for (Map.Entry<String, Manifest> manifest : manifests.entrySet()) {
+                out.write("M\t" + manifest.getKey() + "\t" + manifest.getValue().size + "\t" + manifest.getValue().etag);
+                for (ChunkRef chunk : manifest.getValue().chunks) {
+                    out.write("\t" + chunk.hash + ":" + chunk.length);
+                }
+                out.write('\n');
+                entries++;
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        journal.close();
+        Files.move(temp, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        openJournal();
+        journalEntries = entries;
+    }
+    
+    synchronized long getChunkCount() { return chunks.size(); }
+    synchronized long getStoredBytes() { return storedBytes; }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+            journalFile = null;
+        }
+    }
+}
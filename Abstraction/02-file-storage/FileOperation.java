@@ -126,3 +126,13 @@ class InsufficientPermissionsException extends StorageException {
 class QuotaExceededException extends StorageException {
     public QuotaExceededException(String message) { super(message); }
 }
+
+// Carries a StorageException out of lazily evaluated streams
+class UncheckedStorageException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    
+    public UncheckedStorageException(StorageException cause) { super(cause.getMessage(), cause); }
+    
+    @Override
+    public synchronized StorageException getCause() { return (StorageException) super.getCause(); }
+}
@@ -1,8 +1,14 @@
 package abstraction.filestorage;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Demo class showcasing polymorphic usage of different storage services
@@ -41,6 +47,9 @@ public class FileStorageDemo {
             System.out.println("-".repeat(60));
         }
         
+        // Run one mixed batch through the bulk engine across two backends
+        testBulkOperations();
+        
         System.out.println("\n=== Demo completed ===");
     }
     
@@ -69,10 +78,23 @@ public class FileStorageDemo {
         localConfig.put("atomic_operations", true);
         localConfig.put("allowed_extensions", java.util.Arrays.asList("txt", "pdf", "jpg", "png", "docx"));
         
+        // Deduplicating layer over a local file system
+        Map<String, Object> dedupLocalConfig = new HashMap<>(localConfig);
+        dedupLocalConfig.put("allowed_extensions", java.util.Arrays.asList("txt", "pdf", "jpg", "png", "docx", "chunk"));
+        Map<String, Object> dedupConfig = new HashMap<>();
+        dedupConfig.put("chunk_index_path", System.getProperty("java.io.tmpdir") + "/dedup-index/dedup_service_001.log");
+        dedupConfig.put("chunk_min_size", 2 * 1024);
+        dedupConfig.put("chunk_avg_size", 8 * 1024);
+        dedupConfig.put("chunk_max_size", 32 * 1024);
+        
         return new StorageService[] {
             new AWS_S3("s3_service_001", s3Config),
             new GoogleDrive("gdrive_service_001", driveConfig),
-            new LocalFileSystem("local_service_001", localConfig)
+            new LocalFileSystem("local_service_001", localConfig),
+            new DeduplicatingStorageService("dedup_service_001",
+                new LocalFileSystem("local_service_002", dedupLocalConfig), dedupConfig),
+            new CachingStorageService("cache_service_001",
+                new LocalFileSystem("local_service_003", localConfig), new HashMap<>())
         };
     }
     
@@ -160,6 +182,80 @@ public class FileStorageDemo {
         }
     }
     
+    private static void testBulkOperations() {
+        System.out.println("Testing bulk operations across two local backends");
+        
+        Map<String, Object> localConfig = new HashMap<>();
+        localConfig.put("root_directory", System.getProperty("java.io.tmpdir"));
+        localConfig.put("allowed_extensions", java.util.Arrays.asList("txt"));
+        StorageService source = new LocalFileSystem("bulk_source_001", localConfig);
+        StorageService target = new CachingStorageService("bulk_target_001",
+            new LocalFileSystem("bulk_target_local_001", localConfig), new HashMap<>());
+        
+        Map<String, Object> bulkConfig = new HashMap<>();
+        bulkConfig.put("backend_concurrency", 4);
+        bulkConfig.put("max_retries", 2);
+        
+        try (BulkOperationEngine engine = new BulkOperationEngine(bulkConfig)) {
+            source.connect();
+            target.connect();
+            
+            // Seed the source with files of different sizes
+            List<BulkItem> seed = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                byte[] content = ("bulk file " + i + "\n").repeat(256 << i).getBytes();
+                seed.add(BulkItem.upload(source, "bulk/file_" + i + ".txt",
+                                         () -> new ByteArrayInputStream(content), content.length)
+                                 .setContentType("text/plain"));
+            }
+            printBulkResult("\n1. Seeding source", engine.execute(seed));
+            
+            // One batch mixing every item type. The extra upload's first read fails and is
+            // retried; the missing download is expected to fail outright
+            Path downloads = Files.createTempDirectory("bulk-downloads");
+            byte[] extra = "uploaded in the mixed batch\n".getBytes();
+            AtomicInteger extraOpens = new AtomicInteger();
+            List<BulkItem> mixed = new ArrayList<>();
+            mixed.add(BulkItem.upload(source, "bulk/extra.txt", () -> {
+                if (extraOpens.getAndIncrement() == 0) {
+                    throw new IOException("Simulated transient read failure");
+                }
+                return new ByteArrayInputStream(extra);
+            }, extra.length).setContentType("text/plain"));
+            mixed.add(BulkItem.copy(source, "bulk/file_3.txt", target, "bulk-copy/file_3.txt", 0));
+            mixed.add(BulkItem.copy(source, "bulk/file_2.txt", target, "bulk-copy/file_2.txt", 0));
+            mixed.add(BulkItem.download(source, "bulk/file_1.txt", downloads.resolve("file_1.txt"), 0));
+            mixed.add(BulkItem.download(source, "bulk/missing.txt", downloads.resolve("missing.txt"), 0));
+            mixed.add(BulkItem.delete(source, "bulk/file_0.txt", true));
+            printBulkResult("\n2. Mixed upload/copy/download/delete batch", engine.execute(mixed));
+            
+            source.disconnect();
+            target.disconnect();
+        } catch (Exception e) {
+            System.err.println("Bulk operation test failed: " + e.getMessage());
+        }
+        
+        System.out.println("-".repeat(60));
+    }
+    
+    private static void printBulkResult(String title, BulkResult result) {
+        System.out.println(title + "...");
+        // Results come back in submission order, whatever order the lanes finished in
+        for (BulkItemResult item : result.getResults()) {
+            String line = item.getItem().getType() + " " + item.getItem().getPath();
+            if (item.isSuccess()) {
+                System.out.println("   ✓ " + line + " (" + item.getBytesTransferred() + " bytes, " +
+                                   item.getAttempts() + " attempt(s))");
+            } else {
+                System.out.println("   ✗ " + line + ": " + item.getErrorMessage());
+            }
+        }
+        System.out.println("   Succeeded: " + result.getSuccessCount() + ", failed: " + result.getFailureCount() +
+                           ", retries: " + result.getRetryCount());
+        System.out.println("   Bytes transferred: " + result.getTotalBytesTransferred() +
+                           " in " + result.getElapsedMs() + " ms");
+    }
+    
     private static UploadRequest createSampleUploadRequest() {
         String sampleContent = "This is a sample file for testing storage services.\n" +
                               "It demonstrates the abstraction pattern in action.\n" +
@@ -218,5 +314,11 @@ public class FileStorageDemo {
         System.out.println("  Success rate: " + String.format("%.1f%%", metrics.getSuccessRate()));
         System.out.println("  Total bytes transferred: " + metrics.getTotalBytesTransferred());
         System.out.println("  Error count: " + metrics.getErrorCount());
+        
+        if (metrics.getCacheHits() + metrics.getCacheMisses() > 0) {
+            System.out.println("  Cache hit ratio: " + String.format("%.1f%%", metrics.getCacheHitRatio() * 100));
+            System.out.println("  Cache evictions: " + metrics.getCacheEvictions());
+            System.out.println("  Cache invalidations: " + metrics.getCacheInvalidations());
+        }
     }
 }
@@ -18,6 +18,7 @@ public class GoogleDrive extends StorageService {
     private String accessToken;
     private boolean enableSharing;
     private String defaultFolderId;
+    private int simulatedFileCount;
     
     public GoogleDrive(String serviceId, Map<String, Object> config) {
         super(serviceId, config);
@@ -26,6 +27,7 @@ public class GoogleDrive extends StorageService {
         this.refreshToken = (String) config.get("refresh_token");
         this.enableSharing = (Boolean) config.getOrDefault("enable_sharing", false);
         this.defaultFolderId = (String) config.getOrDefault("folder_id", "root");
+        this.simulatedFileCount = ((Number) config.getOrDefault("simulated_file_count", 2500)).intValue();
     }
     
     @Override
@@ -274,31 +276,39 @@ public class GoogleDrive extends StorageService {
                 throw new FileNotFoundException("Folder not found: " + listRequest.getDirectoryPath());
             }
             
+            // Entries ordered by name (orderBy=name), resumed after the cursor
+            String after = ListingCursor.decode(listRequest);
+            ListingFilter filter = new ListingFilter(listRequest);
+            int pageSize = Math.min(Math.max(1, listRequest.getMaxResults()), 1000);
+            
             List<FileInfo> files = new ArrayList<>();
-            int maxResults = Math.min(listRequest.getMaxResults(), 1000);
-            
-            // Simulate Google Drive file listing
-            for (int i = 0; i < maxResults; i++) {
-                String fileName = "gdrive_file_" + i + ".docx";
-                String fullPath = listRequest.getDirectoryPath() + "/" + fileName;
-                long size = (long) (Math.random() * 5 * 1024 * 1024); // Up to 5MB
-                LocalDateTime lastModified = LocalDateTime.now().minusDays((long) (Math.random() * 60));
-                
-                FileInfo fileInfo = new FileInfo(fileName, fullPath, size, false, lastModified);
-                fileInfo.setEtag("\"" + System.currentTimeMillis() + "_" + i + "\"");
-                files.add(fileInfo);
-                
-                // Add some folders
-                if (i % 5 == 0) {
-                    String folderName = "folder_" + i;
-                    String folderPath = listRequest.getDirectoryPath() + "/" + folderName;
-                    FileInfo folderInfo = new FileInfo(folderName, folderPath, 0, true, lastModified);
-                    files.add(folderInfo);
+            boolean hasMore = false;
+            for (int i = firstEntryAfter(after); i < simulatedEntryCount(); i++) {
+                String name = simulatedEntryName(i);
+                boolean isFolder = i < simulatedFolderCount();
+                if (!filter.matchesName(name, name)) {
+                    continue;
+                }
+                int hash = Objects.hash(folderId, name);
+                long size = isFolder ? 0 : Math.floorMod(hash, 5 * 1024 * 1024); // Up to 5MB
+                if (!filter.matchesAttributes(size, isFolder)) {
+                    continue;
+                }
+                if (files.size() == pageSize) {
+                    hasMore = true;
+                    break;
                 }
+            
+                String fullPath = listRequest.getDirectoryPath() + "/" + name;
+                LocalDateTime lastModified = LocalDateTime.now().minusDays(Math.floorMod(hash, 60));
+                FileInfo fileInfo = new FileInfo(name, fullPath, size, isFolder, lastModified);
+                if (!isFolder) {
+                    fileInfo.setEtag("\"" + Integer.toHexString(hash) + "_" + i + "\"");
+                }
+                files.add(fileInfo);
             }
             
-            boolean hasMore = files.size() == maxResults;
-            String nextToken = hasMore ? "pageToken_" + UUID.randomUUID().toString() : null;
+            String nextToken = hasMore ? ListingCursor.encode(listRequest, files.get(files.size() - 1).getName()) : null;
             
             return FileListResult.success(files, nextToken, hasMore, files.size());
             
@@ -363,6 +373,39 @@ public class GoogleDrive extends StorageService {
         // Simulate quota check (return available bytes)
         return 15L * 1024 * 1024 * 1024; // 15GB default Google Drive quota
     }
+        
+    // Simulated folder contents: one folder per five files; folders sort before files by name
+    private int simulatedFolderCount() {
+        return (simulatedFileCount + 4) / 5;
+    }
+    
+    private int simulatedEntryCount() {
+        return simulatedFolderCount() + simulatedFileCount;
+    }
+    
+    private String simulatedEntryName(int index) {
+        int folders = simulatedFolderCount();
+        return index < folders ?
+            String.format("folder_%06d", index * 5) :
+            String.format("gdrive_file_%06d.docx", index - folders);
+    }
+    
+    private int firstEntryAfter(String after) {
+        if (after == null) {
+            return 0;
+        }
+        int low = 0;
+        int high = simulatedEntryCount();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (simulatedEntryName(mid).compareTo(after) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
     
     private String findFileByName(String path) {
         // Simulate file search by name
@@ -1,16 +1,28 @@
 package abstraction.filestorage;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.*;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Local File System Storage Service Implementation
  * Features: Direct file system access, symbolic links, file permissions, atomic operations
+ *
+ * Uploads from files go through FileChannel.transferTo, so the kernel copies the data;
+ * other streams are read with transferFrom in large chunks. Uploads above the parallel
+ * threshold are written as chunks at their own offsets on a small transfer pool.
+ * Downloads are served by positional reads, which also hand off to transferTo.
  */
 public class LocalFileSystem extends StorageService {
     
@@ -19,6 +31,19 @@ public class LocalFileSystem extends StorageService {
     private boolean enableAtomicOperations;
     private Set<String> allowedExtensions;
     
+    // Transfers
+    private final int transferChunkSize;
+    private final long parallelThreshold;
+    private final int transferParallelism;
+    private final long progressIntervalBytes;
+    private final long progressIntervalMs;
+    private volatile ExecutorService transferExecutor;
+    private final Queue<ByteBuffer> transferBuffers = new ConcurrentLinkedQueue<>();
+    
+    // Listing
+    private final int listingParallelism;
+    private volatile ForkJoinPool listingPool;
+    
     public LocalFileSystem(String serviceId, Map<String, Object> config) {
         super(serviceId, config);
         this.rootDirectory = (String) config.getOrDefault("root_directory", System.getProperty("user.home"));
@@ -28,6 +53,15 @@ public class LocalFileSystem extends StorageService {
         @SuppressWarnings("unchecked")
         List<String> extensions = (List<String>) config.get("allowed_extensions");
         this.allowedExtensions = extensions != null ? new HashSet<>(extensions) : null;
+        
+        this.transferChunkSize = ((Number) config.getOrDefault("transfer_chunk_size", 8 * 1024 * 1024)).intValue();
+        this.parallelThreshold = ((Number) config.getOrDefault("parallel_upload_threshold", 64L * 1024 * 1024)).longValue();
+        this.transferParallelism = ((Number) config.getOrDefault("transfer_parallelism",
+            Math.min(4, Runtime.getRuntime().availableProcessors()))).intValue();
+        this.progressIntervalBytes = ((Number) config.getOrDefault("progress_interval_bytes", 1024 * 1024)).longValue();
+        this.progressIntervalMs = ((Number) config.getOrDefault("progress_interval_ms", 100)).longValue();
+        this.listingParallelism = ((Number) config.getOrDefault("listing_parallelism",
+            Runtime.getRuntime().availableProcessors())).intValue();
     }
     
     @Override
@@ -64,6 +98,27 @@ public class LocalFileSystem extends StorageService {
         }
     }
     
+    @Override
+    public void disconnect() {
+        // Running transfers and walks finish on their own; the pools are created again on next use
+        ExecutorService executor;
+        ForkJoinPool pool;
+        synchronized (this) {
+            executor = transferExecutor;
+            transferExecutor = null;
+            pool = listingPool;
+            listingPool = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+        if (pool != null) {
+            pool.shutdown();
+        }
+        transferBuffers.clear();
+        super.disconnect();
+    }
+    
     @Override
     public CompletableFuture<UploadResult> upload(UploadRequest uploadRequest) throws StorageException {
         if (!isConnected) {
@@ -119,34 +174,17 @@ public class LocalFileSystem extends StorageService {
         
         try {
             // Write to temporary file first
-            long bytesWritten = 0;
-            ProgressCallback callback = request.getProgressCallback();
-            
-            try (InputStream input = request.getFileStream();
-                 OutputStream output = Files.newOutputStream(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
-                
-                byte[] buffer = new byte[8192];
-                int bytesRead;
-                
-                while ((bytesRead = input.read(buffer)) != -1) {
-                    output.write(buffer, 0, bytesRead);
-                    bytesWritten += bytesRead;
-                    
-                    if (callback != null) {
-                        callback.onProgress(bytesWritten, request.getFileSize());
-                    }
-                    
-                    // Simulate some processing time
-                    Thread.sleep(1);
-                }
+            ProgressThrottle progress = new ProgressThrottle(request.getProgressCallback(), request.getFileSize(),
+                                                             progressIntervalBytes, progressIntervalMs);
+            long bytesWritten;
+            try (InputStream input = request.getFileStream()) {
+                bytesWritten = writeContent(input, request.getFileSize(), tempPath, progress);
             }
             
             // Atomic move from temp to final location
             Files.move(tempPath, targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
             
-            if (callback != null) {
-                callback.onComplete();
-            }
+            progress.complete();
             
             // Generate file metadata
             String fileId = "local_" + targetPath.toAbsolutePath().hashCode();
@@ -156,9 +194,6 @@ public class LocalFileSystem extends StorageService {
             
             return UploadResult.success(fileId, request.getFilePath(), bytesWritten, etag, null);
             
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new IOException("Upload interrupted", e);
         } finally {
             // Clean up temp file if it exists
             Files.deleteIfExists(tempPath);
@@ -166,28 +201,14 @@ public class LocalFileSystem extends StorageService {
     }
     
     private UploadResult performDirectUpload(UploadRequest request, Path targetPath) throws IOException {
-        long bytesWritten = 0;
-        ProgressCallback callback = request.getProgressCallback();
-        
-        try (InputStream input = request.getFileStream();
-             OutputStream output = Files.newOutputStream(targetPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
-            
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            
-            while ((bytesRead = input.read(buffer)) != -1) {
-                output.write(buffer, 0, bytesRead);
-                bytesWritten += bytesRead;
-                
-                if (callback != null) {
-                    callback.onProgress(bytesWritten, request.getFileSize());
-                }
-            }
+        ProgressThrottle progress = new ProgressThrottle(request.getProgressCallback(), request.getFileSize(),
+                                                         progressIntervalBytes, progressIntervalMs);
+        long bytesWritten;
+        try (InputStream input = request.getFileStream()) {
+            bytesWritten = writeContent(input, request.getFileSize(), targetPath, progress);
         }
         
-        if (callback != null) {
-            callback.onComplete();
-        }
+        progress.complete();
         
         String fileId = "local_" + targetPath.toAbsolutePath().hashCode();
         String etag = generateEtag(targetPath);
@@ -197,6 +218,191 @@ public class LocalFileSystem extends StorageService {
         return UploadResult.success(fileId, request.getFilePath(), bytesWritten, etag, null);
     }
     
+    /**
+     * Writes the stream to target, replacing its contents; returns the number of bytes written.
+     */
+    private long writeContent(InputStream input, long expectedSize, Path target,
+                              ProgressThrottle progress) throws IOException {
+        try (FileChannel output = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                   StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (input instanceof FileInputStream) {
+                // File to file: the kernel copies, and large files are split across the transfer pool
+                FileChannel source = ((FileInputStream) input).getChannel();
+                long start = source.position();
+                long length = Math.max(0, source.size() - start);
+                long written = length >= parallelThreshold && transferParallelism > 1 ?
+                    transferChunksInParallel(source, start, length, target, progress) :
+                    transferRange(source, start, length, output, progress);
+                source.position(start + written);
+                return written;
+            }
+            
+            ReadableByteChannel source = Channels.newChannel(input);
+            if (expectedSize >= parallelThreshold && transferParallelism > 1) {
+                return writeChunksInParallel(source, output, progress);
+            }
+            long written = 0;
+            long transferred;
+            while ((transferred = output.transferFrom(source, written, transferChunkSize)) > 0) {
+                written += transferred;
+                progress.advance(transferred);
+            }
+            return written;
+        }
+    }
+    
+    private static long transferRange(FileChannel source, long position, long length, WritableByteChannel target,
+                                      ProgressThrottle progress) throws IOException {
+        long done = 0;
+        while (done < length) {
+            long transferred = source.transferTo(position + done, length - done, target);
+            if (transferred <= 0) {
+                break; // source shrank
+            }
+            done += transferred;
+            if (progress != null) {
+                progress.advance(transferred);
+            }
+        }
+        return done;
+    }
+    
+    // Each chunk gets its own target channel, positioned at the chunk's offset
+    private long transferChunksInParallel(FileChannel source, long start, long length, Path target,
+                                          ProgressThrottle progress) throws IOException {
+        List<Future<Long>> chunks = new ArrayList<>();
+        for (long offset = 0; offset < length; offset += transferChunkSize) {
+            long chunkOffset = offset;
+            long chunkLength = Math.min(transferChunkSize, length - offset);
+            chunks.add(transferExecutor().submit(() -> {
+                try (FileChannel output = FileChannel.open(target, StandardOpenOption.WRITE)) {
+                    output.position(chunkOffset);
+                    return transferRange(source, start + chunkOffset, chunkLength, output, progress);
+                }
+            }));
+        }
+        long written = 0;
+        for (Future<Long> chunk : chunks) {
+            written += awaitChunk(chunk, chunks);
+        }
+        return written;
+    }
+    
+    // Reads sequentially into a few pooled buffers while earlier chunks are written at their offsets
+    private long writeChunksInParallel(ReadableByteChannel source, FileChannel output,
+                                       ProgressThrottle progress) throws IOException {
+        BlockingQueue<ByteBuffer> buffers = new ArrayBlockingQueue<>(transferParallelism + 1);
+        for (int i = 0; i <= transferParallelism; i++) {
+            buffers.add(takeTransferBuffer());
+        }
+        
+        List<Future<Long>> chunks = new ArrayList<>();
+        long position = 0;
+        try {
+            while (true) {
+                ByteBuffer buffer = buffers.take();
+                buffer.clear();
+                while (buffer.hasRemaining() && source.read(buffer) >= 0) {
+                    // fill the whole chunk unless the stream ends
+                }
+                if (buffer.position() == 0) {
+                    buffers.add(buffer);
+                    break;
+                }
+                buffer.flip();
+                long chunkOffset = position;
+                position += buffer.remaining();
+                chunks.add(transferExecutor().submit(() -> {
+                    try {
+                        long written = 0;
+                        while (buffer.hasRemaining()) {
+                            written += output.write(buffer, chunkOffset + written);
+                        }
+                        progress.advance(written);
+                        return written;
+                    } finally {
+                        buffers.add(buffer);
+                    }
+                }));
+                if (buffer.limit() < transferChunkSize) {
+                    break; // stream ended inside this chunk
+                }
+                // Surface a failed write before reading further
+                for (Future<Long> chunk : chunks) {
+                    if (chunk.isDone()) {
+                        awaitChunk(chunk, chunks);
+                    }
+                }
+            }
+            
+            long written = 0;
+            for (Future<Long> chunk : chunks) {
+                written += awaitChunk(chunk, chunks);
+            }
+            return written;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelAll(chunks);
+            throw new IOException("Upload interrupted", e);
+        } finally {
+            // Buffers still held by a cancelled write are left to the garbage collector
+            recycleTransferBuffers(buffers);
+        }
+    }
+        
+    // Direct buffers are costly to allocate and only freed by the GC, so uploads share a small pool
+    private ByteBuffer takeTransferBuffer() {
+        ByteBuffer buffer = transferBuffers.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(transferChunkSize);
+    }
+    
+    private void recycleTransferBuffers(Collection<ByteBuffer> buffers) {
+        for (ByteBuffer buffer : buffers) {
+            if (transferBuffers.size() > transferParallelism) {
+                break;
+            }
+            transferBuffers.offer(buffer);
+        }
+    }
+    
+    private static long awaitChunk(Future<Long> chunk, List<Future<Long>> all) throws IOException {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelAll(all);
+            throw new IOException("Upload interrupted", e);
+        } catch (ExecutionException e) {
+            cancelAll(all);
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException("Chunk write failed", cause);
+        }
+    }
+    
+    private static void cancelAll(List<Future<Long>> chunks) {
+        for (Future<Long> chunk : chunks) {
+            chunk.cancel(true);
+        }
+    }
+    
+    private ExecutorService transferExecutor() {
+        ExecutorService executor = transferExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = transferExecutor;
+                if (executor == null) {
+                    executor = Executors.newFixedThreadPool(Math.max(1, transferParallelism), r -> {
+                        Thread thread = new Thread(r, "LocalFS-Transfer-" + serviceId);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    transferExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+    
     @Override
     public DownloadResult download(DownloadRequest downloadRequest) throws StorageException {
         if (!isConnected) {
@@ -205,21 +411,14 @@ public class LocalFileSystem extends StorageService {
         
         try {
             Path filePath = Paths.get(rootDirectory, downloadRequest.getFilePath());
-            
-            if (!Files.exists(filePath)) {
-                throw new FileNotFoundException("File not found: " + downloadRequest.getFilePath());
-            }
+            BasicFileAttributes attributes = readAttributes(filePath, downloadRequest.getFilePath());
             
             if (!Files.isReadable(filePath)) {
                 throw new InsufficientPermissionsException("No read permission for file: " + downloadRequest.getFilePath());
             }
             
-            // Handle symbolic links
-            if (Files.isSymbolicLink(filePath) && !enableSymlinks) {
-                throw new StorageException("Symbolic links are disabled", "SYMLINK_DISABLED", false);
-            }
-            
-            FileMetadata metadata = getMetadata(downloadRequest.getFilePath());
+            // Metadata comes from the attributes already read rather than a second getMetadata lookup
+            FileMetadata metadata = buildMetadata(downloadRequest.getFilePath(), filePath, attributes);
             
             // Handle range requests
             if (downloadRequest.getRangeStart() >= 0 && downloadRequest.getRangeEnd() >= 0) {
@@ -227,8 +426,9 @@ public class LocalFileSystem extends StorageService {
             }
             
             // Full file download
-            InputStream fileStream = Files.newInputStream(filePath, StandardOpenOption.READ);
-            long contentLength = Files.size(filePath);
+            long contentLength = attributes.size();
+            InputStream fileStream = new FileRangeInputStream(FileChannel.open(filePath, StandardOpenOption.READ),
+                                                              0, contentLength);
             
             metrics.addBytesTransferred(contentLength);
             
@@ -251,30 +451,9 @@ public class LocalFileSystem extends StorageService {
         
         long contentLength = rangeEnd - rangeStart + 1;
         
-        // Create range input stream
-        InputStream rangeStream = new FileInputStream(filePath.toFile()) {
-            {
-                skip(rangeStart);
-            }
-            
-            private long remaining = contentLength;
-            
-            @Override
-            public int read() throws IOException {
-                if (remaining <= 0) return -1;
-                remaining--;
-                return super.read();
-            }
-            
-            @Override
-            public int read(byte[] b, int off, int len) throws IOException {
-                if (remaining <= 0) return -1;
-                int toRead = (int) Math.min(len, remaining);
-                int bytesRead = super.read(b, off, toRead);
-                if (bytesRead > 0) remaining -= bytesRead;
-                return bytesRead;
-            }
-        };
+        // Positional reads from the range start; no skipping through the file
+        InputStream rangeStream = new FileRangeInputStream(FileChannel.open(filePath, StandardOpenOption.READ),
+                                                           rangeStart, contentLength);
         
         metrics.addBytesTransferred(contentLength);
         
@@ -335,106 +514,140 @@ public class LocalFileSystem extends StorageService {
     
     @Override
     public FileListResult listFiles(ListRequest listRequest) throws StorageException {
-        if (!isConnected) {
-            throw new StorageException("Not connected to local file system");
-        }
+        Path directoryPath = resolveListingDirectory(listRequest);
+        String after = ListingCursor.decode(listRequest);
+        int pageSize = Math.max(1, listRequest.getMaxResults());
         
+        // One entry past the page tells whether there is more
+        List<ListingEntry> entries = new ArrayList<>(Math.min(pageSize + 1, 1024));
+        KeyOrderWalk walk = null;
         try {
-            Path directoryPath = Paths.get(rootDirectory, listRequest.getDirectoryPath());
-            
-            if (!Files.exists(directoryPath)) {
-                throw new FileNotFoundException("Directory not found: " + listRequest.getDirectoryPath());
+            walk = openWalk(directoryPath, after, listRequest, pageSize + 1);
+            while (entries.size() <= pageSize && walk.hasNext()) {
+                entries.add(walk.next());
             }
-            
-            if (!Files.isDirectory(directoryPath)) {
-                throw new StorageException("Path is not a directory: " + listRequest.getDirectoryPath());
+        } catch (UncheckedIOException e) {
+            throw new StorageException("List operation failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            if (walk != null) {
+                walk.close();
             }
-            
-            List<FileInfo> files = new ArrayList<>();
-            
-            try (Stream<Path> paths = listRequest.isRecursive() ? 
-                    Files.walk(directoryPath) : Files.list(directoryPath)) {
-                
-                paths.filter(path -> !path.equals(directoryPath))
-                     .limit(listRequest.getMaxResults())
-                     .forEach(path -> {
-                         try {
-                             FileInfo fileInfo = createFileInfo(path, directoryPath);
-                             if (matchesFilters(fileInfo, listRequest.getFilters())) {
-                                 files.add(fileInfo);
-                             }
-                         } catch (IOException e) {
-                             System.err.println("Error processing file: " + path + " - " + e.getMessage());
-                         }
-                     });
+        }
+        
+        boolean hasMore = entries.size() > pageSize;
+        if (hasMore) {
+            entries = entries.subList(0, pageSize);
+        }
+        
+        List<FileInfo> files = new ArrayList<>(entries.size());
+        for (ListingEntry entry : entries) {
+            try {
+                files.add(createFileInfo(entry));
+            } catch (IOException e) {
+                System.err.println("Error processing file: " + entry.path + " - " + e.getMessage());
             }
+        }
+        
+        String nextToken = hasMore ? ListingCursor.encode(listRequest, entries.get(entries.size() - 1).key) : null;
+        
+        return FileListResult.success(files, nextToken, hasMore, files.size());
+    }
+    
+    /**
+     * Streams the listing from a single walk of the tree, rather than one walk per page;
+     * each directory is read once and each entry stat'd at most once.
+     */
+    @Override
+    public Stream<FileInfo> streamFiles(ListRequest listRequest) {
+        KeyOrderWalk walk;
+        try {
+            Path directoryPath = resolveListingDirectory(listRequest);
+            walk = openWalk(directoryPath, ListingCursor.decode(listRequest), listRequest, Integer.MAX_VALUE);
+        } catch (StorageException e) {
+            throw new UncheckedStorageException(e);
+        } catch (UncheckedIOException e) {
+            throw new UncheckedStorageException(
+                new StorageException("List operation failed: " + e.getCause().getMessage(), e.getCause()));
+        }
+        
+        Iterator<FileInfo> files = new Iterator<FileInfo>() {
+            private FileInfo next;
             
-            // Sort files by name
-            files.sort(Comparator.comparing(FileInfo::getName));
+            @Override
+            public boolean hasNext() {
+                while (next == null && walk.hasNext()) {
+                    ListingEntry entry = walk.next();
+                    try {
+                        next = createFileInfo(entry);
+                    } catch (IOException e) {
+                        System.err.println("Error processing file: " + entry.path + " - " + e.getMessage());
+                    }
+                }
+                return next != null;
+            }
             
-            boolean hasMore = files.size() == listRequest.getMaxResults();
-            String nextToken = hasMore ? "offset_" + files.size() : null;
+            @Override
+            public FileInfo next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                FileInfo file = next;
+                next = null;
+                return file;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(files, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(walk::close);
+    }
+    
+    private Path resolveListingDirectory(ListRequest listRequest) throws StorageException {
+        if (!isConnected) {
+            throw new StorageException("Not connected to local file system");
+        }
+        
+        Path directoryPath = Paths.get(rootDirectory, listRequest.getDirectoryPath());
             
-            return FileListResult.success(files, nextToken, hasMore, files.size());
+        if (!Files.exists(directoryPath)) {
+            throw new FileNotFoundException("Directory not found: " + listRequest.getDirectoryPath());
+        }
             
-        } catch (IOException e) {
-            throw new StorageException("List operation failed: " + e.getMessage(), e);
+        if (!Files.isDirectory(directoryPath)) {
+            throw new StorageException("Path is not a directory: " + listRequest.getDirectoryPath());
         }
+        return directoryPath;
+    }
+            
+    // Recursive walks read directories ahead on the listing pool
+    private KeyOrderWalk openWalk(Path directoryPath, String after, ListRequest listRequest, int limit) {
+        return new KeyOrderWalk(directoryPath, after, new ListingFilter(listRequest), listRequest.isRecursive(),
+                                listRequest.isRecursive() ? listingPool() : null, limit);
     }
     
-    private FileInfo createFileInfo(Path path, Path basePath) throws IOException {
-        String relativePath = basePath.relativize(path).toString().replace('\\', '/');
-        String name = path.getFileName().toString();
-        long size = Files.isDirectory(path) ? 0 : Files.size(path);
-        boolean isDirectory = Files.isDirectory(path);
-        LocalDateTime lastModified = LocalDateTime.ofInstant(
-            Files.getLastModifiedTime(path).toInstant(), 
-            ZoneId.systemDefault()
-        );
+    // Attributes are read here only for entries the walk did not already stat
+    private FileInfo createFileInfo(ListingEntry entry) throws IOException {
+        BasicFileAttributes attributes = entry.attributes != null ? entry.attributes :
+            Files.readAttributes(entry.path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        long size = attributes.isDirectory() ? 0 : attributes.size();
+        LocalDateTime lastModified = LocalDateTime.ofInstant(attributes.lastModifiedTime().toInstant(), ZoneId.systemDefault());
         
-        FileInfo fileInfo = new FileInfo(name, relativePath, size, isDirectory, lastModified);
-        fileInfo.setEtag(generateEtag(path));
+        FileInfo fileInfo = new FileInfo(entry.path.getFileName().toString(), entry.key, size, attributes.isDirectory(), lastModified);
+        fileInfo.setEtag(formatEtag(size, attributes.lastModifiedTime().toMillis()));
         
         return fileInfo;
     }
     
-    private boolean matchesFilters(FileInfo fileInfo, Map<String, String> filters) {
-        if (filters == null || filters.isEmpty()) {
-            return true;
-        }
-        
-        for (Map.Entry<String, String> filter : filters.entrySet()) {
-            String key = filter.getKey();
-            String value = filter.getValue();
-            
-            switch (key.toLowerCase()) {
-                case "extension":
-                    String fileName = fileInfo.getName();
-                    String extension = fileName.substring(fileName.lastIndexOf('.') + 1);
-                    if (!extension.equalsIgnoreCase(value)) {
-                        return false;
-                    }
-                    break;
-                case "min_size":
-                    if (fileInfo.getSize() < Long.parseLong(value)) {
-                        return false;
-                    }
-                    break;
-                case "max_size":
-                    if (fileInfo.getSize() > Long.parseLong(value)) {
-                        return false;
-                    }
-                    break;
-                case "type":
-                    boolean isDir = fileInfo.isDirectory();
-                    if (("file".equals(value) && isDir) || ("directory".equals(value) && !isDir)) {
-                        return false;
-                    }
-                    break;
+    private ForkJoinPool listingPool() {
+        ForkJoinPool pool = listingPool;
+        if (pool == null) {
+            synchronized (this) {
+                pool = listingPool;
+                if (pool == null) {
+                    pool = new ForkJoinPool(Math.max(1, listingParallelism));
+                    listingPool = pool;
+                }
             }
         }
-        
-        return true;
+        return pool;
     }
     
     @Override
@@ -445,56 +658,62 @@ public class LocalFileSystem extends StorageService {
         
         try {
             Path filePath = Paths.get(rootDirectory, path);
-            
-            if (!Files.exists(filePath)) {
-                throw new FileNotFoundException("File not found: " + path);
-            }
-            
-            String fileName = filePath.getFileName().toString();
-            long size = Files.isDirectory(filePath) ? 0 : Files.size(filePath);
-            String contentType = determineContentType(fileName);
-            
-            FileMetadata metadata = new FileMetadata(fileName, path, size, contentType);
-            
-            // Set timestamps
-            LocalDateTime createdTime = LocalDateTime.ofInstant(
-                Files.readAttributes(filePath, "creationTime", LinkOption.NOFOLLOW_LINKS)
-                     .get("creationTime").toString().equals("null") ? 
-                     Files.getLastModifiedTime(filePath).toInstant() :
-                     ((java.nio.file.attribute.FileTime) Files.readAttributes(filePath, "creationTime", LinkOption.NOFOLLOW_LINKS)
-                      .get("creationTime")).toInstant(),
-                ZoneId.systemDefault()
-            );
-            
-            LocalDateTime modifiedTime = LocalDateTime.ofInstant(
-                Files.getLastModifiedTime(filePath).toInstant(), 
-                ZoneId.systemDefault()
-            );
-            
-            metadata.setModifiedTime(modifiedTime);
-            metadata.setEtag(generateEtag(filePath));
-            
-            // Add local file system specific metadata
-            Map<String, String> customMetadata = new HashMap<>();
-            customMetadata.put("absolute-path", filePath.toAbsolutePath().toString());
-            customMetadata.put("readable", String.valueOf(Files.isReadable(filePath)));
-            customMetadata.put("writable", String.valueOf(Files.isWritable(filePath)));
-            customMetadata.put("executable", String.valueOf(Files.isExecutable(filePath)));
-            customMetadata.put("hidden", String.valueOf(Files.isHidden(filePath)));
-            
-            if (Files.isSymbolicLink(filePath)) {
-                customMetadata.put("symlink-target", Files.readSymbolicLink(filePath).toString());
-            }
-            
-            metadata.setCustomMetadata(customMetadata);
-            
-            return metadata;
+            return buildMetadata(path, filePath, readAttributes(filePath, path));
             
         } catch (IOException e) {
             throw new StorageException("Metadata retrieval failed: " + e.getMessage(), e);
         }
     }
     
+    /**
+     * Reads file attributes in one call, following links only when symlinks are enabled.
+     */
+    private BasicFileAttributes readAttributes(Path filePath, String path) throws IOException, StorageException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(filePath, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException("File not found: " + path);
+        }
+        if (attributes.isSymbolicLink()) {
+            if (!enableSymlinks) {
+                throw new StorageException("Symbolic links are disabled", "SYMLINK_DISABLED", false);
+            }
+            try {
+                attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                throw new FileNotFoundException("Symbolic link target not found: " + path);
+            }
+        }
+        return attributes;
+    }
+    
+    private FileMetadata buildMetadata(String path, Path filePath, BasicFileAttributes attributes) throws IOException {
+        String fileName = filePath.getFileName().toString();
+        long size = attributes.isDirectory() ? 0 : attributes.size();
+        String contentType = determineContentType(fileName);
+        
+        FileMetadata metadata = new FileMetadata(fileName, path, size, contentType);
+        metadata.setModifiedTime(LocalDateTime.ofInstant(attributes.lastModifiedTime().toInstant(), ZoneId.systemDefault()));
+        metadata.setEtag(formatEtag(size, attributes.lastModifiedTime().toMillis()));
+        
+        // Add local file system specific metadata
+        Map<String, String> customMetadata = new HashMap<>();
+        customMetadata.put("absolute-path", filePath.toAbsolutePath().toString());
+        customMetadata.put("readable", String.valueOf(Files.isReadable(filePath)));
+        customMetadata.put("writable", String.valueOf(Files.isWritable(filePath)));
+        customMetadata.put("executable", String.valueOf(Files.isExecutable(filePath)));
+        customMetadata.put("hidden", String.valueOf(Files.isHidden(filePath)));
+        
+        if (enableSymlinks && Files.isSymbolicLink(filePath)) {
+            customMetadata.put("symlink-target", Files.readSymbolicLink(filePath).toString());
+        }
+        
+        metadata.setCustomMetadata(customMetadata);
+        
+        return metadata;
+    }
+    
     // Utility methods
     private boolean isAllowedExtension(String filePath) {
         if (allowedExtensions == null) return true;
@@ -507,6 +726,10 @@ public class LocalFileSystem extends StorageService {
         // Generate ETag based on file size and last modified time
         long size = Files.exists(path) && !Files.isDirectory(path) ? Files.size(path) : 0;
         long lastModified = Files.getLastModifiedTime(path).toMillis();
+        return formatEtag(size, lastModified);
+    }
+    
+    private static String formatEtag(long size, long lastModified) {
         return "\"" + Long.toHexString(size ^ lastModified) + "\"";
     }
     
@@ -543,4 +766,265 @@ public class LocalFileSystem extends StorageService {
             System.out.println("Local FS: Updating file system cache and access timestamps");
         }
     }
+    
+    public String getRootDirectory() { return rootDirectory; }
+}
+
+/**
+ * Stream over a byte range of a file, read with positional FileChannel reads
+ *
+ * transferTo(OutputStream) hands the range to FileChannel.transferTo, so copying a
+ * download to a file or socket stream does not pass through a heap buffer.
+ */
+class FileRangeInputStream extends InputStream {
+    private final FileChannel channel;
+    private long position;
+    private final long end;
+    private ByteBuffer single;
+    
+    FileRangeInputStream(FileChannel channel, long start, long length) {
+        this.channel = channel;
+        this.position = start;
+        this.end = start + length;
+    }
+    
+    @Override
+    public int read() throws IOException {
+        if (single == null) {
+            single = ByteBuffer.allocate(1);
+        }
+        single.clear();
+        return read(single) > 0 ? single.get(0) & 0xFF : -1;
+    }
+    
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        return read(ByteBuffer.wrap(b, off, len));
+    }
+    
+    private int read(ByteBuffer buffer) throws IOException {
+        long remaining = end - position;
+        if (remaining <= 0) {
+            return -1;
+        }
+        if (buffer.remaining() > remaining) {
+            buffer.limit(buffer.position() + (int) remaining);
+        }
+        int bytesRead = channel.read(buffer, position);
+        if (bytesRead > 0) {
+            position += bytesRead;
+        }
+        return bytesRead;
+    }
+    
+    @Override
+    public long skip(long n) {
+        long skipped = Math.max(0, Math.min(n, end - position));
+        position += skipped;
+        return skipped;
+    }
+    
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, end - position));
+    }
+    
+    @Override
+    public long transferTo(OutputStream out) throws IOException {
+        WritableByteChannel target = out instanceof FileOutputStream ?
+            ((FileOutputStream) out).getChannel() : Channels.newChannel(out);
+        long start = position;
+        while (position < end) {
+            long transferred = channel.transferTo(position, end - position, target);
+            if (transferred <= 0) {
+                break;
+            }
+            position += transferred;
+        }
+        return position - start;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
+
+// Listing entry: path relative to the listed directory, plus attributes if already read
+class ListingEntry {
+    final String key;
+    final Path path;
+    final BasicFileAttributes attributes;
+    
+    ListingEntry(String key, Path path, BasicFileAttributes attributes) {
+        this.key = key;
+        this.path = path;
+        this.attributes = attributes;
+    }
+}
+
+/**
+ * Walks a directory tree lazily in key order, reading each directory once. The frontier
+ * holds entries not yet returned and directories not yet read, the latter under key + "/"
+ * so a subtree sorts right after its own entry and before the next sibling; it only grows
+ * with the siblings along the current path. The next few directories of a recursive walk
+ * are read ahead on the listing pool, so several reads are in flight without running far
+ * ahead of the caller. Subtrees entirely before the cursor or outside the prefix are never
+ * read, and a walk with a limit discards whatever sorts after that many pending entries.
+ */
+class KeyOrderWalk implements Iterator<ListingEntry>, Closeable {
+    private final String after;
+    private final ListingFilter filter;
+    private final boolean recursive;
+    private final ForkJoinPool pool;
+    private final int readAhead;
+    private final int limit;
+    private final TreeMap<String, Object> frontier = new TreeMap<>();
+    private final TreeMap<String, DirectoryRead> pendingReads = new TreeMap<>();
+    private int pendingEntries;
+    private int returned;
+    
+    KeyOrderWalk(Path directory, String after, ListingFilter filter, boolean recursive, ForkJoinPool pool, int limit) {
+        this.after = after;
+        this.filter = filter;
+        this.recursive = recursive;
+        this.pool = pool;
+        this.readAhead = pool != null ? pool.getParallelism() : 0;
+        this.limit = limit;
+        expand(new DirectoryRead(directory, "", true));
+    }
+    
+    @Override
+    public boolean hasNext() {
+        while (!frontier.isEmpty() && !(frontier.firstEntry().getValue() instanceof ListingEntry)) {
+            Map.Entry<String, Object> first = frontier.pollFirstEntry();
+            pendingReads.remove(first.getKey());
+            expand((DirectoryRead) first.getValue());
+        }
+        return !frontier.isEmpty() && returned < limit;
+    }
+    
+    @Override
+    public ListingEntry next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        pendingEntries--;
+        returned++;
+        return (ListingEntry) frontier.pollFirstEntry().getValue();
+    }
+    
+    private void expand(DirectoryRead read) {
+        startReadAhead();
+        if (read.started) {
+            read.join();
+        } else {
+            read.started = true;
+            read.invoke();
+        }
+        for (ListingEntry entry : read.entries) {
+            frontier.put(entry.key, entry);
+            pendingEntries++;
+        }
+        for (DirectoryRead subtree : read.subtrees) {
+            frontier.put(subtree.baseKey + "/", subtree);
+            pendingReads.put(subtree.baseKey + "/", subtree);
+        }
+        
+        // Nothing after the first (limit - returned) pending entries can be returned
+        while (pendingEntries > limit - returned) {
+            Map.Entry<String, Object> last = frontier.pollLastEntry();
+            if (last.getValue() instanceof ListingEntry) {
+                pendingEntries--;
+            } else {
+                pendingReads.remove(last.getKey()).cancel(false);
+            }
+        }
+        startReadAhead();
+    }
+    
+    private void startReadAhead() {
+        int count = 0;
+        for (DirectoryRead read : pendingReads.values()) {
+            if (count++ >= readAhead) {
+                break;
+            }
+            if (!read.started) {
+                read.started = true;
+                pool.execute(read);
+            }
+        }
+    }
+    
+    // Reads already running finish on their own; the rest never start
+    @Override
+    public void close() {
+        for (DirectoryRead read : pendingReads.values()) {
+            read.cancel(false);
+        }
+        pendingReads.clear();
+        frontier.clear();
+    }
+    
+    /**
+     * Reads one directory: the children that are listing candidates, and the subdirectories
+     * a recursive walk still has to read.
+     */
+    private final class DirectoryRead extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        final Path directory;
+        final String baseKey;
+        final boolean root;
+        final List<ListingEntry> entries = new ArrayList<>();
+        final List<DirectoryRead> subtrees = new ArrayList<>();
+        boolean started;
+    
+        DirectoryRead(Path directory, String baseKey, boolean root) {
+            this.directory = directory;
+            this.baseKey = baseKey;
+            this.root = root;
+        }
+        
+        @Override
+        protected void compute() {
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+                for (Path child : children) {
+                    String name = child.getFileName().toString();
+                    String key = baseKey.isEmpty() ? name : baseKey + "/" + name;
+                    boolean candidate = (after == null || key.compareTo(after) > 0) && filter.matchesName(key, name);
+                    
+                    BasicFileAttributes attributes = null;
+                    if (recursive || (candidate && filter.needsAttributes())) {
+                        try {
+                            attributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                        } catch (NoSuchFileException e) {
+                            continue; // removed while listing
+                        }
+                    }
+                    
+                    // Keys below a directory all sort between key + "/" and the end of its subtree
+                    if (recursive && attributes.isDirectory() && filter.mayContain(key)
+                            && (after == null || after.compareTo(ListingCursor.endOfSubtree(key)) < 0)) {
+                        subtrees.add(new DirectoryRead(child, key, false));
+                    }
+                    
+                    if (candidate && (attributes == null || filter.matchesAttributes(
+                            attributes.isDirectory() ? 0 : attributes.size(), attributes.isDirectory()))) {
+                        entries.add(new ListingEntry(key, child, attributes));
+                    }
+                }
+            } catch (IOException e) {
+                if (root) {
+                    throw new UncheckedIOException(e);
+                }
+                entries.clear();
+                subtrees.clear();
+                System.err.println("Error processing directory: " + directory + " - " + e.getMessage());
+            }
+        }
+    }
 }
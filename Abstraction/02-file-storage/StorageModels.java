@@ -232,6 +232,121 @@ class ListRequest {
     public void setContinuationToken(String token) { this.continuationToken = token; }
     public void setRecursive(boolean recursive) { this.recursive = recursive; }
     public void setFilters(Map<String, String> filters) { this.filters = filters; }
+    
+    // Same listing, resumed at another page
+    public ListRequest withContinuationToken(String token) {
+        ListRequest next = new ListRequest(directoryPath);
+        next.prefix = prefix;
+        next.maxResults = maxResults;
+        next.recursive = recursive;
+        next.filters = filters;
+        next.continuationToken = token;
+        return next;
+    }
+}
+
+// Listing cursor shared by all backends: entries come back ordered by path relative to the
+// listed directory, and a token resumes after the last path returned. Unlike an offset it
+// stays correct when entries are added or removed between pages.
+class ListingCursor {
+    private static final String TOKEN_PREFIX = "c1.";
+    
+    static String encode(ListRequest request, String lastKey) {
+        String payload = fingerprint(request) + "\n" + lastKey;
+        return TOKEN_PREFIX + java.util.Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(payload.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+    }
+    
+    // Returns the path to resume after, or null for the first page
+    static String decode(ListRequest request) throws StorageException {
+        String token = request.getContinuationToken();
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            if (token.startsWith(TOKEN_PREFIX)) {
+                String payload = new String(java.util.Base64.getUrlDecoder().decode(token.substring(TOKEN_PREFIX.length())),
+                                            java.nio.charset.StandardCharsets.UTF_8);
+                int newline = payload.indexOf('\n');
+                if (newline > 0 && payload.substring(0, newline).equals(fingerprint(request))) {
+                    return payload.substring(newline + 1);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // Falls through to the invalid token error
+        }
+        throw new StorageException("Invalid continuation token for this listing", "INVALID_TOKEN", false);
+    }
+    
+    // Sorts after every key below the directory key, so resuming there skips its whole subtree
+    static String endOfSubtree(String directoryKey) {
+        return directoryKey + "/\uffff";
+    }
+    
+    // Tokens only resume the listing they came from
+    private static String fingerprint(ListRequest request) {
+        String filters = request.getFilters() != null ? new java.util.TreeMap<>(request.getFilters()).toString() : "";
+        String identity = request.getDirectoryPath() + "|" + request.getPrefix() + "|" + request.isRecursive() + "|" + filters;
+        return Integer.toHexString(identity.hashCode());
+    }
+}
+
+// Listing filters compiled once per request. Name tests run before any attributes are read,
+// and mayContain prunes subtrees a prefix rules out.
+class ListingFilter {
+    private final String prefix;
+    private final String extension;
+    private final long minSize;
+    private final long maxSize;
+    private final String type;
+    
+    ListingFilter(ListRequest request) {
+        Map<String, String> filters = request.getFilters() != null ? request.getFilters() : java.util.Collections.emptyMap();
+        String extensionFilter = null;
+        long min = 0;
+        long max = Long.MAX_VALUE;
+        String typeFilter = null;
+        for (Map.Entry<String, String> filter : filters.entrySet()) {
+            switch (filter.getKey().toLowerCase()) {
+                case "extension": extensionFilter = filter.getValue(); break;
+                case "min_size": min = Long.parseLong(filter.getValue()); break;
+                case "max_size": max = Long.parseLong(filter.getValue()); break;
+                case "type": typeFilter = filter.getValue(); break;
+            }
+        }
+        this.prefix = request.getPrefix() != null && !request.getPrefix().isEmpty() ? request.getPrefix() : null;
+        this.extension = extensionFilter;
+        this.minSize = min;
+        this.maxSize = max;
+        this.type = typeFilter;
+    }
+    
+    boolean needsAttributes() {
+        return minSize > 0 || maxSize < Long.MAX_VALUE || type != null;
+    }
+    
+    boolean matchesName(String key, String name) {
+        if (prefix != null && !key.startsWith(prefix)) {
+            return false;
+        }
+        return extension == null || name.substring(name.lastIndexOf('.') + 1).equalsIgnoreCase(extension);
+    }
+    
+    boolean matchesAttributes(long size, boolean directory) {
+        if (size < minSize || size > maxSize) {
+            return false;
+        }
+        return type == null || !(("file".equals(type) && directory) || ("directory".equals(type) && !directory));
+    }
+    
+    boolean matches(FileInfo file, String key) {
+        return matchesName(key, file.getName()) && matchesAttributes(file.getSize(), file.isDirectory());
+    }
+    
+    // Whether anything below the directory at this key can match the prefix
+    boolean mayContain(String directoryKey) {
+        return prefix == null || (directoryKey + "/").startsWith(prefix) || prefix.startsWith(directoryKey + "/");
+    }
 }
 
 // File List Result
@@ -343,6 +458,197 @@ interface ProgressCallback {
     void onError(String errorMessage);
 }
 
+// Progress throttling: forwards at most one onProgress per interval of bytes and time
+class ProgressThrottle {
+    private final ProgressCallback callback;
+    private final long totalBytes;
+    private final long intervalBytes;
+    private final long intervalNanos;
+    private long transferred;
+    private long reportedBytes;
+    private long reportedAt;
+    
+    public ProgressThrottle(ProgressCallback callback, long totalBytes, long intervalBytes, long intervalMs) {
+        this.callback = callback;
+        this.totalBytes = totalBytes;
+        this.intervalBytes = intervalBytes;
+        this.intervalNanos = intervalMs * 1_000_000L;
+        this.reportedAt = System.nanoTime();
+    }
+    
+    // Safe to call from parallel chunk writers
+    public synchronized void advance(long bytes) {
+        transferred += bytes;
+        if (callback == null || transferred - reportedBytes < intervalBytes) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (now - reportedAt >= intervalNanos) {
+            report(now);
+        }
+    }
+    
+    // Reports the final count if it was not reported yet, then completion
+    public synchronized void complete() {
+        if (callback == null) {
+            return;
+        }
+        if (transferred != reportedBytes) {
+            report(System.nanoTime());
+        }
+        callback.onComplete();
+    }
+    
+    private void report(long now) {
+        reportedBytes = transferred;
+        reportedAt = now;
+        callback.onProgress(transferred, totalBytes);
+    }
+    
+    public synchronized long getTransferred() { return transferred; }
+}
+
+// Bulk Operation Item
+class BulkItem {
+    public enum Type { UPLOAD, DOWNLOAD, DELETE, COPY }
+    
+    // Opens the content to upload; called again for each retry
+    interface ContentSource {
+        InputStream open() throws java.io.IOException;
+    }
+    
+    private final Type type;
+    private final StorageService service;
+    private final String path;
+    private final StorageService targetService;
+    private final String targetPath;
+    private final ContentSource source;
+    private final java.nio.file.Path localPath;
+    private final long size;
+    private String contentType = "application/octet-stream";
+    private boolean overwrite = true;
+    private boolean permanent;
+    
+    private BulkItem(Type type, StorageService service, String path, StorageService targetService, String targetPath,
+                     ContentSource source, java.nio.file.Path localPath, long size) {
+        this.type = type;
+        this.service = service;
+        this.path = path;
+        this.targetService = targetService;
+        this.targetPath = targetPath;
+        this.source = source;
+        this.localPath = localPath;
+        this.size = size;
+    }
+    
+    public static BulkItem upload(StorageService service, String path, ContentSource source, long size) {
+        return new BulkItem(Type.UPLOAD, service, path, null, null, source, null, size);
+    }
+    
+    public static BulkItem download(StorageService service, String path, java.nio.file.Path destination, long sizeHint) {
+        return new BulkItem(Type.DOWNLOAD, service, path, null, null, null, destination, sizeHint);
+    }
+    
+    public static BulkItem delete(StorageService service, String path, boolean permanent) {
+        BulkItem item = new BulkItem(Type.DELETE, service, path, null, null, null, null, 0);
+        item.permanent = permanent;
+        return item;
+    }
+    
+    public static BulkItem copy(StorageService source, String sourcePath, StorageService target, String targetPath,
+                                long sizeHint) {
+        return new BulkItem(Type.COPY, source, sourcePath, target, targetPath, null, null, sizeHint);
+    }
+    
+    // Getters
+    public Type getType() { return type; }
+    public StorageService getService() { return service; }
+    public String getPath() { return path; }
+    public StorageService getTargetService() { return targetService; }
+    public String getTargetPath() { return targetPath; }
+    public ContentSource getSource() { return source; }
+    public java.nio.file.Path getLocalPath() { return localPath; }
+    public long getSize() { return size; }
+    public String getContentType() { return contentType; }
+    public boolean isOverwrite() { return overwrite; }
+    public boolean isPermanent() { return permanent; }
+    
+    // Setters
+    public BulkItem setContentType(String contentType) { this.contentType = contentType; return this; }
+    public BulkItem setOverwrite(boolean overwrite) { this.overwrite = overwrite; return this; }
+}
+
+// Bulk Item Result
+class BulkItemResult {
+    private final BulkItem item;
+    private final boolean success;
+    private final long bytesTransferred;
+    private final int attempts;
+    private final long durationMs;
+    private final String errorMessage;
+    
+    BulkItemResult(BulkItem item, boolean success, long bytesTransferred, int attempts, long durationMs,
+                   String errorMessage) {
+        this.item = item;
+        this.success = success;
+        this.bytesTransferred = bytesTransferred;
+        this.attempts = attempts;
+        this.durationMs = durationMs;
+        this.errorMessage = errorMessage;
+    }
+    
+    // Getters
+    public BulkItem getItem() { return item; }
+    public boolean isSuccess() { return success; }
+    public long getBytesTransferred() { return bytesTransferred; }
+    public int getAttempts() { return attempts; }
+    public long getDurationMs() { return durationMs; }
+    public String getErrorMessage() { return errorMessage; }
+}
+
+// Bulk Result: per-item outcomes in submission order plus totals
+class BulkResult {
+    private final List<BulkItemResult> results;
+    private final long elapsedMs;
+    private int successCount;
+    private int failureCount;
+    private int retryCount;
+    private long totalBytesTransferred;
+    
+    BulkResult(List<BulkItemResult> results, long elapsedMs) {
+        this.results = results;
+        this.elapsedMs = elapsedMs;
+        for (BulkItemResult result : results) {
+            if (result.isSuccess()) {
+                successCount++;
+                totalBytesTransferred += result.getBytesTransferred();
+            } else {
+                failureCount++;
+            }
+            retryCount += Math.max(0, result.getAttempts() - 1);
+        }
+    }
+    
+    public List<BulkItemResult> getFailures() {
+        List<BulkItemResult> failures = new java.util.ArrayList<>();
+        for (BulkItemResult result : results) {
+            if (!result.isSuccess()) {
+                failures.add(result);
+            }
+        }
+        return failures;
+    }
+    
+    // Getters
+    public List<BulkItemResult> getResults() { return results; }
+    public long getElapsedMs() { return elapsedMs; }
+    public int getSuccessCount() { return successCount; }
+    public int getFailureCount() { return failureCount; }
+    public int getRetryCount() { return retryCount; }
+    public long getTotalBytesTransferred() { return totalBytesTransferred; }
+    public boolean isSuccess() { return failureCount == 0; }
+}
+
 // Storage Metrics
 class StorageMetrics {
     private long uploadCount;
@@ -353,6 +659,12 @@ class StorageMetrics {
     private long errorCount;
     private long totalBytesTransferred;
     
+    // Metadata and listing cache (CachingStorageService)
+    private long cacheHits;
+    private long cacheMisses;
+    private long cacheEvictions;
+    private long cacheInvalidations;
+    
     public void incrementOperation(FileOperation.OperationType type) {
         switch (type) {
             case UPLOAD: uploadCount++; break;
@@ -365,6 +677,10 @@ class StorageMetrics {
     public void incrementSuccessCount() { successCount++; }
     public void incrementErrorCount() { errorCount++; }
     public void addBytesTransferred(long bytes) { totalBytesTransferred += bytes; }
+    public void incrementCacheHit() { cacheHits++; }
+    public void incrementCacheMiss() { cacheMisses++; }
+    public void addCacheEvictions(long count) { cacheEvictions += count; }
+    public void addCacheInvalidations(long count) { cacheInvalidations += count; }
     
     // Getters
     public long getUploadCount() { return uploadCount; }
@@ -374,6 +690,15 @@ class StorageMetrics {
     public long getSuccessCount() { return successCount; }
     public long getErrorCount() { return errorCount; }
     public long getTotalBytesTransferred() { return totalBytesTransferred; }
+    public long getCacheHits() { return cacheHits; }
+    public long getCacheMisses() { return cacheMisses; }
+    public long getCacheEvictions() { return cacheEvictions; }
+    public long getCacheInvalidations() { return cacheInvalidations; }
+    
+    public double getCacheHitRatio() {
+        long total = cacheHits + cacheMisses;
+        return total > 0 ? (double) cacheHits / total : 0;
+    }
     
     public double getSuccessRate() {
         long total = successCount + errorCount;
@@ -1,8 +1,16 @@
 package abstraction.filestorage;
 
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Abstract File Storage Service with enterprise-level features
@@ -72,6 +80,49 @@ public abstract class StorageService {
      */
     public abstract FileMetadata getMetadata(String path) throws StorageException;
     
+    /**
+     * Stream every entry of a listing, fetching further pages only as the stream is consumed
+     * @param listRequest List parameters; maxResults is the page size
+     * @return Lazy stream of entries in listing order
+     * @throws UncheckedStorageException from the stream if fetching a page fails
+     */
+    public Stream<FileInfo> streamFiles(ListRequest listRequest) {
+        Iterator<FileInfo> entries = new Iterator<FileInfo>() {
+            private Iterator<FileInfo> page = Collections.emptyIterator();
+            private String nextToken = listRequest.getContinuationToken();
+            private boolean lastPage;
+            
+            @Override
+            public boolean hasNext() {
+                while (!page.hasNext() && !lastPage) {
+                    FileListResult result;
+                    try {
+                        result = listFiles(listRequest.withContinuationToken(nextToken));
+                    } catch (StorageException e) {
+                        throw new UncheckedStorageException(e);
+                    }
+                    if (!result.isSuccess()) {
+                        throw new UncheckedStorageException(new StorageException("List operation failed: " + result.getErrorMessage()));
+                    }
+                    List<FileInfo> files = result.getFiles() != null ? result.getFiles() : Collections.emptyList();
+                    page = files.iterator();
+                    nextToken = result.getNextContinuationToken();
+                    lastPage = !result.hasMore() || nextToken == null;
+                }
+                return page.hasNext();
+            }
+            
+            @Override
+            public FileInfo next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(entries, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+    
     /**
      * Template method for complete file operation workflow
      */
@@ -0,0 +1,271 @@
+package abstraction.loggerframework;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Pre-allocated ring of reusable log entries with a single consumer thread
+ *
+ * Logging threads claim a slot with one CAS, fill the entry in place and publish it;
+ * filtering, formatting and I/O all happen on the consumer thread. When the ring is full
+ * the overflow policy decides whether the caller waits or the entry is dropped. Shutting
+ * down seals the claim counter, so later publishes, including callers still waiting for
+ * space, are dropped instead of landing in a ring nobody consumes.
+ */
+public class AsyncLogRingBuffer {
+    
+    public enum WaitStrategy {
+        BUSY_SPIN,  // lowest latency, burns a core
+        YIELDING,   // spins briefly, then yields
+        SLEEPING,   // spins, yields, then parks for short intervals
+        BLOCKING    // parks on a condition until a producer signals
+    }
+        
+    public enum OverflowPolicy {
+        BLOCK,             // wait for space
+        DROP_BELOW_LEVEL,  // drop entries below the overflow level, wait for the rest
+        SAMPLE             // keep one in sampleRate entries below the overflow level
+    }
+        
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 200;
+    // Added to the claim counter on shutdown; no sequence gets anywhere near it
+    private static final long SEALED = 1L << 62;
+    
+    private final LogEntry[] entries;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private volatile long consumed = -1;
+    private final WaitStrategy waitStrategy;
+    private final OverflowPolicy overflowPolicy;
+    private final Logger.LogLevel overflowLevel;
+    private final int sampleRate;
+    private final AtomicLong overflowCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final Consumer<LogEntry> handler;
+    private final Thread consumerThread;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private volatile boolean consumerWaiting;
+    private volatile boolean running = true;
+    
+    public AsyncLogRingBuffer(String name, int capacity, WaitStrategy waitStrategy, OverflowPolicy overflowPolicy,
+                              Logger.LogLevel overflowLevel, int sampleRate, Consumer<LogEntry> handler) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1) << 1);
+        this.entries = new LogEntry[size];
+        for (int i = 0; i < size; i++) {
+            entries[i] = new LogEntry();
+        }
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+        this.mask = size - 1;
+        this.waitStrategy = waitStrategy;
+        this.overflowPolicy = overflowPolicy;
+        this.overflowLevel = overflowLevel;
+        this.sampleRate = Math.max(1, sampleRate);
+        this.handler = handler;
+        
+        this.consumerThread = new Thread(this::consume, name);
+        consumerThread.setDaemon(true);
+        consumerThread.start();
+    }
+    
+    /**
+     * Publishes one entry; returns false if the overflow policy dropped it.
+     */
+    public boolean publish(String loggerId, Logger.LogLevel level, String messagePattern, Object[] parameters,
+                           Throwable throwable, Map<String, Object> context) {
+        long sequence;
+        int waits = 0;
+        boolean admitted = false;
+        while (true) {
+            long current = claimed.get();
+            if (isSealed(current)) {
+                droppedCount.incrementAndGet();
+                return false;
+            }
+            long next = current + 1;
+            if (next - entries.length > consumed) {
+                if (!admitted && !admitOnOverflow(level)) {
+                    droppedCount.incrementAndGet();
+                    return false;
+                }
+                admitted = true;
+                idleProducer(waits++);
+                continue;
+            }
+            if (claimed.compareAndSet(current, next)) {
+                sequence = next;
+                break;
+            }
+        }
+        
+        Thread thread = Thread.currentThread();
+        int slot = (int) (sequence & mask);
+        entries[slot].populate(loggerId, level, messagePattern, parameters, throwable, context,
+                               LogEntry.currentEpochNanos(), thread.getName(), thread.getId());
+        published.set(slot, sequence);
+        
+        if (consumerWaiting) {
+            lock.lock();
+            try {
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return true;
+    }
+    
+    private boolean admitOnOverflow(Logger.LogLevel level) {
+        overflowCount.incrementAndGet();
+        switch (overflowPolicy) {
+            case DROP_BELOW_LEVEL:
+                return level.isEnabled(overflowLevel);
+            case SAMPLE:
+                return level.isEnabled(overflowLevel) || overflowCount.get() % sampleRate == 0;
+            default:
+                return true;
+        }
+    }
+    
+    private void idleProducer(int waits) {
+        if (waits < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (waits < YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(10_000);
+        }
+    }
+    
+    private void consume() {
+        long next = consumed + 1;
+        int idle = 0;
+        while (true) {
+            int slot = (int) (next & mask);
+            if (published.get(slot) != next) {
+                if (!running && lastClaimed() < next) {
+                    return;
+                }
+                idleConsumer(idle++, slot, next);
+                continue;
+            }
+            idle = 0;
+            
+            // Process everything already published, freeing slots in groups rather than one by one
+            long last = next;
+            do {
+                LogEntry entry = entries[slot];
+                try {
+                    handler.accept(entry);
+                } catch (RuntimeException e) {
+                    System.err.println("Async log handler failed: " + e.getMessage());
+                } finally {
+                    entry.release();
+                }
+                last = next++;
+                slot = (int) (next & mask);
+                if ((next & 255) == 0) {
+                    consumed = last;
+                }
+            } while (published.get(slot) == next);
+            consumed = last;
+        }
+    }
+    
+    private void idleConsumer(int idle, int slot, long sequence) {
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                Thread.onSpinWait();
+                break;
+            case YIELDING:
+                if (idle < SPIN_TRIES) Thread.onSpinWait(); else Thread.yield();
+                break;
+            case SLEEPING:
+                if (idle < SPIN_TRIES) Thread.onSpinWait();
+                else if (idle < YIELD_TRIES) Thread.yield();
+                else LockSupport.parkNanos(100_000);
+                break;
+            default:
+                lock.lock();
+                try {
+                    consumerWaiting = true;
+                    if (published.get(slot) != sequence && running) {
+                        notEmpty.await(1, TimeUnit.MILLISECONDS);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    consumerWaiting = false;
+                    lock.unlock();
+                }
+        }
+    }
+    
+    /**
+     * Waits until every entry published so far has been handled; false on timeout.
+     */
+    public boolean drain(long timeoutMs) {
+        if (Thread.currentThread() == consumerThread) {
+            return true;
+        }
+        long target = lastClaimed();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (consumed < target) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            LockSupport.parkNanos(50_000);
+        }
+        return true;
+    }
+    
+    /**
+     * Handles the remaining entries, then stops the consumer thread; later publishes are dropped.
+     */
+    public void shutdown(long timeoutMs) {
+        drain(timeoutMs);
+        long current;
+        do {
+            current = claimed.get();
+        } while (!isSealed(current) && !claimed.compareAndSet(current, current + SEALED));
+        // Entries claimed before the seal are still handled before the consumer exits
+        running = false;
+        lock.lock();
+        try {
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            consumerThread.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static boolean isSealed(long claim) {
+        return claim >= SEALED - 1;
+    }
+    
+    private long lastClaimed() {
+        long claim = claimed.get();
+        return isSealed(claim) ? claim - SEALED : claim;
+    }
+    
+    public int getCapacity() { return entries.length; }
+    public long getPendingCount() { return lastClaimed() - consumed; }
+    public long getDroppedCount() { return droppedCount.get(); }
+    public WaitStrategy getWaitStrategy() { return waitStrategy; }
+    public OverflowPolicy getOverflowPolicy() { return overflowPolicy; }
+}
@@ -1,16 +1,27 @@
 package abstraction.loggerframework;
 
 import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.time.LocalDateTime;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.GZIPOutputStream;
 
 /**
  * Cloud Logger Implementation with HTTP endpoints, compression, and circuit breaker
+ *
+ * Entries are accumulated into NDJSON batches bounded by entry count, size and linger
+ * time; each batch is gzipped once and posted over the client's pooled keep-alive
+ * connections, with up to max_concurrent_requests batches in flight. While the circuit
+ * is open, and for batches whose request failed, the batch goes to a LogSpillQueue on
+ * disk and is replayed once the endpoint accepts requests again.
  */
 public class CloudLogger extends Logger {
     
@@ -29,10 +40,30 @@ public class CloudLogger extends Logger {
     private final int failureThreshold = 5;
     private final long circuitResetTimeMs = 60000; // 1 minute
     
+    // Batching
+    private final int batchMaxEntries;
+    private final int batchMaxBytes;
+    private final long batchLingerMs;
+    private final Object batchLock = new Object();
+    private ByteArrayOutputStream currentBatch;
+    private int currentBatchEntries;
+    private long currentBatchStarted;
+    
     // Async processing
     private final ExecutorService executorService;
+    private final ScheduledExecutorService lingerScheduler;
+    private final HttpClient httpClient;
+    private final URI endpointUri;
     private final Semaphore requestSemaphore;
-    private final BlockingQueue<LogEntry> failedLogsQueue;
+    private final LogSpillQueue spillQueue;
+    private final Thread replayProcessor;
+    private volatile boolean running = true;
+    
+    // Metrics
+    private final AtomicLong sentBatches = new AtomicLong();
+    private final AtomicLong sentEntries = new AtomicLong();
+    private final AtomicLong spilledBatches = new AtomicLong();
+    private final AtomicLong lostEntries = new AtomicLong();
     
     public CloudLogger(String loggerId, LogLevel threshold, Map<String, Object> config) {
         super(loggerId, threshold, config);
@@ -44,14 +75,39 @@ public class CloudLogger extends Logger {
         this.maxConcurrentRequests = ((Number) config.getOrDefault("max_concurrent_requests", 10)).intValue();
         this.timeoutMs = ((Number) config.getOrDefault("timeout_ms", 5000)).intValue();
         this.retryDelayMs = ((Number) config.getOrDefault("retry_delay_ms", 1000)).intValue();
+        this.batchMaxEntries = ((Number) config.getOrDefault("batch_max_entries", 1000)).intValue();
+        this.batchMaxBytes = ((Number) config.getOrDefault("batch_max_bytes", 1024 * 1024)).intValue();
+        this.batchLingerMs = ((Number) config.getOrDefault("batch_linger_ms", 200)).longValue();
         
-        this.executorService = Executors.newFixedThreadPool(maxConcurrentRequests, 
+        this.executorService = Executors.newFixedThreadPool(Math.max(2, maxConcurrentRequests),
             r -> new Thread(r, "CloudLogger-" + loggerId + "-Worker"));
         this.requestSemaphore = new Semaphore(maxConcurrentRequests);
-        this.failedLogsQueue = new LinkedBlockingQueue<>();
+        this.endpointUri = URI.create(endpoint);
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(timeoutMs))
+            .executor(executorService)
+            .build();
+        
+        String spillDirectory = (String) config.getOrDefault("spill_directory", "logs/cloud-spill/" + loggerId);
+        long spillSegmentBytes = ((Number) config.getOrDefault("spill_segment_bytes", 8L * 1024 * 1024)).longValue();
+        long spillMaxBytes = ((Number) config.getOrDefault("spill_max_bytes", 256L * 1024 * 1024)).longValue();
+        try {
+            this.spillQueue = new LogSpillQueue(Paths.get(spillDirectory), spillSegmentBytes, spillMaxBytes);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open spill queue for cloud logger: " + e.getMessage(), e);
+        }
         
-        // Start retry processor for failed logs
-        startRetryProcessor();
+        // Seal batches that reached their linger time
+        this.lingerScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "CloudLogger-Linger-" + loggerId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        long tick = Math.max(1, batchLingerMs / 2);
+        lingerScheduler.scheduleWithFixedDelay(this::sealIfLingered, tick, tick, TimeUnit.MILLISECONDS);
+        
+        // Replay spilled batches, including any left by a previous process
+        this.replayProcessor = startReplayProcessor();
         
         // Set JSON formatter for cloud logging
         setFormatter(new JsonLogFormatter());
@@ -59,123 +115,195 @@ public class CloudLogger extends Logger {
     
     @Override
     protected void writeLog(LogEntry logEntry) throws LoggingException {
-        if (enableCircuitBreaker && isCircuitOpen()) {
-            // Circuit is open, queue for retry later
-            failedLogsQueue.offer(logEntry);
-            throw new LogWriteException("Circuit breaker is open, queuing log for retry");
+        // Each entry is one NDJSON line; the formatted message is copied, so async entries can be reused
+        String line = logEntry.getFormattedMessage();
+        if (line.indexOf('\n') >= 0) {
+            line = line.replace("\n", "\\n");
         }
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
         
-        if (asyncMode) {
-            // Async processing
-            CompletableFuture.runAsync(() -> {
-                try {
-                    sendLogToCloud(logEntry);
-                } catch (LoggingException e) {
-                    handleCloudLoggingFailure(logEntry, e);
-                }
-            }, executorService);
-        } else {
-            // Synchronous processing
-            sendLogToCloud(logEntry);
+        byte[] sealed = null;
+        int sealedEntries = 0;
+        synchronized (batchLock) {
+            if (currentBatch == null) {
+                currentBatch = new ByteArrayOutputStream(Math.min(batchMaxBytes, 64 * 1024));
+                currentBatchStarted = System.nanoTime();
+            }
+            currentBatch.write(bytes, 0, bytes.length);
+            currentBatch.write('\n');
+            currentBatchEntries++;
+            if (currentBatchEntries >= batchMaxEntries || currentBatch.size() >= batchMaxBytes) {
+                sealed = currentBatch.toByteArray();
+                sealedEntries = currentBatchEntries;
+                resetBatch();
+            }
+        }
+        
+        if (sealed != null) {
+            dispatch(sealed, sealedEntries);
         }
     }
     
-    private void sendLogToCloud(LogEntry logEntry) throws LoggingException {
+    private void resetBatch() {
+        currentBatch = null;
+        currentBatchEntries = 0;
+    }
+    
+    private void sealIfLingered() {
+        byte[] sealed = null;
+        int sealedEntries = 0;
+        synchronized (batchLock) {
+            if (currentBatch != null &&
+                System.nanoTime() - currentBatchStarted >= TimeUnit.MILLISECONDS.toNanos(batchLingerMs)) {
+                sealed = currentBatch.toByteArray();
+                sealedEntries = currentBatchEntries;
+                resetBatch();
+            }
+        }
+        if (sealed != null) {
+            dispatch(sealed, sealedEntries);
+        }
+    }
+    
+    private void sealNow() {
+        byte[] sealed = null;
+        int sealedEntries = 0;
+        synchronized (batchLock) {
+            if (currentBatch != null) {
+                sealed = currentBatch.toByteArray();
+                sealedEntries = currentBatchEntries;
+                resetBatch();
+            }
+        }
+        if (sealed != null) {
+            dispatch(sealed, sealedEntries);
+        }
+    }
+        
+    /**
+     * Compresses a sealed batch once and either sends it or, while the circuit is open, spills it.
+     */
+    private void dispatch(byte[] ndjson, int entryCount) {
+        LogSpillQueue.Batch batch;
+        try {
+            batch = enableCompression ?
+                new LogSpillQueue.Batch(compressPayload(ndjson), true, entryCount) :
+                new LogSpillQueue.Batch(ndjson, false, entryCount);
+        } catch (IOException e) {
+            lostEntries.addAndGet(entryCount);
+            System.err.println("Cloud logging failed to compress a batch for " + loggerId + ": " + e.getMessage());
+            return;
+        }
+        
+        if (enableCircuitBreaker && isCircuitOpen()) {
+            spill(batch);
+            return;
+        }
+        
         try {
-            // Acquire semaphore to limit concurrent requests
+            // Bounds the batches in flight; a sealing thread waits here when the endpoint falls behind
             if (!requestSemaphore.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
-                throw new LogWriteException("Too many concurrent requests, request timed out");
+                spill(batch);
+                return;
             }
-            
-            try {
-                HttpURLConnection connection = createConnection();
-                
-                // Prepare payload
-                String payload = logEntry.getFormattedMessage();
-                byte[] payloadBytes = payload.getBytes("UTF-8");
-                
-                // Compress if enabled
-                if (enableCompression) {
-                    payloadBytes = compressPayload(payloadBytes);
-                    connection.setRequestProperty("Content-Encoding", "gzip");
-                }
-                
-                connection.setRequestProperty("Content-Length", String.valueOf(payloadBytes.length));
-                
-                // Send request
-                try (OutputStream os = connection.getOutputStream()) {
-                    os.write(payloadBytes);
-                    os.flush();
-                }
-                
-                // Check response
-                int responseCode = connection.getResponseCode();
-                if (responseCode >= 200 && responseCode < 300) {
-                    // Success
-                    recordSuccess();
-                } else {
-                    String errorMessage = readErrorResponse(connection);
-                    throw new LogWriteException("Cloud logging failed with HTTP " + responseCode + ": " + errorMessage);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            spill(batch);
+            return;
+        }
+        
+        httpClient.sendAsync(createRequest(batch), HttpResponse.BodyHandlers.ofString())
+            .whenComplete((response, error) -> {
+                try {
+                    if (error == null && isSuccess(response)) {
+                        recordSent(batch);
+                    } else {
+                        handleCloudLoggingFailure(batch, describeFailure(response, error));
+                    }
+                } finally {
+                    // Released last, so flush() only returns once the outcome is recorded
+                    requestSemaphore.release();
                 }
-                
-            } finally {
-                requestSemaphore.release();
+            });
+    }
+    
+    private boolean sendNow(LogSpillQueue.Batch batch) {
+        try {
+            HttpResponse<String> response = httpClient.send(createRequest(batch), HttpResponse.BodyHandlers.ofString());
+            if (isSuccess(response)) {
+                recordSent(batch);
+                return true;
             }
-            
+            recordFailure();
+            return false;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            throw new LogWriteException("Cloud logging interrupted", e);
+            return false;
         } catch (IOException e) {
-            throw new LogWriteException("Cloud logging I/O error", e);
+            recordFailure();
+            return false;
         }
     }
     
-    private HttpURLConnection createConnection() throws IOException {
-        URL url = new URL(endpoint);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        
-        connection.setRequestMethod("POST");
-        connection.setRequestProperty("Content-Type", "application/json");
-        connection.setRequestProperty("Authorization", "Bearer " + apiKey);
-        connection.setRequestProperty("User-Agent", "CloudLogger/" + loggerId);
-        connection.setConnectTimeout(timeoutMs);
-        connection.setReadTimeout(timeoutMs);
-        connection.setDoOutput(true);
-        
-        return connection;
+    private HttpRequest createRequest(LogSpillQueue.Batch batch) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(endpointUri)
+            .timeout(Duration.ofMillis(timeoutMs))
+            .header("Content-Type", "application/x-ndjson")
+            .header("Authorization", "Bearer " + apiKey)
+            .header("User-Agent", "CloudLogger/" + loggerId)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(batch.getBody()));
+        if (batch.isCompressed()) {
+            request.header("Content-Encoding", "gzip");
+        }
+        return request.build();
+    }
+    
+    private static boolean isSuccess(HttpResponse<String> response) {
+        return response.statusCode() >= 200 && response.statusCode() < 300;
+    }
+    
+    private static String describeFailure(HttpResponse<String> response, Throwable error) {
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            return "I/O error: " + cause;
+        }
+        return "HTTP " + response.statusCode() + ": " + response.body();
     }
     
     private byte[] compressPayload(byte[] payload) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try (GZIPOutputStream gzipOut = new GZIPOutputStream(baos)) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(Math.max(512, payload.length / 4));
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(baos, 8192)) {
             gzipOut.write(payload);
         }
         return baos.toByteArray();
     }
     
-    private String readErrorResponse(HttpURLConnection connection) {
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(connection.getErrorStream()))) {
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
-            }
-            return response.toString();
-        } catch (Exception e) {
-            return "Unable to read error response: " + e.getMessage();
-        }
+    private void recordSent(LogSpillQueue.Batch batch) {
+        sentBatches.incrementAndGet();
+        sentEntries.addAndGet(batch.getEntryCount());
+        recordSuccess();
     }
     
-    private void handleCloudLoggingFailure(LogEntry logEntry, LoggingException e) {
+    private void handleCloudLoggingFailure(LogSpillQueue.Batch batch, String reason) {
         recordFailure();
         
-        // Queue for retry
-        failedLogsQueue.offer(logEntry);
+        // Keep the batch on disk for replay
+        spill(batch);
         
         // Fallback logging to system err
-        System.err.println("Cloud logging failed for " + loggerId + ": " + e.getMessage());
-        System.err.println("Original log: " + logEntry.getMessage());
+        System.err.println("Cloud logging failed for " + loggerId + " (" + batch.getEntryCount() +
+                           " entries spilled): " + reason);
+    }
+    
+    private void spill(LogSpillQueue.Batch batch) {
+        try {
+            spillQueue.append(batch);
+            spilledBatches.incrementAndGet();
+        } catch (IOException e) {
+            lostEntries.addAndGet(batch.getEntryCount());
+            System.err.println("Cloud logging failed to spill " + batch.getEntryCount() + " entries for " +
+                               loggerId + ": " + e.getMessage());
+        }
     }
     
     private void recordSuccess() {
@@ -188,14 +316,14 @@ public class CloudLogger extends Logger {
         }
     }
     
-    private void recordFailure() {
+    private synchronized void recordFailure() {
         if (enableCircuitBreaker) {
             consecutiveFailures++;
             lastFailureTime = System.currentTimeMillis();
             
             if (consecutiveFailures >= failureThreshold && !circuitOpen.get()) {
                 circuitOpen.set(true);
-                System.err.println("CloudLogger circuit breaker opened for " + loggerId + 
+                System.err.println("CloudLogger circuit breaker opened for " + loggerId +
                                  " after " + consecutiveFailures + " consecutive failures");
             }
         }
@@ -217,60 +345,63 @@ public class CloudLogger extends Logger {
         return true;
     }
     
-    private void startRetryProcessor() {
-        Thread retryProcessor = new Thread(() -> {
-            while (!Thread.currentThread().isInterrupted()) {
+    private Thread startReplayProcessor() {
+        Thread replayProcessor = new Thread(() -> {
+            while (running) {
                 try {
-                    LogEntry failedLog = failedLogsQueue.poll(1, TimeUnit.SECONDS);
-                    if (failedLog != null) {
-                        // Wait before retry
-                        Thread.sleep(retryDelayMs);
+                    // Wait before retry
+                    Thread.sleep(retryDelayMs);
                         
-                        // Only retry if circuit is not open
-                        if (!enableCircuitBreaker || !isCircuitOpen()) {
-                            try {
-                                sendLogToCloud(failedLog);
-                            } catch (LoggingException e) {
-                                // If retry fails, put it back in queue (with limit to prevent infinite retries)
-                                if (failedLogsQueue.size() < 1000) { // Limit queue size
-                                    failedLogsQueue.offer(failedLog);
-                                }
-                            }
-                        } else {
-                            // Circuit is open, put back in queue
-                            failedLogsQueue.offer(failedLog);
-                        }
+                    // Only replay if circuit is not open; the first batch doubles as the probe
+                    if (!spillQueue.isEmpty() && (!enableCircuitBreaker || !isCircuitOpen())) {
+                        spillQueue.replay(this::sendNow);
                     }
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                     break;
+                } catch (IOException e) {
+                    System.err.println("Cloud logging replay failed for " + loggerId + ": " + e.getMessage());
                 }
             }
-        }, "CloudLogger-RetryProcessor-" + loggerId);
+        }, "CloudLogger-ReplayProcessor-" + loggerId);
         
-        retryProcessor.setDaemon(true);
-        retryProcessor.start();
+        replayProcessor.setDaemon(true);
+        replayProcessor.start();
+        return replayProcessor;
     }
     
     @Override
     public void flush() throws LoggingException {
-        // Wait for all pending async operations to complete
-        executorService.shutdown();
+        drainAsyncQueue();
+        sealNow();
+        
+        // Wait for the batches in flight; failed ones have been spilled by then
         try {
-            if (!executorService.awaitTermination(30, TimeUnit.SECONDS)) {
+            if (requestSemaphore.tryAcquire(maxConcurrentRequests, 30, TimeUnit.SECONDS)) {
+                requestSemaphore.release(maxConcurrentRequests);
+            } else {
                 System.err.println("CloudLogger flush timeout for " + loggerId);
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new LoggingException("Flush interrupted", e);
         }
-        
-        // Recreate executor for future operations
-        // Note: In a real implementation, you might want to handle this differently
     }
     
     @Override
     public void close() throws LoggingException {
+        shutdownAsyncQueue();
+        lingerScheduler.shutdown();
+        flush();
+        
+        running = false;
+        replayProcessor.interrupt();
+        try {
+            replayProcessor.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
         // Shutdown executor service
         executorService.shutdown();
         try {
@@ -282,16 +413,42 @@ public class CloudLogger extends Logger {
             executorService.shutdownNow();
         }
         
-        // Log remaining failed logs to system err as fallback
-        if (!failedLogsQueue.isEmpty()) {
-            System.err.println("CloudLogger " + loggerId + " closing with " + 
-                             failedLogsQueue.size() + " unprocessed failed logs");
+        // Spilled batches stay on disk and are replayed by the next logger using this spill directory
+        if (!spillQueue.isEmpty()) {
+            System.err.println("CloudLogger " + loggerId + " closing with " +
+                             spillQueue.getPendingEntries() + " spilled logs awaiting replay");
+        }
+        try {
+            spillQueue.close();
+        } catch (IOException e) {
+            throw new LoggingException("Failed to close spill queue", e);
         }
     }
     
     // Cloud-specific methods
     public int getFailedLogsQueueSize() {
-        return failedLogsQueue.size();
+        return (int) Math.min(Integer.MAX_VALUE, spillQueue.getPendingEntries());
+    }
+    
+    public long getSpilledBytes() {
+        return spillQueue.getPendingBytes();
+    }
+    
+    public long getSentBatchCount() {
+        return sentBatches.get();
+    }
+    
+    public long getSentLogCount() {
+        return sentEntries.get();
+    }
+    
+    public long getSpilledBatchCount() {
+        return spilledBatches.get();
+    }
+    
+    @Override
+    public long getDroppedLogCount() {
+        return super.getDroppedLogCount() + lostEntries.get() + spillQueue.getDroppedEntries();
     }
     
     public boolean isCircuitBreakerOpen() {
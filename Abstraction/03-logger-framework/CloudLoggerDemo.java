@@ -0,0 +1,157 @@
+package abstraction.loggerframework;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Runs CloudLogger and its spill queue against a local HTTP endpoint
+ *
+ * The endpoint is a com.sun.net.httpserver stand-in that counts the NDJSON lines it
+ * accepts and can be switched to answer 503. The demo ships logs while it is up, spills
+ * them while it is down, and checks that replay delivers every entry once it recovers.
+ * It then overfills a spill queue while a slow replay is running, to show that the
+ * segment being replayed is never dropped and every entry is counted exactly once.
+ */
+public class CloudLoggerDemo {
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Cloud Logger Spill and Replay Demo ===\n");
+        
+        AtomicBoolean endpointUp = new AtomicBoolean(true);
+        AtomicLong received = new AtomicLong();
+        HttpServer server = startEndpoint(endpointUp, received);
+        Path spillDirectory = Files.createTempDirectory("cloud-spill-demo");
+        try {
+            demoSpillAndReplay(server, spillDirectory, endpointUp, received);
+            demoDropDuringReplay(spillDirectory.resolve("bounded"));
+        } finally {
+            server.stop(0);
+        }
+        
+        System.out.println("\n=== Demo completed ===");
+    }
+    
+    private static HttpServer startEndpoint(AtomicBoolean endpointUp, AtomicLong received) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/logs", exchange -> {
+            try (InputStream body = "gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding")) ?
+                    new GZIPInputStream(exchange.getRequestBody()) : exchange.getRequestBody()) {
+                byte[] payload = body.readAllBytes();
+                if (!endpointUp.get()) {
+                    exchange.sendResponseHeaders(503, -1);
+                    return;
+                }
+                long lines = 0;
+                for (byte b : payload) {
+                    if (b == '\n') {
+                        lines++;
+                    }
+                }
+                received.addAndGet(lines);
+                exchange.sendResponseHeaders(204, -1);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+        return server;
+    }
+    
+    private static void demoSpillAndReplay(HttpServer server, Path spillDirectory,
+                                           AtomicBoolean endpointUp, AtomicLong received) throws Exception {
+        Map<String, Object> config = new HashMap<>();
+        config.put("endpoint", "http://127.0.0.1:" + server.getAddress().getPort() + "/logs");
+        config.put("api_key", "demo_api_key_12345");
+        config.put("enable_circuit_breaker", false);
+        config.put("retry_delay_ms", 100);
+        config.put("batch_max_entries", 50);
+        config.put("spill_directory", spillDirectory.resolve("logger").toString());
+        config.put("async_mode", false);
+        CloudLogger logger = new CloudLogger("cloud_demo_001", Logger.LogLevel.INFO, config);
+        
+        System.out.println("1. Shipping while the endpoint is up...");
+        for (int i = 0; i < 500; i++) {
+            logger.info("Order %d accepted", i);
+        }
+        logger.flush();
+        System.out.println("   Received " + received.get() + " of 500 entries");
+        
+        System.out.println("\n2. Spilling while the endpoint answers 503...");
+        endpointUp.set(false);
+        for (int i = 0; i < 500; i++) {
+            logger.info("Payment %d retried", i);
+        }
+        logger.flush();
+        System.out.println("   Spilled " + logger.getFailedLogsQueueSize() + " entries (" +
+                           logger.getSpilledBytes() + " bytes on disk)");
+        
+        System.out.println("\n3. Replaying once the endpoint recovers...");
+        endpointUp.set(true);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (logger.getFailedLogsQueueSize() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        logger.close();
+        System.out.println("   Received " + received.get() + " of 1000 entries, " +
+                           logger.getFailedLogsQueueSize() + " still spilled, " +
+                           logger.getDroppedLogCount() + " dropped");
+        System.out.println(received.get() == 1000 ? "   ✓ Every entry delivered" : "   ✗ Entries missing");
+    }
+    
+    private static void demoDropDuringReplay(Path directory) throws Exception {
+        System.out.println("\n4. Overfilling the spill queue during a slow replay...");
+        byte[] body = new byte[1000];
+        int batchEntries = 10;
+        try (LogSpillQueue queue = new LogSpillQueue(directory, 10_000, 30_000)) {
+            for (int i = 0; i < 20; i++) {
+                queue.append(new LogSpillQueue.Batch(body, false, batchEntries));
+            }
+            
+            AtomicLong replayed = new AtomicLong();
+            Thread replay = new Thread(() -> {
+                try {
+                    queue.replay(batch -> {
+                        replayed.addAndGet(batch.getEntryCount());
+                        sleep(5);
+                        return true;
+                    });
+                } catch (IOException e) {
+                    System.err.println("Replay failed: " + e.getMessage());
+                }
+            });
+            replay.start();
+            
+            int appended = 20;
+            for (int i = 0; i < 100; i++) {
+                queue.append(new LogSpillQueue.Batch(body, false, batchEntries));
+                appended++;
+                sleep(1);
+            }
+            replay.join();
+            
+            long total = (long) appended * batchEntries;
+            long accounted = replayed.get() + queue.getPendingEntries() + queue.getDroppedEntries();
+            System.out.println("   Appended " + total + " entries: " + replayed.get() + " replayed, " +
+                               queue.getPendingEntries() + " pending, " + queue.getDroppedEntries() + " dropped");
+            System.out.println(accounted == total ? "   ✓ Every entry counted once" : "   ✗ Counts do not add up");
+        }
+    }
+    
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,29 +1,68 @@
 package abstraction.loggerframework;
 
 import java.sql.*;
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Database Logger Implementation with connection pooling, batching, and retry logic
+ *
+ * With batching, entries go to a bounded queue drained by several writer threads, each
+ * with its own connection. A writer commits once it has the current batch size or the
+ * linger time has passed; the batch size adapts to the measured commit latency.
  */
 public class DatabaseLogger extends Logger {
     
+    private static final String INSERT_COLUMNS =
+        " (logger_id, log_level, message, throwable, context, timestamp, thread_name, thread_id) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    
     private String connectionUrl;
     private String username;
     private String password;
     private String tableName;
     private boolean enableBatching;
-    private int batchSize;
     private int maxRetries;
     private Connection connection;
     private PreparedStatement insertStatement;
-    private final BlockingQueue<LogEntry> logQueue;
+    private final Object insertLock = new Object();
     private final AtomicBoolean isRunning = new AtomicBoolean(true);
-    private Thread batchProcessor;
+    
+    // Batching
+    private final BlockingQueue<LogEntry> logQueue;
+    private final List<BatchWriter> writers = new ArrayList<>();
+    private final int writerConnections;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long lingerMs;
+    private final long targetCommitMs;
+    private volatile int batchSize;
+    
+    // Overload handling when the queue is full
+    private final AsyncLogRingBuffer.OverflowPolicy overflowPolicy;
+    private final LogLevel overflowLevel;
+    private final int sampleRate;
+    private final long blockTimeoutMs;
+    
+    // Metrics
+    private final AtomicLong enqueuedCount = new AtomicLong();
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong totalCommitNanos = new AtomicLong();
+    private volatile int lastBatchSize;
+    private volatile long lastCommitNanos;
     
     public DatabaseLogger(String loggerId, LogLevel threshold, Map<String, Object> config) {
         super(loggerId, threshold, config);
@@ -33,38 +72,58 @@ public class DatabaseLogger extends Logger {
         this.password = (String) config.get("password");
         this.tableName = (String) config.getOrDefault("table_name", "application_logs");
         this.enableBatching = (Boolean) config.getOrDefault("enable_batching", true);
-        this.batchSize = ((Number) config.getOrDefault("batch_size", 100)).intValue();
         this.maxRetries = ((Number) config.getOrDefault("max_retries", 3)).intValue();
         
-        this.logQueue = new LinkedBlockingQueue<>();
+        this.batchSize = ((Number) config.getOrDefault("batch_size", 100)).intValue();
+        this.minBatchSize = ((Number) config.getOrDefault("min_batch_size", Math.min(10, batchSize))).intValue();
+        this.maxBatchSize = ((Number) config.getOrDefault("max_batch_size", Math.max(1000, batchSize))).intValue();
+        this.lingerMs = ((Number) config.getOrDefault("batch_linger_ms", 50)).longValue();
+        this.targetCommitMs = ((Number) config.getOrDefault("target_commit_ms", 50)).longValue();
+        this.writerConnections = Math.max(1, ((Number) config.getOrDefault("writer_connections", 2)).intValue());
+        
+        this.overflowPolicy = AsyncLogRingBuffer.OverflowPolicy.valueOf(
+            String.valueOf(config.getOrDefault("queue_overflow_policy", "BLOCK")).toUpperCase());
+        this.overflowLevel = LogLevel.valueOf(
+            String.valueOf(config.getOrDefault("queue_overflow_level", "WARN")).toUpperCase());
+        this.sampleRate = Math.max(1, ((Number) config.getOrDefault("queue_sample_rate", 10)).intValue());
+        this.blockTimeoutMs = ((Number) config.getOrDefault("queue_block_timeout_ms", 1000)).longValue();
+        
+        this.logQueue = new ArrayBlockingQueue<>(((Number) config.getOrDefault("queue_capacity", 10000)).intValue());
         
         initializeDatabase();
         
         if (enableBatching) {
-            startBatchProcessor();
+            startBatchWriters();
         }
     }
     
     private void initializeDatabase() {
         try {
             // Establish database connection
-            connection = DriverManager.getConnection(connectionUrl, username, password);
-            connection.setAutoCommit(!enableBatching);
+            connection = openConnection(true);
             
             // Create table if it doesn't exist
             createLogTableIfNotExists();
             
-            // Prepare insert statement
-            String insertSql = "INSERT INTO " + tableName + 
-                " (logger_id, log_level, message, throwable, context, timestamp, thread_name, thread_id) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
-            insertStatement = connection.prepareStatement(insertSql);
+            // Prepare insert statement for unbatched writes; batch writers prepare their own
+            if (enableBatching) {
+                connection.close();
+                connection = null;
+            } else {
+                insertStatement = connection.prepareStatement("INSERT INTO " + tableName + INSERT_COLUMNS);
+            }
             
         } catch (SQLException e) {
             throw new RuntimeException("Failed to initialize database logger: " + e.getMessage(), e);
         }
     }
     
+    private Connection openConnection(boolean autoCommit) throws SQLException {
+        Connection newConnection = DriverManager.getConnection(connectionUrl, username, password);
+        newConnection.setAutoCommit(autoCommit);
+        return newConnection;
+    }
+    
     private void createLogTableIfNotExists() throws SQLException {
         String createTableSql = "CREATE TABLE IF NOT EXISTS " + tableName + " (" +
             "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
@@ -89,38 +148,59 @@ public class DatabaseLogger extends Logger {
     @Override
     protected void writeLog(LogEntry logEntry) throws LoggingException {
         if (enableBatching) {
-            // Add to queue for batch processing
-            try {
-                logQueue.offer(logEntry);
-            } catch (Exception e) {
-                throw new LogWriteException("Failed to queue log entry for batch processing", e);
-            }
+            // Async entries are reused once writeLog returns, so the queue keeps a copy
+            enqueue(logEntry.detach());
         } else {
             // Write immediately
             writeLogToDatabase(logEntry);
         }
     }
     
+    private void enqueue(LogEntry logEntry) throws LoggingException {
+        if (logQueue.offer(logEntry)) {
+            enqueuedCount.incrementAndGet();
+            return;
+        }
+        
+        // Queue full: the overload policy decides between waiting for a writer and dropping
+        if (!admitOnOverflow(logEntry.getLevel())) {
+            droppedCount.incrementAndGet();
+            return;
+        }
+        try {
+            if (logQueue.offer(logEntry, blockTimeoutMs, TimeUnit.MILLISECONDS)) {
+                enqueuedCount.incrementAndGet();
+            } else {
+                droppedCount.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            droppedCount.incrementAndGet();
+            throw new LogWriteException("Interrupted while waiting for space in the database log queue", e);
+        }
+    }
+    
+    private boolean admitOnOverflow(LogLevel level) {
+        long overflows = overflowCount.incrementAndGet();
+        switch (overflowPolicy) {
+            case DROP_BELOW_LEVEL:
+                return level.isEnabled(overflowLevel);
+            case SAMPLE:
+                return level.isEnabled(overflowLevel) || overflows % sampleRate == 0;
+            default:
+                return true;
+        }
+    }
+    
     private void writeLogToDatabase(LogEntry logEntry) throws LoggingException {
         int retryCount = 0;
         
         while (retryCount <= maxRetries) {
             try {
-                synchronized (insertStatement) {
-                    insertStatement.setString(1, logEntry.getLoggerId());
-                    insertStatement.setString(2, logEntry.getLevel().name());
-                    insertStatement.setString(3, logEntry.getMessage());
-                    insertStatement.setString(4, formatThrowable(logEntry.getThrowable()));
-                    insertStatement.setString(5, formatContext(logEntry.getContext()));
-                    insertStatement.setTimestamp(6, Timestamp.valueOf(logEntry.getTimestamp()));
-                    insertStatement.setString(7, logEntry.getThreadName());
-                    insertStatement.setLong(8, logEntry.getThreadId());
-                    
+                // The connection auto-commits, so each insert is its own transaction
+                synchronized (insertLock) {
+                    bind(insertStatement, logEntry);
                     insertStatement.executeUpdate();
-                    
-                    if (!enableBatching) {
-                        connection.commit();
-                    }
                 }
                 return; // Success, exit retry loop
                 
@@ -139,69 +219,194 @@ public class DatabaseLogger extends Logger {
                 }
                 
                 // Try to reconnect if connection is broken
-                if (!isConnectionValid()) {
-                    reconnect();
+                synchronized (insertLock) {
+                    if (!isConnectionValid(connection)) {
+                        reconnect();
+                    }
                 }
             }
         }
     }
     
-    private void startBatchProcessor() {
-        batchProcessor = new Thread(() -> {
+    private static void bind(PreparedStatement statement, LogEntry logEntry) throws SQLException {
+        statement.setString(1, logEntry.getLoggerId());
+        statement.setString(2, logEntry.getLevel().name());
+        statement.setString(3, logEntry.getMessage());
+        statement.setString(4, formatThrowable(logEntry.getThrowable()));
+        statement.setString(5, formatContext(logEntry.getContext()));
+        statement.setTimestamp(6, Timestamp.valueOf(logEntry.getTimestamp()));
+        statement.setString(7, logEntry.getThreadName());
+        statement.setLong(8, logEntry.getThreadId());
+    }
+    
+    private void startBatchWriters() {
+        for (int i = 0; i < writerConnections; i++) {
+            BatchWriter writer = new BatchWriter(i);
+            writers.add(writer);
+            writer.start();
+        }
+    }
+    
+    /**
+     * Drains the shared queue into batches on its own connection.
+     */
+    private class BatchWriter implements Runnable {
+        private final Thread thread;
+        private final List<LogEntry> batch = new ArrayList<>();
+        private Connection writerConnection;
+        private PreparedStatement writerStatement;
+        
+        BatchWriter(int index) {
+            this.thread = new Thread(this, "DatabaseLogger-Writer-" + loggerId + "-" + index);
+            thread.setDaemon(true);
+        }
+        
+        void start() {
+            thread.start();
+        }
+        
+        @Override
+        public void run() {
             while (isRunning.get() || !logQueue.isEmpty()) {
                 try {
-                    processBatch();
-                } catch (Exception e) {
-                    System.err.println("Batch processing error in DatabaseLogger: " + e.getMessage());
+                    if (fillBatch()) {
+                        writeBatch();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            closeQuietly();
+        }
+        
+        /**
+         * Collects up to the current batch size, waiting at most the linger time after the first entry.
+         */
+        private boolean fillBatch() throws InterruptedException {
+            LogEntry first = logQueue.poll(100, TimeUnit.MILLISECONDS);
+            if (first == null) {
+                return false;
+            }
+            batch.add(first);
+            
+            int limit = batchSize;
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+            logQueue.drainTo(batch, limit - batch.size());
+            while (batch.size() < limit && isRunning.get()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                LogEntry next = logQueue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    break;
+                }
+                batch.add(next);
+                logQueue.drainTo(batch, limit - batch.size());
+            }
+            return true;
+        }
+        
+        private void writeBatch() throws InterruptedException {
+            int size = batch.size();
+            int retryCount = 0;
+            try {
+                while (true) {
                     try {
-                        Thread.sleep(1000); // Wait before retrying
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        break;
+                        ensureConnection();
+                        for (LogEntry logEntry : batch) {
+                            bind(writerStatement, logEntry);
+                            writerStatement.addBatch();
+                        }
+                        long start = System.nanoTime();
+                        writerStatement.executeBatch();
+                        writerConnection.commit();
+                        recordCommit(size, System.nanoTime() - start);
+                        writtenCount.addAndGet(size);
+                        return;
+                        
+                    } catch (SQLException e) {
+                        rollbackQuietly();
+                        retryCount++;
+                        if (retryCount > maxRetries) {
+                            failedCount.addAndGet(size);
+                            System.err.println("DatabaseLogger " + loggerId + " dropped a batch of " + size +
+                                               " entries after " + maxRetries + " retries: " + e.getMessage());
+                            return;
+                        }
+                        Thread.sleep(100L * retryCount); // Exponential backoff
+                        if (!isConnectionValid(writerConnection)) {
+                            closeQuietly();
+                        }
                     }
                 }
+            } finally {
+                batch.clear();
+                completedCount.addAndGet(size);
             }
-        }, "DatabaseLogger-BatchProcessor-" + loggerId);
+        }
         
-        batchProcessor.setDaemon(true);
-        batchProcessor.start();
-    }
-    
-    private void processBatch() throws SQLException, InterruptedException {
-        if (logQueue.isEmpty()) {
-            Thread.sleep(100); // Wait for entries
-            return;
+        private void ensureConnection() throws SQLException {
+            if (writerConnection == null) {
+                writerConnection = openConnection(false);
+                writerStatement = writerConnection.prepareStatement("INSERT INTO " + tableName + INSERT_COLUMNS);
+            } else {
+                writerStatement.clearBatch();
+            }
         }
         
-        synchronized (insertStatement) {
-            int batchCount = 0;
-            
-            while (batchCount < batchSize && !logQueue.isEmpty()) {
-                LogEntry logEntry = logQueue.take();
-                
-                insertStatement.setString(1, logEntry.getLoggerId());
-                insertStatement.setString(2, logEntry.getLevel().name());
-                insertStatement.setString(3, logEntry.getMessage());
-                insertStatement.setString(4, formatThrowable(logEntry.getThrowable()));
-                insertStatement.setString(5, formatContext(logEntry.getContext()));
-                insertStatement.setTimestamp(6, Timestamp.valueOf(logEntry.getTimestamp()));
-                insertStatement.setString(7, logEntry.getThreadName());
-                insertStatement.setLong(8, logEntry.getThreadId());
-                
-                insertStatement.addBatch();
-                batchCount++;
+        private void rollbackQuietly() {
+            try {
+                if (writerConnection != null) {
+                    writerConnection.rollback();
+                }
+            } catch (SQLException ignored) {
+                // The connection is checked and replaced before the retry
             }
-            
-            if (batchCount > 0) {
-                insertStatement.executeBatch();
-                connection.commit();
+        }
+        
+        private void closeQuietly() {
+            try {
+                if (writerStatement != null) {
+                    writerStatement.close();
+                }
+                if (writerConnection != null) {
+                    writerConnection.close();
+                }
+            } catch (SQLException e) {
+                System.err.println("Failed to close DatabaseLogger writer connection: " + e.getMessage());
             }
+            writerStatement = null;
+            writerConnection = null;
+        }
+        
+        void join(long timeoutMs) throws InterruptedException {
+            thread.join(timeoutMs);
+        }
+    }
+    
+    /**
+     * Records a commit and adapts the batch size: halve it when commits run over the
+     * target latency, grow it by a quarter when full batches commit well under it.
+     */
+    private synchronized void recordCommit(int size, long commitNanos) {
+        batchCount.incrementAndGet();
+        totalCommitNanos.addAndGet(commitNanos);
+        lastBatchSize = size;
+        lastCommitNanos = commitNanos;
+        
+        long targetNanos = TimeUnit.MILLISECONDS.toNanos(targetCommitMs);
+        if (commitNanos > targetNanos) {
+            batchSize = Math.max(minBatchSize, batchSize / 2);
+        } else if (commitNanos < targetNanos / 2 && size >= batchSize) {
+            batchSize = Math.min(maxBatchSize, batchSize + Math.max(1, batchSize / 4));
         }
     }
     
-    private boolean isConnectionValid() {
+    private static boolean isConnectionValid(Connection candidate) {
         try {
-            return connection != null && !connection.isClosed() && connection.isValid(5);
+            return candidate != null && !candidate.isClosed() && candidate.isValid(5);
         } catch (SQLException e) {
             return false;
         }
@@ -213,20 +418,15 @@ public class DatabaseLogger extends Logger {
                 connection.close();
             }
             
-            connection = DriverManager.getConnection(connectionUrl, username, password);
-            connection.setAutoCommit(!enableBatching);
-            
-            String insertSql = "INSERT INTO " + tableName + 
-                " (logger_id, log_level, message, throwable, context, timestamp, thread_name, thread_id) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
-            insertStatement = connection.prepareStatement(insertSql);
+            connection = openConnection(true);
+            insertStatement = connection.prepareStatement("INSERT INTO " + tableName + INSERT_COLUMNS);
             
         } catch (SQLException e) {
             throw new LogWriteException("Failed to reconnect to database", e);
         }
     }
     
-    private String formatThrowable(Throwable throwable) {
+    private static String formatThrowable(Throwable throwable) {
         if (throwable == null) return null;
         
         StringBuilder sb = new StringBuilder();
@@ -243,7 +443,7 @@ public class DatabaseLogger extends Logger {
         return sb.toString();
     }
     
-    private String formatContext(Map<String, Object> context) {
+    private static String formatContext(Map<String, Object> context) {
         if (context == null || context.isEmpty()) return null;
         
         StringBuilder sb = new StringBuilder();
@@ -258,59 +458,89 @@ public class DatabaseLogger extends Logger {
     
     @Override
     public void flush() throws LoggingException {
-        if (enableBatching) {
-            // Process remaining entries in queue
-            try {
-                while (!logQueue.isEmpty()) {
-                    processBatch();
+        drainAsyncQueue();
+        if (enableBatching && !writers.isEmpty()) {
+            // Wait until the writers have committed (or given up on) everything queued so far
+            long target = enqueuedCount.get();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (completedCount.get() < target) {
+                if (System.nanoTime() > deadline) {
+                    throw new LogWriteException("Timed out flushing " + (target - completedCount.get()) +
+                                               " queued database log entries");
                 }
-            } catch (Exception e) {
-                throw new LoggingException("Failed to flush batch queue", e);
+                LockSupport.parkNanos(1_000_000);
             }
         }
-        
-        try {
-            if (connection != null && !connection.getAutoCommit()) {
-                connection.commit();
-            }
-        } catch (SQLException e) {
-            throw new LoggingException("Failed to flush database connection", e);
-        }
     }
     
     @Override
     public void close() throws LoggingException {
-        // Stop batch processor
+        shutdownAsyncQueue();
+        
+        // Stop batch writers once they have emptied the queue
         isRunning.set(false);
-        if (batchProcessor != null) {
+        for (BatchWriter writer : writers) {
             try {
-                batchProcessor.join(5000); // Wait up to 5 seconds
+                writer.join(5000); // Wait up to 5 seconds
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
         }
         
-        // Flush remaining logs
-        flush();
-        
         // Close database resources
         try {
-            if (insertStatement != null) {
-                insertStatement.close();
-            }
-            if (connection != null) {
-                connection.close();
+            synchronized (insertLock) {
+                if (insertStatement != null) {
+                    insertStatement.close();
+                }
+                if (connection != null) {
+                    connection.close();
+                }
             }
         } catch (SQLException e) {
             throw new LoggingException("Failed to close database resources", e);
         }
     }
     
+    /**
+     * Queue depth, batch size and commit latency for monitoring.
+     */
+    public Map<String, Object> getMetrics() {
+        long batches = batchCount.get();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("queue_depth", logQueue.size());
+        metrics.put("queue_capacity", logQueue.size() + logQueue.remainingCapacity());
+        metrics.put("batch_size", batchSize);
+        metrics.put("last_batch_size", lastBatchSize);
+        metrics.put("avg_batch_size", batches == 0 ? 0.0 : (double) writtenCount.get() / batches);
+        metrics.put("last_commit_ms", lastCommitNanos / 1_000_000.0);
+        metrics.put("avg_commit_ms", batches == 0 ? 0.0 : totalCommitNanos.get() / 1_000_000.0 / batches);
+        metrics.put("batches_committed", batches);
+        metrics.put("entries_written", writtenCount.get());
+        metrics.put("entries_failed", failedCount.get());
+        metrics.put("entries_dropped", droppedCount.get());
+        metrics.put("queue_overflows", overflowCount.get());
+        return metrics;
+    }
+    
     // Database-specific methods
     public int getQueueSize() {
         return logQueue.size();
     }
     
+    public int getCurrentBatchSize() {
+        return batchSize;
+    }
+    
+    public int getWriterConnectionCount() {
+        return enableBatching ? writerConnections : 1;
+    }
+    
+    @Override
+    public long getDroppedLogCount() {
+        return super.getDroppedLogCount() + droppedCount.get();
+    }
+    
     public boolean isBatchingEnabled() {
         return enableBatching;
     }
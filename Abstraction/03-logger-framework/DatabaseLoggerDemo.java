@@ -0,0 +1,224 @@
+package abstraction.loggerframework;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs DatabaseLogger's batch writers against an in-process stub JDBC driver
+ *
+ * The stub accepts "jdbc:stub:" URLs, so the demo needs no database on the classpath. It
+ * counts the rows each commit makes durable and makes a commit cost a fixed round trip
+ * plus a little per row, which is enough to watch the batch size adapt to commit latency.
+ * The demo logs from several threads, flushes, and checks that every entry was committed.
+ */
+public class DatabaseLoggerDemo {
+    
+    static final String STUB_URL = "jdbc:stub:demo";
+    
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Database Logger Batching Demo ===\n");
+        StubDriver driver = StubDriver.register();
+        
+        Map<String, Object> config = new HashMap<>();
+        config.put("connection_url", STUB_URL);
+        config.put("username", "sa");
+        config.put("password", "");
+        config.put("table_name", "demo_logs");
+        config.put("enable_batching", true);
+        config.put("batch_size", 50);
+        config.put("writer_connections", 2);
+        config.put("target_commit_ms", 20);
+        DatabaseLogger logger = new DatabaseLogger("db_demo_001", Logger.LogLevel.INFO, config);
+        
+        int threads = 4;
+        int perThread = 5_000;
+        System.out.println("1. Logging " + threads * perThread + " entries from " + threads + " threads...");
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    logger.info("Worker %d processed item %d", id, i);
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        logger.flush();
+        
+        System.out.println("\n2. Writer metrics after flush:");
+        logger.getMetrics().forEach((name, value) -> System.out.println("   " + name + " = " + value));
+        
+        logger.close();
+        long expected = (long) threads * perThread;
+        System.out.println("\n3. Rows committed through the stub driver: " + driver.getCommittedRows() + " of " + expected);
+        System.out.println(driver.getCommittedRows() == expected ? "   ✓ Every entry committed" : "   ✗ Entries missing");
+        
+        System.out.println("\n=== Demo completed ===");
+    }
+    
+    /**
+     * Minimal JDBC driver: connections and statements are proxies that accept the calls
+     * DatabaseLogger makes, buffer batched rows per connection, and count them on commit.
+     */
+    static final class StubDriver implements Driver {
+        private static StubDriver registered;
+        
+        private final AtomicLong committedRows = new AtomicLong();
+        private final long commitMicros;
+        private final long perRowMicros;
+        
+        private StubDriver(long commitMicros, long perRowMicros) {
+            this.commitMicros = commitMicros;
+            this.perRowMicros = perRowMicros;
+        }
+        
+        static synchronized StubDriver register() throws SQLException {
+            if (registered == null) {
+                registered = new StubDriver(2_000, 50);
+                DriverManager.registerDriver(registered);
+            }
+            return registered;
+        }
+        
+        long getCommittedRows() {
+            return committedRows.get();
+        }
+        
+        @Override
+        public Connection connect(String url, Properties info) {
+            return acceptsURL(url) ? (Connection) proxy(Connection.class, new StubConnection()) : null;
+        }
+        
+        @Override
+        public boolean acceptsURL(String url) {
+            return url != null && url.startsWith("jdbc:stub:");
+        }
+        
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+        
+        @Override
+        public int getMajorVersion() { return 1; }
+        
+        @Override
+        public int getMinorVersion() { return 0; }
+        
+        @Override
+        public boolean jdbcCompliant() { return false; }
+        
+        @Override
+        public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+        
+        private final class StubConnection implements InvocationHandler {
+            private boolean autoCommit = true;
+            private boolean closed;
+            private long uncommittedRows;
+            
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                switch (method.getName()) {
+                    case "setAutoCommit":
+                        autoCommit = (Boolean) args[0];
+                        return null;
+                    case "getAutoCommit":
+                        return autoCommit;
+                    case "createStatement":
+                        return proxy(Statement.class, new StubStatement(this));
+                    case "prepareStatement":
+                        return proxy(PreparedStatement.class, new StubStatement(this));
+                    case "commit":
+                        pause(commitMicros + perRowMicros * uncommittedRows);
+                        committedRows.addAndGet(uncommittedRows);
+                        uncommittedRows = 0;
+                        return null;
+                    case "rollback":
+                        uncommittedRows = 0;
+                        return null;
+                    case "isValid":
+                        return !closed;
+                    case "isClosed":
+                        return closed;
+                    case "close":
+                        closed = true;
+                        return null;
+                    default:
+                        return defaultValue(method.getReturnType());
+                }
+            }
+            
+            void written(long rows) {
+                if (autoCommit) {
+                    committedRows.addAndGet(rows);
+                } else {
+                    uncommittedRows += rows;
+                }
+            }
+        }
+        
+        private static final class StubStatement implements InvocationHandler {
+            private final StubConnection connection;
+            private int batchedRows;
+            
+            StubStatement(StubConnection connection) {
+                this.connection = connection;
+            }
+            
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                switch (method.getName()) {
+                    case "addBatch":
+                        batchedRows++;
+                        return null;
+                    case "clearBatch":
+                        batchedRows = 0;
+                        return null;
+                    case "executeBatch":
+                        int[] counts = new int[batchedRows];
+                        java.util.Arrays.fill(counts, 1);
+                        connection.written(batchedRows);
+                        batchedRows = 0;
+                        return counts;
+                    case "executeUpdate":
+                        connection.written(1);
+                        return 1;
+                    case "execute":
+                        return false;
+                    default:
+                        return defaultValue(method.getReturnType());
+                }
+            }
+        }
+        
+        private static Object proxy(Class<?> type, InvocationHandler handler) {
+            return Proxy.newProxyInstance(StubDriver.class.getClassLoader(), new Class<?>[] { type }, handler);
+        }
+        
+        // Zero for primitive return types, null otherwise
+        private static Object defaultValue(Class<?> type) {
+            if (type.isPrimitive() && type != void.class) {
+                return java.lang.reflect.Array.get(java.lang.reflect.Array.newInstance(type, 1), 0);
+            }
+            return null;
+        }
+        
+        private static void pause(long micros) {
+            try {
+                Thread.sleep(micros / 1000, (int) (micros % 1000) * 1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -1,26 +1,48 @@
 package abstraction.loggerframework;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.Map;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * File Logger Implementation with rotation, buffering, and thread safety
+ *
+ * Lines are appended into a memory-mapped segment of the log file: each writer reserves
+ * its bytes with one atomic add and encodes UTF-8 straight into the mapping, so writers
+ * never queue on a lock. A maintenance thread group-commits fsyncs on a size/time policy,
+ * and finishes rotated segments (truncate, fsync, shift backups, gzip) in the background;
+ * the writer that fills a segment only renames the file and maps a fresh one. The file is
+ * extended one map region at a time, so at most one region of unwritten zero bytes follows
+ * the last line; closing truncates it, and a restart trims it after a crash.
  */
 public class FileLogger extends Logger {
     
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes();
+    private static final String ROTATING_SUFFIX = ".rotating-";
+    
     private String logFilePath;
     private boolean enableRotation;
     private long maxFileSize;
     private int maxBackupFiles;
     private boolean enableBuffering;
-    private int bufferSize;
-    private PrintWriter writer;
-    private long currentFileSize;
-    private final ReentrantLock writeLock = new ReentrantLock();
+    private boolean compressBackups;
+    private long syncIntervalMs;
+    private long syncBytes;
+    private long mapRegionSize;
+    
+    private volatile Segment current;
+    private volatile IOException swapFailure;
+    private volatile boolean closed;
+    private final AtomicBoolean syncRequested = new AtomicBoolean();
+    private final AtomicLong rotationCount = new AtomicLong();
+    private final ScheduledExecutorService maintenance;
     
     public FileLogger(String loggerId, LogLevel threshold, Map<String, Object> config) {
         super(loggerId, threshold, config);
@@ -30,9 +52,19 @@ public class FileLogger extends Logger {
         this.maxFileSize = ((Number) config.getOrDefault("max_file_size", 10 * 1024 * 1024)).longValue(); // 10MB
         this.maxBackupFiles = ((Number) config.getOrDefault("max_backup_files", 5)).intValue();
         this.enableBuffering = (Boolean) config.getOrDefault("enable_buffering", true);
-        this.bufferSize = ((Number) config.getOrDefault("buffer_size", 8192)).intValue();
+        this.compressBackups = (Boolean) config.getOrDefault("compress_backups", true);
+        this.syncIntervalMs = ((Number) config.getOrDefault("sync_interval_ms", 1000)).longValue();
+        this.syncBytes = ((Number) config.getOrDefault("sync_bytes", 1024 * 1024)).longValue(); // 1MB
+        this.mapRegionSize = ((Number) config.getOrDefault("map_region_size", 256 * 1024)).longValue(); // 256KB
+        
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "FileLogger-Maintenance-" + loggerId);
+            thread.setDaemon(true);
+            return thread;
+        });
         
         initializeLogger();
+        maintenance.scheduleWithFixedDelay(this::syncQuietly, syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
     }
     
     private void initializeLogger() {
@@ -44,130 +76,305 @@ public class FileLogger extends Logger {
                 Files.createDirectories(parentDir);
             }
             
-            // Initialize writer
-            FileOutputStream fos = new FileOutputStream(logFilePath, true);
-            OutputStreamWriter osw = new OutputStreamWriter(fos, "UTF-8");
-            
-            if (enableBuffering) {
-                BufferedWriter bw = new BufferedWriter(osw, bufferSize);
-                writer = new PrintWriter(bw);
-            } else {
-                writer = new PrintWriter(osw);
-            }
-            
-            // Get current file size
-            if (Files.exists(logPath)) {
-                currentFileSize = Files.size(logPath);
+            FileChannel channel = FileChannel.open(logPath, StandardOpenOption.CREATE,
+                                                   StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long existing = trimUnwrittenTail(channel);
+            if (enableRotation && existing >= maxFileSize) {
+                channel.close();
+                Path rotating = renameActiveFile();
+                maintenance.execute(() -> archive(rotating));
+                channel = FileChannel.open(logPath, StandardOpenOption.CREATE_NEW,
+                                           StandardOpenOption.READ, StandardOpenOption.WRITE);
+                existing = 0;
             }
+            current = mapSegment(logPath, channel, existing);
             
         } catch (IOException e) {
             throw new RuntimeException("Failed to initialize file logger: " + e.getMessage(), e);
         }
     }
     
-    @Override
-    protected void writeLog(LogEntry logEntry) throws LoggingException {
-        writeLock.lock();
-        try {
-            // Check if rotation is needed
-            if (enableRotation && shouldRotate()) {
-                rotateLogFile();
+    // A crash can leave the mapped-but-unwritten tail as zero bytes; appending resumes after the last line
+    private static long trimUnwrittenTail(FileChannel channel) throws IOException {
+        long end = channel.size();
+        ByteBuffer chunk = ByteBuffer.allocate(8192);
+        while (end > 0) {
+            long start = Math.max(0, end - chunk.capacity());
+            chunk.clear().limit((int) (end - start));
+            channel.read(chunk, start);
+            int i = chunk.position() - 1;
+            while (i >= 0 && chunk.get(i) == 0) {
+                i--;
             }
-            
-            String logLine = logEntry.getFormattedMessage();
-            writer.println(logLine);
-            
-            // Update file size estimate
-            currentFileSize += logLine.getBytes("UTF-8").length + System.lineSeparator().length();
-            
-            // Flush if not buffering or if it's an error/fatal level
-            if (!enableBuffering || logEntry.getLevel().getPriority() >= LogLevel.ERROR.getPriority()) {
-                writer.flush();
+            if (i >= 0) {
+                end = start + i + 1;
+                break;
             }
-            
-        } catch (IOException e) {
-            throw new LogWriteException("Failed to write log to file", e);
-        } finally {
-            writeLock.unlock();
+            end = start;
         }
+        channel.truncate(end);
+        return end;
+    }
+    
+    private Segment mapSegment(Path file, FileChannel channel, long base) throws IOException {
+        long size = enableRotation ? Math.min(maxFileSize - base, mapRegionSize) : mapRegionSize;
+        int capacity = (int) Math.max(LINE_SEPARATOR.length + 1, Math.min(size, Integer.MAX_VALUE - 8));
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, base, capacity);
+        return new Segment(file, channel, base, buffer);
     }
     
-    private boolean shouldRotate() {
-        return currentFileSize >= maxFileSize;
+    // Open channels and mappings follow the renamed file, so writers still copying into it are unaffected
+    private Path renameActiveFile() throws IOException {
+        Path rotating = Paths.get(logFilePath + ROTATING_SUFFIX + rotationCount.incrementAndGet());
+        Files.move(Paths.get(logFilePath), rotating, StandardCopyOption.ATOMIC_MOVE);
+        return rotating;
+    }
+    
+    @Override
+    protected void writeLog(LogEntry logEntry) throws LoggingException {
+        String logLine = logEntry.getFormattedMessage();
+        append(logLine);
+            
+        // ERROR and above (or every line without buffering) ask for an early group commit
+        if (!enableBuffering || logEntry.getLevel().getPriority() >= LogLevel.ERROR.getPriority()) {
+            requestSync();
+        }
     }
     
-    private void rotateLogFile() throws IOException {
-        // Close current writer
-        if (writer != null) {
-            writer.close();
+    private void append(String line) throws LoggingException {
+        int length = utf8Length(line) + LINE_SEPARATOR.length;
+        if (length > maxLineBytes()) {
+            // A line must fit an empty segment, otherwise every rotation would be too small for it
+            line = line.substring(0, Math.max(0, (maxLineBytes() - LINE_SEPARATOR.length) / 4));
+            length = utf8Length(line) + LINE_SEPARATOR.length;
         }
         
-        // Rotate existing backup files
-        for (int i = maxBackupFiles - 1; i >= 1; i--) {
-            Path oldFile = Paths.get(logFilePath + "." + i);
-            Path newFile = Paths.get(logFilePath + "." + (i + 1));
-            
-            if (Files.exists(oldFile)) {
-                if (i == maxBackupFiles - 1) {
-                    Files.deleteIfExists(newFile); // Delete oldest backup
+        int spins = 0;
+        boolean retried = false;
+        while (true) {
+            if (closed) {
+                throw new LogWriteException("File logger " + loggerId + " is closed");
+            }
+            Segment segment = current;
+            long start = segment.cursor.getAndAdd(length);
+            if (start + length <= segment.capacity) {
+                segment.encode((int) start, line);
+                segment.committed.addAndGet(length);
+                if (start + length - segment.syncedPosition >= syncBytes) {
+                    requestSync();
+                }
+                return;
+            }
+            if (start <= segment.capacity) {
+                // Exactly one writer crosses the end of a segment; it seals it and swaps in the next one
+                segment.sealedLength = start;
+                segment.swapping.set(true);
+                swapSegment(segment);
+                continue;
+            }
+            IOException failure = swapFailure;
+            if (failure != null && segment == current) {
+                // A failed swap is retried by the next append that claims it, so one I/O error
+                // does not fail every later append
+                if (!retried && segment.swapping.compareAndSet(false, true)) {
+                    retried = true;
+                    swapSegment(segment);
+                    continue;
                 }
-                Files.move(oldFile, newFile, StandardCopyOption.REPLACE_EXISTING);
+                throw new LogWriteException("Failed to rotate log file", failure);
+            }
+            // Another writer is swapping segments; this only lasts for a rename and a map
+            if (++spins < 100) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
             }
         }
+    }
+    
+    private void swapSegment(Segment full) throws LogWriteException {
+        boolean rotate = enableRotation && full.base + full.capacity >= maxFileSize;
+        try {
+            if (rotate) {
+                // A retry after a failed open must not rename the file it already moved aside
+                if (full.rotatedTo == null) {
+                    full.rotatedTo = renameActiveFile();
+                }
+                Path rotating = full.rotatedTo;
+                FileChannel channel = FileChannel.open(Paths.get(logFilePath), StandardOpenOption.CREATE_NEW,
+                                                       StandardOpenOption.READ, StandardOpenOption.WRITE);
+                current = mapSegment(Paths.get(logFilePath), channel, 0);
+                maintenance.execute(() -> {
+                    retire(full, false);
+                    archive(rotating);
+                });
+            } else {
+                // The file grows by another region; it starts where the data ends
+                current = mapSegment(full.file, full.channel, full.base + full.sealedLength);
+                maintenance.execute(() -> retire(full, true));
+            }
+            swapFailure = null;
+        } catch (IOException | RejectedExecutionException e) {
+            // Writers waiting on this swap fail instead of spinning; the next append retries it
+            // and the sealed data stays in the mapping meanwhile
+            IOException failure = e instanceof IOException ? (IOException) e : new IOException(e);
+            swapFailure = failure;
+            full.swapping.set(false);
+            throw new LogWriteException("Failed to rotate log file", failure);
+        }
         
-        // Move current log file to .1
-        Path currentFile = Paths.get(logFilePath);
-        Path backupFile = Paths.get(logFilePath + ".1");
-        if (Files.exists(currentFile)) {
-            Files.move(currentFile, backupFile, StandardCopyOption.REPLACE_EXISTING);
+        if (rotate) {
+            LogEntry rotationEntry = new LogEntry(loggerId, LogLevel.INFO, "Log file rotated. New file started.", null,
+                                                  null, null, LogEntry.currentEpochNanos(),
+                                                  Thread.currentThread().getName(), Thread.currentThread().getId());
+            try {
+                append(formatter.format(rotationEntry).getFormattedMessage());
+            } catch (LoggingException e) {
+                System.err.println("Failed to log rotation for " + loggerId + ": " + e.getMessage());
+            }
         }
+    }
         
-        // Reinitialize logger with new file
-        currentFileSize = 0;
-        initializeLogger();
+    /**
+     * Waits for writers still copying into a sealed segment, then trims the unused mapped tail
+     * and makes the segment durable. Runs on the maintenance thread.
+     */
+    private void retire(Segment segment, boolean keepChannelOpen) {
+        try {
+            while (segment.committed.get() < segment.sealedLength) {
+                Thread.yield();
+            }
+            segment.buffer.force();
+            if (!keepChannelOpen) {
+                segment.channel.truncate(segment.base + segment.sealedLength);
+                segment.channel.force(true);
+                segment.channel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to retire log segment " + segment.file + ": " + e.getMessage());
+        }
+    }
         
-        // Log rotation event
-        LogEntry rotationEntry = new LogEntry(
-            loggerId, LogLevel.INFO, 
-            "Log file rotated. New file started.", 
-            null, null, LocalDateTime.now(), 
-            Thread.currentThread().getName(), 
-            Thread.currentThread().getId()
-        );
-        formatter.format(rotationEntry);
-        writer.println(rotationEntry.getFormattedMessage());
-        writer.flush();
+    /**
+     * Shifts existing backups and stores a rotated file as backup 1, gzipped if enabled.
+     * Runs on the maintenance thread once the rotated segment has been retired.
+     */
+    private void archive(Path rotating) {
+        try {
+            String suffix = compressBackups ? ".gz" : "";
+            Files.deleteIfExists(Paths.get(logFilePath + "." + maxBackupFiles + suffix));
+            for (int i = maxBackupFiles - 1; i >= 1; i--) {
+                Path oldFile = Paths.get(logFilePath + "." + i + suffix);
+                if (Files.exists(oldFile)) {
+                    Files.move(oldFile, Paths.get(logFilePath + "." + (i + 1) + suffix), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        
+            Path backupFile = Paths.get(logFilePath + ".1" + suffix);
+            if (maxBackupFiles < 1) {
+                Files.deleteIfExists(rotating);
+            } else if (compressBackups) {
+                try (InputStream in = Files.newInputStream(rotating);
+                     OutputStream out = new GZIPOutputStream(Files.newOutputStream(backupFile), 64 * 1024)) {
+                    in.transferTo(out);
+                }
+                Files.delete(rotating);
+            } else {
+                Files.move(rotating, backupFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to archive rotated log " + rotating + ": " + e.getMessage());
+        }
+    }
+    
+    private void requestSync() {
+        if (syncRequested.compareAndSet(false, true)) {
+            try {
+                maintenance.execute(this::syncQuietly);
+            } catch (RejectedExecutionException e) {
+                syncRequested.set(false);
+            }
+        }
+    }
+    
+    // Group commit: one fsync covers every line appended since the previous one
+    private void syncQuietly() {
+        syncRequested.set(false);
+        Segment segment = current;
+        if (segment != null) {
+            segment.sync();
+        }
+    }
+    
+    // A line must fit one map region, and an empty file when rotating
+    private int maxLineBytes() {
+        long limit = enableRotation ? Math.min(maxFileSize, mapRegionSize) : mapRegionSize;
+        return (int) Math.min(limit, Integer.MAX_VALUE - 8);
+    }
+    
+    // Byte length of the UTF-8 encoding written by Segment.encode
+    private static int utf8Length(String s) {
+        int length = s.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                bytes += 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                bytes += 2;     // two chars, four bytes
+                i++;
+            } else if (!Character.isSurrogate(c)) {
+                bytes += 2;
+            }
+        }
+        return bytes;
     }
     
     @Override
     public void flush() throws LoggingException {
-        writeLock.lock();
-        try {
-            if (writer != null) {
-                writer.flush();
-            }
-        } finally {
-            writeLock.unlock();
+        drainAsyncQueue();
+        Segment segment = current;
+        if (segment != null && !closed) {
+            segment.sync();
         }
     }
     
     @Override
     public void close() throws LoggingException {
-        writeLock.lock();
+        shutdownAsyncQueue();
+        if (closed) {
+            return;
+        }
+        closed = true;
+        
+        Segment segment = current;
+        if (segment.sealedLength == Long.MAX_VALUE) {
+            segment.sealedLength = Math.min(segment.cursor.get(), segment.capacity);
+        }
         try {
-            if (writer != null) {
-                writer.flush();
-                writer.close();
-                writer = null;
-            }
+            maintenance.submit(() -> retire(segment, false)).get(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            throw new LoggingException("Failed to close log file", e);
         } finally {
-            writeLock.unlock();
+            // Pending archive tasks finish before the maintenance thread exits
+            maintenance.shutdown();
+            try {
+                maintenance.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
     }
     
     // File-specific methods
     public long getCurrentFileSize() {
-        return currentFileSize;
+        Segment segment = current;
+        return segment.base + Math.min(segment.cursor.get(), segment.capacity);
     }
     
     public String getLogFilePath() {
@@ -177,4 +384,83 @@ public class FileLogger extends Logger {
     public boolean isRotationEnabled() {
         return enableRotation;
     }
+    
+    public long getRotationCount() {
+        return rotationCount.get();
+    }
+    
+    /**
+     * One mapped region of a log file. cursor counts reserved bytes, committed counts bytes
+     * fully written; once sealed, the segment is complete when committed reaches sealedLength.
+     */
+    private static final class Segment {
+        final Path file;
+        final FileChannel channel;
+        final long base;
+        final MappedByteBuffer buffer;
+        final int capacity;
+        final AtomicLong cursor = new AtomicLong();
+        final AtomicLong committed = new AtomicLong();
+        final AtomicBoolean swapping = new AtomicBoolean();
+        volatile long sealedLength = Long.MAX_VALUE;
+        volatile Path rotatedTo;
+        volatile long syncedPosition;
+        volatile long durablePosition;
+        
+        Segment(Path file, FileChannel channel, long base, MappedByteBuffer buffer) {
+            this.file = file;
+            this.channel = channel;
+            this.base = base;
+            this.buffer = buffer;
+            this.capacity = buffer.capacity();
+        }
+        
+        /**
+         * syncedPosition is where the last force started and only paces size-triggered syncs.
+         * durablePosition is a prefix known to be fully written when it was forced, so bytes
+         * still being encoded by in-flight appends are forced again by the next periodic sync.
+         */
+        synchronized void sync() {
+            // Read the write count before the reservations: if they are equal, every
+            // reserved byte was already written when the force below starts
+            long written = committed.get();
+            long position = Math.min(cursor.get(), capacity);
+            if (position > durablePosition) {
+                buffer.force();
+                syncedPosition = position;
+                if (written == position) {
+                    durablePosition = position;
+                }
+            }
+        }
+        
+        // Encodes the line as UTF-8 directly into the reserved range, followed by the line separator
+        void encode(int position, String line) {
+            int length = line.length();
+            for (int i = 0; i < length; i++) {
+                char c = line.charAt(i);
+                if (c < 0x80) {
+                    buffer.put(position++, (byte) c);
+                } else if (c < 0x800) {
+                    buffer.put(position++, (byte) (0xC0 | (c >> 6)));
+                    buffer.put(position++, (byte) (0x80 | (c & 0x3F)));
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(line.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, line.charAt(++i));
+                    buffer.put(position++, (byte) (0xF0 | (codePoint >> 18)));
+                    buffer.put(position++, (byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                    buffer.put(position++, (byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                    buffer.put(position++, (byte) (0x80 | (codePoint & 0x3F)));
+                } else if (Character.isSurrogate(c)) {
+                    buffer.put(position++, (byte) '?');    // unpaired surrogate, as String.getBytes does
+                } else {
+                    buffer.put(position++, (byte) (0xE0 | (c >> 12)));
+                    buffer.put(position++, (byte) (0x80 | ((c >> 6) & 0x3F)));
+                    buffer.put(position++, (byte) (0x80 | (c & 0x3F)));
+                }
+            }
+            for (byte b : LINE_SEPARATOR) {
+                buffer.put(position++, b);
+            }
+        }
+    }
 }
@@ -1,21 +1,41 @@
 package abstraction.loggerframework;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Log entry data structure containing all log information
+ *
+ * Timestamps are kept as epoch nanos and messages with parameters are only formatted
+ * when first read, so entries can be filled cheaply on the logging thread. Entries owned
+ * by an AsyncLogRingBuffer are reused; writers that keep an entry after writeLog returns
+ * must keep detach() instead.
  */
 public class LogEntry {
+    // Wall clock sampled once; later timestamps advance with nanoTime and do not allocate
+    private static final long CLOCK_BASE_EPOCH_NANOS = System.currentTimeMillis() * 1_000_000L;
+    private static final long CLOCK_BASE_NANO_TIME = System.nanoTime();
+    
     private String loggerId;
     private Logger.LogLevel level;
     private String message;
+    private String messagePattern;
+    private Object[] parameters;
     private Throwable throwable;
     private Map<String, Object> context;
+    private long epochNanos;
     private LocalDateTime timestamp;
     private String threadName;
     private long threadId;
     private String formattedMessage;
+    private final boolean pooled;
+    private Map<String, Object> ownedContext;
     
     public LogEntry(String loggerId, Logger.LogLevel level, String message, 
                    Throwable throwable, Map<String, Object> context, 
@@ -26,17 +46,121 @@ public class LogEntry {
         this.throwable = throwable;
         this.context = context;
         this.timestamp = timestamp;
+        Instant instant = timestamp.atZone(ZoneId.systemDefault()).toInstant();
+        this.epochNanos = instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+        this.threadName = threadName;
+        this.threadId = threadId;
+        this.pooled = false;
+    }
+    
+    LogEntry(String loggerId, Logger.LogLevel level, String messagePattern, Object[] parameters,
+             Throwable throwable, Map<String, Object> context, long epochNanos, String threadName, long threadId) {
+        this.pooled = false;
+        populate(loggerId, level, messagePattern, parameters, throwable, context, epochNanos, threadName, threadId);
+    }
+    
+    // Empty slot for a ring buffer
+    LogEntry() {
+        this.pooled = true;
+    }
+    
+    /**
+     * Refills this entry in place. Pooled entries copy the context into a map they own,
+     * since the caller may change its map once the log call returns.
+     */
+    void populate(String loggerId, Logger.LogLevel level, String messagePattern, Object[] parameters,
+                  Throwable throwable, Map<String, Object> context, long epochNanos,
+                  String threadName, long threadId) {
+        this.loggerId = loggerId;
+        this.level = level;
+        this.message = parameters == null || parameters.length == 0 ? messagePattern : null;
+        this.messagePattern = messagePattern;
+        this.parameters = parameters;
+        this.throwable = throwable;
+        this.epochNanos = epochNanos;
+        this.timestamp = null;
         this.threadName = threadName;
         this.threadId = threadId;
+        this.formattedMessage = null;
+        
+        if (!pooled) {
+            this.context = context;
+        } else if (context == null || context.isEmpty()) {
+            this.context = null;
+        } else {
+            if (ownedContext == null) {
+                ownedContext = new HashMap<>();
+            }
+            ownedContext.clear();
+            ownedContext.putAll(context);
+            this.context = ownedContext;
+        }
+    }
+    
+    // Drops references held by a pooled entry once it has been written
+    void release() {
+        message = null;
+        messagePattern = null;
+        parameters = null;
+        throwable = null;
+        context = null;
+        formattedMessage = null;
+        timestamp = null;
+        if (ownedContext != null) {
+            ownedContext.clear();
+        }
+    }
+    
+    /**
+     * This entry if it is not reused, otherwise an independent copy with the message already formatted.
+     */
+    public LogEntry detach() {
+        if (!pooled) {
+            return this;
+        }
+        LogEntry copy = new LogEntry(loggerId, level, getMessage(), null, throwable,
+                                     context != null ? new HashMap<>(context) : null,
+                                     epochNanos, threadName, threadId);
+        copy.formattedMessage = formattedMessage;
+        return copy;
+    }
+    
+    static long currentEpochNanos() {
+        return CLOCK_BASE_EPOCH_NANOS + (System.nanoTime() - CLOCK_BASE_NANO_TIME);
+    }
+    
+    static String formatMessage(String message, Object... args) {
+        if (args == null || args.length == 0) {
+            return message;
+        }
+        
+        try {
+            return String.format(message, args);
+        } catch (Exception e) {
+            return message + " [FORMATTING_ERROR: " + e.getMessage() + "]";
+        }
     }
     
     // Getters and setters
     public String getLoggerId() { return loggerId; }
     public Logger.LogLevel getLevel() { return level; }
-    public String getMessage() { return message; }
+    public String getMessage() {
+        if (message == null && messagePattern != null) {
+            message = formatMessage(messagePattern, parameters);
+        }
+        return message;
+    }
+    public String getMessagePattern() { return messagePattern != null ? messagePattern : message; }
+    public Object[] getParameters() { return parameters; }
     public Throwable getThrowable() { return throwable; }
     public Map<String, Object> getContext() { return context; }
-    public LocalDateTime getTimestamp() { return timestamp; }
+    public long getEpochNanos() { return epochNanos; }
+    public LocalDateTime getTimestamp() {
+        if (timestamp == null) {
+            timestamp = LocalDateTime.ofInstant(Instant.ofEpochSecond(0, epochNanos), ZoneId.systemDefault());
+        }
+        return timestamp;
+    }
     public String getThreadName() { return threadName; }
     public long getThreadId() { return threadId; }
     public String getFormattedMessage() { return formattedMessage; }
@@ -146,6 +270,21 @@ class JsonLogFormatter implements LogFormatter {
  */
 interface LogFilter {
     boolean shouldLog(LogEntry logEntry);
+    
+    /**
+     * Returns the same decision as a predicate over call-site data, or null if it needs
+     * the built LogEntry. Loggers run compiled filters before creating any entry.
+     */
+    default CallSitePredicate compile() {
+        return null;
+    }
+}
+
+/**
+ * Filter decision from the level and context alone, evaluated before a LogEntry exists
+ */
+interface CallSitePredicate {
+    boolean test(Logger.LogLevel level, Map<String, Object> context);
 }
 
 /**
@@ -162,6 +301,14 @@ class LevelFilter implements LogFilter {
     public boolean shouldLog(LogEntry logEntry) {
         return logEntry.getLevel().getPriority() >= minLevel.getPriority();
     }
+    
+    @Override
+    public CallSitePredicate compile() {
+        int minPriority = minLevel.getPriority();
+        return (level, context) -> level.getPriority() >= minPriority;
+    }
+    
+    Logger.LogLevel getMinLevel() { return minLevel; }
 }
 
 /**
@@ -178,14 +325,105 @@ class ContextFilter implements LogFilter {
     
     @Override
     public boolean shouldLog(LogEntry logEntry) {
-        if (logEntry.getContext() == null) return false;
-        Object value = logEntry.getContext().get(contextKey);
+        return matches(logEntry.getContext());
+    }
+    
+    @Override
+    public CallSitePredicate compile() {
+        return (level, context) -> matches(context);
+    }
+    
+    private boolean matches(Map<String, Object> context) {
+        if (context == null) return false;
+        Object value = context.get(contextKey);
         return contextValue.equals(String.valueOf(value));
     }
 }
 
+/**
+ * Keeps one in every sampleRate entries below alwaysLogLevel; entries at or above it always pass
+ */
+class SamplingFilter implements LogFilter {
+    private final int sampleRate;
+    private final Logger.LogLevel alwaysLogLevel;
+    private final AtomicLong counter = new AtomicLong();
+    
+    public SamplingFilter(int sampleRate, Logger.LogLevel alwaysLogLevel) {
+        this.sampleRate = Math.max(1, sampleRate);
+        this.alwaysLogLevel = alwaysLogLevel;
+    }
+    
+    @Override
+    public boolean shouldLog(LogEntry logEntry) {
+        return admit(logEntry.getLevel());
+    }
+    
+    @Override
+    public CallSitePredicate compile() {
+        return (level, context) -> admit(level);
+    }
+    
+    private boolean admit(Logger.LogLevel level) {
+        return level.isEnabled(alwaysLogLevel) || counter.getAndIncrement() % sampleRate == 0;
+    }
+}
+
+/**
+ * Token bucket allowing permitsPerSecond entries below alwaysLogLevel, with bursts up to burstSize
+ */
+class RateLimitFilter implements LogFilter {
+    private final double nanosPerPermit;
+    private final long burstNanos;
+    private final Logger.LogLevel alwaysLogLevel;
+    // Time at which the bucket is empty again; the bucket is full once this lies burstNanos in the past
+    private final AtomicLong emptyAt;
+    private final AtomicLong rejectedCount = new AtomicLong();
+    
+    public RateLimitFilter(double permitsPerSecond, int burstSize, Logger.LogLevel alwaysLogLevel) {
+        this.nanosPerPermit = 1_000_000_000.0 / permitsPerSecond;
+        this.burstNanos = (long) (nanosPerPermit * Math.max(1, burstSize));
+        this.alwaysLogLevel = alwaysLogLevel;
+        this.emptyAt = new AtomicLong(System.nanoTime() - burstNanos); // starts with a full burst
+    }
+        
+    @Override
+    public boolean shouldLog(LogEntry logEntry) {
+        return admit(logEntry.getLevel());
+    }
+    
+    @Override
+    public CallSitePredicate compile() {
+        return (level, context) -> admit(level);
+    }
+    
+    private boolean admit(Logger.LogLevel level) {
+        if (level.isEnabled(alwaysLogLevel)) {
+            return true;
+        }
+        long cost = (long) nanosPerPermit;
+        while (true) {
+            long now = System.nanoTime();
+            long current = emptyAt.get();
+            long start = Math.max(current, now - burstNanos);
+            long next = start + cost;
+            if (next > now) {
+                rejectedCount.incrementAndGet();
+                return false;
+            }
+            if (emptyAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+    
+    public long getRejectedCount() { return rejectedCount.get(); }
+}
+
 /**
  * Composite filter that combines multiple filters
+ *
+ * compile() flattens nested composites of the same mode into one array of predicates
+ * and folds their level filters into a single priority check that runs first.
  */
 class CompositeFilter implements LogFilter {
     private LogFilter[] filters;
@@ -208,6 +446,61 @@ class CompositeFilter implements LogFilter {
         
         return requireAll; // All passed if requireAll, none passed if OR
     }
+        
+    @Override
+    public CallSitePredicate compile() {
+        if (filters == null || filters.length == 0) return (level, context) -> true;
+        
+        List<LogFilter> leaves = new ArrayList<>();
+        flatten(leaves);
+        
+        // AND keeps the strictest level bound, OR the loosest
+        int levelBound = -1;
+        List<CallSitePredicate> predicates = new ArrayList<>();
+        for (LogFilter leaf : leaves) {
+            if (leaf instanceof LevelFilter) {
+                int priority = ((LevelFilter) leaf).getMinLevel().getPriority();
+                levelBound = levelBound < 0 ? priority :
+                    requireAll ? Math.max(levelBound, priority) : Math.min(levelBound, priority);
+                continue;
+            }
+            CallSitePredicate predicate = leaf.compile();
+            if (predicate == null) {
+                return null;
+            }
+            predicates.add(predicate);
+        }
+        
+        int minPriority = levelBound;
+        CallSitePredicate[] terms = predicates.toArray(new CallSitePredicate[0]);
+        if (requireAll) {
+            return (level, context) -> {
+                if (level.getPriority() < minPriority) return false;
+                for (CallSitePredicate term : terms) {
+                    if (!term.test(level, context)) return false;
+                }
+                return true;
+            };
+        }
+        return (level, context) -> {
+            if (minPriority >= 0 && level.getPriority() >= minPriority) return true;
+            for (CallSitePredicate term : terms) {
+                if (term.test(level, context)) return true;
+            }
+            return false;
+        };
+    }
+    
+    private void flatten(List<LogFilter> leaves) {
+        for (LogFilter filter : filters) {
+            if (filter instanceof CompositeFilter && ((CompositeFilter) filter).requireAll == requireAll &&
+                ((CompositeFilter) filter).filters != null && ((CompositeFilter) filter).filters.length > 0) {
+                ((CompositeFilter) filter).flatten(leaves);
+            } else {
+                leaves.add(filter);
+            }
+        }
+    }
 }
 
 /**
@@ -0,0 +1,331 @@
+package abstraction.loggerframework;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Segmented on-disk queue for log batches that could not be shipped
+ *
+ * Batches are appended as [length][crc32][compressed][entry count][body] frames to the
+ * newest segment file; a new segment starts once the current one reaches the segment
+ * size. Segments left by a previous process are picked up on startup. Replay progress
+ * through a segment is kept in a small .ack file next to it, so a restart resumes after
+ * the last accepted batch; delivery is still at-least-once, since a crash between the
+ * send and the ack re-sends that batch. When the queue exceeds its byte limit the
+ * oldest segments are dropped, except the one being replayed.
+ */
+public class LogSpillQueue implements Closeable {
+    
+    private static final String SEGMENT_PREFIX = "spill-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String ACK_SUFFIX = ".ack";
+    private static final int HEADER_BYTES = 4 + 8 + 1 + 4;
+    
+    /**
+     * One spilled batch: the request body exactly as it would have been sent.
+     */
+    public static class Batch {
+        private final byte[] body;
+        private final boolean compressed;
+        private final int entryCount;
+        
+        public Batch(byte[] body, boolean compressed, int entryCount) {
+            this.body = body;
+            this.compressed = compressed;
+            this.entryCount = entryCount;
+        }
+        
+        public byte[] getBody() { return body; }
+        public boolean isCompressed() { return compressed; }
+        public int getEntryCount() { return entryCount; }
+    }
+    
+    /**
+     * Delivers a replayed batch; returning false stops the replay and keeps the batch queued.
+     */
+    public interface Sender {
+        boolean send(Batch batch);
+    }
+    
+    private static class Segment {
+        final Path path;
+        final Path ackPath;
+        long bytes;
+        long entries;
+        long replayedBytes;
+        
+        Segment(Path path) {
+            this.path = path;
+            this.ackPath = path.resolveSibling(path.getFileName() + ACK_SUFFIX);
+        }
+    }
+    
+    private final Path directory;
+    private final long segmentBytes;
+    private final long maxBytes;
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private Segment active;
+    private Segment replaying;
+    private FileChannel activeChannel;
+    private long nextSegmentNumber;
+    private long pendingBytes;
+    private long pendingEntries;
+    private long droppedEntries;
+    
+    public LogSpillQueue(Path directory, long segmentBytes, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        loadExistingSegments();
+    }
+    
+    private void loadExistingSegments() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        Collections.sort(files);
+        
+        for (Path file : files) {
+            Segment segment = new Segment(file);
+            long acked = readAck(segment.ackPath);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long position = 0;
+                Frame frame;
+                while ((frame = readFrame(channel, position)) != null) {
+                    if (position >= acked) {
+                        segment.entries += frame.batch.getEntryCount();
+                    } else {
+                        segment.replayedBytes = position + frame.length;
+                    }
+                    position += frame.length;
+                }
+                segment.bytes = position;
+            }
+            if (segment.bytes <= segment.replayedBytes) {
+                delete(segment);
+                continue;
+            }
+            segments.addLast(segment);
+            pendingBytes += segment.bytes - segment.replayedBytes;
+            pendingEntries += segment.entries;
+            nextSegmentNumber = Math.max(nextSegmentNumber, segmentNumber(file) + 1);
+        }
+    }
+    
+    private static long readAck(Path ackPath) throws IOException {
+        if (!Files.exists(ackPath)) {
+            return 0;
+        }
+        byte[] bytes = Files.readAllBytes(ackPath);
+        return bytes.length == 8 ? ByteBuffer.wrap(bytes).getLong() : 0;
+    }
+    
+    private static void delete(Segment segment) throws IOException {
+        Files.deleteIfExists(segment.path);
+        Files.deleteIfExists(segment.ackPath);
+    }
+    
+    private static long segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    /**
+     * Appends and forces one batch, dropping the oldest segments if the queue would exceed its limit.
+     */
+    public synchronized void append(Batch batch) throws IOException {
+        ByteBuffer frame = encode(batch);
+        while (pendingBytes + frame.remaining() > maxBytes && dropOldest()) {
+            // dropped one segment
+        }
+        if (active == null || active.bytes + frame.remaining() > segmentBytes) {
+            startSegment();
+        }
+        
+        int length = frame.remaining();
+        while (frame.hasRemaining()) {
+            activeChannel.write(frame);
+        }
+        activeChannel.force(false);
+        active.bytes += length;
+        active.entries += batch.getEntryCount();
+        pendingBytes += length;
+        pendingEntries += batch.getEntryCount();
+    }
+    
+    private void startSegment() throws IOException {
+        sealActive();
+        Path file = directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, nextSegmentNumber++, SEGMENT_SUFFIX));
+        activeChannel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        active = new Segment(file);
+        segments.addLast(active);
+    }
+    
+    private void sealActive() throws IOException {
+        if (activeChannel != null) {
+            activeChannel.close();
+            activeChannel = null;
+        }
+        active = null;
+    }
+    
+    // The segment being replayed is skipped: its batches are already being sent and acked
+    private boolean dropOldest() throws IOException {
+        Iterator<Segment> iterator = segments.iterator();
+        while (iterator.hasNext()) {
+            Segment oldest = iterator.next();
+            if (oldest == active) {
+                return false;
+            }
+            if (oldest == replaying) {
+                continue;
+            }
+            iterator.remove();
+            pendingBytes -= oldest.bytes - oldest.replayedBytes;
+            pendingEntries -= oldest.entries;
+            droppedEntries += oldest.entries;
+            delete(oldest);
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Sends queued batches oldest first until the queue is empty or the sender refuses one;
+     * returns the number of batches delivered. Only one replay should run at a time.
+     */
+    public int replay(Sender sender) throws IOException {
+        int delivered = 0;
+        while (true) {
+            Segment head;
+            synchronized (this) {
+                head = segments.peekFirst();
+                if (head == null) {
+                    return delivered;
+                }
+                if (head == active) {
+                    // New spills go to a fresh segment while this one is replayed
+                    sealActive();
+                }
+                replaying = head;
+            }
+            
+            try (FileChannel channel = FileChannel.open(head.path, StandardOpenOption.READ);
+                 FileChannel ack = FileChannel.open(head.ackPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                ByteBuffer position = ByteBuffer.allocate(8);
+                Frame frame;
+                while ((frame = readFrame(channel, head.replayedBytes)) != null) {
+                    if (!sender.send(frame.batch)) {
+                        return delivered;
+                    }
+                    delivered++;
+                    position.clear();
+                    position.putLong(head.replayedBytes + frame.length).flip();
+                    ack.write(position, 0);
+                    synchronized (this) {
+                        head.replayedBytes += frame.length;
+                        head.entries -= frame.batch.getEntryCount();
+                        pendingBytes -= frame.length;
+                        pendingEntries -= frame.batch.getEntryCount();
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                // Removed from outside the queue; its remaining batches are gone
+            } finally {
+                synchronized (this) {
+                    replaying = null;
+                }
+            }
+            
+            synchronized (this) {
+                if (segments.remove(head)) {
+                    pendingBytes -= head.bytes - head.replayedBytes;
+                    pendingEntries -= head.entries;
+                }
+                delete(head);
+            }
+        }
+    }
+    
+    private static class Frame {
+        final Batch batch;
+        final int length;
+        
+        Frame(Batch batch, int length) {
+            this.batch = batch;
+            this.length = length;
+        }
+    }
+    
+    private static ByteBuffer encode(Batch batch) {
+        byte[] body = batch.getBody();
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + body.length);
+        frame.putInt(body.length);
+        frame.putLong(checksum(body));
+        frame.put((byte) (batch.isCompressed() ? 1 : 0));
+        frame.putInt(batch.getEntryCount());
+        frame.put(body);
+        frame.flip();
+        return frame;
+    }
+    
+    // Returns null at the end of the segment or at a torn/corrupt frame
+    private static Frame readFrame(FileChannel channel, long position) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        if (channel.read(header, position) < HEADER_BYTES) {
+            return null;
+        }
+        header.flip();
+        int length = header.getInt();
+        long crc = header.getLong();
+        boolean compressed = header.get() == 1;
+        int entryCount = header.getInt();
+        if (length < 0 || position + HEADER_BYTES + length > channel.size()) {
+            return null;
+        }
+        
+        ByteBuffer body = ByteBuffer.allocate(length);
+        while (body.hasRemaining() && channel.read(body, position + HEADER_BYTES + body.position()) > 0) {
+            // read until full
+        }
+        if (body.hasRemaining() || checksum(body.array()) != crc) {
+            return null;
+        }
+        return new Frame(new Batch(body.array(), compressed, entryCount), HEADER_BYTES + length);
+    }
+    
+    private static long checksum(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return crc.getValue();
+    }
+    
+    public synchronized boolean isEmpty() { return pendingEntries == 0 && segments.isEmpty(); }
+    public synchronized long getPendingEntries() { return pendingEntries; }
+    public synchronized long getPendingBytes() { return pendingBytes; }
+    public synchronized long getDroppedEntries() { return droppedEntries; }
+    public synchronized int getSegmentCount() { return segments.size(); }
+    public Path getDirectory() { return directory; }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        sealActive();
+    }
+}
@@ -1,8 +1,6 @@
 package abstraction.loggerframework;
 
-import java.time.LocalDateTime;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
 
 /**
  * Abstract Logger Framework with enterprise-level features
@@ -30,8 +28,12 @@ public abstract class Logger {
     protected LogLevel threshold;
     protected LogFormatter formatter;
     protected LogFilter filter;
+    private volatile CallSitePredicate compiledFilter;
     protected boolean asyncMode;
     protected Map<String, Object> configuration;
+    private volatile AsyncLogRingBuffer asyncBuffer;
+    private volatile boolean asyncClosed;
+    private long closedDroppedCount;
     
     public Logger(String loggerId, LogLevel threshold, Map<String, Object> config) {
         this.loggerId = loggerId;
@@ -40,6 +42,7 @@ public abstract class Logger {
         this.asyncMode = (Boolean) config.getOrDefault("async_mode", false);
         this.formatter = createDefaultFormatter();
         this.filter = createDefaultFilter();
+        this.compiledFilter = filter != null ? filter.compile() : null;
     }
     
     /**
@@ -66,24 +69,60 @@ public abstract class Logger {
         log(LogLevel.TRACE, message, null, null);
     }
     
+    public void trace(String message, Object arg) {
+        if (isEnabled(LogLevel.TRACE)) {
+            log(LogLevel.TRACE, message, new Object[] {arg}, null, null);
+        }
+    }
+    
+    public void trace(String message, Object arg1, Object arg2) {
+        if (isEnabled(LogLevel.TRACE)) {
+            log(LogLevel.TRACE, message, new Object[] {arg1, arg2}, null, null);
+        }
+    }
+    
     public void trace(String message, Object... args) {
-        log(LogLevel.TRACE, formatMessage(message, args), null, null);
+        log(LogLevel.TRACE, message, args, null, null);
     }
     
     public void debug(String message) {
         log(LogLevel.DEBUG, message, null, null);
     }
     
+    public void debug(String message, Object arg) {
+        if (isEnabled(LogLevel.DEBUG)) {
+            log(LogLevel.DEBUG, message, new Object[] {arg}, null, null);
+        }
+    }
+    
+    public void debug(String message, Object arg1, Object arg2) {
+        if (isEnabled(LogLevel.DEBUG)) {
+            log(LogLevel.DEBUG, message, new Object[] {arg1, arg2}, null, null);
+        }
+    }
+    
     public void debug(String message, Object... args) {
-        log(LogLevel.DEBUG, formatMessage(message, args), null, null);
+        log(LogLevel.DEBUG, message, args, null, null);
     }
     
     public void info(String message) {
         log(LogLevel.INFO, message, null, null);
     }
     
+    public void info(String message, Object arg) {
+        if (isEnabled(LogLevel.INFO)) {
+            log(LogLevel.INFO, message, new Object[] {arg}, null, null);
+        }
+    }
+    
+    public void info(String message, Object arg1, Object arg2) {
+        if (isEnabled(LogLevel.INFO)) {
+            log(LogLevel.INFO, message, new Object[] {arg1, arg2}, null, null);
+        }
+    }
+    
     public void info(String message, Object... args) {
-        log(LogLevel.INFO, formatMessage(message, args), null, null);
+        log(LogLevel.INFO, message, args, null, null);
     }
     
     public void warn(String message) {
@@ -123,49 +162,70 @@ public abstract class Logger {
      * Template method for logging workflow
      */
     public final void log(LogLevel level, String message, Throwable throwable, Map<String, Object> context) {
+        log(level, message, null, throwable, context);
+    }
+    
+    private void log(LogLevel level, String message, Object[] args, Throwable throwable, Map<String, Object> context) {
         // Step 1: Check if logging is enabled for this level
         if (!isLoggingEnabled(level)) {
             return;
         }
         
+        // Compiled filters decide from the call-site data, before anything is allocated
+        CallSitePredicate precheck = compiledFilter;
+        if (precheck != null && !precheck.test(level, context)) {
+            return;
+        }
+        
+        // Async: the caller only fills a ring slot; filtering, formatting and writing run on its consumer
+        if (asyncMode) {
+            AsyncLogRingBuffer buffer = asyncBuffer();
+            if (buffer != null) {
+                buffer.publish(loggerId, level, message, args, throwable, context);
+            } else {
+                countClosedDrop();
+            }
+            return;
+        }
+        
         // Step 2: Create log entry
-        LogEntry logEntry = createLogEntry(level, message, throwable, context);
+        LogEntry logEntry = createLogEntry(level, message, args, throwable, context);
         
-        // Step 3: Apply filters
-        if (!shouldLog(logEntry)) {
+        // Step 3: Apply filters that need the entry
+        if (precheck == null && !shouldLog(logEntry)) {
             return;
         }
         
         // Step 4: Format log entry
         logEntry = formatter.format(logEntry);
         
-        // Step 5: Write log (sync or async)
-        if (asyncMode) {
-            writeLogAsync(logEntry);
-        } else {
-            writeLogSync(logEntry);
-        }
+        // Step 5: Write log
+        writeLogSync(logEntry);
     }
     
     private boolean isLoggingEnabled(LogLevel level) {
         return level.isEnabled(threshold);
     }
     
-    private LogEntry createLogEntry(LogLevel level, String message, Throwable throwable, Map<String, Object> context) {
+    private LogEntry createLogEntry(LogLevel level, String message, Object[] args,
+                                   Throwable throwable, Map<String, Object> context) {
         return new LogEntry(
             loggerId,
             level,
             message,
+            args,
             throwable,
             context,
-            LocalDateTime.now(),
+            LogEntry.currentEpochNanos(),
             Thread.currentThread().getName(),
             Thread.currentThread().getId()
         );
     }
     
     private boolean shouldLog(LogEntry logEntry) {
-        return filter == null || filter.shouldLog(logEntry);
+        // Compiled filters already ran on the calling thread
+        LogFilter current = filter;
+        return current == null || compiledFilter != null || current.shouldLog(logEntry);
     }
     
     private void writeLogSync(LogEntry logEntry) {
@@ -176,32 +236,78 @@ public abstract class Logger {
         }
     }
     
+    // Runs on the ring buffer's consumer thread
     private void writeLogAsync(LogEntry logEntry) {
-        CompletableFuture.runAsync(() -> {
-            try {
-                writeLog(logEntry);
-            } catch (LoggingException e) {
-                handleLoggingError(e, logEntry);
+        if (!shouldLog(logEntry)) {
+            return;
+        }
+        writeLogSync(formatter.format(logEntry));
+    }
+    
+    // Null once the queue has been shut down without ever being started
+    private AsyncLogRingBuffer asyncBuffer() {
+        AsyncLogRingBuffer buffer = asyncBuffer;
+        if (buffer == null) {
+            synchronized (this) {
+                buffer = asyncBuffer;
+                if (buffer == null && !asyncClosed) {
+                    buffer = createAsyncBuffer();
+                    asyncBuffer = buffer;
+                }
             }
-        });
+        }
+        return buffer;
     }
     
-    private void handleLoggingError(LoggingException e, LogEntry logEntry) {
-        // Fallback error handling - could write to system err or another logger
-        System.err.println("Logging failed for logger " + loggerId + ": " + e.getMessage());
-        System.err.println("Original log message: " + logEntry.getMessage());
+    private AsyncLogRingBuffer createAsyncBuffer() {
+        int capacity = ((Number) configuration.getOrDefault("async_buffer_size", 8192)).intValue();
+        AsyncLogRingBuffer.WaitStrategy waitStrategy = AsyncLogRingBuffer.WaitStrategy.valueOf(
+            String.valueOf(configuration.getOrDefault("async_wait_strategy", "SLEEPING")).toUpperCase());
+        AsyncLogRingBuffer.OverflowPolicy overflowPolicy = AsyncLogRingBuffer.OverflowPolicy.valueOf(
+            String.valueOf(configuration.getOrDefault("async_overflow_policy", "BLOCK")).toUpperCase());
+        LogLevel overflowLevel = LogLevel.valueOf(
+            String.valueOf(configuration.getOrDefault("async_overflow_level", "WARN")).toUpperCase());
+        int sampleRate = ((Number) configuration.getOrDefault("async_sample_rate", 10)).intValue();
+        
+        return new AsyncLogRingBuffer("Logger-Async-" + loggerId, capacity, waitStrategy, overflowPolicy,
+                                      overflowLevel, sampleRate, this::writeLogAsync);
     }
     
-    private String formatMessage(String message, Object... args) {
-        if (args == null || args.length == 0) {
-            return message;
+    /**
+     * Waits for entries still queued in async mode; subclasses call this before flushing.
+     */
+    protected void drainAsyncQueue() {
+        AsyncLogRingBuffer buffer = asyncBuffer;
+        if (buffer != null && !buffer.drain(30_000)) {
+            System.err.println("Async log queue drain timed out for logger " + loggerId);
         }
-        
-        try {
-            return String.format(message, args);
-        } catch (Exception e) {
-            return message + " [FORMATTING_ERROR: " + e.getMessage() + "]";
+    }
+    
+    /**
+     * Writes out the async queue and stops its consumer thread; subclasses call this when closing.
+     * This is terminal: the shut-down ring stays in place and drops later publishes, so no new
+     * consumer is started against a closed writer.
+     */
+    protected void shutdownAsyncQueue() {
+        AsyncLogRingBuffer buffer;
+        synchronized (this) {
+            asyncClosed = true;
+            buffer = asyncBuffer;
         }
+        if (buffer != null) {
+            buffer.shutdown(30_000);
+        }
+    }
+    
+    private synchronized void countClosedDrop() {
+        closedDroppedCount++;
+    }
+    
+    
+    private void handleLoggingError(LoggingException e, LogEntry logEntry) {
+        // Fallback error handling - could write to system err or another logger
+        System.err.println("Logging failed for logger " + loggerId + ": " + e.getMessage());
+        System.err.println("Original log message: " + logEntry.getMessage());
     }
     
     // Factory methods for default components
@@ -218,7 +324,20 @@ public abstract class Logger {
     public LogLevel getThreshold() { return threshold; }
     public void setThreshold(LogLevel threshold) { this.threshold = threshold; }
     public void setFormatter(LogFormatter formatter) { this.formatter = formatter; }
-    public void setFilter(LogFilter filter) { this.filter = filter; }
+    public void setFilter(LogFilter filter) {
+        this.compiledFilter = filter != null ? filter.compile() : null;
+        this.filter = filter;
+    }
+    public boolean isEnabled(LogLevel level) { return isLoggingEnabled(level); }
     public boolean isAsyncMode() { return asyncMode; }
-    public void setAsyncMode(boolean asyncMode) { this.asyncMode = asyncMode; }
+    public void setAsyncMode(boolean asyncMode) {
+        this.asyncMode = asyncMode;
+        if (!asyncMode) {
+            drainAsyncQueue();
+        }
+    }
+    public synchronized long getDroppedLogCount() {
+        AsyncLogRingBuffer buffer = asyncBuffer;
+        return closedDroppedCount + (buffer != null ? buffer.getDroppedCount() : 0);
+    }
 }
@@ -35,6 +35,9 @@ public class LoggerDemo {
                 // Test filtering
                 testFiltering(logger);
                 
+                // Measure the cost of calls that are rejected before any work is done
+                testDisabledCallCost(logger);
+                
                 // Flush and close
                 logger.flush();
                 logger.close();
@@ -60,9 +63,14 @@ public class LoggerDemo {
         fileConfig.put("buffer_size", 4096);
         fileConfig.put("async_mode", false);
         
-        // Database Logger configuration (simulated)
+        // Database Logger configuration (simulated by DatabaseLoggerDemo's in-process stub driver)
+        try {
+            DatabaseLoggerDemo.StubDriver.register();
+        } catch (java.sql.SQLException e) {
+            throw new RuntimeException("Failed to register stub JDBC driver", e);
+        }
         Map<String, Object> dbConfig = new HashMap<>();
-        dbConfig.put("connection_url", "jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1");
+        dbConfig.put("connection_url", DatabaseLoggerDemo.STUB_URL);
         dbConfig.put("username", "sa");
         dbConfig.put("password", "");
         dbConfig.put("table_name", "demo_logs");
@@ -188,6 +196,38 @@ public class LoggerDemo {
         System.out.println("   ✓ Log filtering tested");
     }
     
+    private static void testDisabledCallCost(Logger logger) {
+        System.out.println("\n5. Measuring disabled log call cost...");
+        
+        int iterations = 5_000_000;
+        Map<String, Object> context = new HashMap<>();
+        context.put("user_id", "regular_user");
+        
+        // Below threshold: rejected by the level check alone
+        long start = System.nanoTime();
+        for (int round = 0; round < 2; round++) {
+            start = System.nanoTime(); // the first round warms up the JIT
+            for (int i = 0; i < iterations; i++) {
+                logger.trace("Disabled message {}", i);
+            }
+        }
+        double levelNanos = (System.nanoTime() - start) / (double) iterations;
+        
+        // Enabled level, rejected by a compiled composite filter before an entry is built
+        logger.setFilter(new CompositeFilter(true, new LevelFilter(Logger.LogLevel.WARN),
+                                             new ContextFilter("user_id", "admin_user")));
+        for (int round = 0; round < 2; round++) {
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                logger.logWithContext(Logger.LogLevel.ERROR, "Filtered message", context);
+            }
+        }
+        double filterNanos = (System.nanoTime() - start) / (double) iterations;
+        logger.setFilter(null);
+        
+        System.out.printf("   ✓ Below threshold: %.1f ns/call, filtered out: %.1f ns/call%n", levelNanos, filterNanos);
+    }
+    
     private static void simulateBusinessLogic() throws Exception {
         // Simulate nested exception
         try {
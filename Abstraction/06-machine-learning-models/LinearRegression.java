@@ -9,13 +9,18 @@ public class LinearRegression extends MLModel {
     
     private double[] weights;
     private double bias;
+    private List<String> trainedSchema;
     private double learningRate;
     private int maxIterations;
     private double tolerance;
     
     public LinearRegression(String modelId, String modelName, Map<String, Object> configuration) {
         super(modelId, modelName, ModelType.REGRESSION, configuration);
+        configure();
+    }
         
+    @Override
+    protected void configure() {
         this.learningRate = (Double) configuration.getOrDefault("learning_rate", 0.01);
         this.maxIterations = (Integer) configuration.getOrDefault("max_iterations", 1000);
         this.tolerance = (Double) configuration.getOrDefault("tolerance", 1e-6);
@@ -35,7 +40,20 @@ public class LinearRegression extends MLModel {
     
     @Override
     protected HyperparameterTuner createHyperparameterTuner() {
-        return new GridSearchTuner(configuration);
+        return HyperparameterTuner.create(configuration);
+    }
+    
+    @Override
+    protected SearchSpace createSearchSpace() {
+        return new SearchSpace()
+            .add("learning_rate", 0.001, 0.01, 0.1)
+            .add("tolerance", 1e-6, 1e-4)
+            .budget("max_iterations", maxIterations);
+    }
+    
+    @Override
+    protected MLModel createTrialModel(Map<String, Object> configuration, int threads) {
+        return new LinearRegression(modelId + "-trial", modelName, configuration);
     }
     
     @Override
@@ -44,20 +62,20 @@ public class LinearRegression extends MLModel {
             System.out.println("Starting Linear Regression training...");
             
             MLDataset dataset = data.getProcessedDataset();
-            List<DataPoint> points = dataset.getDataPoints();
+            FeatureMatrix X = dataset.getFeatureMatrix();
             
-            if (points.isEmpty()) {
+            if (X.getRowCount() == 0) {
                 return TrainingResult.failure("No training data available");
             }
             
             // Initialize weights
-            int featureCount = points.get(0).getFeatures().size();
+            int featureCount = X.getColumnCount();
+            trainedSchema = X.getSchema();
             weights = new double[featureCount];
             Arrays.fill(weights, 0.0);
             
-            // Extract features and targets
-            double[][] X = extractFeatures(points);
-            double[] y = extractTargets(points);
+            // Features are read in place from the shared matrix
+            double[] y = extractTargets(X);
             
             // Gradient descent training
             double previousLoss = Double.MAX_VALUE;
@@ -98,7 +116,8 @@ public class LinearRegression extends MLModel {
             
             Map<String, Object> trainingData = new HashMap<>();
             trainingData.put("feature_count", featureCount);
-            trainingData.put("training_samples", points.size());
+            trainingData.put("training_samples", X.getRowCount());
+            trainingData.put("feature_schema", X.getSchema());
             trainingData.put("final_weights", Arrays.toString(weights));
             trainingData.put("final_bias", bias);
             result.setTrainingData(trainingData);
@@ -117,14 +136,14 @@ public class LinearRegression extends MLModel {
                 return PredictionResult.failure("Model not trained");
             }
             
-            MLDataset dataset = data.getProcessedDataset();
-            List<DataPoint> points = dataset.getDataPoints();
+            FeatureMatrix X = data.getProcessedDataset().getFeatureMatrix(trainedSchema);
+            X.checkSchema(trainedSchema);
+            double[] values = X.getValues();
             
-            List<Prediction> predictions = new ArrayList<>();
+            List<Prediction> predictions = new ArrayList<>(X.getRowCount());
             
-            for (DataPoint point : points) {
-                double[] features = extractSingleFeature(point);
-                double predictedValue = predictSingle(features);
+            for (int row = 0; row < X.getRowCount(); row++) {
+                double predictedValue = predictSingle(values, X.rowOffset(row), X.getColumnCount());
                 
                 // Calculate confidence (simplified)
                 double confidence = Math.max(0.1, Math.min(0.99, 0.8 + Math.random() * 0.19));
@@ -147,12 +166,8 @@ public class LinearRegression extends MLModel {
                 return EvaluationResult.failure("Model not trained for evaluation");
             }
             
-            MLDataset dataset = data.getProcessedDataset();
-            List<DataPoint> points = dataset.getDataPoints();
-            
-            // Extract features and targets
-            double[][] X = extractFeatures(points);
-            double[] y = extractTargets(points);
+            FeatureMatrix X = data.getProcessedDataset().getFeatureMatrix(trainedSchema);
+            double[] y = extractTargets(X);
             
             // Make predictions
             double[] predictions = predict(X);
@@ -166,7 +181,7 @@ public class LinearRegression extends MLModel {
             StringBuilder report = new StringBuilder();
             report.append("Linear Regression Evaluation Report\n");
             report.append("===================================\n");
-            report.append("Test Samples: ").append(points.size()).append("\n");
+            report.append("Test Samples: ").append(X.getRowCount()).append("\n");
             report.append("Mean Squared Error: ").append(String.format("%.6f", metrics.getLoss())).append("\n");
             report.append("R-squared: ").append(String.format("%.6f", metrics.getCustomMetrics().getOrDefault("r_squared", 0.0))).append("\n");
             report.append("Mean Absolute Error: ").append(String.format("%.6f", metrics.getCustomMetrics().getOrDefault("mae", 0.0))).append("\n");
@@ -212,57 +227,44 @@ public class LinearRegression extends MLModel {
         return ValidationResult.success("Linear Regression parameters validated");
     }
     
-    private double[][] extractFeatures(List<DataPoint> points) {
-        int numSamples = points.size();
-        int numFeatures = points.get(0).getFeatures().size();
-        double[][] X = new double[numSamples][numFeatures];
+    private double[] extractTargets(FeatureMatrix X) {
+        double[] targets = X.getTargets();
         
-        for (int i = 0; i < numSamples; i++) {
-            DataPoint point = points.get(i);
-            int j = 0;
-            for (Object value : point.getFeatures().values()) {
-                X[i][j++] = ((Number) value).doubleValue();
+        for (int i = 0; i < targets.length; i++) {
+            if (Double.isNaN(targets[i])) {
+                // Missing targets count as 0.0; copy rather than touch the shared array
+                double[] y = targets.clone();
+                for (int j = i; j < y.length; j++) {
+                    if (Double.isNaN(y[j])) {
+                        y[j] = 0.0;
+                    }
+                }
+                return y;
             }
         }
         
-        return X;
-    }
-    
-    private double[] extractTargets(List<DataPoint> points) {
-        double[] y = new double[points.size()];
-        
-        for (int i = 0; i < points.size(); i++) {
-            Object target = points.get(i).getTarget();
-            y[i] = target != null ? ((Number) target).doubleValue() : 0.0;
-        }
-        
-        return y;
+        return targets;
     }
     
-    private double[] extractSingleFeature(DataPoint point) {
-        double[] features = new double[point.getFeatures().size()];
-        int i = 0;
-        for (Object value : point.getFeatures().values()) {
-            features[i++] = ((Number) value).doubleValue();
-        }
-        return features;
-    }
-    
-    private double[] predict(double[][] X) {
-        double[] predictions = new double[X.length];
+    private double[] predict(FeatureMatrix X) {
+        X.checkSchema(trainedSchema);
+        double[] values = X.getValues();
+        int columns = X.getColumnCount();
+        double[] predictions = new double[X.getRowCount()];
         
-        for (int i = 0; i < X.length; i++) {
-            predictions[i] = predictSingle(X[i]);
+        for (int i = 0; i < predictions.length; i++) {
+            predictions[i] = predictSingle(values, i * columns, columns);
         }
         
         return predictions;
     }
     
-    private double predictSingle(double[] features) {
+    private double predictSingle(double[] values, int offset, int columns) {
         double prediction = bias;
+        int count = Math.min(columns, weights.length);
         
-        for (int i = 0; i < features.length && i < weights.length; i++) {
-            prediction += weights[i] * features[i];
+        for (int j = 0; j < count; j++) {
+            prediction += weights[j] * values[offset + j];
         }
         
         return prediction;
@@ -279,8 +281,10 @@ public class LinearRegression extends MLModel {
         return sum / predictions.length;
     }
     
-    private void updateWeights(double[][] X, double[] y, double[] predictions) {
-        int m = X.length;
+    private void updateWeights(FeatureMatrix X, double[] y, double[] predictions) {
+        int m = X.getRowCount();
+        int columns = X.getColumnCount();
+        double[] values = X.getValues();
         
         // Calculate gradients
         double[] weightGradients = new double[weights.length];
@@ -288,9 +292,10 @@ public class LinearRegression extends MLModel {
         
         for (int i = 0; i < m; i++) {
             double error = predictions[i] - y[i];
+            int offset = i * columns;
             
             for (int j = 0; j < weights.length; j++) {
-                weightGradients[j] += error * X[i][j];
+                weightGradients[j] += error * values[offset + j];
             }
             
             biasGradient += error;
@@ -2,7 +2,7 @@ package abstraction.machinelearning;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -293,51 +293,488 @@ class PredictionRecord {
 }
 
 // Abstract Hyperparameter Tuner
+/**
+ * Tuning engine shared by the search strategies
+ *
+ * Trials run concurrently on a pool of tuning_parallelism threads. Each trial trains
+ * a fresh model from MLModel.createTrialModel on every cross-validation fold and is
+ * scored on the held-out rows. The folds are cut once from the preprocessed feature
+ * matrix and shared read-only by all trials. A trial is cancelled once it runs past
+ * trial_timeout_ms, and stopped early when its running score after a fold falls below
+ * the median of the trials that already reached that fold. Cancellation is checked
+ * between folds; a fold that is already training runs to completion.
+ */
 abstract class HyperparameterTuner {
     protected Map<String, Object> tuningConfig;
     protected TuningStrategy strategy;
+    protected int parallelism;
+    protected int foldCount;
+    protected long trialTimeoutMs;
+    protected int pruningWarmup;
+    protected long randomSeed;
     
     public HyperparameterTuner(TuningStrategy strategy, Map<String, Object> config) {
         this.strategy = strategy;
         this.tuningConfig = config != null ? config : new HashMap<>();
+        this.parallelism = Math.max(1, (Integer) tuningConfig.getOrDefault("tuning_parallelism",
+                                                                           Runtime.getRuntime().availableProcessors()));
+        this.foldCount = (Integer) tuningConfig.getOrDefault("cv_folds", 3);
+        this.trialTimeoutMs = ((Number) tuningConfig.getOrDefault("trial_timeout_ms", 0L)).longValue();
+        this.pruningWarmup = (Integer) tuningConfig.getOrDefault("pruning_warmup_trials", 4);
+        this.randomSeed = ((Number) tuningConfig.getOrDefault("random_seed", 42L)).longValue();
     }
     
-    public abstract TuningResult tuneHyperparameters(TrainingRequest request, MLModel model);
+    /**
+     * Creates the tuner named by tuning_strategy; grid search when none is configured.
+     */
+    public static HyperparameterTuner create(Map<String, Object> config) {
+        TuningStrategy strategy = TuningStrategy.valueOf(
+            (config != null ? config.getOrDefault("tuning_strategy", "GRID_SEARCH") : "GRID_SEARCH").toString().toUpperCase()
+        );
+        switch (strategy) {
+            case GRID_SEARCH:
+                return new GridSearchTuner(config);
+            case RANDOM_SEARCH:
+                return new RandomSearchTuner(config);
+            case SUCCESSIVE_HALVING:
+            case HYPERBAND:
+                return new HyperbandTuner(strategy, config);
+            default:
+                throw new IllegalArgumentException("Unsupported tuning strategy: " + strategy);
+        }
+    }
     
-    protected Map<String, Object> generateParameterCombination(Map<String, List<Object>> parameterSpace) {
-        Map<String, Object> combination = new HashMap<>();
+    public TuningResult tuneHyperparameters(TrainingRequest request, MLModel model, ProcessedData data) {
+        long start = System.nanoTime();
+        List<TuningFold> folds = createFolds(request, model, data);
+        if (folds.isEmpty()) {
+            return TuningResult.failure("Not enough data for " + foldCount + "-fold cross-validation");
+        }
         
-        for (Map.Entry<String, List<Object>> entry : parameterSpace.entrySet()) {
-            String paramName = entry.getKey();
-            List<Object> possibleValues = entry.getValue();
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism, 0, TimeUnit.MILLISECONDS,
+                                                             new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "Tuning-" + model.getModelId() + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ScheduledExecutorService watchdog = null;
+        if (trialTimeoutMs > 0) {
+            watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "Tuning-" + model.getModelId() + "-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
             
-            if (!possibleValues.isEmpty()) {
-                int randomIndex = (int) (Math.random() * possibleValues.size());
-                combination.put(paramName, possibleValues.get(randomIndex));
+        // Split the cores between concurrent trials so they do not oversubscribe them
+        int threadsPerTrial = Math.max(1, Runtime.getRuntime().availableProcessors() / parallelism);
+        TrialRunner runner = new TrialRunner(request, model, folds, executor, watchdog, threadsPerTrial);
+        try {
+            TuningTrial best = search(model.createSearchSpace(), runner);
+            if (best == null) {
+                return TuningResult.failure("No parameter combination completed");
+            }
+            
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            return TuningResult.success(String.format("%s completed: %d trials, %d stopped early, %d ms",
+                                                      strategy, runner.getTrialCount(), runner.getStoppedCount(), elapsedMs),
+                                        best.getParameters(), best.getScore());
+            
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return TuningResult.failure("Hyperparameter tuning interrupted");
+        } finally {
+            executor.shutdownNow();
+            if (watchdog != null) {
+                watchdog.shutdownNow();
             }
         }
-        
-        return combination;
     }
     
-    protected double evaluateParameterCombination(Map<String, Object> parameters, TrainingRequest request, MLModel model) {
-        // Simulate parameter evaluation
-        double baseScore = 0.7 + Math.random() * 0.25; // 0.7 to 0.95
+    /**
+     * Runs the strategy's trials through the runner and returns the best completed one.
+     */
+    protected abstract TuningTrial search(SearchSpace space, TrialRunner runner) throws InterruptedException;
+        
+    /**
+     * Cuts cv_folds shuffled folds from the preprocessed matrix, or a single fold against
+     * the request's validation data when cross-validation is turned off.
+     */
+    protected List<TuningFold> createFolds(TrainingRequest request, MLModel model, ProcessedData data) {
+        MLDataset dataset = data.getProcessedDataset();
+        FeatureMatrix matrix = dataset.getFeatureMatrix();
+        List<TuningFold> folds = new ArrayList<>();
+        
+        if (foldCount < 2) {
+            if (request.getValidationData() == null || request.getValidationData().isEmpty()) {
+                return folds;
+            }
+            DataProcessingResult validation = model.preprocessData(request.getValidationData());
+            if (!validation.isSuccess()) {
+                throw new MLException("Validation data preprocessing failed: " + validation.getMessage());
+            }
+            folds.add(new TuningFold(data, validation.getProcessedData()));
+            return folds;
+        }
         
-        // Add some parameter-dependent variation
-        double learningRateEffect = 0.0;
-        if (parameters.containsKey("learning_rate")) {
-            double lr = (Double) parameters.get("learning_rate");
-            learningRateEffect = Math.abs(lr - 0.001) * -0.1; // Penalty for deviation from 0.001
+        int rows = matrix.getRowCount();
+        if (rows < foldCount) {
+            return folds;
+        }
+        int[] order = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            order[i] = i;
+        }
+        Random random = new Random(randomSeed);
+        for (int i = rows - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
         }
         
-        return Math.max(0.0, Math.min(1.0, baseScore + learningRateEffect));
+        for (int fold = 0; fold < foldCount; fold++) {
+            int validationRows = (rows - fold + foldCount - 1) / foldCount;
+            int[] validation = new int[validationRows];
+            int[] training = new int[rows - validationRows];
+            int v = 0;
+            int t = 0;
+            for (int i = 0; i < rows; i++) {
+                if (i % foldCount == fold) {
+                    validation[v++] = order[i];
+                } else {
+                    training[t++] = order[i];
+                }
+            }
+            // Keep the rows in source order for sequential access during training
+            Arrays.sort(validation);
+            Arrays.sort(training);
+            folds.add(new TuningFold(
+                foldData(data, matrix.selectRows(training), "-fold" + fold + "-train"),
+                foldData(data, matrix.selectRows(validation), "-fold" + fold + "-validation")
+            ));
+        }
+        return folds;
+    }
+    
+    private static ProcessedData foldData(ProcessedData data, FeatureMatrix matrix, String suffix) {
+        MLDataset source = data.getProcessedDataset();
+        MLDataset dataset = new MLDataset(source.getDatasetId() + suffix, Collections.emptyList(),
+                                          matrix.getSchema(), source.getDatasetType());
+        dataset.setTargetColumn(source.getTargetColumn());
+        dataset.setFeatureMatrix(matrix);
+        return new ProcessedData(data.getOriginalDataset(), dataset, data.getTransformations());
+    }
+    
+    /**
+     * Highest-scoring completed trial; earlier trials win ties.
+     */
+    protected static TuningTrial best(List<TuningTrial> trials) {
+        TuningTrial best = null;
+        for (TuningTrial trial : trials) {
+            if (trial.getOutcome() == TuningTrial.Outcome.COMPLETED && (best == null || trial.getScore() > best.getScore())) {
+                best = trial;
+            }
+        }
+        return best;
     }
 }
 
 // Tuning strategy enumeration
 enum TuningStrategy {
-    GRID_SEARCH, RANDOM_SEARCH, BAYESIAN_OPTIMIZATION, GENETIC_ALGORITHM
+    GRID_SEARCH, RANDOM_SEARCH, SUCCESSIVE_HALVING, HYPERBAND, BAYESIAN_OPTIMIZATION, GENETIC_ALGORITHM
+}
+    
+// Hyperparameter search space
+class SearchSpace {
+    private final Map<String, List<Object>> parameters = new LinkedHashMap<>();
+    private String budgetParameter;
+    private int maxBudget;
+    
+    public SearchSpace add(String name, Object... values) {
+        parameters.put(name, Arrays.asList(values));
+        return this;
+    }
+    
+    /**
+     * Names the integer setting (epochs, trees, iterations) that successive halving scales.
+     */
+    public SearchSpace budget(String parameter, int max) {
+        this.budgetParameter = parameter;
+        this.maxBudget = max;
+        return this;
+    }
+    
+    /**
+     * Number of grid points, saturating at Long.MAX_VALUE.
+     */
+    public long size() {
+        long size = 1;
+        for (List<Object> values : parameters.values()) {
+            if (size > Long.MAX_VALUE / Math.max(1, values.size())) {
+                return Long.MAX_VALUE;
+            }
+            size *= values.size();
+        }
+        return size;
+    }
+    
+    /**
+     * Grid point at the given index, with the first parameter varying slowest.
+     */
+    public Map<String, Object> combination(long index) {
+        Map<String, Object> combination = new LinkedHashMap<>();
+        List<String> names = new ArrayList<>(parameters.keySet());
+        for (int i = names.size() - 1; i >= 0; i--) {
+            List<Object> values = parameters.get(names.get(i));
+            combination.put(names.get(i), values.get((int) (index % values.size())));
+            index /= values.size();
+        }
+        return combination;
+    }
+    
+    public List<Map<String, Object>> grid(int limit) {
+        long count = Math.min(size(), limit);
+        List<Map<String, Object>> combinations = new ArrayList<>((int) count);
+        for (long i = 0; i < count; i++) {
+            combinations.add(combination(i));
+        }
+        return combinations;
+    }
+    
+    /**
+     * Up to count distinct grid points drawn uniformly at random.
+     */
+    public List<Map<String, Object>> sample(int count, Random random) {
+        long size = size();
+        if (size <= count) {
+            List<Map<String, Object>> all = grid(count);
+            Collections.shuffle(all, random);
+            return all;
+        }
+        Set<Long> drawn = new LinkedHashSet<>();
+        while (drawn.size() < count) {
+            drawn.add(Math.floorMod(random.nextLong(), size));
+        }
+        List<Map<String, Object>> combinations = new ArrayList<>(count);
+        for (long index : drawn) {
+            combinations.add(combination(index));
+        }
+        return combinations;
+    }
+    
+    // Getters
+    public Map<String, List<Object>> getParameters() { return parameters; }
+    public String getBudgetParameter() { return budgetParameter; }
+    public int getMaxBudget() { return maxBudget; }
+}
+
+// Cross-validation fold shared by all trials
+class TuningFold {
+    private final ProcessedData training;
+    private final ProcessedData validation;
+    
+    public TuningFold(ProcessedData training, ProcessedData validation) {
+        this.training = training;
+        this.validation = validation;
+    }
+    
+    public ProcessedData getTraining() { return training; }
+    public ProcessedData getValidation() { return validation; }
+}
+
+// Single evaluation of one parameter combination at one budget
+class TuningTrial {
+    enum Outcome { PENDING, COMPLETED, STOPPED, CANCELLED, FAILED }
+    
+    private final Map<String, Object> parameters;
+    private final int budget;
+    private volatile Outcome outcome = Outcome.PENDING;
+    private volatile boolean cancelled;
+    private volatile Future<?> future;
+    private volatile double score = Double.NEGATIVE_INFINITY;
+    private volatile String message;
+    
+    public TuningTrial(Map<String, Object> parameters, int budget) {
+        this.parameters = parameters;
+        this.budget = budget;
+    }
+    
+    /**
+     * Stops the trial before its next fold and releases anyone waiting on it.
+     */
+    public void cancel() {
+        cancelled = true;
+        Future<?> running = future;
+        if (running != null) {
+            running.cancel(true);
+        }
+    }
+    
+    /**
+     * Records the first outcome only; a cancelled trial that is still training cannot overwrite it.
+     */
+    synchronized void finish(Outcome outcome, double score, String message) {
+        if (this.outcome != Outcome.PENDING) {
+            return;
+        }
+        this.score = score;
+        this.message = message;
+        this.outcome = outcome;
+    }
+    
+    void setFuture(Future<?> future) { this.future = future; }
+    
+    // Getters
+    public Map<String, Object> getParameters() { return parameters; }
+    public int getBudget() { return budget; }
+    public Outcome getOutcome() { return outcome; }
+    public boolean isCancelled() { return cancelled; }
+    public Future<?> getFuture() { return future; }
+    public double getScore() { return score; }
+    public String getMessage() { return message; }
+}
+
+// Executes batches of trials concurrently against the shared folds
+class TrialRunner {
+    private final TrainingRequest request;
+    private final MLModel model;
+    private final List<TuningFold> folds;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService watchdog;
+    private final int threadsPerTrial;
+    private final AtomicInteger trialCount = new AtomicInteger();
+    private final AtomicInteger stoppedCount = new AtomicInteger();
+    
+    public TrialRunner(TrainingRequest request, MLModel model, List<TuningFold> folds, ExecutorService executor,
+                       ScheduledExecutorService watchdog, int threadsPerTrial) {
+        this.request = request;
+        this.model = model;
+        this.folds = folds;
+        this.executor = executor;
+        this.watchdog = watchdog;
+        this.threadsPerTrial = threadsPerTrial;
+    }
+    
+    /**
+     * Evaluates every combination at the given budget (ignored when the space has no
+     * budget parameter) and returns the trials in the same order once all have finished.
+     */
+    public List<TuningTrial> run(List<Map<String, Object>> combinations, SearchSpace space, int budget,
+                                 int pruningWarmup, long trialTimeoutMs) throws InterruptedException {
+        MedianStoppingRule stoppingRule = new MedianStoppingRule(folds.size(), pruningWarmup);
+        List<TuningTrial> trials = new ArrayList<>(combinations.size());
+        for (Map<String, Object> parameters : combinations) {
+            TuningTrial trial = new TuningTrial(parameters, budget);
+            trials.add(trial);
+            trial.setFuture(executor.submit(() -> evaluate(trial, space, stoppingRule, trialTimeoutMs)));
+        }
+        trialCount.addAndGet(trials.size());
+        
+        try {
+            for (TuningTrial trial : trials) {
+                try {
+                    trial.getFuture().get();
+                } catch (CancellationException e) {
+                    if (trial.getOutcome() == TuningTrial.Outcome.PENDING) {
+                        trial.finish(TuningTrial.Outcome.CANCELLED, Double.NEGATIVE_INFINITY, "Cancelled");
+                    }
+                } catch (ExecutionException e) {
+                    trial.finish(TuningTrial.Outcome.FAILED, Double.NEGATIVE_INFINITY, e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            for (TuningTrial trial : trials) {
+                trial.cancel();
+            }
+            throw e;
+        }
+        return trials;
+    }
+    
+    private void evaluate(TuningTrial trial, SearchSpace space, MedianStoppingRule stoppingRule, long trialTimeoutMs) {
+        ScheduledFuture<?> timeout = trialTimeoutMs > 0 && watchdog != null ?
+            watchdog.schedule(trial::cancel, trialTimeoutMs, TimeUnit.MILLISECONDS) : null;
+        try {
+            Map<String, Object> configuration = new HashMap<>(model.configuration);
+            configuration.putAll(trial.getParameters());
+            if (space.getBudgetParameter() != null) {
+                configuration.put(space.getBudgetParameter(), trial.getBudget());
+            }
+            
+            double total = 0.0;
+            for (int fold = 0; fold < folds.size(); fold++) {
+                if (trial.isCancelled()) {
+                    trial.finish(TuningTrial.Outcome.CANCELLED, Double.NEGATIVE_INFINITY, "Cancelled");
+                    return;
+                }
+                TuningFold data = folds.get(fold);
+                MLModel candidate = model.createTrialModel(configuration, threadsPerTrial);
+                TrainingResult training = candidate.performCoreTraining(request, data.getTraining());
+                if (!training.isSuccess()) {
+                    trial.finish(TuningTrial.Outcome.FAILED, Double.NEGATIVE_INFINITY, training.getMessage());
+                    return;
+                }
+                EvaluationResult evaluation = candidate.performModelEvaluation(
+                    new EvaluationRequest(request.getRequestId() + "-tuning", data.getValidation().getProcessedDataset(),
+                                          Collections.emptyList(), request.getRequestedBy()),
+                    data.getValidation());
+                if (!evaluation.isSuccess()) {
+                    trial.finish(TuningTrial.Outcome.FAILED, Double.NEGATIVE_INFINITY, evaluation.getMessage());
+                    return;
+                }
+                
+                total += candidate.tuningScore(evaluation, data.getValidation());
+                double running = total / (fold + 1);
+                if (fold < folds.size() - 1 && stoppingRule.shouldStop(fold, running)) {
+                    stoppedCount.incrementAndGet();
+                    trial.finish(TuningTrial.Outcome.STOPPED, running, "Stopped after fold " + (fold + 1));
+                    return;
+                }
+            }
+            trial.finish(TuningTrial.Outcome.COMPLETED, total / folds.size(), null);
+        } finally {
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+        }
+    }
+    
+    public int getTrialCount() { return trialCount.get(); }
+    public int getStoppedCount() { return stoppedCount.get(); }
+}
+
+// Median stopping rule for one batch of trials
+class MedianStoppingRule {
+    private final List<List<Double>> scoresByFold;
+    private final int warmup;
+    
+    public MedianStoppingRule(int folds, int warmup) {
+        this.scoresByFold = new ArrayList<>(folds);
+        for (int i = 0; i < folds; i++) {
+            scoresByFold.add(new ArrayList<>());
+        }
+        this.warmup = warmup;
+    }
+    
+    /**
+     * Records a trial's running score after a fold; true when it trails the median of
+     * at least warmup trials that reached the same fold earlier.
+     */
+    public synchronized boolean shouldStop(int fold, double runningScore) {
+        List<Double> scores = scoresByFold.get(fold);
+        boolean stop = false;
+        if (scores.size() >= warmup) {
+            List<Double> sorted = new ArrayList<>(scores);
+            Collections.sort(sorted);
+            int middle = sorted.size() / 2;
+            double median = sorted.size() % 2 == 1 ? sorted.get(middle) : (sorted.get(middle - 1) + sorted.get(middle)) / 2.0;
+            stop = runningScore < median;
+        }
+        scores.add(runningScore);
+        return stop;
+    }
 }
 
 // Tabular Data Processor implementation
@@ -354,13 +791,25 @@ class TabularDataProcessor extends DataProcessor {
                 return DataProcessingResult.failure("Expected tabular dataset");
             }
             
-            List<DataPoint> processedPoints = new ArrayList<>();
+            List<DataPoint> points = dataset.getDataPoints();
+            List<String> schema = resolveSchema(dataset);
+            List<DataPoint> processedPoints = new ArrayList<>(points.size());
             Map<String, Object> transformations = new HashMap<>();
             
-            // Process each data point
-            for (DataPoint point : dataset.getDataPoints()) {
+            // Process each data point, filling the dense matrix in the same pass
+            int columns = schema.size();
+            double[] values = new double[points.size() * columns];
+            Object[] targets = new Object[points.size()];
+            
+            for (DataPoint point : points) {
                 DataPoint processedPoint = processDataPoint(point);
                 if (processedPoint != null) {
+                    int row = processedPoints.size();
+                    Map<String, Object> features = processedPoint.getFeatures();
+                    for (int column = 0; column < columns; column++) {
+                        values[row * columns + column] = FeatureMatrix.toDouble(features.get(schema.get(column)));
+                    }
+                    targets[row] = processedPoint.getTarget();
                     processedPoints.add(processedPoint);
                 }
             }
@@ -369,9 +818,16 @@ class TabularDataProcessor extends DataProcessor {
             MLDataset processedDataset = new MLDataset(
                 dataset.getDatasetId() + "_processed",
                 processedPoints,
-                dataset.getFeatures(),
+                schema,
                 dataset.getDatasetType()
             );
+            int rows = processedPoints.size();
+            processedDataset.setFeatureMatrix(new FeatureMatrix(
+                schema,
+                rows,
+                rows == points.size() ? values : Arrays.copyOf(values, rows * columns),
+                rows == points.size() ? targets : Arrays.copyOf(targets, rows)
+            ));
             
             transformations.put("normalization", "min_max");
             transformations.put("missing_value_strategy", "mean_imputation");
@@ -468,6 +924,15 @@ class TabularDataProcessor extends DataProcessor {
         return PredictionResult.success("Predictions post-processed", processedPredictions);
     }
     
+    private List<String> resolveSchema(MLDataset dataset) {
+        if (dataset.getFeatures() != null && !dataset.getFeatures().isEmpty()) {
+            return dataset.getFeatures();
+        }
+        // No declared schema: fix the column order from the first point's keys
+        return dataset.isEmpty() ? new ArrayList<>() :
+            new ArrayList<>(new TreeSet<>(dataset.getDataPoints().get(0).getFeatures().keySet()));
+    }
+    
     private DataPoint processDataPoint(DataPoint point) {
         Map<String, Object> processedFeatures = new HashMap<>();
         
@@ -514,64 +979,94 @@ class GridSearchTuner extends HyperparameterTuner {
     }
     
     @Override
-    public TuningResult tuneHyperparameters(TrainingRequest request, MLModel model) {
-        try {
-            // Define parameter search space
-            Map<String, List<Object>> parameterSpace = createParameterSpace();
-            
-            Map<String, Object> bestParameters = null;
-            double bestScore = Double.NEGATIVE_INFINITY;
-            
-            // Generate all parameter combinations (simplified grid search)
-            List<Map<String, Object>> combinations = generateAllCombinations(parameterSpace);
-            
-            // Limit combinations for performance
-            int maxCombinations = (Integer) tuningConfig.getOrDefault("max_combinations", 10);
-            combinations = combinations.subList(0, Math.min(combinations.size(), maxCombinations));
+    protected TuningTrial search(SearchSpace space, TrialRunner runner) throws InterruptedException {
+        // Every grid point at full budget; max_combinations caps very large grids
+        int maxCombinations = (Integer) tuningConfig.getOrDefault("max_combinations", Integer.MAX_VALUE);
+        List<Map<String, Object>> combinations = space.grid(maxCombinations);
+        return best(runner.run(combinations, space, space.getMaxBudget(), pruningWarmup, trialTimeoutMs));
+    }
+}
+
+// Random Search Hyperparameter Tuner implementation
+class RandomSearchTuner extends HyperparameterTuner {
+    
+    public RandomSearchTuner(Map<String, Object> config) {
+        super(TuningStrategy.RANDOM_SEARCH, config);
+    }
+    
+    @Override
+    protected TuningTrial search(SearchSpace space, TrialRunner runner) throws InterruptedException {
+        int maxCombinations = (Integer) tuningConfig.getOrDefault("max_combinations", 10);
+        List<Map<String, Object>> combinations = space.sample(maxCombinations, new Random(randomSeed));
+        return best(runner.run(combinations, space, space.getMaxBudget(), pruningWarmup, trialTimeoutMs));
+    }
+}
+
+// Successive Halving and Hyperband Hyperparameter Tuner implementation
+class HyperbandTuner extends HyperparameterTuner {
+    
+    private final int halvingFactor;
+    
+    public HyperbandTuner(TuningStrategy strategy, Map<String, Object> config) {
+        super(strategy, config);
+        this.halvingFactor = Math.max(2, (Integer) tuningConfig.getOrDefault("halving_factor", 3));
+    }
+    
+    /**
+     * Successive halving runs one bracket that starts many combinations on a small budget
+     * and keeps the best 1/halving_factor at each rung. Hyperband runs brackets from that
+     * most aggressive one down to a plain full-budget search. Without a budget parameter
+     * every rung runs at full budget, so only the halving of candidates remains.
+     */
+    @Override
+    protected TuningTrial search(SearchSpace space, TrialRunner runner) throws InterruptedException {
+        int maxBudget = Math.max(1, space.getMaxBudget());
+        int minBudget = Math.max(1, (Integer) tuningConfig.getOrDefault("min_budget", maxBudget / (halvingFactor * halvingFactor)));
+        int maxRungs = 0;
+        for (long budget = minBudget; budget * halvingFactor <= maxBudget; budget *= halvingFactor) {
+            maxRungs++;
+        }
+        
+        Random random = new Random(randomSeed);
+        TuningTrial best = null;
+        int lowestBracket = strategy == TuningStrategy.HYPERBAND ? 0 : maxRungs;
+        for (int bracket = maxRungs; bracket >= lowestBracket; bracket--) {
+            int candidates = strategy == TuningStrategy.HYPERBAND ?
+                (int) Math.ceil((double) (maxRungs + 1) / (bracket + 1) * Math.pow(halvingFactor, bracket)) :
+                (Integer) tuningConfig.getOrDefault("max_combinations", (int) Math.pow(halvingFactor, bracket));
             
-            for (Map<String, Object> parameters : combinations) {
-                double score = evaluateParameterCombination(parameters, request, model);
+            List<Map<String, Object>> combinations = space.sample(candidates, random);
+            for (int rung = 0; rung <= bracket && !combinations.isEmpty(); rung++) {
+                int budget = rung == bracket ? maxBudget :
+                    Math.max(minBudget, (int) Math.round(maxBudget * Math.pow(halvingFactor, rung - bracket)));
+                List<TuningTrial> trials = runner.run(combinations, space, budget, pruningWarmup, trialTimeoutMs);
                 
-                if (score > bestScore) {
-                    bestScore = score;
-                    bestParameters = new HashMap<>(parameters);
+                if (rung == bracket) {
+                    TuningTrial bracketBest = best(trials);
+                    if (bracketBest != null && (best == null || bracketBest.getScore() > best.getScore())) {
+                        best = bracketBest;
+                    }
+                    break;
                 }
+                combinations = promote(trials, Math.max(1, combinations.size() / halvingFactor));
             }
-            
-            if (bestParameters == null) {
-                return TuningResult.failure("No valid parameter combinations found");
-            }
-            
-            return TuningResult.success("Grid search completed", bestParameters, bestScore);
-            
-        } catch (Exception e) {
-            return TuningResult.failure("Grid search failed: " + e.getMessage());
         }
+        return best;
     }
     
-    private Map<String, List<Object>> createParameterSpace() {
-        Map<String, List<Object>> space = new HashMap<>();
-        
-        // Learning rate options
-        space.put("learning_rate", Arrays.asList(0.001, 0.01, 0.1));
-        
-        // Batch size options
-        space.put("batch_size", Arrays.asList(16, 32, 64, 128));
-        
-        // Regularization options
-        space.put("regularization", Arrays.asList(0.0, 0.01, 0.1));
-        
-        return space;
-    }
-    
-    private List<Map<String, Object>> generateAllCombinations(Map<String, List<Object>> parameterSpace) {
-        List<Map<String, Object>> combinations = new ArrayList<>();
-        
-        // Simplified combination generation (first few combinations)
-        for (int i = 0; i < 10; i++) {
-            combinations.add(generateParameterCombination(parameterSpace));
+    private static List<Map<String, Object>> promote(List<TuningTrial> trials, int count) {
+        List<TuningTrial> completed = new ArrayList<>();
+        for (TuningTrial trial : trials) {
+            if (trial.getOutcome() == TuningTrial.Outcome.COMPLETED) {
+                completed.add(trial);
+            }
         }
-        
-        return combinations;
+        // Stable sort, so earlier trials win ties
+        completed.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
+        List<Map<String, Object>> promoted = new ArrayList<>();
+        for (int i = 0; i < Math.min(count, completed.size()); i++) {
+            promoted.add(completed.get(i).getParameters());
+        }
+        return promoted;
     }
 }
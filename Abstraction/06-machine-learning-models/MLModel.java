@@ -1,6 +1,7 @@
 package abstraction.machinelearning;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
@@ -57,7 +58,7 @@ public abstract class MLModel {
                 
                 // Hyperparameter tuning (if enabled)
                 if (request.isHyperparameterTuningEnabled()) {
-                    TuningResult tuningResult = performHyperparameterTuning(request);
+                    TuningResult tuningResult = performHyperparameterTuning(request, dataResult.getProcessedData());
                     if (!tuningResult.isSuccess()) {
                         currentState = ModelState.ERROR;
                         return TrainingResult.failure("Hyperparameter tuning failed: " + tuningResult.getMessage());
@@ -166,6 +167,9 @@ public abstract class MLModel {
     protected abstract void initialize();
     protected abstract DataProcessor createDataProcessor();
     protected abstract HyperparameterTuner createHyperparameterTuner();
+    protected abstract void configure();
+    protected abstract SearchSpace createSearchSpace();
+    protected abstract MLModel createTrialModel(Map<String, Object> configuration, int threads);
     protected abstract TrainingResult performCoreTraining(TrainingRequest request, ProcessedData data);
     protected abstract PredictionResult performCorePrediction(PredictionRequest request, ProcessedData data);
     protected abstract EvaluationResult performModelEvaluation(EvaluationRequest request, ProcessedData data);
@@ -248,14 +252,37 @@ public abstract class MLModel {
         }
     }
     
-    protected TuningResult performHyperparameterTuning(TrainingRequest request) {
+    protected TuningResult performHyperparameterTuning(TrainingRequest request, ProcessedData data) {
         try {
-            return tuner.tuneHyperparameters(request, this);
+            TuningResult result = tuner.tuneHyperparameters(request, this, data);
+            if (result.isSuccess() && result.getBestParameters() != null) {
+                applyHyperparameters(result.getBestParameters());
+            }
+            return result;
         } catch (Exception e) {
             return TuningResult.failure("Hyperparameter tuning failed: " + e.getMessage());
         }
     }
     
+    /**
+     * Ranks a tuning trial on one validation fold; higher is better. Classifiers score
+     * by accuracy and everything else by negated loss.
+     */
+    protected double tuningScore(EvaluationResult evaluation, ProcessedData validation) {
+        ModelMetrics metrics = evaluation.getEvaluationMetrics();
+        return modelType == ModelType.CLASSIFICATION ? metrics.getAccuracy() : -metrics.getLoss();
+    }
+    
+    /**
+     * Merges tuned values into the configuration and has the model re-read its settings.
+     */
+    protected void applyHyperparameters(Map<String, Object> parameters) {
+        Map<String, Object> merged = new HashMap<>(configuration);
+        merged.putAll(parameters);
+        this.configuration = merged;
+        configure();
+    }
+    
     protected PredictionResult postprocessPredictions(PredictionResult rawResult) {
         try {
             return dataProcessor.postprocessPredictions(rawResult);
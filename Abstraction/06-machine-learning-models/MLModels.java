@@ -1,8 +1,12 @@
 package abstraction.machinelearning;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 
 /**
  * Data models and enums for the ML abstraction system
@@ -147,6 +151,7 @@ class MLDataset {
     private String targetColumn;
     private DatasetType datasetType;
     private Map<String, Object> metadata;
+    private volatile FeatureMatrix featureMatrix;
     
     public MLDataset(String datasetId, List<DataPoint> dataPoints, List<String> features, DatasetType datasetType) {
         this.datasetId = datasetId;
@@ -163,6 +168,41 @@ class MLDataset {
         return dataPoints != null ? dataPoints.size() : 0;
     }
     
+    /**
+     * Dense view of the data points, built on first use unless a data processor attached one.
+     */
+    public FeatureMatrix getFeatureMatrix() {
+        FeatureMatrix matrix = featureMatrix;
+        if (matrix == null) {
+            synchronized (this) {
+                matrix = featureMatrix;
+                if (matrix == null) {
+                    matrix = FeatureMatrix.fromDataPoints(features, dataPoints);
+                    featureMatrix = matrix;
+                }
+            }
+        }
+        return matrix;
+    }
+    
+    /**
+     * Dense view under a model's trained schema: the attached matrix when its columns already
+     * match, otherwise rebuilt from the data points, or remapped when only the matrix is held.
+     */
+    public FeatureMatrix getFeatureMatrix(List<String> schema) {
+        FeatureMatrix matrix = featureMatrix;
+        if (matrix != null && matrix.getSchema().equals(schema)) {
+            return matrix;
+        }
+        if (matrix == null && schema.equals(features)) {
+            return getFeatureMatrix();
+        }
+        if (matrix == null || !isEmpty()) {
+            return FeatureMatrix.fromDataPoints(schema, dataPoints);
+        }
+        return matrix.project(schema);
+    }
+    
     // Getters and setters
     public String getDatasetId() { return datasetId; }
     public List<DataPoint> getDataPoints() { return dataPoints; }
@@ -173,6 +213,7 @@ class MLDataset {
     
     public void setTargetColumn(String targetColumn) { this.targetColumn = targetColumn; }
     public void setMetadata(Map<String, Object> metadata) { this.metadata = metadata; }
+    public void setFeatureMatrix(FeatureMatrix featureMatrix) { this.featureMatrix = featureMatrix; }
 }
 
 // Dataset type enumeration
@@ -205,6 +246,189 @@ class DataPoint {
     public void setTarget(Object target) { this.target = target; }
 }
 
+// Dense feature matrix class
+/**
+ * Row-major double[] copy of a dataset's features under a fixed column schema
+ *
+ * Cell (row, column) lives at values[row * columnCount + column], so a row is a
+ * contiguous slice and models read it without boxing or map lookups. Missing and
+ * non-numeric values are stored as 0.0. Targets are kept as doubles (NaN when not
+ * numeric) and, for classifiers, as dense class ids assigned on first use. The
+ * arrays are shared, not copied; callers must treat them as read-only.
+ */
+class FeatureMatrix {
+    private final List<String> schema;
+    private final Map<String, Integer> columnIndex;
+    private final int rowCount;
+    private final int columnCount;
+    private final double[] values;
+    private final double[] targets;
+    private final Object[] targetLabels;
+    private volatile int[] classIds;
+    private volatile List<Object> classLabels;
+    
+    public FeatureMatrix(List<String> schema, int rowCount, double[] values, Object[] targetLabels) {
+        if (values.length != rowCount * schema.size() || targetLabels.length != rowCount) {
+            throw new IllegalArgumentException("Matrix of " + values.length + " values and " + targetLabels.length +
+                                               " targets does not match " + rowCount + " rows of " + schema.size() + " columns");
+        }
+        this.schema = Collections.unmodifiableList(new ArrayList<>(schema));
+        this.columnIndex = new HashMap<>();
+        for (int i = 0; i < schema.size(); i++) {
+            columnIndex.put(schema.get(i), i);
+        }
+        this.rowCount = rowCount;
+        this.columnCount = schema.size();
+        this.values = values;
+        this.targetLabels = targetLabels;
+        this.targets = new double[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            targets[i] = targetLabels[i] instanceof Number ? ((Number) targetLabels[i]).doubleValue() : Double.NaN;
+        }
+    }
+    
+    /**
+     * Builds a matrix from data points; without a declared schema the first point's keys are used, sorted.
+     */
+    public static FeatureMatrix fromDataPoints(List<String> schema, List<DataPoint> points) {
+        List<String> columns = schema;
+        if (columns == null || columns.isEmpty()) {
+            columns = points == null || points.isEmpty() ? Collections.emptyList() :
+                new ArrayList<>(new TreeSet<>(points.get(0).getFeatures().keySet()));
+        }
+        int rows = points != null ? points.size() : 0;
+        int width = columns.size();
+        double[] values = new double[rows * width];
+        Object[] targets = new Object[rows];
+        
+        for (int row = 0; row < rows; row++) {
+            DataPoint point = points.get(row);
+            Map<String, Object> features = point.getFeatures();
+            int offset = row * width;
+            for (int column = 0; column < width; column++) {
+                values[offset + column] = toDouble(features.get(columns.get(column)));
+            }
+            targets[row] = point.getTarget();
+        }
+        
+        return new FeatureMatrix(columns, rows, values, targets);
+    }
+    
+    static double toDouble(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : 0.0;
+    }
+    
+    public double get(int row, int column) {
+        return values[row * columnCount + column];
+    }
+    
+    public int rowOffset(int row) {
+        return row * columnCount;
+    }
+    
+    public double[] copyRow(int row, double[] buffer) {
+        return copyRow(row, buffer, 0);
+    }
+    
+    public double[] copyRow(int row, double[] buffer, int offset) {
+        System.arraycopy(values, row * columnCount, buffer, offset, columnCount);
+        return buffer;
+    }
+    
+    /**
+     * Copies the given rows, in order, into a new matrix with the same schema.
+     */
+    public FeatureMatrix selectRows(int[] rows) {
+        double[] selected = new double[rows.length * columnCount];
+        Object[] labels = new Object[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            System.arraycopy(values, rows[i] * columnCount, selected, i * columnCount, columnCount);
+            labels[i] = targetLabels[rows[i]];
+        }
+        return new FeatureMatrix(schema, rows.length, selected, labels);
+    }
+    
+    public int getColumnIndex(String feature) {
+        Integer index = columnIndex.get(feature);
+        return index != null ? index : -1;
+    }
+    
+    /**
+     * Copies the given columns, by name and in the given order, into a new matrix.
+     */
+    public FeatureMatrix project(List<String> columns) {
+        int width = columns.size();
+        int[] sources = new int[width];
+        for (int column = 0; column < width; column++) {
+            sources[column] = getColumnIndex(columns.get(column));
+            if (sources[column] < 0) {
+                throw new IllegalArgumentException("Feature matrix has no column " + columns.get(column));
+            }
+        }
+        double[] projected = new double[rowCount * width];
+        for (int row = 0; row < rowCount; row++) {
+            int from = row * columnCount;
+            int to = row * width;
+            for (int column = 0; column < width; column++) {
+                projected[to + column] = values[from + sources[column]];
+            }
+        }
+        return new FeatureMatrix(columns, rowCount, projected, targetLabels);
+    }
+    
+    /**
+     * Fails unless this matrix holds exactly the given columns, in order.
+     */
+    public void checkSchema(List<String> expected) {
+        if (!schema.equals(expected)) {
+            throw new IllegalArgumentException("Feature columns " + schema + " do not match trained schema " + expected);
+        }
+    }
+    
+    /**
+     * Class id of each row's target; ids index into getClassLabels() in order of first appearance.
+     */
+    public int[] getClassIds() {
+        int[] ids = classIds;
+        if (ids == null) {
+            synchronized (this) {
+                ids = classIds;
+                if (ids == null) {
+                    Map<Object, Integer> idsByLabel = new HashMap<>();
+                    List<Object> labels = new ArrayList<>();
+                    ids = new int[rowCount];
+                    for (int i = 0; i < rowCount; i++) {
+                        Object label = targetLabels[i];
+                        Integer id = idsByLabel.get(label);
+                        if (id == null) {
+                            id = labels.size();
+                            idsByLabel.put(label, id);
+                            labels.add(label);
+                        }
+                        ids[i] = id;
+                    }
+                    classLabels = Collections.unmodifiableList(labels);
+                    classIds = ids;
+                }
+            }
+        }
+        return ids;
+    }
+    
+    public List<Object> getClassLabels() {
+        getClassIds();
+        return classLabels;
+    }
+    
+    // Getters
+    public List<String> getSchema() { return schema; }
+    public int getRowCount() { return rowCount; }
+    public int getColumnCount() { return columnCount; }
+    public double[] getValues() { return values; }
+    public double[] getTargets() { return targets; }
+    public Object getTargetLabel(int row) { return targetLabels[row]; }
+}
+
 // Processed data class
 class ProcessedData {
     private MLDataset originalDataset;
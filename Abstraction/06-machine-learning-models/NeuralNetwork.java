@@ -1,22 +1,40 @@
 package abstraction.machinelearning;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Neural Network implementation of MLModel
+ *
+ * Training runs mini-batch gradient descent. Each batch is forwarded and
+ * backpropagated as whole matrices through the layers, and the batch's rows are
+ * split across worker threads. Each worker has its own activation and gradient
+ * buffers, and the workers' gradients are summed before one averaged update per
+ * batch.
  */
 public class NeuralNetwork extends MLModel {
     
     private List<Layer> layers;
+    private List<String> trainedSchema;
     private double learningRate;
     private int epochs;
     private int batchSize;
     private ActivationFunction activationFunction;
     private double dropoutRate;
+    private int trainingThreads;
+    
+    // Below this many rows per worker, splitting a batch costs more than it saves
+    private static final int MIN_ROWS_PER_THREAD = 16;
+    private static final int INFERENCE_BLOCK_ROWS = 256;
     
     public NeuralNetwork(String modelId, String modelName, Map<String, Object> configuration) {
         super(modelId, modelName, ModelType.NEURAL_NETWORK, configuration);
+        configure();
+    }
         
+    @Override
+    protected void configure() {
         this.learningRate = (Double) configuration.getOrDefault("learning_rate", 0.001);
         this.epochs = (Integer) configuration.getOrDefault("epochs", 100);
         this.batchSize = (Integer) configuration.getOrDefault("batch_size", 32);
@@ -24,6 +42,8 @@ public class NeuralNetwork extends MLModel {
             configuration.getOrDefault("activation", "RELU").toString()
         );
         this.dropoutRate = (Double) configuration.getOrDefault("dropout_rate", 0.2);
+        this.trainingThreads = (Integer) configuration.getOrDefault("training_threads",
+                                                                    Runtime.getRuntime().availableProcessors());
     }
     
     @Override
@@ -40,7 +60,29 @@ public class NeuralNetwork extends MLModel {
     
     @Override
     protected HyperparameterTuner createHyperparameterTuner() {
-        return new GridSearchTuner(configuration);
+        return HyperparameterTuner.create(configuration);
+    }
+    
+    @Override
+    protected SearchSpace createSearchSpace() {
+        return new SearchSpace()
+            .add("learning_rate", 0.001, 0.01, 0.1)
+            .add("batch_size", 16, 32, 64, 128)
+            .add("dropout_rate", 0.0, 0.2)
+            .budget("epochs", epochs);
+    }
+    
+    @Override
+    protected MLModel createTrialModel(Map<String, Object> configuration, int threads) {
+        Map<String, Object> trialConfiguration = new HashMap<>(configuration);
+        trialConfiguration.put("training_threads", threads);
+        return new NeuralNetwork(modelId + "-trial", modelName, trialConfiguration);
+    }
+    
+    @Override
+    protected double tuningScore(EvaluationResult evaluation, ProcessedData validation) {
+        // Outputs are continuous, so exact-match accuracy is 0 for nearly every trial; rank by validation loss
+        return -calculateNetworkMetrics(validation.getProcessedDataset().getFeatureMatrix(trainedSchema)).getLoss();
     }
     
     @Override
@@ -49,54 +91,77 @@ public class NeuralNetwork extends MLModel {
             System.out.println("Starting Neural Network training...");
             
             MLDataset dataset = data.getProcessedDataset();
-            List<DataPoint> points = dataset.getDataPoints();
+            FeatureMatrix matrix = dataset.getFeatureMatrix();
             
-            if (points.isEmpty()) {
+            if (matrix.getRowCount() == 0) {
                 return TrainingResult.failure("No training data available");
             }
             
             // Build network architecture
-            buildNetwork(points);
+            buildNetwork(matrix);
+            
+            // Shuffle row indices; the shared matrix itself stays in place
+            int[] order = new int[matrix.getRowCount()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Random shuffleRandom = new Random();
+            
+            // One set of buffers per worker, reused for every batch
+            int workerCount = Math.max(1, Math.min(trainingThreads,
+                                                   (batchSize + MIN_ROWS_PER_THREAD - 1) / MIN_ROWS_PER_THREAD));
+            int rowsPerWorker = (batchSize + workerCount - 1) / workerCount;
+            SplittableRandom dropoutSeeds = new SplittableRandom();
+            BatchWorker[] workers = new BatchWorker[workerCount];
+            for (int w = 0; w < workerCount; w++) {
+                workers[w] = new BatchWorker(rowsPerWorker, dropoutSeeds.split());
+            }
+            ForkJoinPool pool = workerCount > 1 ? new ForkJoinPool(workerCount) : null;
             
             // Training loop
             double bestLoss = Double.MAX_VALUE;
             int epochsCompleted = 0;
             
-            for (int epoch = 0; epoch < epochs; epoch++) {
-                // Shuffle data
-                Collections.shuffle(points);
-                
-                double epochLoss = 0.0;
-                int numBatches = 0;
-                
-                // Mini-batch training
-                for (int i = 0; i < points.size(); i += batchSize) {
-                    int endIdx = Math.min(i + batchSize, points.size());
-                    List<DataPoint> batch = points.subList(i, endIdx);
+            try {
+                for (int epoch = 0; epoch < epochs; epoch++) {
+                    // Shuffle data
+                    shuffle(order, shuffleRandom);
                     
-                    double batchLoss = trainBatch(batch);
-                    epochLoss += batchLoss;
-                    numBatches++;
-                }
-                
-                epochLoss /= numBatches;
-                epochsCompleted = epoch + 1;
-                
-                if (epoch % 10 == 0) {
-                    System.out.println("Epoch " + epoch + ", Loss: " + String.format("%.6f", epochLoss));
+                    double epochLoss = 0.0;
+                    int numBatches = 0;
+                    
+                    // Mini-batch training
+                    for (int i = 0; i < order.length; i += batchSize) {
+                        int endIdx = Math.min(i + batchSize, order.length);
+                        
+                        double batchLoss = trainBatch(matrix, order, i, endIdx, workers, pool);
+                        epochLoss += batchLoss;
+                        numBatches++;
+                    }
+                    
+                    epochLoss /= numBatches;
+                    epochsCompleted = epoch + 1;
+                    
+                    if (epoch % 10 == 0) {
+                        System.out.println("Epoch " + epoch + ", Loss: " + String.format("%.6f", epochLoss));
+                    }
+                    
+                    // Early stopping check
+                    if (epochLoss < bestLoss) {
+                        bestLoss = epochLoss;
+                    } else if (epoch > 20 && epochLoss > bestLoss * 1.1) {
+                        System.out.println("Early stopping at epoch " + epoch);
+                        break;
+                    }
                 }
-                
-                // Early stopping check
-                if (epochLoss < bestLoss) {
-                    bestLoss = epochLoss;
-                } else if (epoch > 20 && epochLoss > bestLoss * 1.1) {
-                    System.out.println("Early stopping at epoch " + epoch);
-                    break;
+            } finally {
+                if (pool != null) {
+                    pool.shutdown();
                 }
             }
             
             // Calculate final metrics
-            ModelMetrics metrics = calculateNetworkMetrics(points);
+            ModelMetrics metrics = calculateNetworkMetrics(matrix);
             
             TrainingResult result = TrainingResult.success("Neural Network training completed", metrics);
             result.setEpochsCompleted(epochsCompleted);
@@ -106,8 +171,9 @@ public class NeuralNetwork extends MLModel {
             Map<String, Object> trainingData = new HashMap<>();
             trainingData.put("layers", layers.size());
             trainingData.put("total_parameters", getTotalParameters());
-            trainingData.put("training_samples", points.size());
+            trainingData.put("training_samples", matrix.getRowCount());
             trainingData.put("final_learning_rate", learningRate);
+            trainingData.put("training_threads", workerCount);
             result.setTrainingData(trainingData);
             
             return result;
@@ -124,14 +190,14 @@ public class NeuralNetwork extends MLModel {
                 return PredictionResult.failure("Model not trained");
             }
             
-            MLDataset dataset = data.getProcessedDataset();
-            List<DataPoint> points = dataset.getDataPoints();
+            FeatureMatrix matrix = data.getProcessedDataset().getFeatureMatrix(trainedSchema);
+            double[] outputs = forwardPass(matrix); // No dropout during prediction
+            double[] output = new double[getOutputSize()];
             
-            List<Prediction> predictions = new ArrayList<>();
+            List<Prediction> predictions = new ArrayList<>(matrix.getRowCount());
             
-            for (DataPoint point : points) {
-                double[] input = extractFeatureVector(point);
-                double[] output = forwardPass(input, false); // No dropout during prediction
+            for (int row = 0; row < matrix.getRowCount(); row++) {
+                System.arraycopy(outputs, row * output.length, output, 0, output.length);
                 
                 Object predictedValue = interpretOutput(output);
                 double confidence = calculateConfidence(output);
@@ -164,19 +230,19 @@ public class NeuralNetwork extends MLModel {
                 return EvaluationResult.failure("Model not trained for evaluation");
             }
             
-            MLDataset dataset = data.getProcessedDataset();
-            List<DataPoint> points = dataset.getDataPoints();
+            FeatureMatrix matrix = data.getProcessedDataset().getFeatureMatrix(trainedSchema);
+            double[] outputs = forwardPass(matrix);
+            double[] output = new double[getOutputSize()];
             
-            List<Object> predictions = new ArrayList<>();
-            List<Object> actuals = new ArrayList<>();
+            List<Object> predictions = new ArrayList<>(matrix.getRowCount());
+            List<Object> actuals = new ArrayList<>(matrix.getRowCount());
             
-            for (DataPoint point : points) {
-                double[] input = extractFeatureVector(point);
-                double[] output = forwardPass(input, false);
+            for (int row = 0; row < matrix.getRowCount(); row++) {
+                System.arraycopy(outputs, row * output.length, output, 0, output.length);
                 
                 Object prediction = interpretOutput(output);
                 predictions.add(prediction);
-                actuals.add(point.getTarget());
+                actuals.add(matrix.getTargetLabel(row));
             }
             
             ModelMetrics metrics = calculateEvaluationMetrics(predictions, actuals);
@@ -186,7 +252,7 @@ public class NeuralNetwork extends MLModel {
             StringBuilder report = new StringBuilder();
             report.append("Neural Network Evaluation Report\n");
             report.append("=================================\n");
-            report.append("Test Samples: ").append(points.size()).append("\n");
+            report.append("Test Samples: ").append(matrix.getRowCount()).append("\n");
             report.append("Network Architecture: ").append(getArchitectureString()).append("\n");
             report.append("Total Parameters: ").append(getTotalParameters()).append("\n");
             report.append("Accuracy: ").append(String.format("%.4f", metrics.getAccuracy())).append("\n");
@@ -240,10 +306,11 @@ public class NeuralNetwork extends MLModel {
         return ValidationResult.success("Neural Network parameters validated");
     }
     
-    private void buildNetwork(List<DataPoint> points) {
+    private void buildNetwork(FeatureMatrix matrix) {
         layers.clear();
         
-        int inputSize = points.get(0).getFeatures().size();
+        int inputSize = matrix.getColumnCount();
+        trainedSchema = matrix.getSchema();
         
         // Input layer
         layers.add(new Layer(inputSize, inputSize, ActivationFunction.LINEAR));
@@ -259,116 +326,238 @@ public class NeuralNetwork extends MLModel {
         }
         
         // Output layer
-        int outputSize = determineOutputSize(points);
+        int outputSize = determineOutputSize(matrix);
         layers.add(new Layer(prevSize, outputSize, ActivationFunction.SIGMOID));
         
         System.out.println("Built network with architecture: " + getArchitectureString());
     }
     
-    private int determineOutputSize(List<DataPoint> points) {
+    private int determineOutputSize(FeatureMatrix matrix) {
         if (modelType == ModelType.CLASSIFICATION) {
-            Set<Object> uniqueClasses = new HashSet<>();
-            for (DataPoint point : points) {
-                uniqueClasses.add(point.getTarget());
-            }
-            return Math.max(1, uniqueClasses.size());
+            return Math.max(1, matrix.getClassLabels().size());
         } else {
             return 1; // Regression
         }
     }
     
-    private double trainBatch(List<DataPoint> batch) {
-        double totalLoss = 0.0;
-        
-        for (DataPoint point : batch) {
-            double[] input = extractFeatureVector(point);
-            double[] target = createTargetVector(point);
-            
-            // Forward pass
-            double[] output = forwardPass(input, true); // With dropout
-            
-            // Calculate loss
-            double loss = calculateLoss(output, target);
-            totalLoss += loss;
-            
-            // Backward pass
-            backwardPass(target, output);
+    private double trainBatch(FeatureMatrix matrix, int[] order, int from, int to,
+                              BatchWorker[] workers, ForkJoinPool pool) {
+        int rows = to - from;
+        // Fixed-size slices, so no worker is handed more rows than its buffers hold;
+        // a short final batch simply uses fewer workers
+        int rowsPerWorker = workers[0].capacity;
+        int active = (rows + rowsPerWorker - 1) / rowsPerWorker;
+        double totalLoss;
+        
+        // Forward and backward passes, one slice of the batch per worker
+        if (active == 1) {
+            totalLoss = workers[0].computeGradients(matrix, order, from, to);
+        } else {
+            List<ForkJoinTask<Double>> tasks = new ArrayList<>(active - 1);
+            for (int w = 1; w < active; w++) {
+                BatchWorker worker = workers[w];
+                int sliceFrom = from + w * rowsPerWorker;
+                int sliceTo = Math.min(to, sliceFrom + rowsPerWorker);
+                tasks.add(pool.submit(() -> worker.computeGradients(matrix, order, sliceFrom, sliceTo)));
+            }
+            totalLoss = workers[0].computeGradients(matrix, order, from, from + rowsPerWorker);
+            for (ForkJoinTask<Double> task : tasks) {
+                totalLoss += task.join();
+            }
         }
         
-        // Update weights
-        updateWeights();
+        // Reduce gradients into the first worker, then update weights once for the batch
+        for (int l = 0; l < layers.size(); l++) {
+            double[] weightGradient = workers[0].weightGradients[l];
+            double[] biasGradient = workers[0].biasGradients[l];
+            for (int w = 1; w < active; w++) {
+                Layer.accumulate(weightGradient, workers[w].weightGradients[l]);
+                Layer.accumulate(biasGradient, workers[w].biasGradients[l]);
+            }
+            layers.get(l).applyGradients(weightGradient, biasGradient, learningRate / rows);
+        }
         
-        return totalLoss / batch.size();
+        return totalLoss / rows;
     }
     
-    private double[] forwardPass(double[] input, boolean training) {
-        double[] current = input.clone();
+    /**
+     * Runs the network without dropout over every row, returning outputs row-major.
+     */
+    private double[] forwardPass(FeatureMatrix matrix) {
+        matrix.checkSchema(trainedSchema);
+        int rows = matrix.getRowCount();
+        int outputSize = getOutputSize();
+        double[] outputs = new double[rows * outputSize];
+        BatchWorker worker = new BatchWorker(Math.min(rows, INFERENCE_BLOCK_ROWS), null);
         
-        for (int i = 0; i < layers.size(); i++) {
-            Layer layer = layers.get(i);
-            current = layer.forward(current);
-            
-            // Apply dropout during training (except output layer)
-            if (training && i < layers.size() - 1 && dropoutRate > 0) {
-                current = applyDropout(current, dropoutRate);
-            }
+        for (int from = 0; from < rows; from += INFERENCE_BLOCK_ROWS) {
+            int to = Math.min(rows, from + INFERENCE_BLOCK_ROWS);
+            double[] block = worker.forward(matrix, null, from, to, false);
+            System.arraycopy(block, 0, outputs, from * outputSize, (to - from) * outputSize);
         }
         
-        return current;
+        return outputs;
     }
     
-    private void backwardPass(double[] target, double[] output) {
-        // Calculate output layer error
-        double[] error = new double[output.length];
-        for (int i = 0; i < output.length; i++) {
-            error[i] = target[i] - output[i];
+    private int getOutputSize() {
+        return layers.get(layers.size() - 1).getOutputSize();
+    }
+    
+    /**
+     * Per-thread activation, dropout mask and gradient buffers, sized for a fixed number of rows
+     *
+     * activations hold each layer's output before dropout, which backprop needs for the
+     * activation derivative; the masked copy fed to the next layer goes to dropped.
+     */
+    private class BatchWorker {
+        final int capacity;
+        final SplittableRandom random;
+        final double[] input;
+        final double[][] activations;
+        final double[][] dropped;
+        final double[][] dropoutMasks;
+        final double[][] deltas;
+        final double[] targets;
+        final double[][] weightGradients;
+        final double[][] biasGradients;
+        final Layer.Scratch scratch;
+        
+        BatchWorker(int capacity, SplittableRandom random) {
+            this.capacity = Math.max(1, capacity);
+            this.random = random;
+            int layerCount = layers.size();
+            this.input = new double[this.capacity * layers.get(0).getInputSize()];
+            this.activations = new double[layerCount][];
+            this.dropped = new double[layerCount][];
+            this.dropoutMasks = new double[layerCount][];
+            this.deltas = new double[layerCount][];
+            this.weightGradients = new double[layerCount][];
+            this.biasGradients = new double[layerCount][];
+            for (int l = 0; l < layerCount; l++) {
+                Layer layer = layers.get(l);
+                activations[l] = new double[this.capacity * layer.getOutputSize()];
+                if (random != null) {
+                    if (dropoutRate > 0 && l < layerCount - 1) {
+                        dropped[l] = new double[this.capacity * layer.getOutputSize()];
+                    }
+                    dropoutMasks[l] = new double[this.capacity * layer.getOutputSize()];
+                    deltas[l] = new double[this.capacity * layer.getOutputSize()];
+                    weightGradients[l] = new double[layer.getInputSize() * layer.getOutputSize()];
+                    biasGradients[l] = new double[layer.getOutputSize()];
+                }
+            }
+            this.targets = new double[this.capacity * getOutputSize()];
+            int maxWidth = layers.get(0).getInputSize();
+            for (Layer layer : layers) {
+                maxWidth = Math.max(maxWidth, layer.getOutputSize());
+            }
+            this.scratch = new Layer.Scratch(maxWidth);
+        }
+        
+        /**
+         * Gathers rows order[from, to) (or from, to) into the input buffer and forwards them.
+         */
+        double[] forward(FeatureMatrix matrix, int[] order, int from, int to, boolean training) {
+            int rows = to - from;
+            int columns = matrix.getColumnCount();
+            for (int r = 0; r < rows; r++) {
+                matrix.copyRow(order != null ? order[from + r] : from + r, input, r * columns);
+            }
+            
+            double[] current = input;
+            for (int l = 0; l < layers.size(); l++) {
+                Layer layer = layers.get(l);
+                layer.forward(current, rows, activations[l], scratch);
+                current = activations[l];
+                
+                // Apply dropout during training (except output layer)
+                if (training && l < layers.size() - 1 && dropoutRate > 0) {
+                    applyDropout(current, dropped[l], dropoutMasks[l], rows * layer.getOutputSize(), dropoutRate);
+                    current = dropped[l];
+                }
+            }
+            return current;
+        }
+        
+        /**
+         * Sets this worker's gradients for rows order[from, to) and returns their summed loss.
+         */
+        double computeGradients(FeatureMatrix matrix, int[] order, int from, int to) {
+            int rows = to - from;
+            double[] output = forward(matrix, order, from, to, true);
+            int outputSize = getOutputSize();
+            for (int r = 0; r < rows; r++) {
+                fillTargetVector(matrix, order[from + r], targets, r * outputSize);
+            }
+            
+            // Output error, as the derivative of squared error with respect to the output
+            int last = layers.size() - 1;
+            double[] delta = deltas[last];
+            double loss = 0.0;
+            for (int r = 0; r < rows; r++) {
+                double rowLoss = 0.0;
+                for (int i = r * outputSize; i < (r + 1) * outputSize; i++) {
+                    double error = output[i] - targets[i];
+                    rowLoss += error * error;
+                    delta[i] = error;
+                }
+                loss += rowLoss / outputSize;
+            }
+            
+            // Backpropagate error through layers
+            for (int l = last; l >= 0; l--) {
+                Layer layer = layers.get(l);
+                double[] layerInput = l == 0 ? input : dropoutRate > 0 ? dropped[l - 1] : activations[l - 1];
+                double[] inputDelta = l > 0 ? deltas[l - 1] : null;
+                layer.backward(layerInput, activations[l], deltas[l], rows, inputDelta,
+                               weightGradients[l], biasGradients[l], scratch);
+                if (inputDelta != null && dropoutRate > 0) {
+                    // Dropped units pass no gradient; kept ones carry the dropout scale
+                    double[] mask = dropoutMasks[l - 1];
+                    for (int i = 0; i < rows * layers.get(l - 1).getOutputSize(); i++) {
+                        inputDelta[i] *= mask[i];
+                    }
+                }
+            }
+            
+            return loss;
         }
         
-        // Backpropagate error through layers
-        for (int i = layers.size() - 1; i >= 0; i--) {
-            Layer layer = layers.get(i);
-            error = layer.backward(error, learningRate);
+        private void applyDropout(double[] values, double[] out, double[] mask, int length, double rate) {
+            double scale = 1.0 / (1.0 - rate); // Scale to maintain expected value
+            for (int i = 0; i < length; i++) {
+                mask[i] = random.nextDouble() > rate ? scale : 0.0;
+                out[i] = values[i] * mask[i];
+            }
         }
     }
     
-    private void updateWeights() {
-        for (Layer layer : layers) {
-            layer.updateWeights();
+    private static void shuffle(int[] order, Random random) {
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
         }
     }
     
-    private double[] extractFeatureVector(DataPoint point) {
-        Map<String, Object> features = point.getFeatures();
-        double[] vector = new double[features.size()];
+    private void fillTargetVector(FeatureMatrix matrix, int row, double[] target, int offset) {
+        double targetValue = matrix.getTargets()[row];
         
-        int i = 0;
-        for (Object value : features.values()) {
-            vector[i++] = value instanceof Number ? ((Number) value).doubleValue() : 0.0;
-        }
-        
-        return vector;
-    }
-    
-    private double[] createTargetVector(DataPoint point) {
         if (modelType == ModelType.CLASSIFICATION) {
             // One-hot encoding for classification
-            int outputSize = layers.get(layers.size() - 1).getOutputSize();
-            double[] target = new double[outputSize];
+            int outputSize = getOutputSize();
+            Arrays.fill(target, offset, offset + outputSize, 0.0);
             
             // Simplified: assume target is class index
-            int classIndex = point.getTarget() instanceof Number ? 
-                ((Number) point.getTarget()).intValue() : 0;
+            int classIndex = Double.isNaN(targetValue) ? 0 : (int) targetValue;
             
             if (classIndex >= 0 && classIndex < outputSize) {
-                target[classIndex] = 1.0;
+                target[offset + classIndex] = 1.0;
             }
-            
-            return target;
         } else {
             // Regression
-            double targetValue = point.getTarget() instanceof Number ? 
-                ((Number) point.getTarget()).doubleValue() : 0.0;
-            return new double[]{targetValue};
+            target[offset] = Double.isNaN(targetValue) ? 0.0 : targetValue;
         }
     }
     
@@ -411,40 +600,28 @@ public class NeuralNetwork extends MLModel {
         return loss / output.length;
     }
     
-    private double[] applyDropout(double[] input, double rate) {
-        double[] output = new double[input.length];
-        Random random = new Random();
-        
-        for (int i = 0; i < input.length; i++) {
-            if (random.nextDouble() > rate) {
-                output[i] = input[i] / (1.0 - rate); // Scale to maintain expected value
-            } else {
-                output[i] = 0.0;
-            }
-        }
-        
-        return output;
-    }
-    
-    private ModelMetrics calculateNetworkMetrics(List<DataPoint> points) {
+    private ModelMetrics calculateNetworkMetrics(FeatureMatrix matrix) {
         int correct = 0;
         double totalLoss = 0.0;
+        int rows = matrix.getRowCount();
+        double[] outputs = forwardPass(matrix);
+        double[] output = new double[getOutputSize()];
+        double[] target = new double[output.length];
         
-        for (DataPoint point : points) {
-            double[] input = extractFeatureVector(point);
-            double[] output = forwardPass(input, false);
-            double[] target = createTargetVector(point);
+        for (int row = 0; row < rows; row++) {
+            System.arraycopy(outputs, row * output.length, output, 0, output.length);
+            fillTargetVector(matrix, row, target, 0);
             
             totalLoss += calculateLoss(output, target);
             
             Object prediction = interpretOutput(output);
-            if (prediction.equals(point.getTarget())) {
+            if (prediction.equals(matrix.getTargetLabel(row))) {
                 correct++;
             }
         }
         
-        double accuracy = (double) correct / points.size();
-        double avgLoss = totalLoss / points.size();
+        double accuracy = (double) correct / rows;
+        double avgLoss = totalLoss / rows;
         
         ModelMetrics metrics = new ModelMetrics();
         metrics.setAccuracy(accuracy);
@@ -509,14 +686,25 @@ enum ActivationFunction {
 }
 
 // Neural network layer class
+/**
+ * Fully connected layer over row-major batches
+ *
+ * Weights are one flat array in input-major order: weights[j * outputSize + i]
+ * connects input j to output i. A transposed copy serves the input gradient.
+ * Work is blocked over rows: for each block, a weight row is packed into a scratch
+ * panel once and reused for every row in the block, and the block's rows are
+ * worked on in zero-offset scratch rows. The innermost loops then index both
+ * arrays identically, which is the form the JIT compiles to SIMD instructions.
+ */
 class Layer {
+    static final int ROW_BLOCK = 32;
+    
     private int inputSize;
     private int outputSize;
     private ActivationFunction activation;
-    private double[][] weights;
+    private double[] weights;
+    private double[] weightsByOutput;
     private double[] biases;
-    private double[] lastInput;
-    private double[] lastOutput;
     private Random random;
     
     public Layer(int inputSize, int outputSize, ActivationFunction activation) {
@@ -529,97 +717,187 @@ class Layer {
     }
     
     private void initializeWeights() {
-        weights = new double[outputSize][inputSize];
+        weights = new double[inputSize * outputSize];
+        weightsByOutput = new double[inputSize * outputSize];
         biases = new double[outputSize];
         
         // Xavier initialization
         double scale = Math.sqrt(2.0 / (inputSize + outputSize));
         
-        for (int i = 0; i < outputSize; i++) {
-            for (int j = 0; j < inputSize; j++) {
-                weights[i][j] = random.nextGaussian() * scale;
-            }
-            biases[i] = 0.0;
-        }
-    }
-    
-    public double[] forward(double[] input) {
-        this.lastInput = input.clone();
-        double[] output = new double[outputSize];
-        
-        // Linear transformation
-        for (int i = 0; i < outputSize; i++) {
-            output[i] = biases[i];
-            for (int j = 0; j < inputSize; j++) {
-                output[i] += weights[i][j] * input[j];
-            }
-        }
-        
-        // Apply activation function
-        for (int i = 0; i < outputSize; i++) {
-            output[i] = applyActivation(output[i]);
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = random.nextGaussian() * scale;
         }
-        
-        this.lastOutput = output.clone();
-        return output;
+        transposeWeights();
     }
     
-    public double[] backward(double[] error, double learningRate) {
-        // Calculate gradients
-        double[] inputError = new double[inputSize];
-        
-        // Apply activation derivative
-        for (int i = 0; i < outputSize; i++) {
-            error[i] *= activationDerivative(lastOutput[i]);
-        }
+    /**
+     * Writes activation(input x weights + biases) for rows of input into output, both row-major.
+     */
+    public void forward(double[] input, int rows, double[] output, Scratch scratch) {
+        double[][] block = scratch.rows;
+        double[] panel = scratch.panel;
         
-        // Calculate input error for previous layer
-        for (int j = 0; j < inputSize; j++) {
-            for (int i = 0; i < outputSize; i++) {
-                inputError[j] += error[i] * weights[i][j];
+        for (int r0 = 0; r0 < rows; r0 += ROW_BLOCK) {
+            int count = Math.min(ROW_BLOCK, rows - r0);
+            
+            // Start from the biases
+            for (int b = 0; b < count; b++) {
+                System.arraycopy(biases, 0, block[b], 0, outputSize);
             }
-        }
-        
-        // Update weights and biases
-        for (int i = 0; i < outputSize; i++) {
-            biases[i] += learningRate * error[i];
+            
+            // Linear transformation, one packed weight row at a time
             for (int j = 0; j < inputSize; j++) {
-                weights[i][j] += learningRate * error[i] * lastInput[j];
+                System.arraycopy(weights, j * outputSize, panel, 0, outputSize);
+                for (int b = 0; b < count; b++) {
+                    double x = input[(r0 + b) * inputSize + j];
+                    if (x == 0.0) {
+                        continue; // Common after ReLU and dropout
+                    }
+                    double[] accumulator = block[b];
+                    for (int i = 0; i < outputSize; i++) {
+                        accumulator[i] += x * panel[i];
+                    }
+                }
+            }
+            
+            // Apply activation function
+            for (int b = 0; b < count; b++) {
+                activate(block[b]);
+                System.arraycopy(block[b], 0, output, (r0 + b) * outputSize, outputSize);
             }
         }
-        
-        return inputError;
     }
     
-    public void updateWeights() {
-        // Weights are updated in backward pass
-    }
-    
-    private double applyActivation(double x) {
+    private void activate(double[] values) {
         switch (activation) {
             case SIGMOID:
-                return 1.0 / (1.0 + Math.exp(-x));
+                for (int i = 0; i < outputSize; i++) values[i] = 1.0 / (1.0 + Math.exp(-values[i]));
+                break;
             case RELU:
-                return Math.max(0, x);
+                for (int i = 0; i < outputSize; i++) values[i] = Math.max(0.0, values[i]);
+                break;
             case TANH:
-                return Math.tanh(x);
+                for (int i = 0; i < outputSize; i++) values[i] = Math.tanh(values[i]);
+                break;
             case LINEAR:
             default:
-                return x;
+                break;
+        }
+    }
+    
+    /**
+     * Backpropagates a batch. delta holds the loss gradient with respect to this layer's
+     * output and is turned into the gradient before activation in place. Weight and bias
+     * gradients are summed over the rows into weightGradient and biasGradient, and the
+     * gradient for the layer's input is written to inputDelta unless it is null.
+     */
+    public void backward(double[] input, double[] output, double[] delta, int rows, double[] inputDelta,
+                         double[] weightGradient, double[] biasGradient, Scratch scratch) {
+        double[][] deltaRows = scratch.rows;
+        double[][] inputRows = scratch.inputRows;
+        double[] panel = scratch.panel;
+        Arrays.fill(weightGradient, 0.0);
+        Arrays.fill(biasGradient, 0.0);
+        
+        for (int r0 = 0; r0 < rows; r0 += ROW_BLOCK) {
+            int count = Math.min(ROW_BLOCK, rows - r0);
+            
+            // Pack the block's deltas, applying the activation derivative
+            for (int b = 0; b < count; b++) {
+                double[] d = deltaRows[b];
+                System.arraycopy(delta, (r0 + b) * outputSize, d, 0, outputSize);
+                System.arraycopy(output, (r0 + b) * outputSize, panel, 0, outputSize);
+                applyActivationDerivative(d, panel);
+                for (int i = 0; i < outputSize; i++) {
+                    biasGradient[i] += d[i];
+                }
+            }
+            
+            // Weight gradients: input^T x delta, one weight row at a time
+            for (int j = 0; j < inputSize; j++) {
+                Arrays.fill(panel, 0, outputSize, 0.0);
+                for (int b = 0; b < count; b++) {
+                    double x = input[(r0 + b) * inputSize + j];
+                    if (x == 0.0) {
+                        continue;
+                    }
+                    double[] d = deltaRows[b];
+                    for (int i = 0; i < outputSize; i++) {
+                        panel[i] += x * d[i];
+                    }
+                }
+                int offset = j * outputSize;
+                for (int i = 0; i < outputSize; i++) {
+                    weightGradient[offset + i] += panel[i];
+                }
+            }
+            
+            // Calculate input error for previous layer: delta x weights^T
+            if (inputDelta != null) {
+                for (int b = 0; b < count; b++) {
+                    Arrays.fill(inputRows[b], 0, inputSize, 0.0);
+                }
+                for (int i = 0; i < outputSize; i++) {
+                    System.arraycopy(weightsByOutput, i * inputSize, panel, 0, inputSize);
+                    for (int b = 0; b < count; b++) {
+                        double d = deltaRows[b][i];
+                        if (d == 0.0) {
+                            continue;
+                        }
+                        double[] accumulator = inputRows[b];
+                        for (int j = 0; j < inputSize; j++) {
+                            accumulator[j] += d * panel[j];
+                        }
+                    }
+                }
+                for (int b = 0; b < count; b++) {
+                    System.arraycopy(inputRows[b], 0, inputDelta, (r0 + b) * inputSize, inputSize);
+                }
+            }
         }
     }
     
-    private double activationDerivative(double output) {
+    private void applyActivationDerivative(double[] delta, double[] output) {
         switch (activation) {
             case SIGMOID:
-                return output * (1.0 - output);
+                for (int i = 0; i < outputSize; i++) delta[i] *= output[i] * (1.0 - output[i]);
+                break;
             case RELU:
-                return output > 0 ? 1.0 : 0.0;
+                for (int i = 0; i < outputSize; i++) delta[i] = output[i] > 0 ? delta[i] : 0.0;
+                break;
             case TANH:
-                return 1.0 - output * output;
+                for (int i = 0; i < outputSize; i++) delta[i] *= 1.0 - output[i] * output[i];
+                break;
             case LINEAR:
             default:
-                return 1.0;
+                break;
+        }
+    }
+    
+    /**
+     * Gradient descent step: parameters -= scale * gradient.
+     */
+    public void applyGradients(double[] weightGradient, double[] biasGradient, double scale) {
+        for (int k = 0; k < weights.length; k++) {
+            weights[k] -= scale * weightGradient[k];
+        }
+        for (int i = 0; i < outputSize; i++) {
+            biases[i] -= scale * biasGradient[i];
+        }
+        transposeWeights();
+    }
+    
+    private void transposeWeights() {
+        for (int j = 0; j < inputSize; j++) {
+            for (int i = 0; i < outputSize; i++) {
+                weightsByOutput[i * inputSize + j] = weights[j * outputSize + i];
+            }
+        }
+    }
+    
+    static void accumulate(double[] target, double[] source) {
+        for (int k = 0; k < target.length; k++) {
+            target[k] += source[k];
         }
     }
     
@@ -627,4 +905,19 @@ class Layer {
     public int getOutputSize() { return outputSize; }
     public int getParameterCount() { return outputSize * (inputSize + 1); }
     public ActivationFunction getActivation() { return activation; }
+    
+    /**
+     * Per-thread packing buffers, sized for the widest layer of a network
+     */
+    static class Scratch {
+        final double[][] rows;
+        final double[][] inputRows;
+        final double[] panel;
+        
+        Scratch(int maxWidth) {
+            this.rows = new double[ROW_BLOCK][maxWidth];
+            this.inputRows = new double[ROW_BLOCK][maxWidth];
+            this.panel = new double[maxWidth];
+        }
+    }
 }
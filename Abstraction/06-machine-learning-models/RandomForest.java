@@ -1,27 +1,52 @@
 package abstraction.machinelearning;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Random Forest implementation of MLModel
+ *
+ * Features are binned into quantile histograms once per training run, and trees
+ * then train in parallel on a ForkJoinPool. Each tree draws its bootstrap sample,
+ * feature subset and split candidates from its own SplittableRandom, so a forest
+ * is reproducible for a given random_seed regardless of thread scheduling. After
+ * training the trees are compiled into a CompiledForest, which serves prediction,
+ * evaluation and out-of-bag scoring from flat primitive arrays.
  */
 public class RandomForest extends MLModel {
     
     private List<DecisionTree> trees;
+    private volatile CompiledForest compiledForest;
     private int numTrees;
     private int maxDepth;
     private int minSamplesLeaf;
     private double featureSubsetRatio;
-    private Random random;
+    private int maxBins;
+    private SplitCriterion splitCriterion;
+    private int trainingParallelism;
+    private long randomSeed;
     
     public RandomForest(String modelId, String modelName, Map<String, Object> configuration) {
         super(modelId, modelName, ModelType.CLASSIFICATION, configuration);
+        configure();
+    }
         
+    @Override
+    protected void configure() {
         this.numTrees = (Integer) configuration.getOrDefault("num_trees", 100);
         this.maxDepth = (Integer) configuration.getOrDefault("max_depth", 10);
         this.minSamplesLeaf = (Integer) configuration.getOrDefault("min_samples_leaf", 1);
         this.featureSubsetRatio = (Double) configuration.getOrDefault("feature_subset_ratio", 0.8);
-        this.random = new Random(42);
+        this.maxBins = (Integer) configuration.getOrDefault("max_bins", 64);
+        this.splitCriterion = SplitCriterion.valueOf(
+            configuration.getOrDefault("split_criterion", "GINI").toString().toUpperCase()
+        );
+        this.trainingParallelism = (Integer) configuration.getOrDefault("training_parallelism",
+                                                                        Runtime.getRuntime().availableProcessors());
+        this.randomSeed = ((Number) configuration.getOrDefault("random_seed", 42L)).longValue();
     }
     
     @Override
@@ -38,7 +63,23 @@ public class RandomForest extends MLModel {
     
     @Override
     protected HyperparameterTuner createHyperparameterTuner() {
-        return new GridSearchTuner(configuration);
+        return HyperparameterTuner.create(configuration);
+    }
+    
+    @Override
+    protected SearchSpace createSearchSpace() {
+        return new SearchSpace()
+            .add("max_depth", 6, 10, 16)
+            .add("min_samples_leaf", 1, 5)
+            .add("feature_subset_ratio", 0.5, 0.8)
+            .budget("num_trees", numTrees);
+    }
+    
+    @Override
+    protected MLModel createTrialModel(Map<String, Object> configuration, int threads) {
+        Map<String, Object> trialConfiguration = new HashMap<>(configuration);
+        trialConfiguration.put("training_parallelism", threads);
+        return new RandomForest(modelId + "-trial", modelName, trialConfiguration);
     }
     
     @Override
@@ -47,35 +88,48 @@ public class RandomForest extends MLModel {
             System.out.println("Starting Random Forest training with " + numTrees + " trees...");
             
             MLDataset dataset = data.getProcessedDataset();
-            List<DataPoint> points = dataset.getDataPoints();
+            FeatureMatrix matrix = dataset.getFeatureMatrix();
             
-            if (points.isEmpty()) {
+            if (matrix.getRowCount() == 0) {
                 return TrainingResult.failure("No training data available");
             }
             
             trees.clear();
+            compiledForest = null;
             
-            // Train each tree with bootstrap sampling
-            for (int i = 0; i < numTrees; i++) {
-                // Bootstrap sampling
-                List<DataPoint> bootstrapSample = createBootstrapSample(points);
-                
-                // Feature subsampling
-                List<String> selectedFeatures = selectRandomFeatures(dataset.getFeatures());
-                
-                // Train decision tree
-                DecisionTree tree = new DecisionTree(maxDepth, minSamplesLeaf, selectedFeatures);
-                tree.train(bootstrapSample);
-                trees.add(tree);
+            ForkJoinPool pool = new ForkJoinPool(Math.max(1, trainingParallelism));
+            ModelMetrics metrics;
+            try {
+                // Bin every feature once; all trees share the binned columns
+                FeatureBins bins = FeatureBins.build(matrix, maxBins, pool);
                 
-                if ((i + 1) % 20 == 0) {
-                    System.out.println("Trained " + (i + 1) + "/" + numTrees + " trees");
+                // Seeds are drawn up front so each tree is independent of scheduling order
+                SplittableRandom seeds = new SplittableRandom(randomSeed);
+                AtomicInteger trained = new AtomicInteger();
+                List<ForkJoinTask<DecisionTree>> tasks = new ArrayList<>(numTrees);
+                for (int i = 0; i < numTrees; i++) {
+                    DecisionTree tree = new DecisionTree(maxDepth, minSamplesLeaf, featureSubsetRatio,
+                                                         splitCriterion, seeds.nextLong());
+                    tasks.add(pool.submit(() -> {
+                        tree.train(matrix, bins);
+                        int done = trained.incrementAndGet();
+                        if (done % 20 == 0) {
+                            System.out.println("Trained " + done + "/" + numTrees + " trees");
+                        }
+                        return tree;
+                    }));
                 }
+                for (ForkJoinTask<DecisionTree> task : tasks) {
+                    trees.add(task.join());
+                }
+                compiledForest = CompiledForest.compile(trees, matrix.getSchema(), matrix.getClassLabels());
+                
+                // Calculate training metrics using out-of-bag samples
+                metrics = calculateOOBMetrics(matrix, pool);
+            } finally {
+                pool.shutdown();
             }
             
-            // Calculate training metrics using out-of-bag samples
-            ModelMetrics metrics = calculateOOBMetrics(points);
-            
             TrainingResult result = TrainingResult.success("Random Forest training completed", metrics);
             result.setEpochsCompleted(numTrees);
             result.setConverged(true);
@@ -84,8 +138,11 @@ public class RandomForest extends MLModel {
             Map<String, Object> trainingData = new HashMap<>();
             trainingData.put("num_trees", numTrees);
             trainingData.put("max_depth", maxDepth);
-            trainingData.put("training_samples", points.size());
+            trainingData.put("training_samples", matrix.getRowCount());
             trainingData.put("feature_subset_ratio", featureSubsetRatio);
+            trainingData.put("max_bins", maxBins);
+            trainingData.put("split_criterion", splitCriterion.name());
+            trainingData.put("total_nodes", compiledForest.getNodeCount());
             result.setTrainingData(trainingData);
             
             return result;
@@ -98,47 +155,40 @@ public class RandomForest extends MLModel {
     @Override
     protected PredictionResult performCorePrediction(PredictionRequest request, ProcessedData data) {
         try {
-            if (trees.isEmpty()) {
+            CompiledForest forest = compiledForest;
+            if (forest == null) {
                 return PredictionResult.failure("Model not trained");
             }
             
-            MLDataset dataset = data.getProcessedDataset();
-            List<DataPoint> points = dataset.getDataPoints();
+            FeatureMatrix matrix = data.getProcessedDataset().getFeatureMatrix(forest.getSchema());
             
-            List<Prediction> predictions = new ArrayList<>();
+            // Get votes from all trees for the whole batch
+            int[] votes = forest.vote(matrix);
+            int numClasses = forest.getClassCount();
+            int treeCount = forest.getTreeCount();
             
-            for (DataPoint point : points) {
-                // Get predictions from all trees
-                Map<Object, Integer> votes = new HashMap<>();
-                
-                for (DecisionTree tree : trees) {
-                    Object treePrediction = tree.predict(point);
-                    votes.put(treePrediction, votes.getOrDefault(treePrediction, 0) + 1);
-                }
-                
+            List<Prediction> predictions = new ArrayList<>(matrix.getRowCount());
+            
+            for (int row = 0; row < matrix.getRowCount(); row++) {
                 // Majority voting
-                Object finalPrediction = null;
-                int maxVotes = 0;
-                
-                for (Map.Entry<Object, Integer> entry : votes.entrySet()) {
-                    if (entry.getValue() > maxVotes) {
-                        maxVotes = entry.getValue();
-                        finalPrediction = entry.getKey();
-                    }
-                }
+                int offset = row * numClasses;
+                int winner = CompiledForest.majority(votes, offset, numClasses);
+                int maxVotes = winner >= 0 ? votes[offset + winner] : 0;
                 
                 // Calculate confidence as vote ratio
-                double confidence = (double) maxVotes / trees.size();
+                double confidence = (double) maxVotes / treeCount;
                 
-                Prediction prediction = new Prediction(finalPrediction, confidence);
+                Prediction prediction = new Prediction(forest.getClassLabel(winner), confidence);
                 
                 // Add class probabilities if requested
                 if (request.isIncludeProbabilities()) {
                     Map<String, Double> probabilities = new HashMap<>();
-                    for (Map.Entry<Object, Integer> entry : votes.entrySet()) {
-                        String className = entry.getKey().toString();
-                        double probability = (double) entry.getValue() / trees.size();
-                        probabilities.put(className, probability);
+                    for (int c = 0; c < numClasses; c++) {
+                        if (votes[offset + c] > 0) {
+                            String className = String.valueOf(forest.getClassLabel(c));
+                            double probability = (double) votes[offset + c] / treeCount;
+                            probabilities.put(className, probability);
+                        }
                     }
                     prediction.setProbabilities(probabilities);
                 }
@@ -156,21 +206,23 @@ public class RandomForest extends MLModel {
     @Override
     protected EvaluationResult performModelEvaluation(EvaluationRequest request, ProcessedData data) {
         try {
-            if (trees.isEmpty()) {
+            CompiledForest forest = compiledForest;
+            if (forest == null) {
                 return EvaluationResult.failure("Model not trained for evaluation");
             }
             
-            MLDataset dataset = data.getProcessedDataset();
-            List<DataPoint> points = dataset.getDataPoints();
+            FeatureMatrix matrix = data.getProcessedDataset().getFeatureMatrix(forest.getSchema());
             
             // Make predictions
-            List<Object> predictions = new ArrayList<>();
-            List<Object> actuals = new ArrayList<>();
+            int[] votes = forest.vote(matrix);
+            int numClasses = forest.getClassCount();
+            List<Object> predictions = new ArrayList<>(matrix.getRowCount());
+            List<Object> actuals = new ArrayList<>(matrix.getRowCount());
             
-            for (DataPoint point : points) {
-                Object prediction = predictSingle(point);
+            for (int row = 0; row < matrix.getRowCount(); row++) {
+                Object prediction = forest.getClassLabel(CompiledForest.majority(votes, row * numClasses, numClasses));
                 predictions.add(prediction);
-                actuals.add(point.getTarget());
+                actuals.add(matrix.getTargetLabel(row));
             }
             
             // Calculate evaluation metrics
@@ -182,7 +234,7 @@ public class RandomForest extends MLModel {
             StringBuilder report = new StringBuilder();
             report.append("Random Forest Evaluation Report\n");
             report.append("================================\n");
-            report.append("Test Samples: ").append(points.size()).append("\n");
+            report.append("Test Samples: ").append(matrix.getRowCount()).append("\n");
             report.append("Number of Trees: ").append(trees.size()).append("\n");
             report.append("Accuracy: ").append(String.format("%.4f", metrics.getAccuracy())).append("\n");
             report.append("Precision: ").append(String.format("%.4f", metrics.getPrecision())).append("\n");
@@ -216,6 +268,13 @@ public class RandomForest extends MLModel {
             }
         }
         
+        if (parameters.containsKey("max_bins")) {
+            int bins = (Integer) parameters.get("max_bins");
+            if (bins < 2 || bins > FeatureBins.MAX_BINS) {
+                issues.add("Max bins must be between 2 and " + FeatureBins.MAX_BINS);
+            }
+        }
+        
         if (parameters.containsKey("feature_subset_ratio")) {
             double ratio = (Double) parameters.get("feature_subset_ratio");
             if (ratio <= 0 || ratio > 1) {
@@ -230,55 +289,52 @@ public class RandomForest extends MLModel {
         return ValidationResult.success("Random Forest parameters validated");
     }
     
-    private List<DataPoint> createBootstrapSample(List<DataPoint> originalData) {
-        List<DataPoint> bootstrapSample = new ArrayList<>();
-        int sampleSize = originalData.size();
-        
-        for (int i = 0; i < sampleSize; i++) {
-            int randomIndex = random.nextInt(sampleSize);
-            bootstrapSample.add(originalData.get(randomIndex));
-        }
-        
-        return bootstrapSample;
-    }
-    
-    private List<String> selectRandomFeatures(List<String> allFeatures) {
-        int numFeaturesToSelect = Math.max(1, (int) (allFeatures.size() * featureSubsetRatio));
-        List<String> shuffledFeatures = new ArrayList<>(allFeatures);
-        Collections.shuffle(shuffledFeatures, random);
-        
-        return shuffledFeatures.subList(0, numFeaturesToSelect);
-    }
-    
-    private Object predictSingle(DataPoint point) {
-        Map<Object, Integer> votes = new HashMap<>();
-        
-        for (DecisionTree tree : trees) {
-            Object treePrediction = tree.predict(point);
-            votes.put(treePrediction, votes.getOrDefault(treePrediction, 0) + 1);
+    private ModelMetrics calculateOOBMetrics(FeatureMatrix trainingData, ForkJoinPool pool) {
+        // Each tree votes only on rows left out of its bootstrap sample
+        CompiledForest forest = compiledForest;
+        int rows = trainingData.getRowCount();
+        int numClasses = forest.getClassCount();
+        int[] classIds = trainingData.getClassIds();
+        double[] values = trainingData.getValues();
+        int groups = Math.max(1, Math.min(trees.size(), pool.getParallelism()));
+        
+        List<ForkJoinTask<int[]>> tasks = new ArrayList<>(groups);
+        for (int g = 0; g < groups; g++) {
+            int from = g * trees.size() / groups;
+            int to = (g + 1) * trees.size() / groups;
+            tasks.add(pool.submit(() -> {
+                int[] votes = new int[rows * numClasses];
+                for (int t = from; t < to; t++) {
+                    int[] inBag = trees.get(t).bootstrapCounts(rows);
+                    for (int row = 0; row < rows; row++) {
+                        if (inBag[row] == 0) {
+                            int predicted = forest.predictTree(t, values, trainingData.rowOffset(row));
+                            if (predicted >= 0) {
+                                votes[row * numClasses + predicted]++;
+                            }
+                        }
+                    }
+                }
+                return votes;
+            }));
         }
-        
-        Object finalPrediction = null;
-        int maxVotes = 0;
-        
-        for (Map.Entry<Object, Integer> entry : votes.entrySet()) {
-            if (entry.getValue() > maxVotes) {
-                maxVotes = entry.getValue();
-                finalPrediction = entry.getKey();
+        int[] votes = tasks.get(0).join();
+        for (int g = 1; g < groups; g++) {
+            int[] groupVotes = tasks.get(g).join();
+            for (int i = 0; i < votes.length; i++) {
+                votes[i] += groupVotes[i];
             }
         }
         
-        return finalPrediction;
-    }
-    
-    private ModelMetrics calculateOOBMetrics(List<DataPoint> trainingData) {
-        // Simplified OOB calculation
         int correct = 0;
         int total = 0;
         
-        for (DataPoint point : trainingData) {
-            Object prediction = predictSingle(point);
-            if (prediction != null && prediction.equals(point.getTarget())) {
+        for (int row = 0; row < rows; row++) {
+            int best = CompiledForest.majority(votes, row * numClasses, numClasses);
+            if (best < 0) {
+                continue; // In every bootstrap sample
+            }
+            if (best == classIds[row]) {
                 correct++;
             }
             total++;
@@ -334,208 +390,615 @@ public class RandomForest extends MLModel {
     public int getMaxDepth() { return maxDepth; }
     public int getMinSamplesLeaf() { return minSamplesLeaf; }
     public double getFeatureSubsetRatio() { return featureSubsetRatio; }
+    public int getMaxBins() { return maxBins; }
+    public SplitCriterion getSplitCriterion() { return splitCriterion; }
     public List<DecisionTree> getTrees() { return new ArrayList<>(trees); }
+    public CompiledForest getCompiledForest() { return compiledForest; }
+}
+
+// Split criterion enumeration
+enum SplitCriterion {
+    GINI, ENTROPY
+}
+    
+// Quantile-binned copy of a feature matrix, shared by every tree in a forest
+class FeatureBins {
+    static final int MAX_BINS = 256;
+    private static final int SAMPLE_SIZE = 200_000;
+    
+    private final byte[][] columns;
+    private final double[][] upperEdges;
+    
+    private FeatureBins(byte[][] columns, double[][] upperEdges) {
+        this.columns = columns;
+        this.upperEdges = upperEdges;
+    }
+    
+    /**
+     * Bins each column into at most maxBins quantile ranges; bin b holds values in (edge[b-1], edge[b]].
+     */
+    static FeatureBins build(FeatureMatrix matrix, int maxBins, ForkJoinPool pool) {
+        int bins = Math.max(2, Math.min(MAX_BINS, maxBins));
+        int columnCount = matrix.getColumnCount();
+        byte[][] columns = new byte[columnCount][];
+        double[][] edges = new double[columnCount][];
+        
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(columnCount);
+        for (int c = 0; c < columnCount; c++) {
+            int column = c;
+            tasks.add(pool.submit(() -> {
+                edges[column] = quantileEdges(matrix, column, bins);
+                columns[column] = assignBins(matrix, column, edges[column]);
+            }));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+        
+        return new FeatureBins(columns, edges);
+    }
+    
+    private static double[] quantileEdges(FeatureMatrix matrix, int column, int bins) {
+        int rows = matrix.getRowCount();
+        int sampleSize = Math.min(rows, SAMPLE_SIZE);
+        double[] sample = new double[sampleSize];
+        // Evenly strided sample; the whole column when it is small enough
+        for (int i = 0; i < sampleSize; i++) {
+            sample[i] = matrix.get((int) ((long) i * rows / sampleSize), column);
+        }
+        Arrays.sort(sample);
+        
+        double[] edges = new double[bins];
+        int count = 0;
+        for (int b = 1; b <= bins && sampleSize > 0; b++) {
+            double edge = sample[(int) ((long) b * sampleSize / bins) - 1];
+            if (count == 0 || edge > edges[count - 1]) {
+                edges[count++] = edge;
+            }
+        }
+        if (count == 0) {
+            count = 1;
+        }
+        // The top bin is open-ended so values outside the sample still land in a bin
+        edges[count - 1] = Double.POSITIVE_INFINITY;
+        return Arrays.copyOf(edges, count);
+    }
+    
+    private static byte[] assignBins(FeatureMatrix matrix, int column, double[] edges) {
+        int rows = matrix.getRowCount();
+        byte[] binned = new byte[rows];
+        for (int row = 0; row < rows; row++) {
+            double value = matrix.get(row, column);
+            int low = 0;
+            int high = edges.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (value <= edges[mid]) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            binned[row] = (byte) low;
+        }
+        return binned;
+    }
+    
+    byte[] column(int feature) { return columns[feature]; }
+    int binCount(int feature) { return upperEdges[feature].length; }
+    double upperEdge(int feature, int bin) { return upperEdges[feature][bin]; }
 }
 
 // Simplified Decision Tree class for Random Forest
 class DecisionTree {
     private int maxDepth;
     private int minSamplesLeaf;
-    private List<String> allowedFeatures;
+    private double featureSubsetRatio;
+    private SplitCriterion criterion;
+    private long seed;
     private TreeNode root;
-    private Random random;
+    private List<Object> classLabels;
+    
+    // Training scratch state, released once the tree is built
+    private int[] rows;
+    private int[] allowedFeatures;
+    private int[] classIds;
+    private int numClasses;
+    private FeatureBins bins;
+    private SplittableRandom random;
+    private int[] histogram;
+    private int[] leftCounts;
+    private int[] bestLeftCounts;
     
-    public DecisionTree(int maxDepth, int minSamplesLeaf, List<String> allowedFeatures) {
+    public DecisionTree(int maxDepth, int minSamplesLeaf, double featureSubsetRatio,
+                        SplitCriterion criterion, long seed) {
         this.maxDepth = maxDepth;
-        this.minSamplesLeaf = minSamplesLeaf;
-        this.allowedFeatures = allowedFeatures;
-        this.random = new Random();
+        this.minSamplesLeaf = Math.max(1, minSamplesLeaf);
+        this.featureSubsetRatio = featureSubsetRatio;
+        this.criterion = criterion;
+        this.seed = seed;
     }
     
-    public void train(List<DataPoint> trainingData) {
-        this.root = buildTree(trainingData, 0);
+    /**
+     * Trains on a bootstrap sample of the matrix, choosing splits from the binned columns.
+     */
+    public void train(FeatureMatrix matrix, FeatureBins bins) {
+        this.classLabels = matrix.getClassLabels();
+        this.classIds = matrix.getClassIds();
+        this.numClasses = Math.max(1, classLabels.size());
+        this.bins = bins;
+        this.random = new SplittableRandom(seed);
+        
+        // Bootstrap sampling, drawn first so bootstrapCounts can replay it from the seed
+        int rowCount = matrix.getRowCount();
+        this.rows = sortedBootstrap(drawBootstrapCounts(random, rowCount));
+        
+        // Feature subsampling
+        int columnCount = matrix.getColumnCount();
+        int[] features = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            features[i] = i;
+        }
+        int selected = Math.max(1, Math.min(columnCount, (int) (columnCount * featureSubsetRatio)));
+        partialShuffle(features, selected, random);
+        this.allowedFeatures = Arrays.copyOf(features, selected);
+        
+        int maxBinCount = 1;
+        for (int f : allowedFeatures) {
+            maxBinCount = Math.max(maxBinCount, bins.binCount(f));
+        }
+        this.histogram = new int[maxBinCount * numClasses];
+        this.leftCounts = new int[numClasses];
+        this.bestLeftCounts = new int[numClasses];
+        
+        int[] rootCounts = new int[numClasses];
+        for (int row : rows) {
+            rootCounts[classIds[row]]++;
+        }
+        this.root = rows.length == 0 ? createLeafNode(rootCounts) : buildTree(0, rows.length, rootCounts, 0);
+        
+        this.rows = null;
+        this.classIds = null;
+        this.bins = null;
+        this.random = null;
+        this.histogram = null;
+        this.leftCounts = null;
+        this.bestLeftCounts = null;
     }
     
-    public Object predict(DataPoint point) {
+    public Object predict(FeatureMatrix matrix, int row) {
         if (root == null) {
             return null;
         }
         
-        return predictRecursive(root, point);
+        return predictRecursive(root, matrix.getValues(), matrix.rowOffset(row)).prediction;
     }
     
-    private TreeNode buildTree(List<DataPoint> data, int depth) {
-        if (data.isEmpty() || depth >= maxDepth || data.size() < minSamplesLeaf) {
-            return createLeafNode(data);
+    /**
+     * How often each row was drawn into this tree's bootstrap sample, replayed from its seed.
+     */
+    int[] bootstrapCounts(int rowCount) {
+        return drawBootstrapCounts(new SplittableRandom(seed), rowCount);
+    }
+    
+    private static int[] drawBootstrapCounts(SplittableRandom random, int rowCount) {
+        int[] counts = new int[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            counts[random.nextInt(rowCount)]++;
+        }
+        return counts;
+    }
+    
+    private static int[] sortedBootstrap(int[] counts) {
+        // Row order keeps the per-node scans walking the columns forwards
+        int[] sample = new int[counts.length];
+        int next = 0;
+        for (int row = 0; row < counts.length; row++) {
+            for (int k = 0; k < counts[row]; k++) {
+                sample[next++] = row;
+            }
+        }
+        return sample;
+    }
+    
+    private TreeNode buildTree(int start, int end, int[] counts, int depth) {
+        int size = end - start;
+        if (depth >= maxDepth || size < 2 * minSamplesLeaf || isPure(counts)) {
+            return createLeafNode(counts);
         }
         
         // Find best split
-        Split bestSplit = findBestSplit(data);
+        Split bestSplit = findBestSplit(start, end, counts);
         
         if (bestSplit == null) {
-            return createLeafNode(data);
+            return createLeafNode(counts);
         }
         
-        // Split data
-        List<DataPoint> leftData = new ArrayList<>();
-        List<DataPoint> rightData = new ArrayList<>();
-        
-        for (DataPoint point : data) {
-            Object featureValue = point.getFeatures().get(bestSplit.feature);
-            if (featureValue != null && ((Number) featureValue).doubleValue() <= bestSplit.threshold) {
-                leftData.add(point);
+        // Split data in place: rows in bins up to the split bin move to the front
+        byte[] column = bins.column(bestSplit.feature);
+        int i = start;
+        int j = end - 1;
+        while (i <= j) {
+            if ((column[rows[i]] & 0xFF) <= bestSplit.bin) {
+                i++;
             } else {
-                rightData.add(point);
+                int swap = rows[i];
+                rows[i] = rows[j];
+                rows[j--] = swap;
             }
         }
         
+        int[] rightCounts = new int[numClasses];
+        for (int c = 0; c < numClasses; c++) {
+            rightCounts[c] = counts[c] - bestSplit.leftCounts[c];
+        }
+        
         TreeNode node = new TreeNode();
         node.feature = bestSplit.feature;
         node.threshold = bestSplit.threshold;
-        node.left = buildTree(leftData, depth + 1);
-        node.right = buildTree(rightData, depth + 1);
+        node.left = buildTree(start, i, bestSplit.leftCounts, depth + 1);
+        node.right = buildTree(i, end, rightCounts, depth + 1);
         
         return node;
     }
     
-    private TreeNode createLeafNode(List<DataPoint> data) {
+    private static boolean isPure(int[] counts) {
+        int nonEmpty = 0;
+        for (int count : counts) {
+            if (count > 0 && ++nonEmpty > 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private TreeNode createLeafNode(int[] counts) {
         TreeNode leaf = new TreeNode();
         leaf.isLeaf = true;
         
         // Majority class
-        Map<Object, Integer> classCounts = new HashMap<>();
-        for (DataPoint point : data) {
-            Object target = point.getTarget();
-            classCounts.put(target, classCounts.getOrDefault(target, 0) + 1);
-        }
-        
-        Object majorityClass = null;
+        int majorityClass = -1;
         int maxCount = 0;
-        for (Map.Entry<Object, Integer> entry : classCounts.entrySet()) {
-            if (entry.getValue() > maxCount) {
-                maxCount = entry.getValue();
-                majorityClass = entry.getKey();
+        for (int c = 0; c < counts.length; c++) {
+            if (counts[c] > maxCount) {
+                maxCount = counts[c];
+                majorityClass = c;
             }
         }
         
-        leaf.prediction = majorityClass;
+        leaf.classId = majorityClass;
+        leaf.prediction = majorityClass >= 0 ? classLabels.get(majorityClass) : null;
         return leaf;
     }
     
-    private Split findBestSplit(List<DataPoint> data) {
-        Split bestSplit = null;
-        double bestGini = Double.MAX_VALUE;
+    private Split findBestSplit(int start, int end, int[] counts) {
+        int size = end - start;
+        double bestImpurity = impurity(counts, size) * size;
+        int bestFeature = -1;
+        int bestBin = -1;
         
         // Try random subset of features
-        List<String> featuresToTry = new ArrayList<>(allowedFeatures);
-        Collections.shuffle(featuresToTry, random);
-        int numFeaturesToTry = Math.max(1, (int) Math.sqrt(allowedFeatures.size()));
+        int numFeaturesToTry = Math.max(1, (int) Math.sqrt(allowedFeatures.length));
+        partialShuffle(allowedFeatures, numFeaturesToTry, random);
         
-        for (int i = 0; i < Math.min(numFeaturesToTry, featuresToTry.size()); i++) {
-            String feature = featuresToTry.get(i);
+        for (int f = 0; f < numFeaturesToTry; f++) {
+            int feature = allowedFeatures[f];
+            int binCount = bins.binCount(feature);
+            byte[] column = bins.column(feature);
             
-            // Get unique values for this feature
-            Set<Double> uniqueValues = new HashSet<>();
-            for (DataPoint point : data) {
-                Object value = point.getFeatures().get(feature);
-                if (value instanceof Number) {
-                    uniqueValues.add(((Number) value).doubleValue());
-                }
+            // One pass over the node's rows builds the class histogram per bin
+            Arrays.fill(histogram, 0, binCount * numClasses, 0);
+            for (int k = start; k < end; k++) {
+                int row = rows[k];
+                histogram[(column[row] & 0xFF) * numClasses + classIds[row]]++;
             }
             
-            // Try different thresholds
-            for (Double threshold : uniqueValues) {
-                double gini = calculateSplitGini(data, feature, threshold);
+            // Scan bin boundaries left to right, keeping running left-side counts
+            Arrays.fill(leftCounts, 0);
+            int leftSize = 0;
+            for (int b = 0; b < binCount - 1; b++) {
+                int offset = b * numClasses;
+                for (int c = 0; c < numClasses; c++) {
+                    leftCounts[c] += histogram[offset + c];
+                    leftSize += histogram[offset + c];
+                }
+                int rightSize = size - leftSize;
+                if (leftSize < minSamplesLeaf) {
+                    continue;
+                }
+                if (rightSize < minSamplesLeaf) {
+                    break;
+                }
                 
-                if (gini < bestGini) {
-                    bestGini = gini;
-                    bestSplit = new Split(feature, threshold);
+                double weighted = weightedImpurity(leftCounts, leftSize, counts, rightSize);
+                if (weighted < bestImpurity - 1e-12) {
+                    bestImpurity = weighted;
+                    bestFeature = feature;
+                    bestBin = b;
+                    System.arraycopy(leftCounts, 0, bestLeftCounts, 0, numClasses);
                 }
             }
         }
         
-        return bestSplit;
+        if (bestFeature < 0) {
+            return null;
+        }
+        return new Split(bestFeature, bestBin, bins.upperEdge(bestFeature, bestBin), bestLeftCounts.clone());
     }
     
-    private double calculateSplitGini(List<DataPoint> data, String feature, double threshold) {
-        List<DataPoint> left = new ArrayList<>();
-        List<DataPoint> right = new ArrayList<>();
-        
-        for (DataPoint point : data) {
-            Object featureValue = point.getFeatures().get(feature);
-            if (featureValue != null && ((Number) featureValue).doubleValue() <= threshold) {
-                left.add(point);
-            } else {
-                right.add(point);
+    private double weightedImpurity(int[] left, int leftSize, int[] total, int rightSize) {
+        double leftSum = 0.0;
+        double rightSum = 0.0;
+        
+        if (criterion == SplitCriterion.ENTROPY) {
+            for (int c = 0; c < numClasses; c++) {
+                int l = left[c];
+                int r = total[c] - l;
+                if (l > 0) leftSum -= l * Math.log((double) l / leftSize);
+                if (r > 0) rightSum -= r * Math.log((double) r / rightSize);
             }
+            return leftSum + rightSum;
         }
         
-        if (left.isEmpty() || right.isEmpty()) {
-            return Double.MAX_VALUE;
+        // size * gini = size - sum(count^2) / size
+        for (int c = 0; c < numClasses; c++) {
+            long l = left[c];
+            long r = total[c] - l;
+            leftSum += l * l;
+            rightSum += r * r;
+        }
+        return (leftSize - leftSum / leftSize) + (rightSize - rightSum / rightSize);
+    }
+    
+    private double impurity(int[] counts, int size) {
+        if (size == 0) {
+            return 0.0;
         }
         
-        double leftGini = calculateGini(left);
-        double rightGini = calculateGini(right);
+        double impurity = criterion == SplitCriterion.ENTROPY ? 0.0 : 1.0;
         
-        double weightedGini = (double) left.size() / data.size() * leftGini + 
-                             (double) right.size() / data.size() * rightGini;
+        for (int count : counts) {
+            double probability = (double) count / size;
+            if (criterion == SplitCriterion.ENTROPY) {
+                if (count > 0) impurity -= probability * Math.log(probability);
+            } else {
+                impurity -= probability * probability;
+            }
+        }
         
-        return weightedGini;
+        return impurity;
     }
     
-    private double calculateGini(List<DataPoint> data) {
-        if (data.isEmpty()) {
-            return 0.0;
+    private TreeNode predictRecursive(TreeNode node, double[] values, int offset) {
+        if (node.isLeaf) {
+            return node;
         }
         
-        Map<Object, Integer> classCounts = new HashMap<>();
-        for (DataPoint point : data) {
-            Object target = point.getTarget();
-            classCounts.put(target, classCounts.getOrDefault(target, 0) + 1);
+        if (values[offset + node.feature] <= node.threshold) {
+            return predictRecursive(node.left, values, offset);
+        } else {
+            return predictRecursive(node.right, values, offset);
+        }
+    }
+    
+    TreeNode getRoot() { return root; }
+    
+    private static void partialShuffle(int[] values, int count, SplittableRandom random) {
+        // Fisher-Yates over the first count slots only
+        for (int i = 0; i < count && i < values.length - 1; i++) {
+            int j = i + random.nextInt(values.length - i);
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+    }
+}
+
+// Flattened forest used for inference
+/**
+ * All trees of a forest laid out in three parallel arrays, one slot per node
+ *
+ * Trees are stored breadth first from their root offset, and siblings sit next to
+ * each other: an internal node sends a row to children[node] when its feature value
+ * is at most thresholds[node], otherwise to children[node] + 1. A leaf has feature
+ * -1, and children holds its class id (-1 when no training row reached it). Batches
+ * are scored in blocks of rows, each block walking every tree in turn so a tree's
+ * nodes stay in cache across the block, and votes go into one int[] per batch.
+ */
+class CompiledForest {
+    private static final int BLOCK_ROWS = 256;
+    
+    private final int[] roots;
+    private final int[] features;
+    private final double[] thresholds;
+    private final int[] children;
+    private final List<String> schema;
+    private final List<Object> classLabels;
+    
+    private CompiledForest(int[] roots, int[] features, double[] thresholds, int[] children,
+                           List<String> schema, List<Object> classLabels) {
+        this.roots = roots;
+        this.features = features;
+        this.thresholds = thresholds;
+        this.children = children;
+        this.schema = schema;
+        this.classLabels = classLabels;
+    }
+    
+    static CompiledForest compile(List<DecisionTree> trees, List<String> schema, List<Object> classLabels) {
+        int total = 0;
+        for (DecisionTree tree : trees) {
+            total += countNodes(tree.getRoot());
         }
         
-        double gini = 1.0;
-        int total = data.size();
-        
-        for (int count : classCounts.values()) {
-            double probability = (double) count / total;
-            gini -= probability * probability;
+        int[] roots = new int[trees.size()];
+        int[] features = new int[total];
+        double[] thresholds = new double[total];
+        int[] children = new int[total];
+        TreeNode[] queue = new TreeNode[total];
+        int size = 0;
+        
+        for (int t = 0; t < trees.size(); t++) {
+            TreeNode root = trees.get(t).getRoot();
+            roots[t] = size;
+            if (root == null) {
+                features[size] = -1;
+                children[size++] = -1;
+                continue;
+            }
+            queue[size++] = root;
+            for (int i = roots[t]; i < size; i++) {
+                TreeNode node = queue[i];
+                if (node.isLeaf) {
+                    features[i] = -1;
+                    children[i] = node.classId;
+                } else {
+                    features[i] = node.feature;
+                    thresholds[i] = node.threshold;
+                    children[i] = size;
+                    queue[size++] = node.left;
+                    queue[size++] = node.right;
+                }
+            }
         }
         
-        return gini;
+        return new CompiledForest(roots, features, thresholds, children, schema, classLabels);
     }
     
-    private Object predictRecursive(TreeNode node, DataPoint point) {
-        if (node.isLeaf) {
-            return node.prediction;
+    private static int countNodes(TreeNode root) {
+        if (root == null) {
+            return 1;
         }
-        
-        Object featureValue = point.getFeatures().get(node.feature);
-        if (featureValue != null && ((Number) featureValue).doubleValue() <= node.threshold) {
-            return predictRecursive(node.left, point);
+        int count = 0;
+        Deque<TreeNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            TreeNode node = stack.pop();
+            count++;
+            if (!node.isLeaf) {
+                stack.push(node.left);
+                stack.push(node.right);
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Class id predicted by one tree for the row starting at offset, or -1 for an empty leaf.
+     */
+    int predictTree(int tree, double[] values, int offset) {
+        int node = roots[tree];
+        int feature;
+        while ((feature = features[node]) >= 0) {
+            node = children[node] + (values[offset + feature] <= thresholds[node] ? 0 : 1);
+        }
+        return children[node];
+    }
+    
+    /**
+     * Per-row vote counts over the matrix, laid out as votes[row * classCount + classId].
+     * The matrix must hold the columns the forest was trained on, in the same order.
+     */
+    int[] vote(FeatureMatrix matrix) {
+        matrix.checkSchema(schema);
+        int rows = matrix.getRowCount();
+        int[] votes = new int[rows * getClassCount()];
+        if (rows <= 2 * BLOCK_ROWS) {
+            voteRows(matrix, votes, 0, rows);
         } else {
-            return predictRecursive(node.right, point);
+            ForkJoinPool.commonPool().invoke(new VoteTask(matrix, votes, 0, rows));
+        }
+        return votes;
+    }
+    
+    private void voteRows(FeatureMatrix matrix, int[] votes, int from, int to) {
+        double[] values = matrix.getValues();
+        int columns = matrix.getColumnCount();
+        int numClasses = getClassCount();
+        
+        for (int tree = 0; tree < roots.length; tree++) {
+            for (int row = from; row < to; row++) {
+                int predicted = predictTree(tree, values, row * columns);
+                if (predicted >= 0) {
+                    votes[row * numClasses + predicted]++;
+                }
+            }
         }
     }
+    
+    private class VoteTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final FeatureMatrix matrix;
+        private final int[] votes;
+        private final int from;
+        private final int to;
+        
+        VoteTask(FeatureMatrix matrix, int[] votes, int from, int to) {
+            this.matrix = matrix;
+            this.votes = votes;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from <= BLOCK_ROWS) {
+                voteRows(matrix, votes, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new VoteTask(matrix, votes, from, mid), new VoteTask(matrix, votes, mid, to));
+        }
+    }
+    
+    /**
+     * Class id with the most votes in votes[offset, offset + classCount), lowest id on ties; -1 if none.
+     */
+    static int majority(int[] votes, int offset, int classCount) {
+        int best = -1;
+        int bestVotes = 0;
+        for (int c = 0; c < classCount; c++) {
+            if (votes[offset + c] > bestVotes) {
+                bestVotes = votes[offset + c];
+                best = c;
+            }
+        }
+        return best;
+    }
+    
+    Object getClassLabel(int classId) {
+        return classId >= 0 && classId < classLabels.size() ? classLabels.get(classId) : null;
+    }
+    
+    List<String> getSchema() { return schema; }
+    int getClassCount() { return Math.max(1, classLabels.size()); }
+    int getTreeCount() { return roots.length; }
+    int getNodeCount() { return features.length; }
 }
 
 // Tree node class
 class TreeNode {
-    String feature;
+    int feature;
     double threshold;
     TreeNode left;
     TreeNode right;
     boolean isLeaf = false;
+    int classId = -1;
     Object prediction;
 }
 
 // Split class
 class Split {
-    String feature;
+    int feature;
+    int bin;
     double threshold;
+    int[] leftCounts;
     
-    Split(String feature, double threshold) {
+    Split(int feature, int bin, double threshold, int[] leftCounts) {
         this.feature = feature;
+        this.bin = bin;
         this.threshold = threshold;
+        this.leftCounts = leftCounts;
     }
 }
@@ -0,0 +1,105 @@
+package composition.analytics;
+
+import java.io.Serializable;
+
+/**
+ * Aggregation Accumulator holding the running state of one group.
+ *
+ * All exact aggregations are kept in primitives and updated in one pass;
+ * sketches are only allocated for the aggregation type that needs them.
+ * Accumulators are mergeable, so partial results from different batches,
+ * threads or window panes combine into the same answer.
+ */
+public class AggregationAccumulator implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    private final AggregationType aggregationType;
+    private long rowCount;
+    private long valueCount;
+    private double sum;
+    private double min;
+    private double max;
+    private final HyperLogLog distinct;
+    private final TDigest digest;
+    
+    public AggregationAccumulator(AggregationType aggregationType) {
+        this.aggregationType = aggregationType;
+        this.min = Double.POSITIVE_INFINITY;
+        this.max = Double.NEGATIVE_INFINITY;
+        this.distinct = aggregationType == AggregationType.DISTINCT_COUNT_APPROX ? new HyperLogLog() : null;
+        this.digest = aggregationType.isPercentile() ? new TDigest() : null;
+    }
+    
+    public void countRow() {
+        rowCount++;
+    }
+    
+    public void add(double value) {
+        valueCount++;
+        sum += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+        if (digest != null) {
+            digest.add(value);
+        }
+    }
+    
+    public void addDistinctHash(long hash) {
+        distinct.addHash(hash);
+    }
+    
+    public boolean tracksDistinct() {
+        return distinct != null;
+    }
+    
+    public void merge(AggregationAccumulator other) {
+        rowCount += other.rowCount;
+        valueCount += other.valueCount;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        if (distinct != null) {
+            distinct.merge(other.distinct);
+        }
+        if (digest != null) {
+            digest.merge(other.digest);
+        }
+    }
+    
+    public AggregationAccumulator copy() {
+        AggregationAccumulator copy = new AggregationAccumulator(aggregationType);
+        copy.merge(this);
+        return copy;
+    }
+    
+    public double getResult() {
+        if (aggregationType == AggregationType.DISTINCT_COUNT_APPROX) {
+            return distinct.estimate();
+        }
+        if (valueCount == 0) {
+            return 0.0;
+        }
+        
+        switch (aggregationType) {
+            case SUM:
+                return sum;
+            case AVG:
+                return sum / valueCount;
+            case MIN:
+                return min;
+            case MAX:
+                return max;
+            case COUNT:
+                return valueCount;
+            default:
+                return digest.quantile(aggregationType.getQuantile());
+        }
+    }
+    
+    public long getRowCount() { return rowCount; }
+    public long getValueCount() { return valueCount; }
+}
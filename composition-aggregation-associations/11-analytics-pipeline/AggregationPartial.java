@@ -0,0 +1,64 @@
+package composition.analytics;
+
+import java.util.*;
+
+/**
+ * Aggregation Partial holding per-pane, per-group accumulators for a slice of data.
+ * Partials from different batches or threads can be merged before emitting.
+ */
+public class AggregationPartial {
+    // Pane key used when the aggregation is not windowed
+    public static final long GLOBAL_PANE = Long.MIN_VALUE;
+    
+    private final AggregationType aggregationType;
+    private final NavigableMap<Long, Map<Object, AggregationAccumulator>> panes;
+    private long maxTimestamp;
+    private long inputRecords;
+    
+    public AggregationPartial(AggregationType aggregationType) {
+        this.aggregationType = aggregationType;
+        this.panes = new TreeMap<>();
+        this.maxTimestamp = Long.MIN_VALUE;
+    }
+    
+    public AggregationAccumulator accumulatorFor(long pane, Object groupKey) {
+        return panes.computeIfAbsent(pane, p -> new LinkedHashMap<>())
+                    .computeIfAbsent(groupKey, k -> new AggregationAccumulator(aggregationType));
+    }
+    
+    // Installs an accumulator built elsewhere, merging if the group already exists
+    public void put(long pane, Object groupKey, AggregationAccumulator accumulator) {
+        Map<Object, AggregationAccumulator> groups = panes.computeIfAbsent(pane, p -> new LinkedHashMap<>());
+        AggregationAccumulator existing = groups.get(groupKey);
+        if (existing == null) {
+            groups.put(groupKey, accumulator);
+        } else {
+            existing.merge(accumulator);
+        }
+    }
+    
+    public void merge(AggregationPartial other) {
+        for (Map.Entry<Long, Map<Object, AggregationAccumulator>> pane : other.panes.entrySet()) {
+            for (Map.Entry<Object, AggregationAccumulator> group : pane.getValue().entrySet()) {
+                put(pane.getKey(), group.getKey(), group.getValue());
+            }
+        }
+        maxTimestamp = Math.max(maxTimestamp, other.maxTimestamp);
+        inputRecords += other.inputRecords;
+    }
+    
+    public void observeTimestamp(long timestamp) {
+        if (timestamp > maxTimestamp) {
+            maxTimestamp = timestamp;
+        }
+    }
+    
+    public void addInputRecords(long count) {
+        inputRecords += count;
+    }
+    
+    public NavigableMap<Long, Map<Object, AggregationAccumulator>> getPanes() { return panes; }
+    public long getMaxTimestamp() { return maxTimestamp; }
+    public long getInputRecords() { return inputRecords; }
+    public AggregationType getAggregationType() { return aggregationType; }
+}
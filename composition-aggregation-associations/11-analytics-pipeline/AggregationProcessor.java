@@ -1,21 +1,45 @@
 package composition.analytics;
 
+import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Aggregation Processor implementation for aggregating data records
+ * Aggregation Processor implementation for aggregating data records.
+ *
+ * Each record updates its group's accumulator in a single pass; no group
+ * lists or value copies are built. Without a window every batch is aggregated
+ * on its own. With a WindowSpec, per-pane accumulators are carried across
+ * batches and a window is emitted once the event-time watermark passes its end.
  */
-public class AggregationProcessor implements DataProcessor {
+public class AggregationProcessor implements StatefulProcessor {
     private final String groupByField;
     private final String aggregateField;
     private final AggregationType aggregationType;
+    private final WindowSpec window;
     private boolean isHealthy;
     
+    // Window state carried across batches (guarded by openPanes)
+    private final NavigableMap<Long, Map<Object, AggregationAccumulator>> openPanes;
+    private long watermark;
+    private long nextWindowStart;
+    private final AtomicLong lateRecords;
+    
     public AggregationProcessor(String groupByField, String aggregateField, AggregationType aggregationType) {
+        this(groupByField, aggregateField, aggregationType, null);
+    }
+    
+    public AggregationProcessor(String groupByField, String aggregateField, AggregationType aggregationType,
+                                WindowSpec window) {
         this.groupByField = groupByField;
         this.aggregateField = aggregateField;
         this.aggregationType = aggregationType;
+        this.window = window;
         this.isHealthy = true;
+        this.openPanes = new TreeMap<>();
+        this.watermark = Long.MIN_VALUE;
+        this.nextWindowStart = Long.MIN_VALUE;
+        this.lateRecords = new AtomicLong(0);
     }
     
     @Override
@@ -29,37 +53,12 @@ public class AggregationProcessor implements DataProcessor {
         long startTime = System.currentTimeMillis();
         
         try {
-            Map<Object, List<DataRecord>> groups = new HashMap<>();
-            
-            // Group records by field
-            for (DataRecord record : batch.getRecords()) {
-                Object groupKey = record.getValue(groupByField);
-                groups.computeIfAbsent(groupKey, k -> new ArrayList<>()).add(record);
-            }
-            
-            List<DataRecord> aggregatedRecords = new ArrayList<>();
-            
-            // Aggregate each group
-            for (Map.Entry<Object, List<DataRecord>> entry : groups.entrySet()) {
-                Object groupKey = entry.getKey();
-                List<DataRecord> groupRecords = entry.getValue();
-                
-                double aggregatedValue = calculateAggregation(groupRecords);
-                
-                Map<String, Object> aggregatedData = new HashMap<>();
-                aggregatedData.put(groupByField, groupKey);
-                aggregatedData.put(aggregateField + "_" + aggregationType.name().toLowerCase(), aggregatedValue);
-                aggregatedData.put("count", groupRecords.size());
-                aggregatedData.put("timestamp", System.currentTimeMillis());
-                
-                aggregatedRecords.add(new DataRecord("agg_" + groupKey + "_" + System.currentTimeMillis(), aggregatedData));
-            }
-            
-            DataBatch aggregatedBatch = new DataBatch(aggregatedRecords);
+            AggregationPartial partial = accumulate(batch);
+            DataBatch aggregatedBatch = emit(partial, batch.isColumnar());
             long processingTime = System.currentTimeMillis() - startTime;
             
-            System.out.printf("📊 Aggregated %d records into %d groups\n", 
-                            batch.size(), aggregatedRecords.size());
+            System.out.printf("📊 Aggregated %d records into %d groups\n",
+                            batch.size(), aggregatedBatch.size());
             
             return new ProcessingResult(true, aggregatedBatch, null, processingTime);
             
@@ -69,36 +68,380 @@ public class AggregationProcessor implements DataProcessor {
         }
     }
     
-    private double calculateAggregation(List<DataRecord> records) {
-        List<Double> values = new ArrayList<>();
+    /**
+     * Builds the partial state for one batch without touching window state,
+     * so several partials can be built independently and merged.
+     */
+    public AggregationPartial accumulate(DataBatch batch) {
+        return accumulate(batch, 0, batch.size());
+    }
+    
+    // Accumulates rows [from, to) only, so chunks of one batch can be aggregated in parallel
+    public AggregationPartial accumulate(DataBatch batch, int from, int to) {
+        AggregationPartial partial = new AggregationPartial(aggregationType);
+        if (batch.isColumnar()) {
+            accumulateColumnar(batch.toColumnar(), from, to, partial);
+        } else {
+            accumulateRecords(batch.getRecords().subList(from, to), partial);
+        }
+        partial.addInputRecords(to - from);
+        return partial;
+    }
+    
+    /**
+     * Turns a partial into output: the whole partial when not windowed,
+     * otherwise every window the advanced watermark has closed.
+     */
+    public DataBatch emit(AggregationPartial partial, boolean columnarOutput) {
+        List<Long> windowStarts = new ArrayList<>();
+        List<Object> groupKeys = new ArrayList<>();
+        List<AggregationAccumulator> accumulators = new ArrayList<>();
+        
+        if (window == null) {
+            Map<Object, AggregationAccumulator> groups = partial.getPanes().get(AggregationPartial.GLOBAL_PANE);
+            if (groups != null) {
+                for (Map.Entry<Object, AggregationAccumulator> entry : groups.entrySet()) {
+                    windowStarts.add(null);
+                    groupKeys.add(entry.getKey());
+                    accumulators.add(entry.getValue());
+                }
+            }
+        } else {
+            synchronized (openPanes) {
+                mergeIntoOpenPanes(partial);
+                if (watermark != Long.MIN_VALUE) {
+                    emitClosedWindows(watermark - window.getAllowedLatenessMs(), false,
+                                      windowStarts, groupKeys, accumulators);
+                }
+            }
+        }
+        
+        return buildOutput(windowStarts, groupKeys, accumulators, columnarOutput);
+    }
+    
+    // Emits every open window regardless of the watermark, e.g. before shutdown
+    public DataBatch flushWindows() {
+        List<Long> windowStarts = new ArrayList<>();
+        List<Object> groupKeys = new ArrayList<>();
+        List<AggregationAccumulator> accumulators = new ArrayList<>();
         
+        if (window != null) {
+            synchronized (openPanes) {
+                emitClosedWindows(Long.MAX_VALUE, true, windowStarts, groupKeys, accumulators);
+            }
+        }
+        return buildOutput(windowStarts, groupKeys, accumulators, false);
+    }
+    
+    private void accumulateRecords(List<DataRecord> records, AggregationPartial partial) {
         for (DataRecord record : records) {
+            long pane = AggregationPartial.GLOBAL_PANE;
+            if (window != null) {
+                long eventTime = eventTime(record);
+                partial.observeTimestamp(eventTime);
+                pane = window.paneOf(eventTime);
+            }
+            
+            AggregationAccumulator accumulator = partial.accumulatorFor(pane, record.getValue(groupByField));
+            accumulator.countRow();
+            
             Object value = record.getValue(aggregateField);
             if (value instanceof Number) {
-                values.add(((Number) value).doubleValue());
+                accumulator.add(((Number) value).doubleValue());
+            }
+            if (value != null && accumulator.tracksDistinct()) {
+                accumulator.addDistinctHash(HyperLogLog.hash(value));
+            }
+        }
+    }
+    
+    private long eventTime(DataRecord record) {
+        if (window.getTimestampField() != null) {
+            Object value = record.getValue(window.getTimestampField());
+            if (value instanceof Number) {
+                return ((Number) value).longValue();
+            }
+        }
+        return record.getTimestamp();
+    }
+    
+    // Groups on dictionary codes when the key is a string column, so no key is hashed per row
+    private void accumulateColumnar(ColumnarBatch columns, int from, int to, AggregationPartial partial) {
+        Column keyColumn = columns.getColumn(groupByField);
+        Column valueColumn = columns.getColumn(aggregateField);
+        Column timeColumn = window != null && window.getTimestampField() != null
+            ? columns.getColumn(window.getTimestampField()) : null;
+        long[] distinctHashes = distinctHashesByCode(valueColumn);
+        
+        if (!(keyColumn instanceof StringColumn)) {
+            for (int row = from; row < to; row++) {
+                long pane = paneOf(columns, timeColumn, row, partial);
+                Object key = keyColumn != null ? keyColumn.getObject(row) : null;
+                AggregationAccumulator accumulator = partial.accumulatorFor(pane, key);
+                accumulator.countRow();
+                addColumnValue(accumulator, valueColumn, row, distinctHashes);
+            }
+            return;
+        }
+        
+        StringColumn stringKeys = (StringColumn) keyColumn;
+        int nullSlot = stringKeys.getDictionarySize();
+        Map<Long, AggregationAccumulator[]> slotsByPane = new LinkedHashMap<>();
+        AggregationAccumulator[] slots = null;
+        long currentPane = 0;
+        
+        for (int row = from; row < to; row++) {
+            long pane = paneOf(columns, timeColumn, row, partial);
+            if (slots == null || pane != currentPane) {
+                slots = slotsByPane.computeIfAbsent(pane, p -> new AggregationAccumulator[nullSlot + 1]);
+                currentPane = pane;
+            }
+            
+            int code = stringKeys.getCode(row);
+            int slot = code == StringColumn.NULL_CODE ? nullSlot : code;
+            AggregationAccumulator accumulator = slots[slot];
+            if (accumulator == null) {
+                accumulator = new AggregationAccumulator(aggregationType);
+                slots[slot] = accumulator;
+            }
+            accumulator.countRow();
+            addColumnValue(accumulator, valueColumn, row, distinctHashes);
+        }
+        
+        for (Map.Entry<Long, AggregationAccumulator[]> entry : slotsByPane.entrySet()) {
+            AggregationAccumulator[] paneSlots = entry.getValue();
+            for (int slot = 0; slot < paneSlots.length; slot++) {
+                if (paneSlots[slot] != null) {
+                    String key = slot == nullSlot ? null : stringKeys.decode(slot);
+                    partial.put(entry.getKey(), key, paneSlots[slot]);
+                }
+            }
+        }
+    }
+    
+    private long paneOf(ColumnarBatch columns, Column timeColumn, int row, AggregationPartial partial) {
+        if (window == null) {
+            return AggregationPartial.GLOBAL_PANE;
+        }
+        long eventTime;
+        if (timeColumn instanceof LongColumn && !timeColumn.isNull(row)) {
+            eventTime = ((LongColumn) timeColumn).getLong(row);
+        } else if (timeColumn != null && timeColumn.isNumber(row)) {
+            eventTime = (long) timeColumn.getAsDouble(row);
+        } else {
+            eventTime = columns.getTimestamp(row);
+        }
+        partial.observeTimestamp(eventTime);
+        return window.paneOf(eventTime);
+    }
+    
+    // Hashes each dictionary entry once instead of once per row
+    private long[] distinctHashesByCode(Column valueColumn) {
+        if (aggregationType != AggregationType.DISTINCT_COUNT_APPROX || !(valueColumn instanceof StringColumn)) {
+            return null;
+        }
+        StringColumn strings = (StringColumn) valueColumn;
+        long[] hashes = new long[strings.getDictionarySize()];
+        for (int code = 0; code < hashes.length; code++) {
+            hashes[code] = HyperLogLog.hashString(strings.decode(code));
+        }
+        return hashes;
+    }
+    
+    private void addColumnValue(AggregationAccumulator accumulator, Column valueColumn, int row, long[] distinctHashes) {
+        if (valueColumn == null || valueColumn.isNull(row)) {
+            return;
+        }
+        if (valueColumn.isNumber(row)) {
+            accumulator.add(valueColumn.getAsDouble(row));
+        }
+        if (!accumulator.tracksDistinct()) {
+            return;
+        }
+        if (distinctHashes != null) {
+            accumulator.addDistinctHash(distinctHashes[((StringColumn) valueColumn).getCode(row)]);
+        } else if (valueColumn instanceof LongColumn) {
+            accumulator.addDistinctHash(HyperLogLog.hashLong(((LongColumn) valueColumn).getLong(row)));
+        } else if (valueColumn instanceof DoubleColumn) {
+            accumulator.addDistinctHash(HyperLogLog.hashDouble(((DoubleColumn) valueColumn).getDouble(row)));
+        } else {
+            accumulator.addDistinctHash(HyperLogLog.hash(valueColumn.getObject(row)));
+        }
+    }
+    
+    private void mergeIntoOpenPanes(AggregationPartial partial) {
+        for (Map.Entry<Long, Map<Object, AggregationAccumulator>> pane : partial.getPanes().entrySet()) {
+            // A pane before the next unemitted window belongs only to windows already emitted
+            if (nextWindowStart != Long.MIN_VALUE && pane.getKey() < nextWindowStart) {
+                for (AggregationAccumulator accumulator : pane.getValue().values()) {
+                    lateRecords.addAndGet(accumulator.getRowCount());
+                }
+                continue;
+            }
+            Map<Object, AggregationAccumulator> groups = openPanes.computeIfAbsent(pane.getKey(), p -> new LinkedHashMap<>());
+            for (Map.Entry<Object, AggregationAccumulator> group : pane.getValue().entrySet()) {
+                AggregationAccumulator existing = groups.get(group.getKey());
+                if (existing == null) {
+                    groups.put(group.getKey(), group.getValue());
+                } else {
+                    existing.merge(group.getValue());
+                }
             }
         }
         
-        if (values.isEmpty()) {
-            return 0.0;
+        if (nextWindowStart == Long.MIN_VALUE && !openPanes.isEmpty()) {
+            nextWindowStart = firstWindowContaining(openPanes.firstKey());
         }
+        if (partial.getMaxTimestamp() > watermark) {
+            watermark = partial.getMaxTimestamp();
+        }
+    }
+    
+    private long firstWindowContaining(long pane) {
+        return pane - window.getSizeMs() + window.getSlideMs();
+    }
+        
+    private void emitClosedWindows(long closeUpTo, boolean flushAll, List<Long> windowStarts,
+                                   List<Object> groupKeys, List<AggregationAccumulator> accumulators) {
+        long size = window.getSizeMs();
         
-        switch (aggregationType) {
-            case SUM:
-                return values.stream().mapToDouble(Double::doubleValue).sum();
-            case AVG:
-                return values.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
-            case MIN:
-                return values.stream().mapToDouble(Double::doubleValue).min().orElse(0.0);
-            case MAX:
-                return values.stream().mapToDouble(Double::doubleValue).max().orElse(0.0);
-            case COUNT:
-                return values.size();
-            default:
-                return 0.0;
+        while (!openPanes.isEmpty()) {
+            // Skip ahead over windows that would contain no panes at all
+            nextWindowStart = Math.max(nextWindowStart, firstWindowContaining(openPanes.firstKey()));
+            if (!flushAll && nextWindowStart > closeUpTo - size) {
+                break;
+            }
+            
+            Map<Object, AggregationAccumulator> windowGroups = new LinkedHashMap<>();
+            for (Map<Object, AggregationAccumulator> paneGroups
+                    : openPanes.subMap(nextWindowStart, true, nextWindowStart + size, false).values()) {
+                for (Map.Entry<Object, AggregationAccumulator> group : paneGroups.entrySet()) {
+                    windowGroups.computeIfAbsent(group.getKey(), k -> new AggregationAccumulator(aggregationType))
+                                .merge(group.getValue());
+                }
+            }
+            for (Map.Entry<Object, AggregationAccumulator> group : windowGroups.entrySet()) {
+                windowStarts.add(nextWindowStart);
+                groupKeys.add(group.getKey());
+                accumulators.add(group.getValue());
+            }
+            
+            nextWindowStart += window.getSlideMs();
+            openPanes.headMap(nextWindowStart, false).clear();
         }
     }
     
+    private DataBatch buildOutput(List<Long> windowStarts, List<Object> groupKeys,
+                                  List<AggregationAccumulator> accumulators, boolean columnarOutput) {
+        String resultField = aggregateField + "_" + aggregationType.name().toLowerCase();
+        long now = System.currentTimeMillis();
+        int groupCount = groupKeys.size();
+        String[] recordIds = new String[groupCount];
+        for (int i = 0; i < groupCount; i++) {
+            recordIds[i] = "agg_" + groupKeys.get(i) + "_" + (windowStarts.get(i) != null ? windowStarts.get(i) + "_" : "") + now;
+        }
+        
+        if (!columnarOutput) {
+            List<DataRecord> aggregatedRecords = new ArrayList<>();
+            for (int i = 0; i < groupCount; i++) {
+                Map<String, Object> aggregatedData = new HashMap<>();
+                aggregatedData.put(groupByField, groupKeys.get(i));
+                aggregatedData.put(resultField, accumulators.get(i).getResult());
+                aggregatedData.put("count", (int) accumulators.get(i).getRowCount());
+                aggregatedData.put("timestamp", now);
+                if (windowStarts.get(i) != null) {
+                    aggregatedData.put("window_start", windowStarts.get(i));
+                    aggregatedData.put("window_end", windowStarts.get(i) + window.getSizeMs());
+                }
+                aggregatedRecords.add(new DataRecord(recordIds[i], aggregatedData));
+            }
+            return new DataBatch(aggregatedRecords);
+        }
+        
+        double[] results = new double[groupCount];
+        long[] counts = new long[groupCount];
+        long[] timestamps = new long[groupCount];
+        long[] starts = new long[groupCount];
+        long[] ends = new long[groupCount];
+        for (int i = 0; i < groupCount; i++) {
+            results[i] = accumulators.get(i).getResult();
+            counts[i] = accumulators.get(i).getRowCount();
+            timestamps[i] = now;
+            if (window != null) {
+                starts[i] = windowStarts.get(i);
+                ends[i] = starts[i] + window.getSizeMs();
+            }
+        }
+        
+        Column keys = keyColumnOf(groupKeys);
+        List<String> names = new ArrayList<>(Arrays.asList(groupByField, resultField, "count", "timestamp"));
+        List<ColumnType> types = new ArrayList<>(Arrays.asList(keys.getType(), ColumnType.DOUBLE, ColumnType.LONG, ColumnType.LONG));
+        List<Column> columns = new ArrayList<>(Arrays.asList(
+            keys, new DoubleColumn(results), new LongColumn(counts), new LongColumn(timestamps)));
+        if (window != null) {
+            names.addAll(Arrays.asList("window_start", "window_end"));
+            types.addAll(Arrays.asList(ColumnType.LONG, ColumnType.LONG));
+            columns.add(new LongColumn(starts));
+            columns.add(new LongColumn(ends));
+        }
+        
+        return new DataBatch(new ColumnarBatch(new BatchSchema(names, types), columns.toArray(new Column[0]),
+                                               recordIds, timestamps));
+    }
+    
+    private Column keyColumnOf(List<Object> groupKeys) {
+        String[] stringKeys = new String[groupKeys.size()];
+        for (int i = 0; i < stringKeys.length; i++) {
+            Object key = groupKeys.get(i);
+            if (key != null && !(key instanceof String)) {
+                return new ObjectColumn(groupKeys.toArray());
+            }
+            stringKeys[i] = (String) key;
+        }
+        return StringColumn.encode(stringKeys);
+    }
+    
+    // Deep copy of the window state; accumulators are copied so later batches cannot change the snapshot
+    @Override
+    public Serializable snapshotState() {
+        synchronized (openPanes) {
+            TreeMap<Long, LinkedHashMap<Object, AggregationAccumulator>> panes = new TreeMap<>();
+            for (Map.Entry<Long, Map<Object, AggregationAccumulator>> pane : openPanes.entrySet()) {
+                LinkedHashMap<Object, AggregationAccumulator> groups = new LinkedHashMap<>();
+                for (Map.Entry<Object, AggregationAccumulator> group : pane.getValue().entrySet()) {
+                    groups.put(group.getKey(), group.getValue().copy());
+                }
+                panes.put(pane.getKey(), groups);
+            }
+            return new AggregationWindowState(panes, watermark, nextWindowStart);
+        }
+    }
+    
+    @Override
+    public void restoreState(Serializable state) {
+        AggregationWindowState windowState = (AggregationWindowState) state;
+        synchronized (openPanes) {
+            openPanes.clear();
+            openPanes.putAll(windowState.getOpenPanes());
+            watermark = windowState.getWatermark();
+            nextWindowStart = windowState.getNextWindowStart();
+        }
+    }
+    
+    public long getLateRecordCount() {
+        return lateRecords.get();
+    }
+    
+    public int getOpenPaneCount() {
+        synchronized (openPanes) {
+            return openPanes.size();
+        }
+    }
+    
+    public WindowSpec getWindow() {
+        return window;
+    }
+    
     @Override
     public void cleanup() {
         System.out.println("📊 Cleaning up aggregation processor");
@@ -111,6 +454,12 @@ public class AggregationProcessor implements DataProcessor {
     
     @Override
     public String getProcessorName() {
-        return "Aggregation Processor (" + aggregationType + " of " + aggregateField + " by " + groupByField + ")";
+        String name = "Aggregation Processor (" + aggregationType + " of " + aggregateField + " by " + groupByField;
+        if (window != null) {
+            name += window.isTumbling()
+                ? ", tumbling " + window.getSizeMs() + "ms"
+                : ", sliding " + window.getSizeMs() + "ms/" + window.getSlideMs() + "ms";
+        }
+        return name + ")";
     }
 }
@@ -8,5 +8,24 @@ public enum AggregationType {
     AVG,
     MIN,
     MAX,
-    COUNT
+    COUNT,
+    DISTINCT_COUNT_APPROX,  // HyperLogLog estimate over all non-null values
+    P50,                    // t-digest percentiles
+    P90,
+    P95,
+    P99;
+    
+    public boolean isPercentile() {
+        return this == P50 || this == P90 || this == P95 || this == P99;
+    }
+    
+    public double getQuantile() {
+        switch (this) {
+            case P50: return 0.50;
+            case P90: return 0.90;
+            case P95: return 0.95;
+            case P99: return 0.99;
+            default: throw new IllegalStateException(this + " is not a percentile");
+        }
+    }
 }
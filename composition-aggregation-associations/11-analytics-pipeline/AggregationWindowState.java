@@ -0,0 +1,26 @@
+package composition.analytics;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Aggregation Window State capturing the open panes and watermark of a windowed aggregation
+ */
+public class AggregationWindowState implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    private final TreeMap<Long, LinkedHashMap<Object, AggregationAccumulator>> openPanes;
+    private final long watermark;
+    private final long nextWindowStart;
+    
+    public AggregationWindowState(TreeMap<Long, LinkedHashMap<Object, AggregationAccumulator>> openPanes,
+                                  long watermark, long nextWindowStart) {
+        this.openPanes = openPanes;
+        this.watermark = watermark;
+        this.nextWindowStart = nextWindowStart;
+    }
+    
+    public TreeMap<Long, LinkedHashMap<Object, AggregationAccumulator>> getOpenPanes() { return openPanes; }
+    public long getWatermark() { return watermark; }
+    public long getNextWindowStart() { return nextWindowStart; }
+}
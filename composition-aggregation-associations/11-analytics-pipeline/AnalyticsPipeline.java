@@ -1,7 +1,11 @@
 package composition.analytics;
 
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * MAANG-Level Analytics Pipeline System using Composition
@@ -17,7 +21,18 @@ public class AnalyticsPipeline {
     private MetricsCollector metricsCollector;
     private final ExecutorService processingExecutor;
     private final ScheduledExecutorService schedulerExecutor;
-    private PipelineState state;
+    private final ForkJoinPool parallelPool;
+    private volatile ProcessorChain processorChain;
+    private CheckpointStore checkpointStore;
+    private long checkpointIntervalMs;
+    private volatile long lastCheckpointAt;
+    private final AtomicLong checkpointSequence;
+    private final Map<Long, Checkpoint> pendingCheckpoints;
+    private volatile boolean deliveryHalted;
+    private final ExecutorService checkpointExecutor;
+    private volatile PipelineState state;
+    private ExecutionMode executionMode;
+    private StreamingPipelineRunner streamingRunner;
     private final Map<String, Object> configuration;
     private final long createdAt;
     
@@ -30,7 +45,12 @@ public class AnalyticsPipeline {
         this.metricsCollector = new DefaultMetricsCollector();
         this.processingExecutor = Executors.newFixedThreadPool(10);
         this.schedulerExecutor = Executors.newScheduledThreadPool(2);
+        this.parallelPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        this.checkpointSequence = new AtomicLong(0);
+        this.pendingCheckpoints = new ConcurrentHashMap<>();
+        this.checkpointExecutor = Executors.newSingleThreadExecutor();
         this.state = PipelineState.STOPPED;
+        this.executionMode = ExecutionMode.POLLING;
         this.configuration = new ConcurrentHashMap<>();
         this.createdAt = System.currentTimeMillis();
     }
@@ -51,16 +71,42 @@ public class AnalyticsPipeline {
         notifyListeners("Metrics collector updated");
     }
     
+    public PipelineResult setExecutionMode(ExecutionMode executionMode) {
+        if (state != PipelineState.STOPPED) {
+            return new PipelineResult(false, "Execution mode can only be changed while stopped", null);
+        }
+        this.executionMode = executionMode;
+        notifyListeners("Execution mode updated: " + executionMode);
+        return new PipelineResult(true, "Execution mode updated", getPipelineStatus());
+    }
+    
+    /**
+     * Enables durable checkpoints and exactly-once sink delivery (STREAMING mode only).
+     * Batches are keyed by source offset; processor state is checkpointed at most
+     * once per interval and persisted only after the batch it reflects is committed.
+     */
+    public PipelineResult enableCheckpointing(Path checkpointFile, long intervalMs) {
+        if (state != PipelineState.STOPPED) {
+            return new PipelineResult(false, "Checkpointing can only be configured while stopped", null);
+        }
+        this.checkpointStore = new CheckpointStore(checkpointFile);
+        this.checkpointIntervalMs = intervalMs;
+        notifyListeners("Checkpointing enabled: " + checkpointFile);
+        return new PipelineResult(true, "Checkpointing enabled", getPipelineStatus());
+    }
+    
     // Processor chain management
     public void addProcessor(DataProcessor processor) {
         processors.add(processor);
         processor.initialize(configuration);
+        processorChain = null;
         notifyListeners("Processor added: " + processor.getProcessorName());
     }
     
     public void removeProcessor(DataProcessor processor) {
         if (processors.remove(processor)) {
             processor.cleanup();
+            processorChain = null;
             notifyListeners("Processor removed: " + processor.getProcessorName());
         }
     }
@@ -68,6 +114,7 @@ public class AnalyticsPipeline {
     public void insertProcessor(int index, DataProcessor processor) {
         processors.add(index, processor);
         processor.initialize(configuration);
+        processorChain = null;
         notifyListeners("Processor inserted at position " + index + ": " + processor.getProcessorName());
     }
     
@@ -99,6 +146,10 @@ public class AnalyticsPipeline {
             return new PipelineResult(false, "No data sinks configured", null);
         }
         
+        if (checkpointStore != null && executionMode != ExecutionMode.STREAMING) {
+            return new PipelineResult(false, "Checkpointing requires STREAMING execution mode", null);
+        }
+        
         try {
             state = PipelineState.STARTING;
             notifyListeners("Pipeline starting...");
@@ -109,6 +160,13 @@ public class AnalyticsPipeline {
                 sink.initialize(configuration);
             }
             
+            // Resume from the last durable checkpoint before any data flows
+            if (checkpointStore != null) {
+                deliveryHalted = false;
+                pendingCheckpoints.clear();
+                recoverFromCheckpoint();
+            }
+            
             // Start data processing
             startDataProcessing();
             
@@ -135,6 +193,12 @@ public class AnalyticsPipeline {
             state = PipelineState.STOPPING;
             notifyListeners("Pipeline stopping...");
             
+            // Drain in-flight batches before the source and sinks go away
+            if (streamingRunner != null) {
+                streamingRunner.stop(getLongConfiguration("stream_drain_timeout_ms", 5000));
+                streamingRunner = null;
+            }
+            
             // Stop data source
             if (dataSource != null) {
                 dataSource.stop();
@@ -185,6 +249,11 @@ public class AnalyticsPipeline {
     }
     
     private void startDataProcessing() {
+        if (executionMode == ExecutionMode.STREAMING) {
+            startStreamingProcessing();
+            return;
+        }
+        
         // Start continuous data processing
         schedulerExecutor.scheduleWithFixedDelay(() -> {
             if (state == PipelineState.RUNNING) {
@@ -193,6 +262,16 @@ public class AnalyticsPipeline {
         }, 0, 1, TimeUnit.SECONDS);
     }
     
+    private void startStreamingProcessing() {
+        int maxInFlight = (int) getLongConfiguration("max_in_flight_batches", 8);
+        long maxIdleBackoff = getLongConfiguration("max_idle_backoff_ms", 50);
+        
+        streamingRunner = new StreamingPipelineRunner(pipelineId, this::fetchBatch, this::processForDelivery,
+                                                      this::deliverToSinks, () -> state == PipelineState.RUNNING,
+                                                      metricsCollector, errorHandler, maxInFlight, maxIdleBackoff);
+        streamingRunner.start();
+    }
+    
     private void processDataBatch() {
         try {
             // Fetch data from source
@@ -204,46 +283,11 @@ public class AnalyticsPipeline {
             metricsCollector.recordBatchReceived(batch.size());
             
             // Process data through pipeline
-            CompletableFuture<DataBatch> processingFuture = CompletableFuture.supplyAsync(() -> {
-                DataBatch currentBatch = batch;
-                
-                // Apply processors in sequence
-                for (DataProcessor processor : processors) {
-                    try {
-                        ProcessingResult result = processor.process(currentBatch);
-                        if (!result.isSuccess()) {
-                            throw new ProcessingException("Processor failed: " + result.getErrorMessage());
-                        }
-                        currentBatch = result.getProcessedData();
-                        metricsCollector.recordProcessorExecution(processor.getProcessorName(), result.getProcessingTime());
-                    } catch (Exception e) {
-                        errorHandler.handleError(new PipelineError(pipelineId, "PROCESSING_ERROR", 
-                                                                 "Processor " + processor.getProcessorName() + " failed", e));
-                        throw new ProcessingException("Processing failed", e);
-                    }
-                }
-                
-                return currentBatch;
-                
-            }, processingExecutor);
+            CompletableFuture<DataBatch> processingFuture = CompletableFuture.supplyAsync(
+                () -> applyProcessors(batch), processingExecutor);
             
             // Send processed data to sinks
-            processingFuture.thenAccept(processedBatch -> {
-                for (DataSink sink : sinks) {
-                    try {
-                        SinkResult result = sink.write(processedBatch);
-                        metricsCollector.recordSinkWrite(sink.getSinkName(), result.getRecordsWritten());
-                        
-                        if (!result.isSuccess()) {
-                            errorHandler.handleError(new PipelineError(pipelineId, "SINK_ERROR", 
-                                                                     "Sink " + sink.getSinkName() + " failed: " + result.getErrorMessage(), null));
-                        }
-                    } catch (Exception e) {
-                        errorHandler.handleError(new PipelineError(pipelineId, "SINK_ERROR", 
-                                                                 "Sink " + sink.getSinkName() + " failed", e));
-                    }
-                }
-            }).exceptionally(throwable -> {
+            processingFuture.thenAccept(this::writeToSinks).exceptionally(throwable -> {
                 errorHandler.handleError(new PipelineError(pipelineId, "PIPELINE_ERROR", 
                                                          "Pipeline processing failed", throwable));
                 return null;
@@ -255,6 +299,257 @@ public class AnalyticsPipeline {
         }
     }
     
+    private void recoverFromCheckpoint() throws IOException {
+        Checkpoint checkpoint = checkpointStore.recover();
+        if (checkpoint == null) {
+            // Record the starting point, so a run that halts always has somewhere to replay from
+            checkpointStore.appendCheckpoint(new Checkpoint(checkpointSequence.incrementAndGet(),
+                                                            dataSource.getCurrentOffset(), snapshotProcessorStates()));
+            return;
+        }
+        
+        Map<String, Serializable> states = checkpoint.getProcessorStates();
+        for (int i = 0; i < processors.size(); i++) {
+            DataProcessor processor = processors.get(i);
+            Serializable processorState = states.get(stateKey(i, processor));
+            if (processor instanceof StatefulProcessor && processorState != null) {
+                ((StatefulProcessor) processor).restoreState(processorState);
+            }
+        }
+        dataSource.seek(checkpoint.getSourceOffset());
+        checkpointSequence.set(checkpoint.getCheckpointId());
+        notifyListeners("Recovered checkpoint " + checkpoint.getCheckpointId() + " at offset " + checkpoint.getSourceOffset());
+    }
+    
+    private String stateKey(int index, DataProcessor processor) {
+        return index + ":" + processor.getProcessorName();
+    }
+    
+    private DataBatch fetchBatch() {
+        DataSource source = dataSource;
+        if (source == null) {
+            return null;
+        }
+        DataBatch batch = source.fetchData();
+        if (batch != null && checkpointStore != null) {
+            batch.setBatchId(source.getCurrentOffset());
+        }
+        return batch;
+    }
+    
+    private DataBatch processForDelivery(DataBatch batch) {
+        if (checkpointStore == null) {
+            return applyProcessors(batch);
+        }
+        if (deliveryHalted) {
+            throw new ProcessingException("Delivery halted; batch " + batch.getBatchId() + " will be replayed on restart");
+        }
+        
+        // A batch that cannot be processed must not be skipped, or later checkpoints would move past it
+        DataBatch processed;
+        try {
+            processed = applyProcessors(batch);
+        } catch (RuntimeException e) {
+            haltDelivery(batch.getBatchId(), "processing failed", e);
+            throw e;
+        }
+        
+        // Output carries the source batch id so sinks can recognise a replay
+        processed.setBatchId(batch.getBatchId());
+        long now = System.currentTimeMillis();
+        if (now - lastCheckpointAt >= checkpointIntervalMs) {
+            lastCheckpointAt = now;
+            pendingCheckpoints.put(batch.getBatchId(), new Checkpoint(checkpointSequence.incrementAndGet(),
+                                                                      batch.getBatchId(), snapshotProcessorStates()));
+        }
+        return processed;
+    }
+    
+    private Map<String, Serializable> snapshotProcessorStates() {
+        Map<String, Serializable> states = new HashMap<>();
+        for (int i = 0; i < processors.size(); i++) {
+            DataProcessor processor = processors.get(i);
+            if (processor instanceof StatefulProcessor) {
+                states.put(stateKey(i, processor), ((StatefulProcessor) processor).snapshotState());
+            }
+        }
+        return states;
+    }
+    
+    /**
+     * Two-phase delivery: every transactional sink prepares the batch first, and
+     * only if all succeed is each one committed and its commit recorded. Sinks
+     * that already committed this batch id (a replay after restart) are skipped.
+     * A failed attempt is retried with backoff for the sinks that have not yet
+     * committed; once retries run out delivery halts, so no later batch and no
+     * checkpoint can move past the undelivered one.
+     */
+    private void deliverToSinks(DataBatch batch) {
+        if (checkpointStore == null) {
+            writeToSinks(batch);
+            return;
+        }
+        
+        long batchId = batch.getBatchId();
+        if (deliveryHalted) {
+            // Dropped here, replayed from the last checkpoint once the pipeline is restarted
+            return;
+        }
+        
+        int maxRetries = (int) getLongConfiguration("sink_max_retries", 3);
+        long backoffMs = getLongConfiguration("sink_retry_backoff_ms", 100);
+        for (int attempt = 0; ; attempt++) {
+            try {
+                deliverOnce(batch, batchId);
+                break;
+            } catch (Exception e) {
+                if (attempt >= maxRetries) {
+                    haltDelivery(batchId, "sink delivery failed after " + (attempt + 1) + " attempts", e);
+                    return;
+                }
+                errorHandler.handleError(new PipelineError(pipelineId, "SINK_ERROR", 
+                                                         "Delivery of batch " + batchId + " failed, retrying", e));
+                try {
+                    Thread.sleep(backoffMs << Math.min(attempt, 10));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    haltDelivery(batchId, "interrupted while retrying", e);
+                    return;
+                }
+            }
+        }
+        
+        // Make the batch's sink commits durable off the delivery thread, with its checkpoint if
+        // it has one. The single-thread executor keeps them in order, and one fsync covers every
+        // batch delivered while it was queued; a commit lost to a crash is replayed idempotently
+        Checkpoint checkpoint = pendingCheckpoints.remove(batchId);
+        try {
+            checkpointExecutor.execute(() -> {
+                try {
+                    if (checkpoint != null) {
+                        checkpointStore.appendCheckpoint(checkpoint);
+                    } else {
+                        checkpointStore.sync();
+                    }
+                } catch (IOException e) {
+                    String what = checkpoint != null ? "checkpoint " + checkpoint.getCheckpointId() : "sink commits for batch " + batchId;
+                    errorHandler.handleError(new PipelineError(pipelineId, "CHECKPOINT_ERROR", 
+                                                             "Failed to persist " + what, e));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down: closing the store forces the commits, and a restart replays from the last checkpoint
+        }
+    }
+    
+    private void deliverOnce(DataBatch batch, long batchId) throws Exception {
+        // Sinks that committed on an earlier attempt are recorded and drop out here
+        List<DataSink> pendingSinks = new ArrayList<>();
+        for (DataSink sink : sinks) {
+            if (checkpointStore.getCommittedBatchId(sink.getSinkName()) < batchId) {
+                pendingSinks.add(sink);
+            }
+        }
+        
+        List<TransactionalSink> prepared = new ArrayList<>();
+        try {
+            for (DataSink sink : pendingSinks) {
+                if (sink instanceof TransactionalSink) {
+                    SinkResult result = ((TransactionalSink) sink).prepare(batch);
+                    if (!result.isSuccess()) {
+                        throw new ProcessingException("Sink " + sink.getSinkName() + " failed to prepare: " + result.getErrorMessage());
+                    }
+                    prepared.add((TransactionalSink) sink);
+                }
+            }
+            
+            for (DataSink sink : pendingSinks) {
+                if (sink instanceof TransactionalSink) {
+                    ((TransactionalSink) sink).commit(batchId);
+                    prepared.remove(sink);
+                    metricsCollector.recordSinkWrite(sink.getSinkName(), batch.size());
+                } else {
+                    SinkResult result = sink.write(batch);
+                    metricsCollector.recordSinkWrite(sink.getSinkName(), result.getRecordsWritten());
+                    if (!result.isSuccess()) {
+                        throw new ProcessingException("Sink " + sink.getSinkName() + " failed: " + result.getErrorMessage());
+                    }
+                }
+                checkpointStore.appendSinkCommit(sink.getSinkName(), batchId);
+            }
+        } catch (Exception e) {
+            for (TransactionalSink sink : prepared) {
+                sink.abort(batchId);
+            }
+            throw e;
+        }
+    }
+        
+    /**
+     * Stops delivery at an undelivered batch. The pipeline goes to ERROR so the source
+     * stops fetching; batches already in flight are dropped along with their pending
+     * checkpoints, and a restart replays everything from the last durable checkpoint.
+     */
+    private void haltDelivery(long batchId, String reason, Exception cause) {
+        deliveryHalted = true;
+        pendingCheckpoints.clear();
+        state = PipelineState.ERROR;
+        errorHandler.handleError(new PipelineError(pipelineId, "DELIVERY_HALTED", 
+                                                 "Delivery halted at batch " + batchId + ": " + reason, cause));
+        notifyListeners("Delivery halted at batch " + batchId + "; restart to replay from the last checkpoint");
+    }
+    
+    // Rebuilt lazily whenever the processor list or chunk size changes
+    private ProcessorChain currentProcessorChain() {
+        ProcessorChain chain = processorChain;
+        if (chain == null) {
+            int chunkSize = (int) getLongConfiguration("parallel_chunk_size", 8192);
+            chain = new ProcessorChain(new ArrayList<>(processors), parallelPool, chunkSize);
+            processorChain = chain;
+        }
+        return chain;
+    }
+    
+    private DataBatch applyProcessors(DataBatch batch) {
+        DataBatch currentBatch = batch;
+        ProcessorChain chain = currentProcessorChain();
+        
+        // Apply stages in sequence; fused and large stages fan out across the pool
+        for (DataProcessor processor : chain.getStages()) {
+            try {
+                ProcessingResult result = chain.run(processor, currentBatch);
+                if (!result.isSuccess()) {
+                    throw new ProcessingException("Processor failed: " + result.getErrorMessage());
+                }
+                currentBatch = result.getProcessedData();
+                metricsCollector.recordProcessorExecution(processor.getProcessorName(), result.getProcessingTime());
+            } catch (Exception e) {
+                errorHandler.handleError(new PipelineError(pipelineId, "PROCESSING_ERROR", 
+                                                         "Processor " + processor.getProcessorName() + " failed", e));
+                throw new ProcessingException("Processing failed", e);
+            }
+        }
+        
+        return currentBatch;
+    }
+    
+    private void writeToSinks(DataBatch processedBatch) {
+        for (DataSink sink : sinks) {
+            try {
+                SinkResult result = sink.write(processedBatch);
+                metricsCollector.recordSinkWrite(sink.getSinkName(), result.getRecordsWritten());
+                
+                if (!result.isSuccess()) {
+                    errorHandler.handleError(new PipelineError(pipelineId, "SINK_ERROR", 
+                                                             "Sink " + sink.getSinkName() + " failed: " + result.getErrorMessage(), null));
+                }
+            } catch (Exception e) {
+                errorHandler.handleError(new PipelineError(pipelineId, "SINK_ERROR", 
+                                                         "Sink " + sink.getSinkName() + " failed", e));
+            }
+        }
+    }
+    
     // Manual data processing for testing
     public ProcessingResult processData(DataRecord record) {
         if (state != PipelineState.RUNNING) {
@@ -291,6 +586,7 @@ public class AnalyticsPipeline {
     // Configuration management
     public void setConfiguration(String key, Object value) {
         configuration.put(key, value);
+        processorChain = null;
         notifyListeners("Configuration updated: " + key);
     }
     
@@ -298,6 +594,11 @@ public class AnalyticsPipeline {
         return configuration.get(key);
     }
     
+    private long getLongConfiguration(String key, long defaultValue) {
+        Object value = configuration.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : defaultValue;
+    }
+    
     // Pipeline monitoring and metrics
     public PipelineStatus getPipelineStatus() {
         PipelineMetrics metrics = metricsCollector.getMetrics();
@@ -360,6 +661,12 @@ public class AnalyticsPipeline {
     public void displayPipelineStatus() {
         System.out.println("\n📊 Analytics Pipeline Status: " + pipelineId);
         System.out.println("State: " + state);
+        System.out.println("Execution Mode: " + executionMode);
+        if (checkpointStore != null) {
+            Checkpoint latest = checkpointStore.getLatestCheckpoint();
+            System.out.println("Checkpointing: " + checkpointStore.getFile()
+                             + (latest != null ? " (last #" + latest.getCheckpointId() + " at offset " + latest.getSourceOffset() + ")" : ""));
+        }
         System.out.println("Data Source: " + (dataSource != null ? dataSource.getSourceName() : "None"));
         System.out.println("Processors: " + processors.size());
         
@@ -367,6 +674,14 @@ public class AnalyticsPipeline {
             System.out.printf("   %d. %s\n", i + 1, processors.get(i).getProcessorName());
         }
         
+        List<DataProcessor> stages = currentProcessorChain().getStages();
+        if (stages.size() != processors.size()) {
+            System.out.println("Execution Plan: " + stages.size() + " stages");
+            for (int i = 0; i < stages.size(); i++) {
+                System.out.printf("   %d. %s\n", i + 1, stages.get(i).getProcessorName());
+            }
+        }
+        
         System.out.println("Data Sinks: " + sinks.size());
         for (DataSink sink : sinks) {
             System.out.printf("   • %s\n", sink.getSinkName());
@@ -378,6 +693,10 @@ public class AnalyticsPipeline {
         System.out.println("   Records Processed: " + metrics.getRecordsProcessed());
         System.out.println("   Errors: " + metrics.getErrorCount());
         System.out.printf("   Avg Processing Time: %.2fms\n", metrics.getAverageProcessingTime());
+        
+        for (Map.Entry<String, Integer> entry : metrics.getQueueDepths().entrySet()) {
+            System.out.printf("   Queue Depth [%s]: %d\n", entry.getKey(), entry.getValue());
+        }
     }
     
     public void shutdown() {
@@ -385,6 +704,8 @@ public class AnalyticsPipeline {
         
         processingExecutor.shutdown();
         schedulerExecutor.shutdown();
+        parallelPool.shutdown();
+        checkpointExecutor.shutdown();
         
         try {
             if (!processingExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
@@ -393,18 +714,36 @@ public class AnalyticsPipeline {
             if (!schedulerExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
                 schedulerExecutor.shutdownNow();
             }
+            if (!parallelPool.awaitTermination(5, TimeUnit.SECONDS)) {
+                parallelPool.shutdownNow();
+            }
+            if (!checkpointExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                checkpointExecutor.shutdownNow();
+            }
         } catch (InterruptedException e) {
             processingExecutor.shutdownNow();
             schedulerExecutor.shutdownNow();
+            parallelPool.shutdownNow();
+            checkpointExecutor.shutdownNow();
             Thread.currentThread().interrupt();
         }
         
+        if (checkpointStore != null) {
+            try {
+                checkpointStore.close();
+            } catch (IOException e) {
+                errorHandler.handleError(new PipelineError(pipelineId, "CHECKPOINT_ERROR", 
+                                                         "Failed to close checkpoint store", e));
+            }
+        }
+        
         notifyListeners("Pipeline shutdown completed");
     }
     
     // Getters
     public String getPipelineId() { return pipelineId; }
     public PipelineState getState() { return state; }
+    public ExecutionMode getExecutionMode() { return executionMode; }
     public DataSource getDataSource() { return dataSource; }
     public long getCreatedAt() { return createdAt; }
 }
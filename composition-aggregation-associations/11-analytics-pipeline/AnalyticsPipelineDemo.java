@@ -196,11 +196,35 @@ public class AnalyticsPipelineDemo {
         System.out.println("Stop Result: " + (stopResult.isSuccess() ? "✅ Success" : "❌ Failed"));
         System.out.println("Message: " + stopResult.getMessage());
         
+        System.out.println("\n=== 12. Streaming Execution Mode ===");
+        
+        // Same chain, but pulled continuously with sink-driven backpressure
+        AnalyticsPipeline streamingPipeline = new AnalyticsPipeline("ANALYTICS_PIPELINE_002");
+        streamingPipeline.setExecutionMode(ExecutionMode.STREAMING);
+        streamingPipeline.setConfiguration("max_in_flight_batches", 4);
+        streamingPipeline.enableCheckpointing(
+            java.nio.file.Paths.get(System.getProperty("java.io.tmpdir"), "ANALYTICS_PIPELINE_002.ckpt"), 100);
+        streamingPipeline.setDataSource(new StreamDataSource("sensor_stream"));
+        streamingPipeline.addProcessor(new AggregationProcessor("metric_type", "value", AggregationType.P95,
+                                                                WindowSpec.tumbling(50)));
+        streamingPipeline.addSink(new FileSink("/output/sensor_p95.csv", "csv"));
+        
+        streamingPipeline.start();
+        try {
+            Thread.sleep(200);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        streamingPipeline.displayPipelineStatus();
+        streamingPipeline.shutdown();
+        
         System.out.println("\n=== Demo Complete ===");
         System.out.println("✅ Analytics Pipeline successfully demonstrated:");
         System.out.println("   • Runtime component swapping (sources, processors, sinks)");
         System.out.println("   • Chain of responsibility pattern for data processing");
         System.out.println("   • Asynchronous batch processing");
+        System.out.println("   • Backpressured streaming execution");
+        System.out.println("   • Checkpointed, exactly-once sink delivery");
         System.out.println("   • Comprehensive error handling and recovery");
         System.out.println("   • Real-time metrics collection");
         System.out.println("   • Pipeline lifecycle management");
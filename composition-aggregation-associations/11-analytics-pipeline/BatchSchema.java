@@ -0,0 +1,50 @@
+package composition.analytics;
+
+import java.util.*;
+
+/**
+ * Batch Schema describing the ordered fields of a columnar batch
+ */
+public class BatchSchema {
+    private final List<String> fieldNames;
+    private final List<ColumnType> fieldTypes;
+    private final Map<String, Integer> fieldIndex;
+    
+    public BatchSchema(List<String> fieldNames, List<ColumnType> fieldTypes) {
+        if (fieldNames.size() != fieldTypes.size()) {
+            throw new IllegalArgumentException("Field names and types must have the same length");
+        }
+        this.fieldNames = Collections.unmodifiableList(new ArrayList<>(fieldNames));
+        this.fieldTypes = Collections.unmodifiableList(new ArrayList<>(fieldTypes));
+        this.fieldIndex = new HashMap<>();
+        for (int i = 0; i < fieldNames.size(); i++) {
+            if (fieldIndex.put(fieldNames.get(i), i) != null) {
+                throw new IllegalArgumentException("Duplicate field: " + fieldNames.get(i));
+            }
+        }
+    }
+    
+    public int getFieldCount() { return fieldNames.size(); }
+    public String getFieldName(int index) { return fieldNames.get(index); }
+    public ColumnType getFieldType(int index) { return fieldTypes.get(index); }
+    public List<String> getFieldNames() { return fieldNames; }
+    
+    public int indexOf(String fieldName) {
+        Integer index = fieldIndex.get(fieldName);
+        return index != null ? index : -1;
+    }
+    
+    // Returns a schema with the field appended, or retyped if it already exists
+    public BatchSchema withField(String fieldName, ColumnType type) {
+        List<String> names = new ArrayList<>(fieldNames);
+        List<ColumnType> types = new ArrayList<>(fieldTypes);
+        int index = indexOf(fieldName);
+        if (index >= 0) {
+            types.set(index, type);
+        } else {
+            names.add(fieldName);
+            types.add(type);
+        }
+        return new BatchSchema(names, types);
+    }
+}
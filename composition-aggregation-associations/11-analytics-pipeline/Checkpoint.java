@@ -0,0 +1,28 @@
+package composition.analytics;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Checkpoint data class: processor state that reflects every batch up to a source offset
+ */
+public class Checkpoint implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    private final long checkpointId;
+    private final long sourceOffset;
+    private final HashMap<String, Serializable> processorStates;
+    private final long createdAt;
+    
+    public Checkpoint(long checkpointId, long sourceOffset, Map<String, Serializable> processorStates) {
+        this.checkpointId = checkpointId;
+        this.sourceOffset = sourceOffset;
+        this.processorStates = new HashMap<>(processorStates);
+        this.createdAt = System.currentTimeMillis();
+    }
+    
+    public long getCheckpointId() { return checkpointId; }
+    public long getSourceOffset() { return sourceOffset; }
+    public Map<String, Serializable> getProcessorStates() { return Collections.unmodifiableMap(processorStates); }
+    public long getCreatedAt() { return createdAt; }
+}
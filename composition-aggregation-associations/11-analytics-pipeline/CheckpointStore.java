@@ -0,0 +1,258 @@
+package composition.analytics;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Checkpoint Store keeping checkpoints and sink commit markers in a local append-only file.
+ *
+ * Every entry is framed as [length][crc32][type][payload]. Checkpoints are forced
+ * to disk before the append returns. Sink commits are only written, and become
+ * durable with the next sync() or checkpoint, so one fsync covers every commit
+ * appended since the last one. Forces run outside the store's lock, so appends
+ * never wait on the disk. On recovery, entries are read until the first torn or
+ * corrupt frame, so a crash loses at most the unforced tail. When the file grows
+ * past the compaction threshold it is rewritten with just the latest checkpoint
+ * and the latest commit per sink, then atomically swapped in.
+ */
+public class CheckpointStore implements Closeable {
+    private static final byte CHECKPOINT_ENTRY = 1;
+    private static final byte SINK_COMMIT_ENTRY = 2;
+    private static final int HEADER_BYTES = 4 + 8 + 1;
+    
+    private final Path file;
+    private final long compactionThresholdBytes;
+    // Held across a force so compaction never swaps the channel out from under it
+    private final Object forceLock = new Object();
+    private FileChannel channel;
+    private long appendedPosition;
+    private long forcedPosition;
+    private Checkpoint latestCheckpoint;
+    private final Map<String, Long> committedBatchIds;
+    
+    public CheckpointStore(Path file) {
+        this(file, 16L * 1024 * 1024);
+    }
+    
+    public CheckpointStore(Path file, long compactionThresholdBytes) {
+        this.file = file;
+        this.compactionThresholdBytes = compactionThresholdBytes;
+        this.committedBatchIds = new HashMap<>();
+    }
+    
+    /**
+     * Reads the file, truncates any torn tail and opens it for appending.
+     * Returns the latest complete checkpoint, or null if there is none.
+     */
+    public Checkpoint recover() throws IOException {
+        synchronized (forceLock) {
+            synchronized (this) {
+                return replay();
+            }
+        }
+    }
+    
+    private Checkpoint replay() throws IOException {
+        close();
+        latestCheckpoint = null;
+        committedBatchIds.clear();
+        
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        
+        long validLength = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (true) {
+            header.clear();
+            if (channel.read(header, validLength) < HEADER_BYTES) {
+                break;
+            }
+            header.flip();
+            int length = header.getInt();
+            long crc = header.getLong();
+            byte type = header.get();
+            if (length < 0 || validLength + HEADER_BYTES + length > channel.size()) {
+                break;
+            }
+            
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            channel.read(payload, validLength + HEADER_BYTES);
+            if (checksum(type, payload.array()) != crc) {
+                break;
+            }
+            apply(type, payload.array());
+            validLength += HEADER_BYTES + length;
+        }
+        
+        channel.truncate(validLength);
+        channel.position(validLength);
+        appendedPosition = validLength;
+        forcedPosition = validLength;
+        return latestCheckpoint;
+    }
+    
+    /**
+     * Appends the checkpoint and forces it, together with any sink commits written before it.
+     */
+    public void appendCheckpoint(Checkpoint checkpoint) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(checkpoint);
+        }
+        synchronized (forceLock) {
+            synchronized (this) {
+                append(CHECKPOINT_ENTRY, bytes.toByteArray());
+            }
+            force();
+            synchronized (this) {
+                latestCheckpoint = checkpoint;
+                compactIfNeeded();
+            }
+        }
+    }
+    
+    /**
+     * Records the commit in memory at once; it reaches disk with the next sync() or checkpoint.
+     */
+    public synchronized void appendSinkCommit(String sinkName, long batchId) throws IOException {
+        append(SINK_COMMIT_ENTRY, encodeSinkCommit(sinkName, batchId));
+        committedBatchIds.merge(sinkName, batchId, Math::max);
+    }
+    
+    /**
+     * Forces everything appended so far; a no-op when an earlier force already covered it.
+     */
+    public void sync() throws IOException {
+        synchronized (forceLock) {
+            force();
+        }
+    }
+    
+    // Caller holds forceLock
+    private void force() throws IOException {
+        FileChannel target;
+        long position;
+        synchronized (this) {
+            if (channel == null || forcedPosition >= appendedPosition) {
+                return;
+            }
+            target = channel;
+            position = appendedPosition;
+        }
+        target.force(false);
+        synchronized (this) {
+            forcedPosition = Math.max(forcedPosition, position);
+        }
+    }
+    
+    // Highest batch id the sink has committed, or Long.MIN_VALUE if none
+    public synchronized long getCommittedBatchId(String sinkName) {
+        return committedBatchIds.getOrDefault(sinkName, Long.MIN_VALUE);
+    }
+    
+    public synchronized Checkpoint getLatestCheckpoint() {
+        return latestCheckpoint;
+    }
+    
+    private void append(byte type, byte[] payload) throws IOException {
+        if (channel == null) {
+            throw new IllegalStateException("Checkpoint store has not been recovered");
+        }
+        channel.write(frame(type, payload));
+        appendedPosition = channel.position();
+    }
+    
+    private ByteBuffer frame(byte type, byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        buffer.putInt(payload.length);
+        buffer.putLong(checksum(type, payload));
+        buffer.put(type);
+        buffer.put(payload);
+        buffer.flip();
+        return buffer;
+    }
+    
+    private void apply(byte type, byte[] payload) throws IOException {
+        if (type == CHECKPOINT_ENTRY) {
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+                latestCheckpoint = (Checkpoint) in.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Unreadable checkpoint entry", e);
+            }
+        } else if (type == SINK_COMMIT_ENTRY) {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            committedBatchIds.merge(in.readUTF(), in.readLong(), Math::max);
+        }
+    }
+    
+    private void compactIfNeeded() throws IOException {
+        if (channel.size() < compactionThresholdBytes) {
+            return;
+        }
+        
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                                                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            if (latestCheckpoint != null) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream objects = new ObjectOutputStream(bytes)) {
+                    objects.writeObject(latestCheckpoint);
+                }
+                out.write(frame(CHECKPOINT_ENTRY, bytes.toByteArray()));
+            }
+            for (Map.Entry<String, Long> commit : committedBatchIds.entrySet()) {
+                out.write(frame(SINK_COMMIT_ENTRY, encodeSinkCommit(commit.getKey(), commit.getValue())));
+            }
+            out.force(true);
+        }
+        
+        channel.close();
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        appendedPosition = channel.size();
+        forcedPosition = appendedPosition;
+    }
+    
+    private static byte[] encodeSinkCommit(String sinkName, long batchId) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(sinkName);
+        out.writeLong(batchId);
+        out.flush();
+        return bytes.toByteArray();
+    }
+    
+    private static long checksum(byte type, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        return crc.getValue();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        synchronized (forceLock) {
+            synchronized (this) {
+                if (channel != null) {
+                    try {
+                        if (forcedPosition < appendedPosition) {
+                            channel.force(false);
+                        }
+                    } finally {
+                        channel.close();
+                        channel = null;
+                    }
+                }
+            }
+        }
+    }
+    
+    public Path getFile() { return file; }
+}
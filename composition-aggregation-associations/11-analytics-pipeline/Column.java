@@ -0,0 +1,18 @@
+package composition.analytics;
+
+/**
+ * Column interface for a single field of a columnar batch
+ */
+public interface Column {
+    ColumnType getType();
+    int size();
+    boolean isNull(int row);
+    Object getObject(int row);
+    
+    // Numeric access without boxing; only meaningful when isNumber(row) is true
+    boolean isNumber(int row);
+    double getAsDouble(int row);
+    
+    // Gathers the given rows into a new column of the same type
+    Column select(int[] rows, int count);
+}
@@ -0,0 +1,11 @@
+package composition.analytics;
+
+/**
+ * Column Type enum for columnar batch storage
+ */
+public enum ColumnType {
+    DOUBLE,   // primitive double[]
+    LONG,     // primitive long[]
+    STRING,   // dictionary-encoded int codes
+    OBJECT    // boxed fallback for mixed or other value types
+}
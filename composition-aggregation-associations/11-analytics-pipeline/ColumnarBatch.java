@@ -0,0 +1,192 @@
+package composition.analytics;
+
+import java.util.*;
+
+/**
+ * Columnar Batch storing each field as a primitive or dictionary-encoded column.
+ *
+ * Columns are immutable once built; select() and withColumn() return new
+ * batches that share every column they do not change.
+ */
+public class ColumnarBatch {
+    private final BatchSchema schema;
+    private final Column[] columns;
+    private final String[] recordIds;
+    private final long[] timestamps;
+    private final int rowCount;
+    
+    public ColumnarBatch(BatchSchema schema, Column[] columns, String[] recordIds, long[] timestamps) {
+        if (columns.length != schema.getFieldCount()) {
+            throw new IllegalArgumentException("Column count does not match schema");
+        }
+        this.rowCount = recordIds.length;
+        for (Column column : columns) {
+            if (column.size() != rowCount) {
+                throw new IllegalArgumentException("All columns must have " + rowCount + " rows");
+            }
+        }
+        if (timestamps.length != rowCount) {
+            throw new IllegalArgumentException("Timestamps must have " + rowCount + " rows");
+        }
+        this.schema = schema;
+        this.columns = columns;
+        this.recordIds = recordIds;
+        this.timestamps = timestamps;
+    }
+    
+    /**
+     * Converts row records into columns. A field becomes DOUBLE or LONG only if
+     * every non-null value is a Double or Long respectively, and STRING only if
+     * every value is a String; anything else is kept boxed so no value changes type.
+     */
+    public static ColumnarBatch fromRecords(List<DataRecord> records) {
+        int rowCount = records.size();
+        Map<String, ColumnType> inferredTypes = new LinkedHashMap<>();
+        
+        for (DataRecord record : records) {
+            for (Map.Entry<String, Object> entry : record.getData().entrySet()) {
+                Object value = entry.getValue();
+                if (value == null) {
+                    inferredTypes.putIfAbsent(entry.getKey(), null);
+                    continue;
+                }
+                ColumnType valueType = typeOf(value);
+                ColumnType current = inferredTypes.get(entry.getKey());
+                if (current == null) {
+                    inferredTypes.put(entry.getKey(), valueType);
+                } else if (current != valueType) {
+                    inferredTypes.put(entry.getKey(), ColumnType.OBJECT);
+                }
+            }
+        }
+        
+        List<String> names = new ArrayList<>(inferredTypes.keySet());
+        List<ColumnType> types = new ArrayList<>();
+        for (String name : names) {
+            ColumnType type = inferredTypes.get(name);
+            types.add(type != null ? type : ColumnType.OBJECT);
+        }
+        BatchSchema schema = new BatchSchema(names, types);
+        
+        String[] recordIds = new String[rowCount];
+        long[] timestamps = new long[rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            recordIds[row] = records.get(row).getId();
+            timestamps[row] = records.get(row).getTimestamp();
+        }
+        
+        Column[] columns = new Column[names.size()];
+        for (int col = 0; col < columns.length; col++) {
+            columns[col] = buildColumn(records, names.get(col), types.get(col));
+        }
+        
+        return new ColumnarBatch(schema, columns, recordIds, timestamps);
+    }
+    
+    private static ColumnType typeOf(Object value) {
+        if (value instanceof Double) {
+            return ColumnType.DOUBLE;
+        }
+        if (value instanceof Long) {
+            return ColumnType.LONG;
+        }
+        if (value instanceof String) {
+            return ColumnType.STRING;
+        }
+        return ColumnType.OBJECT;
+    }
+    
+    private static Column buildColumn(List<DataRecord> records, String field, ColumnType type) {
+        int rowCount = records.size();
+        BitSet nulls = new BitSet(rowCount);
+        
+        switch (type) {
+            case DOUBLE: {
+                double[] values = new double[rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    Object value = records.get(row).getValue(field);
+                    if (value == null) {
+                        nulls.set(row);
+                    } else {
+                        values[row] = (Double) value;
+                    }
+                }
+                return new DoubleColumn(values, nulls);
+            }
+            case LONG: {
+                long[] values = new long[rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    Object value = records.get(row).getValue(field);
+                    if (value == null) {
+                        nulls.set(row);
+                    } else {
+                        values[row] = (Long) value;
+                    }
+                }
+                return new LongColumn(values, nulls);
+            }
+            case STRING: {
+                String[] values = new String[rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    values[row] = (String) records.get(row).getValue(field);
+                }
+                return StringColumn.encode(values);
+            }
+            default: {
+                Object[] values = new Object[rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    values[row] = records.get(row).getValue(field);
+                }
+                return new ObjectColumn(values);
+            }
+        }
+    }
+    
+    public BatchSchema getSchema() { return schema; }
+    public int getRowCount() { return rowCount; }
+    public Column getColumn(int index) { return columns[index]; }
+    public String getRecordId(int row) { return recordIds[row]; }
+    public long getTimestamp(int row) { return timestamps[row]; }
+    
+    public Column getColumn(String fieldName) {
+        int index = schema.indexOf(fieldName);
+        return index >= 0 ? columns[index] : null;
+    }
+    
+    public Object getValue(int row, String fieldName) {
+        Column column = getColumn(fieldName);
+        return column != null ? column.getObject(row) : null;
+    }
+    
+    // Gathers the first count row indexes of rows into a new batch
+    public ColumnarBatch select(int[] rows, int count) {
+        Column[] selectedColumns = new Column[columns.length];
+        for (int col = 0; col < columns.length; col++) {
+            selectedColumns[col] = columns[col].select(rows, count);
+        }
+        String[] selectedIds = new String[count];
+        long[] selectedTimestamps = new long[count];
+        for (int i = 0; i < count; i++) {
+            selectedIds[i] = recordIds[rows[i]];
+            selectedTimestamps[i] = timestamps[rows[i]];
+        }
+        return new ColumnarBatch(schema, selectedColumns, selectedIds, selectedTimestamps);
+    }
+    
+    // Adds or replaces a column; all other columns are shared, not copied
+    public ColumnarBatch withColumn(String fieldName, Column column) {
+        BatchSchema newSchema = schema.withField(fieldName, column.getType());
+        Column[] newColumns = Arrays.copyOf(columns, newSchema.getFieldCount());
+        newColumns[newSchema.indexOf(fieldName)] = column;
+        return new ColumnarBatch(newSchema, newColumns, recordIds, timestamps);
+    }
+    
+    // Row-oriented adapter for DataRecord-based processors and sinks
+    public List<DataRecord> toRecords() {
+        List<DataRecord> records = new ArrayList<>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            records.add(new ColumnarRowView(this, row));
+        }
+        return records;
+    }
+}
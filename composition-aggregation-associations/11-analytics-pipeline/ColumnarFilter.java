@@ -0,0 +1,8 @@
+package composition.analytics;
+
+/**
+ * Columnar Filter interface for filtering rows by reading columns directly
+ */
+public interface ColumnarFilter {
+    boolean accept(ColumnarBatch batch, int row);
+}
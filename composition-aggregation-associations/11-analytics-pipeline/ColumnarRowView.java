@@ -0,0 +1,59 @@
+package composition.analytics;
+
+import java.util.*;
+
+/**
+ * Columnar Row View adapting one row of a ColumnarBatch to the DataRecord API.
+ *
+ * Reads go straight to the columns. The row is only copied into a map when
+ * getData() or setValue() is called, and writes stay local to this view.
+ */
+public class ColumnarRowView extends DataRecord {
+    private ColumnarBatch batch;
+    private int row;
+    private Map<String, Object> materialized;
+    
+    public ColumnarRowView(ColumnarBatch batch, int row) {
+        super(null, null);
+        this.batch = batch;
+        this.row = row;
+    }
+    
+    // Repositions a reusable view, e.g. when scanning a batch with a DataFilter
+    void moveTo(ColumnarBatch batch, int row) {
+        this.batch = batch;
+        this.row = row;
+        this.materialized = null;
+    }
+    
+    @Override
+    public String getId() { return batch.getRecordId(row); }
+    
+    @Override
+    public long getTimestamp() { return batch.getTimestamp(row); }
+    
+    @Override
+    public Map<String, Object> getData() {
+        if (materialized == null) {
+            materialized = new LinkedHashMap<>();
+            BatchSchema schema = batch.getSchema();
+            for (int col = 0; col < schema.getFieldCount(); col++) {
+                Object value = batch.getColumn(col).getObject(row);
+                if (value != null) {
+                    materialized.put(schema.getFieldName(col), value);
+                }
+            }
+        }
+        return materialized;
+    }
+    
+    @Override
+    public Object getValue(String key) {
+        return materialized != null ? materialized.get(key) : batch.getValue(row, key);
+    }
+    
+    @Override
+    public void setValue(String key, Object value) {
+        getData().put(key, value);
+    }
+}
@@ -0,0 +1,8 @@
+package composition.analytics;
+
+/**
+ * Columnar Transformer interface for transforming whole columns at once
+ */
+public interface ColumnarTransformer {
+    ColumnarBatch transform(ColumnarBatch batch);
+}
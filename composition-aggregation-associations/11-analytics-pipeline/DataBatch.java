@@ -3,11 +3,17 @@ package composition.analytics;
 import java.util.*;
 
 /**
- * Data Batch class representing a collection of data records
+ * Data Batch class representing a collection of data records.
+ *
+ * A batch holds either row records, a columnar representation, or both.
+ * Each representation is derived from the other on first use and cached.
+ * That lazy conversion is not synchronized: a batch shared across threads
+ * must only be read in a form it already holds.
  */
 public class DataBatch {
-    private final List<DataRecord> records;
-    private final long batchId;
+    private List<DataRecord> records;   // null while the batch is columnar-only
+    private ColumnarBatch columnar;     // null until requested or after a mutation
+    private long batchId;
     private final long createdAt;
     
     public DataBatch(List<DataRecord> records) {
@@ -16,21 +22,51 @@ public class DataBatch {
         this.createdAt = System.currentTimeMillis();
     }
     
-    public List<DataRecord> getRecords() { return new ArrayList<>(records); }
+    public DataBatch(ColumnarBatch columnar) {
+        this.columnar = columnar;
+        this.batchId = System.currentTimeMillis();
+        this.createdAt = System.currentTimeMillis();
+    }
+    
+    public List<DataRecord> getRecords() { return Collections.unmodifiableList(rowRecords()); }
     public long getBatchId() { return batchId; }
     public long getCreatedAt() { return createdAt; }
-    public int size() { return records.size(); }
-    public boolean isEmpty() { return records.isEmpty(); }
+    public int size() { return records != null ? records.size() : columnar.getRowCount(); }
+    public boolean isEmpty() { return size() == 0; }
+    public boolean isColumnar() { return columnar != null; }
+    
+    // Lets the pipeline key a batch, and everything derived from it, by source offset
+    void setBatchId(long batchId) { this.batchId = batchId; }
+    
+    public ColumnarBatch toColumnar() {
+        if (columnar == null) {
+            columnar = ColumnarBatch.fromRecords(records);
+        }
+        return columnar;
+    }
+    
+    private List<DataRecord> rowRecords() {
+        if (records == null) {
+            records = columnar.toRecords();
+        }
+        return records;
+    }
     
     public void addRecord(DataRecord record) {
-        records.add(record);
+        rowRecords().add(record);
+        columnar = null;
     }
     
     public void removeRecord(DataRecord record) {
-        records.remove(record);
+        rowRecords().remove(record);
+        columnar = null;
     }
     
     public DataBatch filter(DataFilter filter) {
+        if (records == null) {
+            return new DataBatch(filterColumnar(filter));
+        }
+        
         List<DataRecord> filteredRecords = new ArrayList<>();
         for (DataRecord record : records) {
             if (filter.accept(record)) {
@@ -39,4 +75,20 @@ public class DataBatch {
         }
         return new DataBatch(filteredRecords);
     }
+    
+    // Runs a record-based filter over columns through one reused row view
+    private ColumnarBatch filterColumnar(DataFilter filter) {
+        int rowCount = columnar.getRowCount();
+        int[] selection = new int[rowCount];
+        int selected = 0;
+        ColumnarRowView view = new ColumnarRowView(columnar, 0);
+        
+        for (int row = 0; row < rowCount; row++) {
+            view.moveTo(columnar, row);
+            if (filter.accept(view)) {
+                selection[selected++] = row;
+            }
+        }
+        return columnar.select(selection, selected);
+    }
 }
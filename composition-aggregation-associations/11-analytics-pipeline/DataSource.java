@@ -8,6 +8,10 @@ import java.util.Map;
 public interface DataSource {
     void initialize(Map<String, Object> configuration);
     DataBatch fetchData();
+    
+    // Position after the last record returned by fetchData(); used as the replay point
+    long getCurrentOffset();
+    void seek(long offset);
     void stop();
     boolean isHealthy();
     String getSourceName();
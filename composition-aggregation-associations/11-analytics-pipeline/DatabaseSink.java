@@ -1,22 +1,27 @@
 package composition.analytics;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Database Sink implementation for writing data to database
  */
-public class DatabaseSink implements DataSink {
+public class DatabaseSink implements TransactionalSink {
     private final String databaseUrl;
     private final String tableName;
     private boolean isHealthy;
     private final AtomicLong recordsWritten;
+    private final Map<Long, List<String>> stagedBatches;
+    private long lastCommittedBatchId;
     
     public DatabaseSink(String databaseUrl, String tableName) {
         this.databaseUrl = databaseUrl;
         this.tableName = tableName;
         this.isHealthy = true;
         this.recordsWritten = new AtomicLong(0);
+        this.stagedBatches = new ConcurrentHashMap<>();
+        this.lastCommittedBatchId = Long.MIN_VALUE;
     }
     
     @Override
@@ -42,6 +47,41 @@ public class DatabaseSink implements DataSink {
         }
     }
     
+    // Simulates an open transaction holding the batch's inserts
+    @Override
+    public SinkResult prepare(DataBatch batch) {
+        try {
+            List<String> recordIds = new ArrayList<>();
+            for (DataRecord record : batch.getRecords()) {
+                recordIds.add(record.getId());
+            }
+            stagedBatches.put(batch.getBatchId(), recordIds);
+            return new SinkResult(true, batch.size(), null);
+            
+        } catch (Exception e) {
+            return new SinkResult(false, 0, "Database stage failed: " + e.getMessage());
+        }
+    }
+    
+    // Simulates COMMIT with the batch id upserted into a commit table in the same transaction
+    @Override
+    public synchronized void commit(long batchId) {
+        List<String> recordIds = stagedBatches.remove(batchId);
+        if (recordIds == null || batchId <= lastCommittedBatchId) {
+            return;
+        }
+        for (String recordId : recordIds) {
+            System.out.printf("🗄️ INSERT INTO %s VALUES (%s)\n", tableName, recordId);
+            recordsWritten.incrementAndGet();
+        }
+        lastCommittedBatchId = batchId;
+    }
+    
+    @Override
+    public void abort(long batchId) {
+        stagedBatches.remove(batchId);
+    }
+    
     @Override
     public void cleanup() {
         System.out.println("🗄️ Cleaning up database sink");
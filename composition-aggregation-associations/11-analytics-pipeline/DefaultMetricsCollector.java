@@ -49,6 +49,11 @@ public class DefaultMetricsCollector implements MetricsCollector {
         metrics.incrementErrorCount();
     }
     
+    @Override
+    public void recordQueueDepth(String queueName, int depth) {
+        metrics.updateQueueDepth(queueName, depth);
+    }
+    
     @Override
     public PipelineMetrics getMetrics() {
         return metrics;
@@ -0,0 +1,53 @@
+package composition.analytics;
+
+import java.util.BitSet;
+
+/**
+ * Double Column backed by a primitive array
+ */
+public class DoubleColumn implements Column {
+    private final double[] values;
+    private final BitSet nulls; // null when the column has no missing values
+    
+    public DoubleColumn(double[] values, BitSet nulls) {
+        this.values = values;
+        this.nulls = nulls != null && !nulls.isEmpty() ? nulls : null;
+    }
+    
+    public DoubleColumn(double[] values) {
+        this(values, null);
+    }
+    
+    public double getDouble(int row) { return values[row]; }
+    
+    @Override
+    public ColumnType getType() { return ColumnType.DOUBLE; }
+    
+    @Override
+    public int size() { return values.length; }
+    
+    @Override
+    public boolean isNull(int row) { return nulls != null && nulls.get(row); }
+    
+    @Override
+    public Object getObject(int row) { return isNull(row) ? null : values[row]; }
+    
+    @Override
+    public boolean isNumber(int row) { return !isNull(row); }
+    
+    @Override
+    public double getAsDouble(int row) { return values[row]; }
+    
+    @Override
+    public Column select(int[] rows, int count) {
+        double[] selected = new double[count];
+        BitSet selectedNulls = nulls != null ? new BitSet(count) : null;
+        for (int i = 0; i < count; i++) {
+            selected[i] = values[rows[i]];
+            if (selectedNulls != null && nulls.get(rows[i])) {
+                selectedNulls.set(i);
+            }
+        }
+        return new DoubleColumn(selected, selectedNulls);
+    }
+}
@@ -0,0 +1,9 @@
+package composition.analytics;
+
+/**
+ * Execution Mode enum for choosing how the pipeline pulls data from its source
+ */
+public enum ExecutionMode {
+    POLLING,    // Fixed-delay polling, one async task per batch
+    STREAMING   // Continuous pull with bounded stage queues and sink-driven credits
+}
@@ -54,6 +54,16 @@ public class FileDataSource implements DataSource {
         return eventTypes[random.nextInt(eventTypes.length)];
     }
     
+    @Override
+    public long getCurrentOffset() {
+        return recordsRead.get();
+    }
+    
+    @Override
+    public void seek(long offset) {
+        recordsRead.set(offset);
+    }
+    
     @Override
     public void stop() {
         System.out.println("📁 Stopping file data source: " + filePath);
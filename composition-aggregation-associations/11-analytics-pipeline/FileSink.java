@@ -1,22 +1,27 @@
 package composition.analytics;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * File Sink implementation for writing data to files
  */
-public class FileSink implements DataSink {
+public class FileSink implements TransactionalSink {
     private final String filePath;
     private final String format;
     private boolean isHealthy;
     private final AtomicLong recordsWritten;
+    private final Map<Long, List<String>> stagedBatches;
+    private long lastCommittedBatchId;
     
     public FileSink(String filePath, String format) {
         this.filePath = filePath;
         this.format = format;
         this.isHealthy = true;
         this.recordsWritten = new AtomicLong(0);
+        this.stagedBatches = new ConcurrentHashMap<>();
+        this.lastCommittedBatchId = Long.MIN_VALUE;
     }
     
     @Override
@@ -42,6 +47,41 @@ public class FileSink implements DataSink {
         }
     }
     
+    // Simulates writing a temp file named after the batch id
+    @Override
+    public SinkResult prepare(DataBatch batch) {
+        try {
+            List<String> lines = new ArrayList<>();
+            for (DataRecord record : batch.getRecords()) {
+                lines.add(formatRecord(record));
+            }
+            stagedBatches.put(batch.getBatchId(), lines);
+            return new SinkResult(true, batch.size(), null);
+            
+        } catch (Exception e) {
+            return new SinkResult(false, 0, "File stage failed: " + e.getMessage());
+        }
+    }
+    
+    // Simulates renaming the temp file into place; a batch id at or below the last commit is a replay
+    @Override
+    public synchronized void commit(long batchId) {
+        List<String> lines = stagedBatches.remove(batchId);
+        if (lines == null || batchId <= lastCommittedBatchId) {
+            return;
+        }
+        for (String line : lines) {
+            System.out.printf("📄 Writing to %s: %s\n", filePath, line);
+            recordsWritten.incrementAndGet();
+        }
+        lastCommittedBatchId = batchId;
+    }
+    
+    @Override
+    public void abort(long batchId) {
+        stagedBatches.remove(batchId);
+    }
+    
     private String formatRecord(DataRecord record) {
         switch (format.toLowerCase()) {
             case "json":
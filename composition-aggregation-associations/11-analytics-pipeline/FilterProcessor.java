@@ -3,14 +3,24 @@ package composition.analytics;
 import java.util.*;
 
 /**
- * Filter Processor implementation for filtering data records
+ * Filter Processor implementation for filtering data records.
+ * A ColumnarFilter reads columns directly; a DataFilter also runs on columnar
+ * batches through a reused row view, so existing filters keep working.
  */
-public class FilterProcessor implements DataProcessor {
+public class FilterProcessor implements FusableProcessor {
     private final DataFilter filter;
+    private final ColumnarFilter columnarFilter;
     private boolean isHealthy;
     
     public FilterProcessor(DataFilter filter) {
         this.filter = filter;
+        this.columnarFilter = null;
+        this.isHealthy = true;
+    }
+    
+    public FilterProcessor(ColumnarFilter columnarFilter) {
+        this.filter = null;
+        this.columnarFilter = columnarFilter;
         this.isHealthy = true;
     }
     
@@ -25,7 +35,9 @@ public class FilterProcessor implements DataProcessor {
         long startTime = System.currentTimeMillis();
         
         try {
-            DataBatch filteredBatch = batch.filter(filter);
+            DataBatch filteredBatch = columnarFilter != null
+                ? new DataBatch(filterColumnar(batch.toColumnar()))
+                : batch.filter(filter);
             long processingTime = System.currentTimeMillis() - startTime;
             
             System.out.printf("🔍 Filtered %d records to %d records\n", 
@@ -39,6 +51,29 @@ public class FilterProcessor implements DataProcessor {
         }
     }
     
+    @Override
+    public boolean isFusable() {
+        return filter != null;
+    }
+    
+    @Override
+    public DataRecord applyTo(DataRecord record) {
+        return filter.accept(record) ? record : null;
+    }
+    
+    private ColumnarBatch filterColumnar(ColumnarBatch columns) {
+        int rowCount = columns.getRowCount();
+        int[] selection = new int[rowCount];
+        int selected = 0;
+        
+        for (int row = 0; row < rowCount; row++) {
+            if (columnarFilter.accept(columns, row)) {
+                selection[selected++] = row;
+            }
+        }
+        return columns.select(selection, selected);
+    }
+    
     @Override
     public void cleanup() {
         System.out.println("🔍 Cleaning up filter processor");
@@ -0,0 +1,13 @@
+package composition.analytics;
+
+/**
+ * Fusable Processor interface for stateless stages that can run record-at-a-time.
+ * Consecutive fusable stages are combined into one FusedProcessor loop so no
+ * intermediate batch is built between them.
+ */
+public interface FusableProcessor extends DataProcessor {
+    boolean isFusable();
+    
+    // Applies this stage to one record; null means the record is dropped
+    DataRecord applyTo(DataRecord record);
+}
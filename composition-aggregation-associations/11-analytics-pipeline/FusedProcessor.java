@@ -0,0 +1,129 @@
+package composition.analytics;
+
+import java.util.*;
+
+/**
+ * Fused Processor running a run of consecutive stateless stages in one loop.
+ * Each record passes through every stage before the next record is read, so
+ * no intermediate batch is built between stages. A chain of DataFilters over
+ * a columnar batch only collects selected row indexes and stays columnar.
+ */
+public class FusedProcessor implements DataProcessor {
+    private final List<FusableProcessor> stages;
+    private final boolean filtersOnly;
+    
+    public FusedProcessor(List<FusableProcessor> stages) {
+        if (stages.isEmpty()) {
+            throw new IllegalArgumentException("A fused processor needs at least one stage");
+        }
+        this.stages = new ArrayList<>(stages);
+        boolean onlyFilters = true;
+        for (FusableProcessor stage : stages) {
+            onlyFilters &= stage instanceof FilterProcessor;
+        }
+        this.filtersOnly = onlyFilters;
+    }
+    
+    @Override
+    public void initialize(Map<String, Object> configuration) {
+        // Underlying stages are initialized by the pipeline when they are added
+    }
+    
+    @Override
+    public ProcessingResult process(DataBatch batch) {
+        long startTime = System.currentTimeMillis();
+        
+        try {
+            DataBatch output;
+            if (canSelectColumnar(batch)) {
+                ColumnarBatch columns = batch.toColumnar();
+                int[] selection = selectRange(columns, 0, columns.getRowCount());
+                output = new DataBatch(columns.select(selection, selection.length));
+            } else {
+                List<DataRecord> records = batch.getRecords();
+                output = new DataBatch(applyToRange(records, 0, records.size()));
+            }
+            long processingTime = System.currentTimeMillis() - startTime;
+            
+            System.out.printf("⚡ %s: %d records in, %d records out\n", getProcessorName(), batch.size(), output.size());
+            
+            return new ProcessingResult(true, output, null, processingTime);
+            
+        } catch (Exception e) {
+            long processingTime = System.currentTimeMillis() - startTime;
+            return new ProcessingResult(false, null, "Fused processing failed: " + e.getMessage(), processingTime);
+        }
+    }
+    
+    public boolean canSelectColumnar(DataBatch batch) {
+        return filtersOnly && batch.isColumnar();
+    }
+    
+    // Runs all stages over records [from, to) and returns the survivors in order
+    public List<DataRecord> applyToRange(List<DataRecord> records, int from, int to) {
+        List<DataRecord> output = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            DataRecord record = records.get(i);
+            for (int s = 0; s < stages.size() && record != null; s++) {
+                record = stages.get(s).applyTo(record);
+            }
+            if (record != null) {
+                output.add(record);
+            }
+        }
+        return output;
+    }
+    
+    // Filters-only path: evaluates rows [from, to) through one reused row view
+    public int[] selectRange(ColumnarBatch columns, int from, int to) {
+        int[] selection = new int[to - from];
+        int selected = 0;
+        ColumnarRowView view = new ColumnarRowView(columns, from);
+        
+        for (int row = from; row < to; row++) {
+            view.moveTo(columns, row);
+            DataRecord record = view;
+            for (int s = 0; s < stages.size() && record != null; s++) {
+                record = stages.get(s).applyTo(record);
+            }
+            if (record != null) {
+                selection[selected++] = row;
+            }
+        }
+        return Arrays.copyOf(selection, selected);
+    }
+    
+    public List<FusableProcessor> getStages() {
+        return Collections.unmodifiableList(stages);
+    }
+    
+    @Override
+    public void cleanup() {
+        // Underlying stages are cleaned up by the pipeline
+    }
+    
+    @Override
+    public boolean isHealthy() {
+        for (FusableProcessor stage : stages) {
+            if (!stage.isHealthy()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    @Override
+    public String getProcessorName() {
+        if (stages.size() == 1) {
+            return stages.get(0).getProcessorName();
+        }
+        StringBuilder name = new StringBuilder("Fused [");
+        for (int i = 0; i < stages.size(); i++) {
+            if (i > 0) {
+                name.append(" -> ");
+            }
+            name.append(stages.get(i).getProcessorName());
+        }
+        return name.append("]").toString();
+    }
+}
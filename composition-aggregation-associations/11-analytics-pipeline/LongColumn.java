@@ -0,0 +1,53 @@
+package composition.analytics;
+
+import java.util.BitSet;
+
+/**
+ * Long Column backed by a primitive array
+ */
+public class LongColumn implements Column {
+    private final long[] values;
+    private final BitSet nulls; // null when the column has no missing values
+    
+    public LongColumn(long[] values, BitSet nulls) {
+        this.values = values;
+        this.nulls = nulls != null && !nulls.isEmpty() ? nulls : null;
+    }
+    
+    public LongColumn(long[] values) {
+        this(values, null);
+    }
+    
+    public long getLong(int row) { return values[row]; }
+    
+    @Override
+    public ColumnType getType() { return ColumnType.LONG; }
+    
+    @Override
+    public int size() { return values.length; }
+    
+    @Override
+    public boolean isNull(int row) { return nulls != null && nulls.get(row); }
+    
+    @Override
+    public Object getObject(int row) { return isNull(row) ? null : values[row]; }
+    
+    @Override
+    public boolean isNumber(int row) { return !isNull(row); }
+    
+    @Override
+    public double getAsDouble(int row) { return values[row]; }
+    
+    @Override
+    public Column select(int[] rows, int count) {
+        long[] selected = new long[count];
+        BitSet selectedNulls = nulls != null ? new BitSet(count) : null;
+        for (int i = 0; i < count; i++) {
+            selected[i] = values[rows[i]];
+            if (selectedNulls != null && nulls.get(rows[i])) {
+                selectedNulls.set(i);
+            }
+        }
+        return new LongColumn(selected, selectedNulls);
+    }
+}
@@ -10,6 +10,7 @@ public interface MetricsCollector {
     void recordProcessorExecution(String processorName, long processingTime);
     void recordSinkWrite(String sinkName, int recordCount);
     void recordError(String errorType);
+    void recordQueueDepth(String queueName, int depth);
     PipelineMetrics getMetrics();
     String getCollectorName();
 }
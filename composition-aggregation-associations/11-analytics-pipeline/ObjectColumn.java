@@ -0,0 +1,42 @@
+package composition.analytics;
+
+/**
+ * Object Column holding boxed values for fields that do not fit a primitive type
+ */
+public class ObjectColumn implements Column {
+    private final Object[] values;
+    
+    public ObjectColumn(Object[] values) {
+        this.values = values;
+    }
+    
+    @Override
+    public ColumnType getType() { return ColumnType.OBJECT; }
+    
+    @Override
+    public int size() { return values.length; }
+    
+    @Override
+    public boolean isNull(int row) { return values[row] == null; }
+    
+    @Override
+    public Object getObject(int row) { return values[row]; }
+    
+    @Override
+    public boolean isNumber(int row) { return values[row] instanceof Number; }
+    
+    @Override
+    public double getAsDouble(int row) {
+        Object value = values[row];
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+    
+    @Override
+    public Column select(int[] rows, int count) {
+        Object[] selected = new Object[count];
+        for (int i = 0; i < count; i++) {
+            selected[i] = values[rows[i]];
+        }
+        return new ObjectColumn(selected);
+    }
+}
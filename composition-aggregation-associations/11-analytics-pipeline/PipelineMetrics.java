@@ -1,5 +1,8 @@
 package composition.analytics;
 
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Pipeline Metrics data class
  */
@@ -8,23 +11,27 @@ public class PipelineMetrics {
     private long recordsProcessed;
     private long errorCount;
     private double totalProcessingTime;
+    private final Map<String, Integer> queueDepths;
     
     public PipelineMetrics() {
         this.batchesProcessed = 0;
         this.recordsProcessed = 0;
         this.errorCount = 0;
         this.totalProcessingTime = 0.0;
+        this.queueDepths = new ConcurrentHashMap<>();
     }
     
     public void incrementBatchesProcessed() { batchesProcessed++; }
     public void addRecordsProcessed(long count) { recordsProcessed += count; }
     public void incrementErrorCount() { errorCount++; }
     public void addProcessingTime(double time) { totalProcessingTime += time; }
+    public void updateQueueDepth(String queueName, int depth) { queueDepths.put(queueName, depth); }
     
     public long getBatchesProcessed() { return batchesProcessed; }
     public long getRecordsProcessed() { return recordsProcessed; }
     public long getErrorCount() { return errorCount; }
     public double getTotalProcessingTime() { return totalProcessingTime; }
+    public Map<String, Integer> getQueueDepths() { return new TreeMap<>(queueDepths); }
     
     public double getAverageProcessingTime() {
         return batchesProcessed > 0 ? totalProcessingTime / batchesProcessed : 0.0;
@@ -0,0 +1,170 @@
+package composition.analytics;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Processor Chain compiling the pipeline's processors into an execution plan.
+ *
+ * Consecutive fusable stages are merged into FusedProcessors. When a batch is
+ * larger than the chunk size, fused stages run their chunks in parallel on the
+ * ForkJoinPool and the outputs are concatenated in order; aggregation builds a
+ * partial per chunk in parallel and merges them before emitting. All other
+ * stages run on the whole batch as before.
+ */
+public class ProcessorChain {
+    private final List<DataProcessor> stages;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    
+    public ProcessorChain(List<DataProcessor> processors, ForkJoinPool pool, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.stages = Collections.unmodifiableList(fuse(processors));
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+    
+    public static List<DataProcessor> fuse(List<DataProcessor> processors) {
+        List<DataProcessor> plan = new ArrayList<>();
+        List<FusableProcessor> run = new ArrayList<>();
+        
+        for (DataProcessor processor : processors) {
+            if (processor instanceof FusableProcessor && ((FusableProcessor) processor).isFusable()) {
+                run.add((FusableProcessor) processor);
+                continue;
+            }
+            if (!run.isEmpty()) {
+                plan.add(new FusedProcessor(run));
+                run = new ArrayList<>();
+            }
+            plan.add(processor);
+        }
+        if (!run.isEmpty()) {
+            plan.add(new FusedProcessor(run));
+        }
+        return plan;
+    }
+    
+    public List<DataProcessor> getStages() {
+        return stages;
+    }
+    
+    public ProcessingResult run(DataProcessor stage, DataBatch batch) {
+        if (batch.size() <= chunkSize || pool.getParallelism() < 2) {
+            return stage.process(batch);
+        }
+        if (stage instanceof FusedProcessor) {
+            return runFusedParallel((FusedProcessor) stage, batch);
+        }
+        if (stage instanceof AggregationProcessor) {
+            return runAggregationParallel((AggregationProcessor) stage, batch);
+        }
+        return stage.process(batch);
+    }
+    
+    private ProcessingResult runFusedParallel(FusedProcessor fused, DataBatch batch) {
+        long startTime = System.currentTimeMillis();
+        
+        try {
+            DataBatch output;
+            if (fused.canSelectColumnar(batch)) {
+                ColumnarBatch columns = batch.toColumnar();
+                List<Callable<int[]>> tasks = new ArrayList<>();
+                for (int from = 0; from < batch.size(); from += chunkSize) {
+                    int start = from;
+                    int end = Math.min(from + chunkSize, batch.size());
+                    tasks.add(() -> fused.selectRange(columns, start, end));
+                }
+                
+                List<int[]> selections = invokeAll(tasks);
+                int total = 0;
+                for (int[] selection : selections) {
+                    total += selection.length;
+                }
+                int[] combined = new int[total];
+                int offset = 0;
+                for (int[] selection : selections) {
+                    System.arraycopy(selection, 0, combined, offset, selection.length);
+                    offset += selection.length;
+                }
+                output = new DataBatch(columns.select(combined, total));
+            } else {
+                // Materialize once before forking; row views are cached on the batch
+                List<DataRecord> records = batch.getRecords();
+                List<Callable<List<DataRecord>>> tasks = new ArrayList<>();
+                for (int from = 0; from < records.size(); from += chunkSize) {
+                    int start = from;
+                    int end = Math.min(from + chunkSize, records.size());
+                    tasks.add(() -> fused.applyToRange(records, start, end));
+                }
+                
+                List<DataRecord> combined = new ArrayList<>(records.size());
+                for (List<DataRecord> chunk : invokeAll(tasks)) {
+                    combined.addAll(chunk);
+                }
+                output = new DataBatch(combined);
+            }
+            long processingTime = System.currentTimeMillis() - startTime;
+            
+            System.out.printf("⚡ %s: %d records in, %d records out (parallel)\n",
+                            fused.getProcessorName(), batch.size(), output.size());
+            
+            return new ProcessingResult(true, output, null, processingTime);
+            
+        } catch (Exception e) {
+            long processingTime = System.currentTimeMillis() - startTime;
+            return new ProcessingResult(false, null, "Fused processing failed: " + e.getMessage(), processingTime);
+        }
+    }
+    
+    private ProcessingResult runAggregationParallel(AggregationProcessor aggregation, DataBatch batch) {
+        long startTime = System.currentTimeMillis();
+        
+        try {
+            // accumulate reads only the form the batch already holds, so the
+            // chunks never trigger DataBatch's unsynchronized lazy conversion
+            List<Callable<AggregationPartial>> tasks = new ArrayList<>();
+            for (int from = 0; from < batch.size(); from += chunkSize) {
+                int start = from;
+                int end = Math.min(from + chunkSize, batch.size());
+                tasks.add(() -> aggregation.accumulate(batch, start, end));
+            }
+            
+            // Merge in chunk order so groups keep their first-seen order
+            List<AggregationPartial> partials = invokeAll(tasks);
+            AggregationPartial merged = partials.get(0);
+            for (int i = 1; i < partials.size(); i++) {
+                merged.merge(partials.get(i));
+            }
+            
+            DataBatch output = aggregation.emit(merged, batch.isColumnar());
+            long processingTime = System.currentTimeMillis() - startTime;
+            
+            System.out.printf("📊 Aggregated %d records into %d groups (%d partials)\n",
+                            batch.size(), output.size(), partials.size());
+            
+            return new ProcessingResult(true, output, null, processingTime);
+            
+        } catch (Exception e) {
+            long processingTime = System.currentTimeMillis() - startTime;
+            return new ProcessingResult(false, null, "Aggregation processing failed: " + e.getMessage(), processingTime);
+        }
+    }
+    
+    private <T> List<T> invokeAll(List<Callable<T>> tasks) throws Exception {
+        List<T> results = new ArrayList<>(tasks.size());
+        for (Future<T> future : pool.invokeAll(tasks)) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof Exception ? (Exception) cause : e;
+            }
+        }
+        return results;
+    }
+    
+    public int getChunkSize() { return chunkSize; }
+}
@@ -0,0 +1,13 @@
+package composition.analytics;
+
+import java.io.Serializable;
+
+/**
+ * Stateful Processor interface for processors whose state must survive a restart.
+ * Snapshots are taken between batches and must not share mutable objects with
+ * the live state, since they are serialized on a background thread.
+ */
+public interface StatefulProcessor extends DataProcessor {
+    Serializable snapshotState();
+    void restoreState(Serializable state);
+}
@@ -60,6 +60,16 @@ public class StreamDataSource implements DataSource {
         return locations[random.nextInt(locations.length)];
     }
     
+    @Override
+    public long getCurrentOffset() {
+        return recordsRead.get();
+    }
+    
+    @Override
+    public void seek(long offset) {
+        recordsRead.set(offset);
+    }
+    
     @Override
     public void stop() {
         System.out.println("🌊 Stopping stream data source: " + streamName);
@@ -0,0 +1,225 @@
+package composition.analytics;
+
+import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Streaming runner for the analytics pipeline.
+ *
+ * Three stage threads (source, process, sink) are connected by bounded queues.
+ * The source may only fetch a new batch once it holds a credit; a credit is
+ * returned after the sink stage has finished writing a batch, so a slow sink
+ * throttles the source instead of letting batches pile up on the heap.
+ * Each stage is single-threaded and the queues are FIFO, so batches reach the
+ * sinks in the order the source produced them.
+ */
+public class StreamingPipelineRunner {
+    public static final String SOURCE_QUEUE = "source->process";
+    public static final String SINK_QUEUE = "process->sink";
+    public static final String IN_FLIGHT = "in-flight";
+    
+    private static final DataBatch POISON_PILL = new DataBatch(java.util.Collections.emptyList());
+    
+    private final String pipelineId;
+    private final Supplier<DataBatch> fetchStage;
+    private final Function<DataBatch, DataBatch> processStage;
+    private final Consumer<DataBatch> sinkStage;
+    private final BooleanSupplier activeCheck;
+    private final MetricsCollector metricsCollector;
+    private final ErrorHandler errorHandler;
+    
+    private final BlockingQueue<DataBatch> sourceQueue;
+    private final BlockingQueue<DataBatch> sinkQueue;
+    private final Semaphore credits;
+    private final int maxCredits;
+    private final long maxIdleBackoffMs;
+    
+    private volatile boolean running;
+    private Thread sourceThread;
+    private Thread processThread;
+    private Thread sinkThread;
+    
+    public StreamingPipelineRunner(String pipelineId, Supplier<DataBatch> fetchStage,
+                                   Function<DataBatch, DataBatch> processStage, Consumer<DataBatch> sinkStage,
+                                   BooleanSupplier activeCheck, MetricsCollector metricsCollector,
+                                   ErrorHandler errorHandler, int maxInFlightBatches, long maxIdleBackoffMs) {
+        if (maxInFlightBatches <= 0) {
+            throw new IllegalArgumentException("maxInFlightBatches must be positive");
+        }
+        this.pipelineId = pipelineId;
+        this.fetchStage = fetchStage;
+        this.processStage = processStage;
+        this.sinkStage = sinkStage;
+        this.activeCheck = activeCheck;
+        this.metricsCollector = metricsCollector;
+        this.errorHandler = errorHandler;
+        this.maxCredits = maxInFlightBatches;
+        this.credits = new Semaphore(maxInFlightBatches);
+        // Credits bound the total number of batches in flight, so each queue
+        // never needs to hold more than that many entries (+1 for the pill)
+        this.sourceQueue = new ArrayBlockingQueue<>(maxInFlightBatches + 1);
+        this.sinkQueue = new ArrayBlockingQueue<>(maxInFlightBatches + 1);
+        this.maxIdleBackoffMs = Math.max(1, maxIdleBackoffMs);
+    }
+    
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        sourceThread = newStageThread(this::runSourceStage, "source");
+        processThread = newStageThread(this::runProcessStage, "process");
+        sinkThread = newStageThread(this::runSinkStage, "sink");
+        sinkThread.start();
+        processThread.start();
+        sourceThread.start();
+    }
+    
+    /**
+     * Stops the source and lets batches already admitted drain through to the sinks.
+     */
+    public synchronized void stop(long timeoutMs) {
+        if (!running) {
+            return;
+        }
+        running = false;
+        sourceThread.interrupt();
+        
+        try {
+            long deadline = System.currentTimeMillis() + timeoutMs;
+            sourceThread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            processThread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            sinkThread.join(Math.max(1, deadline - System.currentTimeMillis()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            processThread.interrupt();
+            sinkThread.interrupt();
+            reportQueueDepths();
+        }
+    }
+    
+    private Thread newStageThread(Runnable stage, String stageName) {
+        Thread thread = new Thread(stage, pipelineId + "-stream-" + stageName);
+        thread.setDaemon(true);
+        return thread;
+    }
+    
+    private void runSourceStage() {
+        long backoffMs = 1;
+        
+        try {
+            while (running) {
+                if (!activeCheck.getAsBoolean()) {
+                    Thread.sleep(maxIdleBackoffMs);
+                    continue;
+                }
+                
+                credits.acquire();
+                DataBatch batch;
+                try {
+                    batch = fetchStage.get();
+                } catch (Exception e) {
+                    credits.release();
+                    errorHandler.handleError(new PipelineError(pipelineId, "SOURCE_ERROR",
+                                                             "Failed to fetch data batch", e));
+                    Thread.sleep(backoffMs);
+                    backoffMs = Math.min(backoffMs * 2, maxIdleBackoffMs);
+                    continue;
+                }
+                
+                if (batch == null || batch.isEmpty()) {
+                    // Nothing available yet: hand the credit back and back off
+                    credits.release();
+                    Thread.sleep(backoffMs);
+                    backoffMs = Math.min(backoffMs * 2, maxIdleBackoffMs);
+                    continue;
+                }
+                
+                backoffMs = 1;
+                metricsCollector.recordBatchReceived(batch.size());
+                sourceQueue.put(batch);
+                reportQueueDepths();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            offerPoisonPill(sourceQueue);
+        }
+    }
+    
+    private void runProcessStage() {
+        try {
+            while (true) {
+                DataBatch batch = sourceQueue.take();
+                if (batch == POISON_PILL) {
+                    break;
+                }
+                reportQueueDepths();
+                
+                DataBatch processed;
+                try {
+                    processed = processStage.apply(batch);
+                } catch (Exception e) {
+                    // Processing errors were already reported (and halt a checkpointed pipeline); drop the batch and return its credit
+                    credits.release();
+                    continue;
+                }
+                
+                // Empty results still reach the sink stage so the batch is acknowledged there
+                if (processed == null) {
+                    credits.release();
+                    continue;
+                }
+                sinkQueue.put(processed);
+                reportQueueDepths();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            offerPoisonPill(sinkQueue);
+        }
+    }
+    
+    private void runSinkStage() {
+        try {
+            while (true) {
+                DataBatch batch = sinkQueue.take();
+                if (batch == POISON_PILL) {
+                    break;
+                }
+                try {
+                    sinkStage.accept(batch);
+                } catch (Exception e) {
+                    errorHandler.handleError(new PipelineError(pipelineId, "SINK_ERROR",
+                                                             "Sink stage failed", e));
+                } finally {
+                    credits.release();
+                    reportQueueDepths();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void offerPoisonPill(BlockingQueue<DataBatch> queue) {
+        // Capacity reserves a slot beyond the credit limit, so this cannot fail
+        queue.offer(POISON_PILL);
+    }
+    
+    private void reportQueueDepths() {
+        metricsCollector.recordQueueDepth(SOURCE_QUEUE, sourceQueue.size());
+        metricsCollector.recordQueueDepth(SINK_QUEUE, sinkQueue.size());
+        metricsCollector.recordQueueDepth(IN_FLIGHT, maxCredits - credits.availablePermits());
+    }
+    
+    public boolean isRunning() { return running; }
+    public int getSourceQueueDepth() { return sourceQueue.size(); }
+    public int getSinkQueueDepth() { return sinkQueue.size(); }
+    public int getAvailableCredits() { return credits.availablePermits(); }
+    public int getMaxCredits() { return maxCredits; }
+}
@@ -0,0 +1,81 @@
+package composition.analytics;
+
+import java.util.*;
+
+/**
+ * String Column using dictionary encoding: each row stores an int code into
+ * a shared dictionary of distinct values, so repeated strings are stored once
+ * and grouping can work on codes instead of hashing strings.
+ */
+public class StringColumn implements Column {
+    public static final int NULL_CODE = -1;
+    
+    private final int[] codes;
+    private final String[] dictionary;
+    
+    public StringColumn(int[] codes, String[] dictionary) {
+        this.codes = codes;
+        this.dictionary = dictionary;
+    }
+    
+    public static StringColumn encode(String[] values) {
+        Map<String, Integer> codeByValue = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        int[] codes = new int[values.length];
+        
+        for (int i = 0; i < values.length; i++) {
+            String value = values[i];
+            if (value == null) {
+                codes[i] = NULL_CODE;
+                continue;
+            }
+            Integer code = codeByValue.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                codeByValue.put(value, code);
+                dictionary.add(value);
+            }
+            codes[i] = code;
+        }
+        
+        return new StringColumn(codes, dictionary.toArray(new String[0]));
+    }
+    
+    public int getCode(int row) { return codes[row]; }
+    public int getDictionarySize() { return dictionary.length; }
+    public String decode(int code) { return code == NULL_CODE ? null : dictionary[code]; }
+    public String getString(int row) { return decode(codes[row]); }
+    
+    // New column over the same dictionary, e.g. one code per aggregated group
+    public StringColumn withCodes(int[] newCodes) {
+        return new StringColumn(newCodes, dictionary);
+    }
+    
+    @Override
+    public ColumnType getType() { return ColumnType.STRING; }
+    
+    @Override
+    public int size() { return codes.length; }
+    
+    @Override
+    public boolean isNull(int row) { return codes[row] == NULL_CODE; }
+    
+    @Override
+    public Object getObject(int row) { return getString(row); }
+    
+    @Override
+    public boolean isNumber(int row) { return false; }
+    
+    @Override
+    public double getAsDouble(int row) { return Double.NaN; }
+    
+    @Override
+    public Column select(int[] rows, int count) {
+        int[] selected = new int[count];
+        for (int i = 0; i < count; i++) {
+            selected[i] = codes[rows[i]];
+        }
+        // The dictionary is immutable and shared with the source column
+        return new StringColumn(selected, dictionary);
+    }
+}
@@ -0,0 +1,190 @@
+package composition.analytics;
+
+import java.io.Serializable;
+
+/**
+ * Merging t-digest for approximate percentiles in bounded memory.
+ *
+ * Values are buffered and periodically merged into weighted centroids. The
+ * size bound keeps centroids small near the tails, so extreme percentiles
+ * stay accurate. Digests can be merged, which lets partial aggregates from
+ * different batches or threads be combined.
+ */
+public class TDigest implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    public static final double DEFAULT_COMPRESSION = 100.0;
+    
+    private final double compression;
+    private double[] means;
+    private double[] weights;
+    private int centroidCount;
+    private final double[] bufferMeans;
+    private final double[] bufferWeights;
+    private int bufferCount;
+    private double totalWeight;
+    private double min;
+    private double max;
+    
+    public TDigest() {
+        this(DEFAULT_COMPRESSION);
+    }
+    
+    public TDigest(double compression) {
+        this.compression = compression;
+        int capacity = (int) Math.ceil(compression) * 2 + 10;
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+        this.bufferMeans = new double[capacity * 4];
+        this.bufferWeights = new double[capacity * 4];
+        this.min = Double.POSITIVE_INFINITY;
+        this.max = Double.NEGATIVE_INFINITY;
+    }
+    
+    public void add(double value) {
+        add(value, 1.0);
+    }
+    
+    private void add(double value, double weight) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (bufferCount == bufferMeans.length) {
+            compress();
+        }
+        bufferMeans[bufferCount] = value;
+        bufferWeights[bufferCount] = weight;
+        bufferCount++;
+        totalWeight += weight;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+    
+    public void merge(TDigest other) {
+        other.compress();
+        for (int i = 0; i < other.centroidCount; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+    
+    public TDigest copy() {
+        TDigest copy = new TDigest(compression);
+        copy.merge(this);
+        return copy;
+    }
+    
+    public long size() {
+        return (long) totalWeight;
+    }
+    
+    public double quantile(double q) {
+        compress();
+        if (centroidCount == 0) {
+            return Double.NaN;
+        }
+        if (centroidCount == 1) {
+            return means[0];
+        }
+        
+        double index = q * totalWeight;
+        if (index < weights[0] / 2) {
+            return min + (means[0] - min) * index / (weights[0] / 2);
+        }
+        
+        double weightSoFar = weights[0] / 2;
+        for (int i = 0; i < centroidCount - 1; i++) {
+            double gap = (weights[i] + weights[i + 1]) / 2;
+            if (weightSoFar + gap > index) {
+                double fraction = (index - weightSoFar) / gap;
+                return means[i] + fraction * (means[i + 1] - means[i]);
+            }
+            weightSoFar += gap;
+        }
+        
+        int last = centroidCount - 1;
+        double fraction = Math.min(1.0, (index - weightSoFar) / (weights[last] / 2));
+        return means[last] + fraction * (max - means[last]);
+    }
+    
+    private void compress() {
+        if (bufferCount == 0) {
+            return;
+        }
+        
+        int count = centroidCount + bufferCount;
+        double[] allMeans = new double[count];
+        double[] allWeights = new double[count];
+        System.arraycopy(means, 0, allMeans, 0, centroidCount);
+        System.arraycopy(weights, 0, allWeights, 0, centroidCount);
+        System.arraycopy(bufferMeans, 0, allMeans, centroidCount, bufferCount);
+        System.arraycopy(bufferWeights, 0, allWeights, centroidCount, bufferCount);
+        sortByMean(allMeans, allWeights, 0, count - 1);
+        
+        int merged = 0;
+        double weightSoFar = 0;
+        means[0] = allMeans[0];
+        weights[0] = allWeights[0];
+        for (int i = 1; i < count; i++) {
+            double proposed = weights[merged] + allWeights[i];
+            double q = (weightSoFar + proposed / 2) / totalWeight;
+            double limit = 4 * totalWeight * q * (1 - q) / compression;
+            
+            if (proposed <= limit) {
+                weights[merged] = proposed;
+                means[merged] += (allMeans[i] - means[merged]) * allWeights[i] / proposed;
+            } else {
+                weightSoFar += weights[merged];
+                merged++;
+                if (merged == means.length) {
+                    means = java.util.Arrays.copyOf(means, means.length * 2);
+                    weights = java.util.Arrays.copyOf(weights, weights.length * 2);
+                }
+                means[merged] = allMeans[i];
+                weights[merged] = allWeights[i];
+            }
+        }
+        
+        centroidCount = merged + 1;
+        bufferCount = 0;
+    }
+    
+    // Quicksort over parallel primitive arrays, avoiding boxed centroid objects
+    private static void sortByMean(double[] keys, double[] values, int low, int high) {
+        while (high - low > 16) {
+            double pivot = keys[(low + high) >>> 1];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (keys[i] < pivot) i++;
+                while (keys[j] > pivot) j--;
+                if (i <= j) {
+                    swap(keys, values, i++, j--);
+                }
+            }
+            // Recurse into the smaller half to bound stack depth
+            if (j - low < high - i) {
+                sortByMean(keys, values, low, j);
+                low = i;
+            } else {
+                sortByMean(keys, values, i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && keys[j - 1] > keys[j]; j--) {
+                swap(keys, values, j, j - 1);
+            }
+        }
+    }
+    
+    private static void swap(double[] keys, double[] values, int a, int b) {
+        double key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        double value = values[a];
+        values[a] = values[b];
+        values[b] = value;
+    }
+}
@@ -0,0 +1,12 @@
+package composition.analytics;
+
+/**
+ * Transactional Sink interface for two-phase writes keyed by batch id.
+ * prepare() stages a batch without making it visible; commit() publishes it
+ * and must be idempotent, so a batch replayed after a crash is not emitted twice.
+ */
+public interface TransactionalSink extends DataSink {
+    SinkResult prepare(DataBatch batch);
+    void commit(long batchId);
+    void abort(long batchId);
+}
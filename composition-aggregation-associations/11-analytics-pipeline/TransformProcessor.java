@@ -3,17 +3,30 @@ package composition.analytics;
 import java.util.*;
 
 /**
- * Transform Processor implementation for transforming data records
+ * Transform Processor implementation for transforming data records.
+ * A ColumnarTransformer works on whole columns; a DataTransformer sees
+ * columnar batches as row views and produces a row-based batch.
  */
-public class TransformProcessor implements DataProcessor {
+public class TransformProcessor implements FusableProcessor {
     private final DataTransformer transformer;
+    private final ColumnarTransformer columnarTransformer;
     private boolean isHealthy;
     
     public TransformProcessor(DataTransformer transformer) {
+        this(transformer, null);
+    }
+    
+    private TransformProcessor(DataTransformer transformer, ColumnarTransformer columnarTransformer) {
         this.transformer = transformer;
+        this.columnarTransformer = columnarTransformer;
         this.isHealthy = true;
     }
     
+    // A factory rather than a constructor overload, so record lambdas stay unambiguous
+    public static TransformProcessor columnar(ColumnarTransformer columnarTransformer) {
+        return new TransformProcessor(null, columnarTransformer);
+    }
+    
     @Override
     public void initialize(Map<String, Object> configuration) {
         System.out.println("🔄 Initializing transform processor");
@@ -25,6 +38,15 @@ public class TransformProcessor implements DataProcessor {
         long startTime = System.currentTimeMillis();
         
         try {
+            if (columnarTransformer != null) {
+                DataBatch transformedBatch = new DataBatch(columnarTransformer.transform(batch.toColumnar()));
+                long processingTime = System.currentTimeMillis() - startTime;
+                
+                System.out.printf("🔄 Transformed %d records\n", transformedBatch.size());
+                
+                return new ProcessingResult(true, transformedBatch, null, processingTime);
+            }
+            
             List<DataRecord> transformedRecords = new ArrayList<>();
             
             for (DataRecord record : batch.getRecords()) {
@@ -47,6 +69,16 @@ public class TransformProcessor implements DataProcessor {
         }
     }
     
+    @Override
+    public boolean isFusable() {
+        return transformer != null;
+    }
+    
+    @Override
+    public DataRecord applyTo(DataRecord record) {
+        return transformer.transform(record);
+    }
+    
     @Override
     public void cleanup() {
         System.out.println("🔄 Cleaning up transform processor");
@@ -0,0 +1,54 @@
+package composition.analytics;
+
+/**
+ * Window Spec describing tumbling or sliding event-time windows for aggregation.
+ * Windows are aligned to multiples of the slide; a tumbling window is a sliding
+ * window whose slide equals its size.
+ */
+public class WindowSpec {
+    private final long sizeMs;
+    private final long slideMs;
+    private final long allowedLatenessMs;
+    private final String timestampField;
+    
+    public WindowSpec(long sizeMs, long slideMs, long allowedLatenessMs, String timestampField) {
+        if (sizeMs <= 0 || slideMs <= 0) {
+            throw new IllegalArgumentException("Window size and slide must be positive");
+        }
+        if (sizeMs % slideMs != 0) {
+            throw new IllegalArgumentException("Window size must be a multiple of the slide");
+        }
+        this.sizeMs = sizeMs;
+        this.slideMs = slideMs;
+        this.allowedLatenessMs = Math.max(0, allowedLatenessMs);
+        this.timestampField = timestampField;
+    }
+    
+    public static WindowSpec tumbling(long sizeMs) {
+        return new WindowSpec(sizeMs, sizeMs, 0, null);
+    }
+    
+    public static WindowSpec sliding(long sizeMs, long slideMs) {
+        return new WindowSpec(sizeMs, slideMs, 0, null);
+    }
+    
+    public WindowSpec withAllowedLateness(long allowedLatenessMs) {
+        return new WindowSpec(sizeMs, slideMs, allowedLatenessMs, timestampField);
+    }
+    
+    // Reads event time from a numeric field instead of DataRecord.getTimestamp()
+    public WindowSpec withTimestampField(String timestampField) {
+        return new WindowSpec(sizeMs, slideMs, allowedLatenessMs, timestampField);
+    }
+    
+    // Records are pre-aggregated into slide-sized panes that windows merge on emission
+    public long paneOf(long timestamp) {
+        return Math.floorDiv(timestamp, slideMs) * slideMs;
+    }
+    
+    public long getSizeMs() { return sizeMs; }
+    public long getSlideMs() { return slideMs; }
+    public long getAllowedLatenessMs() { return allowedLatenessMs; }
+    public String getTimestampField() { return timestampField; }
+    public boolean isTumbling() { return sizeMs == slideMs; }
+}
@@ -16,7 +16,7 @@ public class ExternalRecord {
     private final String accountNumber;
     private final String counterpartyName;
     private final String counterpartyAccount;
-    private final Map<String, Object> additionalFields;
+    private Map<String, Object> additionalFields;   // allocated on first use
     private final RecordSource source;
     private final long importedAt;
     
@@ -32,17 +32,19 @@ public class ExternalRecord {
         this.accountNumber = accountNumber;
         this.counterpartyName = counterpartyName;
         this.counterpartyAccount = "";
-        this.additionalFields = new HashMap<>();
         this.source = source;
         this.importedAt = System.currentTimeMillis();
     }
     
     public void addAdditionalField(String key, Object value) {
+        if (additionalFields == null) {
+            additionalFields = new HashMap<>(4);
+        }
         additionalFields.put(key, value);
     }
     
     public Object getAdditionalField(String key) {
-        return additionalFields.get(key);
+        return additionalFields != null ? additionalFields.get(key) : null;
     }
     
     // Getters
@@ -55,7 +57,9 @@ public class ExternalRecord {
     public String getAccountNumber() { return accountNumber; }
     public String getCounterpartyName() { return counterpartyName; }
     public String getCounterpartyAccount() { return counterpartyAccount; }
-    public Map<String, Object> getAdditionalFields() { return new HashMap<>(additionalFields); }
+    public Map<String, Object> getAdditionalFields() { 
+        return additionalFields != null ? new HashMap<>(additionalFields) : new HashMap<>(); 
+    }
     public RecordSource getSource() { return source; }
     public long getImportedAt() { return importedAt; }
     
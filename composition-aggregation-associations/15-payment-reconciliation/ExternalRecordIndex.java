@@ -0,0 +1,186 @@
+package composition.reconciliation;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Hash indexes over external records for a single matching run.
+ *
+ * Records are indexed by reference ID and by (amount, currency, settlement day)
+ * bucket, so exact lookups cost O(1) instead of a scan over every external record.
+ * Claimed records leave the unmatched identity set in O(1); bucket entries are
+ * dropped lazily the next time the bucket is probed. A sorted amount index is
+ * built on first use for blocking range queries by the scoring strategies.
+ */
+public class ExternalRecordIndex {
+    private final Map<String, ExternalRecord> byReferenceId;
+    private final Map<BucketKey, ArrayDeque<ExternalRecord>> byAmountCurrencyDay;
+    private final Set<ExternalRecord> unmatched;
+    private final ZoneId zone;
+    private ExternalRecord[] byAmount;      // built lazily, dropped when records are added
+    private double[] sortedAmounts;
+    
+    public ExternalRecordIndex(Collection<ExternalRecord> records) {
+        this.byReferenceId = new HashMap<>(records.size() * 2);
+        this.byAmountCurrencyDay = new HashMap<>(records.size() * 2);
+        this.unmatched = Collections.newSetFromMap(new IdentityHashMap<>(records.size() * 2));
+        this.zone = ZoneId.systemDefault();
+        
+        for (ExternalRecord record : records) {
+            add(record);
+        }
+    }
+    
+    public void add(ExternalRecord record) {
+        if (!unmatched.add(record)) {
+            return;
+        }
+        byReferenceId.put(record.getReferenceId(), record);
+        invalidateAmountOrder();
+        byAmountCurrencyDay.computeIfAbsent(
+            new BucketKey(record.getAmount(), record.getCurrency(), dayOf(record.getSettlementDate())),
+            key -> new ArrayDeque<>(2)).add(record);
+    }
+    
+    /**
+     * Unmatched record with this reference ID, or null.
+     */
+    public ExternalRecord findByReferenceId(String referenceId) {
+        ExternalRecord record = referenceId != null ? byReferenceId.get(referenceId) : null;
+        return record != null && unmatched.contains(record) ? record : null;
+    }
+    
+    /**
+     * First unmatched record with the same amount, currency and settlement day, or null.
+     */
+    public ExternalRecord findByAmountCurrencyDay(BigDecimal amount, String currency, long timestamp) {
+        ArrayDeque<ExternalRecord> bucket = byAmountCurrencyDay.get(new BucketKey(amount, currency, dayOf(timestamp)));
+        if (bucket == null) {
+            return null;
+        }
+        
+        // Drop records claimed since the last probe
+        while (!bucket.isEmpty() && !unmatched.contains(bucket.peekFirst())) {
+            bucket.pollFirst();
+        }
+        return bucket.peekFirst();
+    }
+    
+    /**
+     * Blocking query: unmatched records whose amount lies in [minAmount, maxAmount]
+     * and whose settlement date lies in [earliest, latest].
+     */
+    public List<ExternalRecord> findCandidates(double minAmount, double maxAmount, long earliest, long latest) {
+        ExternalRecord[] records;
+        double[] amounts;
+        synchronized (this) {
+            if (byAmount == null) {
+                buildAmountOrder();
+            }
+            records = byAmount;
+            amounts = sortedAmounts;
+        }
+        
+        List<ExternalRecord> candidates = new ArrayList<>();
+        for (int i = lowerBound(amounts, minAmount); i < amounts.length && amounts[i] <= maxAmount; i++) {
+            ExternalRecord record = records[i];
+            long settlementDate = record.getSettlementDate();
+            if (settlementDate >= earliest && settlementDate <= latest && unmatched.contains(record)) {
+                candidates.add(record);
+            }
+        }
+        return candidates;
+    }
+    
+    private void buildAmountOrder() {
+        ExternalRecord[] records = unmatched.toArray(new ExternalRecord[0]);
+        Arrays.sort(records, Comparator.comparingDouble(record -> record.getAmount().doubleValue()));
+        double[] amounts = new double[records.length];
+        for (int i = 0; i < records.length; i++) {
+            amounts[i] = records[i].getAmount().doubleValue();
+        }
+        byAmount = records;
+        sortedAmounts = amounts;
+    }
+    
+    private synchronized void invalidateAmountOrder() {
+        byAmount = null;
+        sortedAmounts = null;
+    }
+    
+    private static int lowerBound(double[] amounts, double key) {
+        int low = 0;
+        int high = amounts.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (amounts[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    /**
+     * Marks a record as matched so later probes skip it. Returns false if it was already claimed.
+     */
+    public boolean claim(ExternalRecord record) {
+        if (!unmatched.remove(record)) {
+            return false;
+        }
+        if (byReferenceId.get(record.getReferenceId()) == record) {
+            byReferenceId.remove(record.getReferenceId());
+        }
+        return true;
+    }
+    
+    public boolean isUnmatched(ExternalRecord record) {
+        return unmatched.contains(record);
+    }
+    
+    /**
+     * Live read-only view of the records not yet claimed.
+     */
+    public Collection<ExternalRecord> getUnmatched() {
+        return Collections.unmodifiableSet(unmatched);
+    }
+    
+    public int getUnmatchedCount() { return unmatched.size(); }
+    
+    public long dayOf(long timestamp) {
+        return Instant.ofEpochMilli(timestamp).atZone(zone).toLocalDate().toEpochDay();
+    }
+    
+    /**
+     * Amount is normalised so that 10.5 and 10.50 land in the same bucket, matching compareTo.
+     */
+    private static final class BucketKey {
+        private final BigDecimal amount;
+        private final String currency;
+        private final long day;
+        private final int hash;
+        
+        BucketKey(BigDecimal amount, String currency, long day) {
+            this.amount = amount.signum() == 0 ? BigDecimal.ZERO : amount.stripTrailingZeros();
+            this.currency = currency;
+            this.day = day;
+            this.hash = Objects.hash(this.amount, currency, day);
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof BucketKey)) return false;
+            BucketKey that = (BucketKey) obj;
+            return day == that.day && amount.equals(that.amount) && Objects.equals(currency, that.currency);
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package composition.reconciliation;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Matches streamed records as they arrive against the still-unmatched records of the other side.
+ *
+ * Each side keeps a reference-ID map and (amount, currency, settlement day) buckets, chained
+ * through StreamedRecord.nextInBucket so a bucket costs one map entry. The match rule is the
+ * exact-matching rule: same amount, same currency, same local day, preferring the record whose
+ * reference ID equals the internal transaction ID.
+ */
+public class IncrementalMatcher {
+    private final PendingSide internalSide = new PendingSide();
+    private final PendingSide externalSide = new PendingSide();
+    private final List<RecordMatch> matches = new ArrayList<>();
+    private final ZoneId zone = ZoneId.systemDefault();
+    private long cachedDayStart = Long.MAX_VALUE;
+    private long cachedDayEnd = Long.MIN_VALUE;
+    private long cachedDay;
+    
+    /**
+     * Offers a record; returns the match it completed, or null if it is now pending.
+     */
+    public synchronized RecordMatch offer(StreamedRecord record) {
+        record.day = dayOf(record.getTimestamp());
+        PendingSide own = record.isInternal() ? internalSide : externalSide;
+        PendingSide other = record.isInternal() ? externalSide : internalSide;
+        
+        StreamedRecord partner = other.takeById(record.getId(), record);
+        if (partner == null) {
+            partner = other.takeByBucket(record);
+        }
+        if (partner == null) {
+            own.add(record);
+            return null;
+        }
+        
+        record.matched = true;
+        StreamedRecord internal = record.isInternal() ? record : partner;
+        StreamedRecord external = record.isInternal() ? partner : record;
+        RecordMatch match = new RecordMatch(internal.toPaymentRecord(), external.toExternalRecord(),
+                                            1.0, "Matched on arrival");
+        matches.add(match);
+        return match;
+    }
+    
+    public synchronized List<RecordMatch> getMatches() { return new ArrayList<>(matches); }
+    public synchronized List<PaymentRecord> getPendingInternal() { return internalSide.materialize(true); }
+    public synchronized List<ExternalRecord> getPendingExternal() { return externalSide.materialize(false); }
+    public synchronized int getMatchCount() { return matches.size(); }
+    public synchronized int getPendingInternalCount() { return internalSide.pendingCount; }
+    public synchronized int getPendingExternalCount() { return externalSide.pendingCount; }
+    
+    private long dayOf(long timestamp) {
+        // Streams are usually close to date order, so remember the last day's boundaries
+        if (timestamp < cachedDayStart || timestamp >= cachedDayEnd) {
+            java.time.LocalDate date = Instant.ofEpochMilli(timestamp).atZone(zone).toLocalDate();
+            cachedDay = date.toEpochDay();
+            cachedDayStart = date.atStartOfDay(zone).toInstant().toEpochMilli();
+            cachedDayEnd = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+        return cachedDay;
+    }
+    
+    private static boolean isExactMatch(StreamedRecord a, StreamedRecord b) {
+        return a.getNormalizedAmount() == b.getNormalizedAmount() && a.day == b.day &&
+               Objects.equals(a.getCurrency(), b.getCurrency());
+    }
+    
+    /**
+     * Unmatched records of one side. Matched records are unlinked lazily while a bucket is walked.
+     */
+    private static final class PendingSide {
+        private final Map<String, StreamedRecord> byId = new HashMap<>();
+        private final Map<BucketKey, StreamedRecord> buckets = new HashMap<>();
+        private int pendingCount;
+        
+        void add(StreamedRecord record) {
+            byId.put(record.getId(), record);
+            BucketKey key = new BucketKey(record);
+            record.nextInBucket = buckets.get(key);
+            buckets.put(key, record);
+            pendingCount++;
+        }
+        
+        StreamedRecord takeById(String id, StreamedRecord probe) {
+            StreamedRecord candidate = byId.get(id);
+            if (candidate == null || candidate.matched || !isExactMatch(candidate, probe)) {
+                return null;
+            }
+            return claim(candidate);
+        }
+        
+        StreamedRecord takeByBucket(StreamedRecord probe) {
+            BucketKey key = new BucketKey(probe);
+            StreamedRecord head = buckets.get(key);
+            while (head != null && head.matched) {
+                head = head.nextInBucket;
+            }
+            if (head == null) {
+                buckets.remove(key);
+                return null;
+            }
+            
+            StreamedRecord rest = head.nextInBucket;
+            if (rest == null) {
+                buckets.remove(key);
+            } else {
+                buckets.put(key, rest);
+            }
+            return claim(head);
+        }
+        
+        private StreamedRecord claim(StreamedRecord record) {
+            record.matched = true;
+            pendingCount--;
+            if (byId.get(record.getId()) == record) {
+                byId.remove(record.getId());
+            }
+            return record;
+        }
+        
+        @SuppressWarnings("unchecked")
+        <T> List<T> materialize(boolean internal) {
+            List<T> records = new ArrayList<>(pendingCount);
+            for (StreamedRecord head : buckets.values()) {
+                for (StreamedRecord record = head; record != null; record = record.nextInBucket) {
+                    if (!record.matched) {
+                        records.add((T) (internal ? record.toPaymentRecord() : record.toExternalRecord()));
+                    }
+                }
+            }
+            return records;
+        }
+    }
+    
+    private static final class BucketKey {
+        private final long amount;
+        private final String currency;
+        private final long day;
+        
+        BucketKey(StreamedRecord record) {
+            this.amount = record.getNormalizedAmount();
+            this.currency = record.getCurrency();
+            this.day = record.day;
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof BucketKey)) return false;
+            BucketKey that = (BucketKey) obj;
+            return amount == that.amount && day == that.day && Objects.equals(currency, that.currency);
+        }
+        
+        @Override
+        public int hashCode() {
+            int hash = Long.hashCode(amount);
+            hash = 31 * hash + (currency != null ? currency.hashCode() : 0);
+            return 31 * hash + Long.hashCode(day);
+        }
+    }
+}
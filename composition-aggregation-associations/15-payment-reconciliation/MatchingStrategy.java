@@ -11,6 +11,11 @@ public interface MatchingStrategy {
     String getStrategyName();
     MatchResult findMatch(PaymentRecord internal, Collection<ExternalRecord> externalRecords);
     List<MatchCandidate> findPotentialMatches(PaymentRecord internal, Collection<ExternalRecord> externalRecords);
+    
+    // Strategies that can probe the index override this; the default scans the unmatched records
+    default MatchResult findMatch(PaymentRecord internal, ExternalRecordIndex index) {
+        return findMatch(internal, index.getUnmatched());
+    }
 }
 
 /**
@@ -33,6 +38,21 @@ class ExactMatchingStrategy implements MatchingStrategy {
         return new MatchResult(false, null, 0.0, "No exact match found");
     }
     
+    @Override
+    public MatchResult findMatch(PaymentRecord internal, ExternalRecordIndex index) {
+        // Prefer the record carrying our transaction ID, then any record in the same bucket
+        ExternalRecord external = index.findByReferenceId(internal.getTransactionId());
+        if (external == null || !isExactMatch(internal, external)) {
+            external = index.findByAmountCurrencyDay(internal.getAmount(), internal.getCurrency(),
+                                                     internal.getTransactionDate());
+        }
+        
+        if (external != null) {
+            return new MatchResult(true, external, 1.0, "Exact match found");
+        }
+        return new MatchResult(false, null, 0.0, "No exact match found");
+    }
+    
     @Override
     public List<MatchCandidate> findPotentialMatches(PaymentRecord internal, Collection<ExternalRecord> externalRecords) {
         return externalRecords.stream()
@@ -63,6 +83,13 @@ class ExactMatchingStrategy implements MatchingStrategy {
  */
 class FuzzyMatchingStrategy implements MatchingStrategy {
     private static final double MIN_CONFIDENCE_THRESHOLD = 0.7;
+    private static final double AMOUNT_WEIGHT = 0.4;
+    private static final double CURRENCY_WEIGHT = 0.2;
+    private static final double DATE_WEIGHT = 0.2;
+    private static final double REFERENCE_WEIGHT = 0.2;
+    private static final long MAX_DATE_DIFF_MS = 7 * 24 * 60 * 60 * 1000L; // 7 days
+    private static final double BOUND_SLACK = 1e-6;
+    private static final ThreadLocal<BoundedLevenshtein> LEVENSHTEIN = ThreadLocal.withInitial(BoundedLevenshtein::new);
     
     @Override
     public String getStrategyName() {
@@ -75,7 +102,8 @@ class FuzzyMatchingStrategy implements MatchingStrategy {
         double bestConfidence = 0.0;
         
         for (ExternalRecord external : externalRecords) {
-            double confidence = calculateMatchConfidence(internal, external);
+            double confidence = calculateMatchConfidence(internal, external,
+                                                         Math.max(MIN_CONFIDENCE_THRESHOLD, bestConfidence));
             if (confidence > bestConfidence && confidence >= MIN_CONFIDENCE_THRESHOLD) {
                 bestMatch = external;
                 bestConfidence = confidence;
@@ -83,39 +111,69 @@ class FuzzyMatchingStrategy implements MatchingStrategy {
         }
         
         if (bestMatch != null) {
-            return new MatchResult(true, bestMatch, bestConfidence, 
+            return new MatchResult(true, bestMatch, bestConfidence,
                 String.format("Fuzzy match with %.1f%% confidence", bestConfidence * 100));
         }
         
         return new MatchResult(false, null, 0.0, "No match above confidence threshold");
     }
     
+    @Override
+    public MatchResult findMatch(PaymentRecord internal, ExternalRecordIndex index) {
+        // Blocking: a record can only clear the threshold if its amount similarity
+        // makes up what the other components cannot, which bounds the amount band
+        double minAmountSimilarity = (MIN_CONFIDENCE_THRESHOLD - CURRENCY_WEIGHT - DATE_WEIGHT - REFERENCE_WEIGHT) / AMOUNT_WEIGHT;
+        double minDateProximity = (MIN_CONFIDENCE_THRESHOLD - AMOUNT_WEIGHT - CURRENCY_WEIGHT - REFERENCE_WEIGHT) / DATE_WEIGHT;
+        if (minAmountSimilarity > 1.0 || minDateProximity > 1.0) {
+            return new MatchResult(false, null, 0.0, "No match above confidence threshold");
+        }
+        
+        // Similarity is 1 - |a - b| / ((a + b) / 2), so it stays above s inside a ratio band around a
+        double amount = internal.getAmount().doubleValue();
+        double halfDiff = (1.0 - minAmountSimilarity) / 2 + BOUND_SLACK;
+        double minAmount = halfDiff >= 1.0 ? 0.0 : amount * (1.0 - halfDiff) / (1.0 + halfDiff);
+        double maxAmount = halfDiff >= 1.0 ? Double.MAX_VALUE : amount * (1.0 + halfDiff) / (1.0 - halfDiff);
+        
+        long window = minDateProximity <= 0 ? Long.MAX_VALUE / 2 : (long) Math.ceil((1.0 - minDateProximity) * MAX_DATE_DIFF_MS);
+        long date = internal.getTransactionDate();
+        
+        return findMatch(internal, index.findCandidates(minAmount, maxAmount, date - window, date + window));
+    }
+    
     @Override
     public List<MatchCandidate> findPotentialMatches(PaymentRecord internal, Collection<ExternalRecord> externalRecords) {
         return externalRecords.stream()
-                .map(external -> new MatchCandidate(external, 
-                    calculateMatchConfidence(internal, external), "Fuzzy match candidate"))
+                .map(external -> new MatchCandidate(external,
+                    calculateMatchConfidence(internal, external, MIN_CONFIDENCE_THRESHOLD), "Fuzzy match candidate"))
                 .filter(candidate -> candidate.getConfidence() >= MIN_CONFIDENCE_THRESHOLD)
                 .sorted((a, b) -> Double.compare(b.getConfidence(), a.getConfidence()))
                 .collect(Collectors.toList());
     }
     
-    private double calculateMatchConfidence(PaymentRecord internal, ExternalRecord external) {
+    /**
+     * Confidence for the pair, or 0.0 as soon as it is clear the pair cannot reach floor.
+     * The cheap components are scored first so the string comparison only runs when it matters.
+     */
+    private double calculateMatchConfidence(PaymentRecord internal, ExternalRecord external, double floor) {
         double confidence = 0.0;
         
         // Amount similarity (40% weight)
-        confidence += calculateAmountSimilarity(internal.getAmount(), external.getAmount()) * 0.4;
+        confidence += calculateAmountSimilarity(internal.getAmount(), external.getAmount()) * AMOUNT_WEIGHT;
         
         // Currency match (20% weight)
         if (Objects.equals(internal.getCurrency(), external.getCurrency())) {
-            confidence += 0.2;
+            confidence += CURRENCY_WEIGHT;
         }
         
         // Date proximity (20% weight)
-        confidence += calculateDateProximity(internal.getTransactionDate(), external.getSettlementDate()) * 0.2;
+        confidence += calculateDateProximity(internal.getTransactionDate(), external.getSettlementDate()) * DATE_WEIGHT;
+        
+        if (confidence + REFERENCE_WEIGHT + BOUND_SLACK < floor) {
+            return 0.0;
+        }
         
         // Reference similarity (20% weight)
-        confidence += calculateReferenceSimilarity(internal, external) * 0.2;
+        confidence += calculateReferenceSimilarity(internal, external, (floor - confidence) / REFERENCE_WEIGHT) * REFERENCE_WEIGHT;
         
         return Math.min(1.0, confidence);
     }
@@ -134,60 +192,45 @@ class FuzzyMatchingStrategy implements MatchingStrategy {
     
     private double calculateDateProximity(long date1, long date2) {
         long difference = Math.abs(date1 - date2);
-        long maxAcceptableDiff = 7 * 24 * 60 * 60 * 1000L; // 7 days
         
-        if (difference <= maxAcceptableDiff) {
-            return 1.0 - (double) difference / maxAcceptableDiff;
+        if (difference <= MAX_DATE_DIFF_MS) {
+            return 1.0 - (double) difference / MAX_DATE_DIFF_MS;
         }
         return 0.0;
     }
     
-    private double calculateReferenceSimilarity(PaymentRecord internal, ExternalRecord external) {
-        String description = external.getDescription().toLowerCase();
-        String transactionId = internal.getTransactionId().toLowerCase();
-        String orderId = internal.getOrderId() != null ? internal.getOrderId().toLowerCase() : "";
+    private double calculateReferenceSimilarity(PaymentRecord internal, ExternalRecord external, double minSimilarity) {
+        String description = external.getDescription();
+        String transactionId = internal.getTransactionId();
+        String orderId = internal.getOrderId() != null ? internal.getOrderId() : "";
         
-        if (description.contains(transactionId) || description.contains(orderId)) {
+        if (BoundedLevenshtein.containsIgnoreCase(description, transactionId) ||
+            BoundedLevenshtein.containsIgnoreCase(description, orderId)) {
             return 1.0;
         }
         
-        // Calculate string similarity using Levenshtein distance
-        double transactionSimilarity = calculateStringSimilarity(description, transactionId);
-        double orderSimilarity = orderId.isEmpty() ? 0.0 : calculateStringSimilarity(description, orderId);
+        // Calculate string similarity using bounded Levenshtein distance
+        double transactionSimilarity = calculateStringSimilarity(description, transactionId, minSimilarity);
+        double orderSimilarity = orderId.isEmpty() ? 0.0 :
+            calculateStringSimilarity(description, orderId, Math.max(minSimilarity, transactionSimilarity));
         
         return Math.max(transactionSimilarity, orderSimilarity);
     }
     
-    private double calculateStringSimilarity(String s1, String s2) {
+    /**
+     * Similarity 1 - distance / maxLength, or 0.0 when it would fall below minSimilarity.
+     */
+    private double calculateStringSimilarity(String s1, String s2, double minSimilarity) {
         if (s1.length() == 0 || s2.length() == 0) return 0.0;
         
-        int distance = levenshteinDistance(s1, s2);
         int maxLength = Math.max(s1.length(), s2.length());
+        int maxDistance = (int) Math.floor((1.0 - Math.max(0.0, minSimilarity)) * maxLength + BOUND_SLACK);
         
-        return 1.0 - (double) distance / maxLength;
-    }
-    
-    private int levenshteinDistance(String s1, String s2) {
-        int[][] dp = new int[s1.length() + 1][s2.length() + 1];
-        
-        for (int i = 0; i <= s1.length(); i++) {
-            dp[i][0] = i;
-        }
-        for (int j = 0; j <= s2.length(); j++) {
-            dp[0][j] = j;
-        }
-        
-        for (int i = 1; i <= s1.length(); i++) {
-            for (int j = 1; j <= s2.length(); j++) {
-                if (s1.charAt(i - 1) == s2.charAt(j - 1)) {
-                    dp[i][j] = dp[i - 1][j - 1];
-                } else {
-                    dp[i][j] = 1 + Math.min(Math.min(dp[i - 1][j], dp[i][j - 1]), dp[i - 1][j - 1]);
-                }
-            }
+        int distance = LEVENSHTEIN.get().distance(s1, s2, maxDistance);
+        if (distance > maxDistance) {
+            return 0.0;
         }
-        
-        return dp[s1.length()][s2.length()];
+        return 1.0 - (double) distance / maxLength;
     }
 }
 
@@ -196,6 +239,10 @@ class FuzzyMatchingStrategy implements MatchingStrategy {
  */
 class MLMatchingStrategy implements MatchingStrategy {
     private static final double ML_CONFIDENCE_THRESHOLD = 0.8;
+    private static final double[] WEIGHTS = {0.3, 0.25, 0.2, 0.15, 0.1}; // Simulated learned weights
+    private static final double DATE_DECAY_DAYS = 3.0;
+    private static final long DAY_IN_MS = 24 * 60 * 60 * 1000L;
+    private static final double BOUND_SLACK = 1e-6;
     
     @Override
     public String getStrategyName() {
@@ -208,7 +255,7 @@ class MLMatchingStrategy implements MatchingStrategy {
         double bestScore = 0.0;
         
         for (ExternalRecord external : externalRecords) {
-            double mlScore = simulateMLPrediction(internal, external);
+            double mlScore = simulateMLPrediction(internal, external, Math.max(ML_CONFIDENCE_THRESHOLD, bestScore));
             if (mlScore > bestScore && mlScore >= ML_CONFIDENCE_THRESHOLD) {
                 bestMatch = external;
                 bestScore = mlScore;
@@ -216,46 +263,74 @@ class MLMatchingStrategy implements MatchingStrategy {
         }
         
         if (bestMatch != null) {
-            return new MatchResult(true, bestMatch, bestScore, 
+            return new MatchResult(true, bestMatch, bestScore,
                 String.format("ML prediction with %.1f%% confidence", bestScore * 100));
         }
         
         return new MatchResult(false, null, 0.0, "No ML match above threshold");
     }
     
+    @Override
+    public MatchResult findMatch(PaymentRecord internal, ExternalRecordIndex index) {
+        // Blocking: invert the sigmoid and ask how much the amount and date features
+        // must contribute when every other feature takes its best possible value
+        double requiredScore = logit(ML_CONFIDENCE_THRESHOLD);
+        double amountRange = calculateAmountRangeFeature(internal.getAmount());
+        double maxTotal = WEIGHTS[0] + WEIGHTS[1] + WEIGHTS[2] + WEIGHTS[3] + WEIGHTS[4] * amountRange;
+        double minAmountFeature = (requiredScore - (maxTotal - WEIGHTS[0])) / WEIGHTS[0];
+        double minDateFeature = (requiredScore - (maxTotal - WEIGHTS[2])) / WEIGHTS[2];
+        if (minAmountFeature > 1.0 + BOUND_SLACK || minDateFeature > 1.0 + BOUND_SLACK) {
+            return new MatchResult(false, null, 0.0, "No ML match above threshold");
+        }
+        
+        // The amount feature is min/max of the two amounts, so it bounds their ratio
+        double amount = internal.getAmount().doubleValue();
+        double ratio = minAmountFeature - BOUND_SLACK;
+        double minAmount = ratio <= 0 ? 0.0 : amount * ratio;
+        double maxAmount = ratio <= 0 ? Double.MAX_VALUE : amount / ratio;
+        
+        long window = minDateFeature <= BOUND_SLACK ? Long.MAX_VALUE / 2 :
+            (long) Math.ceil(-Math.log(minDateFeature - BOUND_SLACK) * DATE_DECAY_DAYS * DAY_IN_MS);
+        long date = internal.getTransactionDate();
+        
+        return findMatch(internal, index.findCandidates(minAmount, maxAmount, date - window, date + window));
+    }
+    
     @Override
     public List<MatchCandidate> findPotentialMatches(PaymentRecord internal, Collection<ExternalRecord> externalRecords) {
         return externalRecords.stream()
-                .map(external -> new MatchCandidate(external, 
-                    simulateMLPrediction(internal, external), "ML prediction"))
+                .map(external -> new MatchCandidate(external,
+                    simulateMLPrediction(internal, external, ML_CONFIDENCE_THRESHOLD), "ML prediction"))
                 .filter(candidate -> candidate.getConfidence() >= ML_CONFIDENCE_THRESHOLD)
                 .sorted((a, b) -> Double.compare(b.getConfidence(), a.getConfidence()))
                 .collect(Collectors.toList());
     }
     
-    private double simulateMLPrediction(PaymentRecord internal, ExternalRecord external) {
-        // Simulate ML model prediction using weighted features
-        double[] features = extractFeatures(internal, external);
-        double[] weights = {0.3, 0.25, 0.2, 0.15, 0.1}; // Simulated learned weights
-        
-        double score = 0.0;
-        for (int i = 0; i < Math.min(features.length, weights.length); i++) {
-            score += features[i] * weights[i];
+    /**
+     * Model score for the pair, or 0.0 once the reference feature could no longer lift it to floor.
+     */
+    private double simulateMLPrediction(PaymentRecord internal, ExternalRecord external, double floor) {
+        // Simulate ML model prediction using weighted features; the reference feature is scored last
+        double score = calculateAmountFeature(internal.getAmount(), external.getAmount()) * WEIGHTS[0]
+                     + (Objects.equals(internal.getCurrency(), external.getCurrency()) ? 1.0 : 0.0) * WEIGHTS[1]
+                     + calculateDateFeature(internal.getTransactionDate(), external.getSettlementDate()) * WEIGHTS[2]
+                     + calculateAmountRangeFeature(internal.getAmount()) * WEIGHTS[4];
+        
+        if (sigmoid(score + WEIGHTS[3]) + BOUND_SLACK < floor) {
+            return 0.0;
         }
+        score += calculateReferenceFeature(internal, external) * WEIGHTS[3];
         
         // Apply sigmoid function to normalize to [0,1]
-        return 1.0 / (1.0 + Math.exp(-score));
+        return sigmoid(score);
     }
     
-    private double[] extractFeatures(PaymentRecord internal, ExternalRecord external) {
-        // Extract normalized features for ML model
-        double amountSimilarity = calculateAmountFeature(internal.getAmount(), external.getAmount());
-        double currencyMatch = Objects.equals(internal.getCurrency(), external.getCurrency()) ? 1.0 : 0.0;
-        double dateProximity = calculateDateFeature(internal.getTransactionDate(), external.getSettlementDate());
-        double referenceMatch = calculateReferenceFeature(internal, external);
-        double amountRange = calculateAmountRangeFeature(internal.getAmount());
+    private static double sigmoid(double x) {
+        return 1.0 / (1.0 + Math.exp(-x));
+    }
         
-        return new double[]{amountSimilarity, currencyMatch, dateProximity, referenceMatch, amountRange};
+    private static double logit(double p) {
+        return Math.log(p / (1.0 - p));
     }
     
     private double calculateAmountFeature(BigDecimal amount1, BigDecimal amount2) {
@@ -269,10 +344,9 @@ class MLMatchingStrategy implements MatchingStrategy {
     
     private double calculateDateFeature(long date1, long date2) {
         long difference = Math.abs(date1 - date2);
-        long dayInMs = 24 * 60 * 60 * 1000L;
-        double daysDiff = (double) difference / dayInMs;
+        double daysDiff = (double) difference / DAY_IN_MS;
         
-        return Math.exp(-daysDiff / 3.0); // Exponential decay with 3-day half-life
+        return Math.exp(-daysDiff / DATE_DECAY_DAYS); // Exponential decay with 3-day half-life
     }
     
     private double calculateReferenceFeature(PaymentRecord internal, ExternalRecord external) {
@@ -310,3 +384,70 @@ class MLMatchingStrategy implements MatchingStrategy {
         else return 0.9;
     }
 }
+
+/**
+ * Case-insensitive Levenshtein distance limited to a band around the diagonal.
+ * Rows are reused between calls, so keep one instance per thread.
+ */
+class BoundedLevenshtein {
+    private int[] previous = new int[64];
+    private int[] current = new int[64];
+    
+    /**
+     * Exact distance when it is at most maxDistance, otherwise maxDistance + 1.
+     */
+    public int distance(CharSequence s1, CharSequence s2, int maxDistance) {
+        int n = s1.length();
+        int m = s2.length();
+        int beyond = maxDistance + 1;
+        if (Math.abs(n - m) > maxDistance) return beyond;
+        if (n == 0 || m == 0) return Math.max(n, m);
+        
+        if (previous.length < m + 1) {
+            previous = new int[m + 1];
+            current = new int[m + 1];
+        }
+        int[] prev = previous;
+        int[] curr = current;
+        
+        for (int j = 0; j <= m; j++) {
+            prev[j] = j <= maxDistance ? j : beyond;
+        }
+        
+        for (int i = 1; i <= n; i++) {
+            int from = Math.max(1, i - maxDistance);
+            int to = Math.min(m, i + maxDistance);
+            curr[0] = i <= maxDistance ? i : beyond;
+            if (from > 1) curr[from - 1] = beyond;
+            int rowMin = from == 1 ? curr[0] : beyond;
+            
+            char c1 = Character.toLowerCase(s1.charAt(i - 1));
+            for (int j = from; j <= to; j++) {
+                int cost = c1 == Character.toLowerCase(s2.charAt(j - 1)) ? 0 : 1;
+                int value = Math.min(Math.min(prev[j] + 1, curr[j - 1] + 1), prev[j - 1] + cost);
+                curr[j] = Math.min(value, beyond);
+                rowMin = Math.min(rowMin, curr[j]);
+            }
+            if (to < m) curr[to + 1] = beyond;
+            
+            // Every path runs through this row, so nothing can come back under the bound
+            if (rowMin > maxDistance) return beyond;
+            
+            int[] swap = prev;
+            prev = curr;
+            curr = swap;
+        }
+        
+        return Math.min(prev[m], beyond);
+    }
+    
+    public static boolean containsIgnoreCase(String text, String fragment) {
+        int last = text.length() - fragment.length();
+        for (int start = 0; start <= last; start++) {
+            if (text.regionMatches(true, start, fragment, 0, fragment.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
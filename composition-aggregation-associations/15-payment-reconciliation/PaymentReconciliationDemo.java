@@ -1,6 +1,10 @@
 package composition.reconciliation;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
@@ -98,6 +102,8 @@ public class PaymentReconciliationDemo {
         
         // Test advanced features
         testAdvancedFeatures(engine);
+        testStreamingIngestion();
+        testIncrementalReconciliation();
         
         System.out.println("\n9. ERROR HANDLING AND EDGE CASES");
         System.out.println("=================================");
@@ -299,6 +305,98 @@ public class PaymentReconciliationDemo {
         System.out.printf("Custom Threshold: %s\n", settings.getCustomSetting("custom_threshold"));
     }
     
+    private static void testStreamingIngestion() {
+        System.out.println("\nTesting streaming file ingestion:");
+        PaymentReconciliationEngine streamingEngine = new PaymentReconciliationEngine("RECON_STREAM_001");
+        
+        try {
+            Path internalFile = Files.createTempFile("internal-payments", ".csv");
+            Path bankFile = Files.createTempFile("bank-statement", ".txt");
+            Files.write(internalFile, Arrays.asList(
+                "transaction_id,order_id,amount,currency,date,customer,merchant",
+                "TXN101,ORDER101,99.99,USD,2024-03-01,CUST001,MERCH001",
+                "TXN102,ORDER102,250.00,USD,2024-03-01,CUST002,MERCH001",
+                "TXN103,\"ORDER103, split\",75.5,EUR,2024-03-02,CUST003,MERCH002",
+                "TXN104,ORDER104,not-a-number,USD,2024-03-02,CUST004,MERCH002"), StandardCharsets.UTF_8);
+            // Fixed-width bank statement: reference(8) amount(10) currency(3) date(10) description
+            Files.write(bankFile, Arrays.asList(
+                "EXT101  99.99     USD2024-03-01Payment for ORDER101",
+                "EXT103  75.50     EUR2024-03-02Payment for ORDER103",
+                "EXT199  10.00     USD2024-03-03Unknown credit"), StandardCharsets.UTF_8);
+            
+            Map<SettlementField, Integer> csvColumns = new EnumMap<>(SettlementField.class);
+            csvColumns.put(SettlementField.ID, 0);
+            csvColumns.put(SettlementField.REFERENCE, 1);
+            csvColumns.put(SettlementField.AMOUNT, 2);
+            csvColumns.put(SettlementField.CURRENCY, 3);
+            csvColumns.put(SettlementField.DATE, 4);
+            csvColumns.put(SettlementField.ACCOUNT, 5);
+            csvColumns.put(SettlementField.COUNTERPARTY, 6);
+            
+            Map<SettlementField, int[]> bankPositions = new EnumMap<>(SettlementField.class);
+            bankPositions.put(SettlementField.ID, new int[]{0, 8});
+            bankPositions.put(SettlementField.AMOUNT, new int[]{8, 10});
+            bankPositions.put(SettlementField.CURRENCY, new int[]{18, 3});
+            bankPositions.put(SettlementField.DATE, new int[]{21, 10});
+            bankPositions.put(SettlementField.DESCRIPTION, new int[]{31, 60});
+            
+            DataIngestionResult internalResult = streamingEngine.ingestInternalFile(
+                internalFile, SettlementFileLayout.csv(',', 1, csvColumns));
+            System.out.printf("Internal file: %d records - %s\n", internalResult.getRecordsIngested(), internalResult.getMessage());
+            
+            DataIngestionResult bankResult = streamingEngine.ingestExternalFile(
+                bankFile, SettlementFileLayout.fixedWidth(0, bankPositions));
+            System.out.printf("Bank file: %d records - %s\n", bankResult.getRecordsIngested(), bankResult.getMessage());
+            
+            ReconciliationSummary summary = streamingEngine.startReconciliation().getReconciliationFuture()
+                    .get(10, TimeUnit.SECONDS);
+            System.out.printf("Streamed reconciliation: %d matches, %d discrepancies\n",
+                             summary.getMatchedRecords(), summary.getTotalDiscrepancies());
+            
+            Files.deleteIfExists(internalFile);
+            Files.deleteIfExists(bankFile);
+        } catch (IOException e) {
+            System.out.println("Streaming demo failed: " + e.getMessage());
+        } catch (Exception e) {
+            System.out.println("Streaming reconciliation failed: " + e.getMessage());
+        } finally {
+            streamingEngine.shutdown();
+        }
+    }
+    
+    private static void testIncrementalReconciliation() {
+        System.out.println("\nTesting incremental reconciliation with restart:");
+        List<PaymentRecord> internalRecords = createSampleInternalRecords();
+        List<ExternalRecord> externalRecords = createSampleExternalRecords();
+        
+        try {
+            Path stateDirectory = Files.createTempDirectory("reconciliation-state");
+            PaymentReconciliationEngine morningEngine = new PaymentReconciliationEngine("RECON_INCR_001");
+            morningEngine.enableIncrementalMode(stateDirectory);
+            morningEngine.ingestInternalRecords(internalRecords);
+            morningEngine.ingestExternalRecords(externalRecords.subList(0, 2));
+            ReconciliationSummary morning = morningEngine.startReconciliation().getReconciliationFuture()
+                    .get(10, TimeUnit.SECONDS);
+            System.out.printf("Morning run: %d matches, %d open discrepancies\n",
+                             morning.getMatchedRecords(), morning.getTotalDiscrepancies());
+            morningEngine.shutdown();
+            
+            // A new engine picks up the saved state and only matches the late bank records
+            PaymentReconciliationEngine afternoonEngine = new PaymentReconciliationEngine("RECON_INCR_002");
+            DataIngestionResult restored = afternoonEngine.enableIncrementalMode(stateDirectory);
+            System.out.println("Restored " + restored.getRecordsIngested() + " records after restart");
+            afternoonEngine.ingestExternalRecords(externalRecords.subList(2, externalRecords.size()));
+            ReconciliationSummary afternoon = afternoonEngine.startReconciliation().getReconciliationFuture()
+                    .get(10, TimeUnit.SECONDS);
+            System.out.printf("Afternoon run: %d matches, %d open discrepancies, %d unresolved\n",
+                             afternoon.getMatchedRecords(), afternoon.getTotalDiscrepancies(),
+                             afternoonEngine.getUnresolvedDiscrepancies().size());
+            afternoonEngine.shutdown();
+        } catch (Exception e) {
+            System.out.println("Incremental reconciliation failed: " + e.getMessage());
+        }
+    }
+    
     private static void testErrorScenarios(PaymentReconciliationEngine engine) {
         System.out.println("Testing error scenarios:");
         
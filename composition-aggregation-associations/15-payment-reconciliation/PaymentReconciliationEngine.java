@@ -1,13 +1,26 @@
 package composition.reconciliation;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.stream.Collectors;
 
 /**
  * MAANG-Level Payment Reconciliation System using Composition
  * Demonstrates: Strategy Pattern, Observer Pattern, State Pattern, Command Pattern
  */
 public class PaymentReconciliationEngine {
+    // Optional ExternalRecord field that lets partitioning split by merchant as well
+    public static final String MERCHANT_FIELD = "merchantId";
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+    // Keys of open discrepancies in incremental mode
+    private static final String INTERNAL_KEY = "I:";
+    private static final String EXTERNAL_KEY = "E:";
+    private static final String MATCH_KEY = "M:";
+    
     private final String engineId;
     private final Map<String, PaymentRecord> internalRecords;
     private final Map<String, ExternalRecord> externalRecords;
@@ -16,6 +29,9 @@ public class PaymentReconciliationEngine {
     private final ReconciliationSettings settings;
     private final ReconciliationMetrics metrics;
     private final ExecutorService processingExecutor;
+    private final IncrementalMatcher streamMatcher;
+    private volatile ReconciliationLedger ledger;
+    private volatile ReconciliationResult currentResult;
     private ReconciliationStrategy reconciliationStrategy;
     private MatchingStrategy matchingStrategy;
     private DiscrepancyResolutionStrategy discrepancyStrategy;
@@ -32,7 +48,8 @@ public class PaymentReconciliationEngine {
         this.listeners = new ArrayList<>();
         this.settings = new ReconciliationSettings();
         this.metrics = new ReconciliationMetrics();
-        this.processingExecutor = Executors.newFixedThreadPool(5);
+        this.processingExecutor = Executors.newFixedThreadPool(settings.getMaxProcessingThreads());
+        this.streamMatcher = new IncrementalMatcher();
         this.reconciliationStrategy = new StandardReconciliationStrategy();
         this.matchingStrategy = new ExactMatchingStrategy();
         this.discrepancyStrategy = new AutomaticDiscrepancyResolutionStrategy();
@@ -63,6 +80,37 @@ public class PaymentReconciliationEngine {
         notifyListeners("Reporting strategy updated: " + strategy.getStrategyName());
     }
     
+    /**
+     * Switches to incremental mode, restoring the state kept in stateDirectory. Each run then
+     * only matches records ingested since the previous run, and reports read the maintained state.
+     */
+    public DataIngestionResult enableIncrementalMode(Path stateDirectory) {
+        if (state == ReconciliationState.PROCESSING) {
+            return new DataIngestionResult(false, "Cannot enable incremental mode during processing", 0);
+        }
+        if (ledger != null) {
+            return new DataIngestionResult(false, "Incremental mode is already enabled", 0);
+        }
+        if (getInternalRecordCount() > 0 || getExternalRecordCount() > 0) {
+            return new DataIngestionResult(false, "Incremental mode must be enabled before ingesting records", 0);
+        }
+        
+        ReconciliationLedger restored = new ReconciliationLedger(new ReconciliationStateStore(stateDirectory));
+        int restoredCount;
+        try {
+            restoredCount = restored.recover();
+        } catch (IOException e) {
+            notifyListeners("Failed to restore reconciliation state: " + e.getMessage());
+            return new DataIngestionResult(false, "Failed to restore state from " + stateDirectory + ": " + e.getMessage(), 0);
+        }
+        
+        ledger = restored;
+        rebuildDiscrepancies();
+        notifyListeners("Incremental mode enabled, restored " + restoredCount + " records");
+        
+        return new DataIngestionResult(true, "Incremental mode enabled", restoredCount);
+    }
+    
     // Data ingestion
     public DataIngestionResult ingestInternalRecords(List<PaymentRecord> records) {
         if (state == ReconciliationState.PROCESSING) {
@@ -70,11 +118,16 @@ public class PaymentReconciliationEngine {
         }
         
         int ingestedCount = 0;
-        for (PaymentRecord record : records) {
-            if (validatePaymentRecord(record)) {
-                internalRecords.put(record.getTransactionId(), record);
-                ingestedCount++;
+        try {
+            for (PaymentRecord record : records) {
+                if (validatePaymentRecord(record) && admitInternal(record)) {
+                    ingestedCount++;
+                }
             }
+            syncLedger();
+        } catch (IOException e) {
+            notifyListeners("Failed to journal internal records: " + e.getMessage());
+            return new DataIngestionResult(false, "Failed to journal internal records: " + e.getMessage(), ingestedCount);
         }
         
         metrics.recordInternalRecordsIngested(ingestedCount);
@@ -89,11 +142,16 @@ public class PaymentReconciliationEngine {
         }
         
         int ingestedCount = 0;
-        for (ExternalRecord record : records) {
-            if (validateExternalRecord(record)) {
-                externalRecords.put(record.getReferenceId(), record);
-                ingestedCount++;
+        try {
+            for (ExternalRecord record : records) {
+                if (validateExternalRecord(record) && admitExternal(record)) {
+                    ingestedCount++;
+                }
             }
+            syncLedger();
+        } catch (IOException e) {
+            notifyListeners("Failed to journal external records: " + e.getMessage());
+            return new DataIngestionResult(false, "Failed to journal external records: " + e.getMessage(), ingestedCount);
         }
         
         metrics.recordExternalRecordsIngested(ingestedCount);
@@ -102,13 +160,91 @@ public class PaymentReconciliationEngine {
         return new DataIngestionResult(true, "External records ingested successfully", ingestedCount);
     }
     
+    // In incremental mode records are journaled; duplicates of already known IDs are skipped
+    private boolean admitInternal(PaymentRecord record) throws IOException {
+        if (ledger != null) {
+            return ledger.admitInternal(record);
+        }
+        internalRecords.put(record.getTransactionId(), record);
+        return true;
+    }
+    
+    private boolean admitExternal(ExternalRecord record) throws IOException {
+        if (ledger != null) {
+            return ledger.admitExternal(record);
+        }
+        externalRecords.put(record.getReferenceId(), record);
+        return true;
+    }
+    
+    private void syncLedger() throws IOException {
+        if (ledger != null) {
+            ledger.sync();
+        }
+    }
+    
+    // Streaming ingestion: records are parsed straight from the file and matched as they arrive
+    public DataIngestionResult ingestInternalFile(Path file, SettlementFileLayout layout) {
+        return ingestFile(file, layout, true);
+    }
+    
+    public DataIngestionResult ingestExternalFile(Path file, SettlementFileLayout layout) {
+        return ingestFile(file, layout, false);
+    }
+    
+    private DataIngestionResult ingestFile(Path file, SettlementFileLayout layout, boolean internal) {
+        if (state == ReconciliationState.PROCESSING) {
+            return new DataIngestionResult(false, "Cannot ingest data during processing", 0);
+        }
+        
+        int[] counts = new int[3]; // ingested, matched on arrival, rejected
+        try {
+            new SettlementFileReader(layout).forEachLine(file, line -> {
+                StreamedRecord record = internal ? StreamedRecord.internalFrom(line) : StreamedRecord.externalFrom(line);
+                if (record == null || (ledger != null && !admitStreamed(record))) {
+                    counts[2]++;
+                    return;
+                }
+                counts[0]++;
+                if (ledger == null && streamMatcher.offer(record) != null) {
+                    counts[1]++;
+                }
+            });
+            syncLedger();
+        } catch (IOException | UncheckedIOException e) {
+            notifyListeners("Failed to stream " + file + ": " + e.getMessage());
+            return new DataIngestionResult(false, "Failed to read " + file + ": " + e.getMessage(), counts[0]);
+        }
+        
+        if (internal) {
+            metrics.recordInternalRecordsIngested(counts[0]);
+        } else {
+            metrics.recordExternalRecordsIngested(counts[0]);
+        }
+        String side = internal ? "internal" : "external";
+        notifyListeners("Streamed " + counts[0] + " " + side + " records from " + file.getFileName() +
+                        " (" + counts[1] + " matched on arrival, " + counts[2] + " rejected)");
+        
+        return new DataIngestionResult(true, "Streamed " + side + " records: " + counts[1] +
+                                       " matched on arrival, " + counts[2] + " rejected", counts[0]);
+    }
+    
+    private boolean admitStreamed(StreamedRecord record) {
+        try {
+            return record.isInternal() ? ledger.admitInternal(record.toPaymentRecord())
+                                       : ledger.admitExternal(record.toExternalRecord());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
     // Main reconciliation process
     public ReconciliationProcessResult startReconciliation() {
         if (state == ReconciliationState.PROCESSING) {
             return new ReconciliationProcessResult(false, "Reconciliation already in progress", null);
         }
         
-        if (internalRecords.isEmpty() || externalRecords.isEmpty()) {
+        if (getInternalRecordCount() == 0 || getExternalRecordCount() == 0) {
             return new ReconciliationProcessResult(false, "Insufficient data for reconciliation", null);
         }
         
@@ -131,75 +267,384 @@ public class PaymentReconciliationEngine {
         return new ReconciliationProcessResult(true, "Reconciliation started successfully", reconciliationFuture);
     }
     
-    private ReconciliationSummary performReconciliation() {
+    private ReconciliationSummary performReconciliation() throws IOException {
         notifyListeners("Starting reconciliation process");
         
-        // Phase 1: Matching
-        MatchingResult matchingResult = performMatching();
-        
-        // Phase 2: Discrepancy identification
-        DiscrepancyAnalysisResult discrepancyResult = analyzeDiscrepancies(matchingResult);
-        
-        // Phase 3: Resolution attempts
-        ResolutionResult resolutionResult = resolveDiscrepancies(discrepancyResult);
+        if (ledger != null) {
+            return performIncrementalReconciliation();
+        }
         
-        // Phase 4: Generate summary
-        ReconciliationSummary summary = generateSummary(matchingResult, discrepancyResult, resolutionResult);
+        // Streamed records join the run: pairs matched on arrival plus those still pending
+        List<RecordMatch> streamedMatches = streamMatcher.getMatches();
+        List<PaymentRecord> internals = new ArrayList<>(internalRecords.values());
+        internals.addAll(streamMatcher.getPendingInternal());
+        List<ExternalRecord> externals = new ArrayList<>(externalRecords.values());
+        externals.addAll(streamMatcher.getPendingExternal());
+        int totalInternal = internals.size() + streamedMatches.size();
+        int totalExternal = externals.size() + streamedMatches.size();
+        
+        ReconciliationSummary summary;
+        if (settings.getPartitionCount() > 1 && totalInternal >= settings.getMinRecordsForPartitioning()) {
+            summary = performPartitionedReconciliation(internals, externals, streamedMatches,
+                                                       totalInternal, totalExternal);
+        } else {
+            // Phase 1: Matching
+            MatchingResult matchingResult = performMatching(internals, externals, streamedMatches);
+        
+            // Phase 2: Discrepancy identification
+            DiscrepancyAnalysisResult discrepancyResult = analyzeDiscrepancies(matchingResult);
+        
+            // Phase 3: Resolution attempts
+            ResolutionResult resolutionResult = resolveDiscrepancies(discrepancyResult);
+        
+            // Phase 4: Generate summary
+            summary = generateSummary(totalInternal, totalExternal, matchingResult, discrepancyResult, resolutionResult);
+        }
         
         // Update metrics
-        updateMetrics(summary);
+        updateMetrics(summary, summary.getResolutionResult().getResolutions(), summary.getMatchedRecords());
         
         notifyListeners("Reconciliation process completed");
         
         return summary;
     }
     
-    private MatchingResult performMatching() {
+    /**
+     * Matches only what arrived since the previous run: pending internals against the new
+     * externals, then new internals against both the pending-external index and the new
+     * externals. Discrepancies of the records involved are replaced in place, and the
+     * summary of the maintained state is kept for reporting.
+     */
+    private ReconciliationSummary performIncrementalReconciliation() throws IOException {
+        List<PaymentRecord> newInternal = ledger.getArrivedInternal();
+        List<ExternalRecord> newExternal = ledger.getArrivedExternal();
+        ExternalRecordIndex arrivals = new ExternalRecordIndex(newExternal);
+        List<RecordMatch> newMatches = new ArrayList<>();
+        
+        notifyListeners("Matching " + newInternal.size() + " new internal and " + newExternal.size() +
+                        " new external records");
+        
+        if (!newExternal.isEmpty()) {
+            for (PaymentRecord internal : ledger.getPendingInternal()) {
+                matchIncrementally(internal, newMatches, arrivals);
+            }
+        }
+        for (PaymentRecord internal : newInternal) {
+            matchIncrementally(internal, newMatches, ledger.getPendingExternalIndex(), arrivals);
+        }
+        
+        // Update discrepancies in place: matched records drop their "missing" entries
+        List<DiscrepancyResolution> runResolutions = new ArrayList<>();
+        Set<String> matchedInternal = new HashSet<>();
+        Set<String> matchedExternal = new HashSet<>();
+        for (RecordMatch match : newMatches) {
+            matchedInternal.add(match.getInternalRecord().getTransactionId());
+            matchedExternal.add(match.getExternalRecord().getReferenceId());
+            runResolutions.addAll(refreshMatchDiscrepancies(match));
+        }
+        for (PaymentRecord internal : newInternal) {
+            if (!matchedInternal.contains(internal.getTransactionId())) {
+                runResolutions.addAll(refreshMissingExternal(internal));
+            }
+        }
+        for (ExternalRecord external : newExternal) {
+            if (!matchedExternal.contains(external.getReferenceId())) {
+                runResolutions.addAll(refreshMissingInternal(external));
+            }
+        }
+        
+        ledger.settle();
+        
+        ReconciliationSummary summary = summarizeLedger();
+        currentResult = new ReconciliationResult(summary);
+        updateMetrics(summary, runResolutions, newMatches.size());
+        
+        notifyListeners("Incremental reconciliation completed: " + newMatches.size() + " new matches");
+        
+        return summary;
+    }
+    
+    // Best match across the given indexes, claimed and journaled through the ledger
+    private void matchIncrementally(PaymentRecord internal, List<RecordMatch> newMatches,
+                                    ExternalRecordIndex... indexes) throws IOException {
+        MatchResult best = null;
+        ExternalRecordIndex bestIndex = null;
+        for (ExternalRecordIndex index : indexes) {
+            MatchResult result = matchingStrategy.findMatch(internal, index);
+            if (result.isMatched() && (best == null || result.getConfidenceScore() > best.getConfidenceScore())) {
+                best = result;
+                bestIndex = index;
+            }
+        }
+        if (best != null && bestIndex.claim(best.getMatchedRecord())) {
+            newMatches.add(ledger.recordMatch(internal, best.getMatchedRecord(), best.getConfidenceScore()));
+        }
+    }
+    
+    private List<DiscrepancyResolution> refreshMatchDiscrepancies(RecordMatch match) {
+        PaymentRecord internal = match.getInternalRecord();
+        ExternalRecord external = match.getExternalRecord();
+        ledger.clearDiscrepancies(INTERNAL_KEY + internal.getTransactionId());
+        ledger.clearDiscrepancies(EXTERNAL_KEY + external.getReferenceId());
+        
+        List<DiscrepancyResolution> resolutions = new ArrayList<>();
+        for (Discrepancy discrepancy : reconciliationStrategy.identifyDiscrepancies(internal, external)) {
+            resolutions.add(discrepancyStrategy.resolveDiscrepancy(discrepancy));
+        }
+        ledger.putDiscrepancies(MATCH_KEY + internal.getTransactionId(), resolutions);
+        return resolutions;
+    }
+    
+    private List<DiscrepancyResolution> refreshMissingExternal(PaymentRecord internal) {
+        Discrepancy discrepancy = new Discrepancy(DiscrepancyType.MISSING_EXTERNAL,
+            "No external record found", internal, null, DiscrepancySeverity.HIGH);
+        List<DiscrepancyResolution> resolutions =
+            Collections.singletonList(discrepancyStrategy.resolveDiscrepancy(discrepancy));
+        ledger.putDiscrepancies(INTERNAL_KEY + internal.getTransactionId(), resolutions);
+        return resolutions;
+    }
+    
+    private List<DiscrepancyResolution> refreshMissingInternal(ExternalRecord external) {
+        Discrepancy discrepancy = new Discrepancy(DiscrepancyType.MISSING_INTERNAL,
+            "No internal record found", null, external, DiscrepancySeverity.HIGH);
+        List<DiscrepancyResolution> resolutions =
+            Collections.singletonList(discrepancyStrategy.resolveDiscrepancy(discrepancy));
+        ledger.putDiscrepancies(EXTERNAL_KEY + external.getReferenceId(), resolutions);
+        return resolutions;
+    }
+    
+    // Discrepancies are derived state, so after a restart they are rebuilt once from the ledger
+    private void rebuildDiscrepancies() {
+        for (RecordMatch match : ledger.getMatches()) {
+            refreshMatchDiscrepancies(match);
+        }
+        for (PaymentRecord internal : ledger.getPendingInternal()) {
+            refreshMissingExternal(internal);
+        }
+        for (ExternalRecord external : ledger.getPendingExternal()) {
+            refreshMissingInternal(external);
+        }
+        if (ledger.getMatchCount() > 0 || !ledger.getPendingInternal().isEmpty() || !ledger.getPendingExternal().isEmpty()) {
+            currentResult = new ReconciliationResult(summarizeLedger());
+        }
+    }
+    
+    private ReconciliationSummary summarizeLedger() {
+        List<PaymentRecord> pendingInternal = ledger.getPendingInternal();
+        List<ExternalRecord> pendingExternal = ledger.getPendingExternal();
+        List<RecordMatch> matches = ledger.getMatches();
+        List<DiscrepancyResolution> resolutions = ledger.getOpenResolutions();
+        List<Discrepancy> discrepancies = new ArrayList<>(resolutions.size());
+        for (DiscrepancyResolution resolution : resolutions) {
+            discrepancies.add(resolution.getDiscrepancy());
+        }
+        
+        return generateSummary(matches.size() + pendingInternal.size(), matches.size() + pendingExternal.size(),
+                               new MatchingResult(matches, pendingInternal, pendingExternal),
+                               new DiscrepancyAnalysisResult(discrepancies), new ResolutionResult(resolutions));
+    }
+    
+    private MatchingResult performMatching(List<PaymentRecord> internals, List<ExternalRecord> externals,
+                                           List<RecordMatch> preMatched) {
         notifyListeners("Performing record matching");
         
+        MatchingResult matchingResult = matchRecords(internals, externals);
+        if (preMatched.isEmpty()) {
+            return matchingResult;
+        }
+        List<RecordMatch> matches = new ArrayList<>(preMatched);
+        matches.addAll(matchingResult.getMatches());
+        return new MatchingResult(matches, matchingResult.getUnmatchedInternal(), matchingResult.getUnmatchedExternal());
+    }
+        
+    private MatchingResult matchRecords(Collection<PaymentRecord> internals, Collection<ExternalRecord> externals) {
         List<RecordMatch> matches = new ArrayList<>();
         List<PaymentRecord> unmatchedInternal = new ArrayList<>();
-        List<ExternalRecord> unmatchedExternal = new ArrayList<>(externalRecords.values());
+        ExternalRecordIndex index = new ExternalRecordIndex(externals);
         
-        for (PaymentRecord internal : internalRecords.values()) {
-            MatchResult matchResult = matchingStrategy.findMatch(internal, externalRecords.values());
+        for (PaymentRecord internal : internals) {
+            MatchResult matchResult = matchingStrategy.findMatch(internal, index);
             
-            if (matchResult.isMatched()) {
+            // Each external record pairs with at most one internal record
+            if (matchResult.isMatched() && index.claim(matchResult.getMatchedRecord())) {
                 ExternalRecord external = matchResult.getMatchedRecord();
                 matches.add(new RecordMatch(internal, external, matchResult.getConfidenceScore()));
-                unmatchedExternal.remove(external);
             } else {
                 unmatchedInternal.add(internal);
             }
         }
         
-        return new MatchingResult(matches, unmatchedInternal, unmatchedExternal);
+        return new MatchingResult(matches, unmatchedInternal, new ArrayList<>(index.getUnmatched()));
+    }
+    
+    /**
+     * Splits the records by currency, date window and (when the bank data carries it) merchant,
+     * then matches and resolves each partition on the processing executor. The window spans the
+     * settlement lag the strategies accept, so most lagged pairs share a partition. Records left
+     * unmatched inside their partition, such as pairs straddling a window edge, get a second,
+     * cross-partition pass before the results are merged.
+     */
+    private ReconciliationSummary performPartitionedReconciliation(List<PaymentRecord> internals,
+                                                                   List<ExternalRecord> externals,
+                                                                   List<RecordMatch> preMatched,
+                                                                   int totalInternal, int totalExternal) {
+        int partitionCount = settings.getPartitionCount();
+        long dateWindow = Math.max(MILLIS_PER_DAY, Math.max(settings.getPartitionDateWindow(), settings.getDateTolerance()));
+        boolean byMerchant = externals.stream()
+                .anyMatch(external -> external.getAdditionalField(MERCHANT_FIELD) != null);
+        
+        List<List<PaymentRecord>> internalPartitions = new ArrayList<>(partitionCount);
+        List<List<ExternalRecord>> externalPartitions = new ArrayList<>(partitionCount);
+        List<List<RecordMatch>> matchedPartitions = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            internalPartitions.add(new ArrayList<>());
+            externalPartitions.add(new ArrayList<>());
+            matchedPartitions.add(new ArrayList<>());
+        }
+        for (PaymentRecord internal : internals) {
+            Object merchant = byMerchant ? internal.getMerchantId() : null;
+            int partition = partitionOf(internal.getCurrency(), merchant, internal.getTransactionDate(), dateWindow, partitionCount);
+            internalPartitions.get(partition).add(internal);
+        }
+        for (ExternalRecord external : externals) {
+            Object merchant = byMerchant ? external.getAdditionalField(MERCHANT_FIELD) : null;
+            int partition = partitionOf(external.getCurrency(), merchant, external.getSettlementDate(), dateWindow, partitionCount);
+            externalPartitions.get(partition).add(external);
+        }
+        // Pairs matched on arrival only need discrepancy analysis, which is spread the same way
+        for (RecordMatch match : preMatched) {
+            PaymentRecord internal = match.getInternalRecord();
+            Object merchant = byMerchant ? internal.getMerchantId() : null;
+            int partition = partitionOf(internal.getCurrency(), merchant, internal.getTransactionDate(), dateWindow, partitionCount);
+            matchedPartitions.get(partition).add(match);
+        }
+        
+        notifyListeners("Reconciling " + partitionCount + " partitions in parallel");
+        
+        // Workers pull partitions from a shared queue, so at most maxProcessingThreads run at once;
+        // the calling thread works the queue too instead of idling on the futures
+        PartitionOutcome[] outcomes = new PartitionOutcome[partitionCount];
+        Queue<Integer> pending = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < partitionCount; i++) {
+            pending.add(i);
+        }
+        Runnable worker = () -> {
+            Integer partition;
+            while ((partition = pending.poll()) != null) {
+                outcomes[partition] = reconcilePartition(internalPartitions.get(partition),
+                                                         externalPartitions.get(partition),
+                                                         matchedPartitions.get(partition));
+            }
+        };
+        
+        int parallelism = Math.max(1, Math.min(settings.getMaxProcessingThreads(), partitionCount));
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 1; i < parallelism; i++) {
+            workers.add(processingExecutor.submit(worker));
+        }
+        worker.run();
+        awaitAll(workers);
+        
+        List<RecordMatch> matches = new ArrayList<>();
+        List<PaymentRecord> leftoverInternal = new ArrayList<>();
+        List<ExternalRecord> leftoverExternal = new ArrayList<>();
+        List<Discrepancy> discrepancies = new ArrayList<>();
+        List<DiscrepancyResolution> resolutions = new ArrayList<>();
+        for (PartitionOutcome outcome : outcomes) {
+            matches.addAll(outcome.matching.getMatches());
+            leftoverInternal.addAll(outcome.matching.getUnmatchedInternal());
+            leftoverExternal.addAll(outcome.matching.getUnmatchedExternal());
+            discrepancies.addAll(outcome.discrepancies);
+            resolutions.addAll(outcome.resolutions);
+        }
+        
+        // Cross-partition pass: settlement delays and currency conversions land in different partitions
+        MatchingResult crossPartition = matchRecords(leftoverInternal, leftoverExternal);
+        matches.addAll(crossPartition.getMatches());
+        
+        List<Discrepancy> remaining = identifyMatchDiscrepancies(crossPartition.getMatches());
+        remaining.addAll(identifyUnmatchedDiscrepancies(crossPartition));
+        discrepancies.addAll(remaining);
+        resolutions.addAll(resolveDiscrepancies(new DiscrepancyAnalysisResult(remaining)).getResolutions());
+        
+        metrics.recordPartitionedRun(partitionCount, crossPartition.getTotalMatches());
+        
+        MatchingResult matchingResult = new MatchingResult(matches, crossPartition.getUnmatchedInternal(),
+                                                           crossPartition.getUnmatchedExternal());
+        return generateSummary(totalInternal, totalExternal, matchingResult, new DiscrepancyAnalysisResult(discrepancies),
+                               new ResolutionResult(resolutions));
+    }
+    
+    private PartitionOutcome reconcilePartition(List<PaymentRecord> internals, List<ExternalRecord> externals,
+                                                List<RecordMatch> preMatched) {
+        MatchingResult matching = matchRecords(internals, externals);
+        if (!preMatched.isEmpty()) {
+            List<RecordMatch> matches = new ArrayList<>(preMatched);
+            matches.addAll(matching.getMatches());
+            matching = new MatchingResult(matches, matching.getUnmatchedInternal(), matching.getUnmatchedExternal());
+        }
+        List<Discrepancy> discrepancies = identifyMatchDiscrepancies(matching.getMatches());
+        
+        List<DiscrepancyResolution> resolutions = new ArrayList<>(discrepancies.size());
+        for (Discrepancy discrepancy : discrepancies) {
+            resolutions.add(discrepancyStrategy.resolveDiscrepancy(discrepancy));
+        }
+        return new PartitionOutcome(matching, discrepancies, resolutions);
+    }
+    
+    private static int partitionOf(String currency, Object merchant, long timestamp, long dateWindow, int partitionCount) {
+        long window = Math.floorDiv(timestamp, dateWindow);
+        return Math.floorMod(Objects.hash(currency, merchant, window), partitionCount);
+    }
+    
+    private static void awaitAll(List<Future<?>> futures) {
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reconciling partitions", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Partition reconciliation failed", e.getCause());
+        }
     }
     
     private DiscrepancyAnalysisResult analyzeDiscrepancies(MatchingResult matchingResult) {
         notifyListeners("Analyzing discrepancies");
         
+        List<Discrepancy> discrepancies = identifyMatchDiscrepancies(matchingResult.getMatches());
+        discrepancies.addAll(identifyUnmatchedDiscrepancies(matchingResult));
+        
+        return new DiscrepancyAnalysisResult(discrepancies);
+    }
+    
+    // Analyze matched records for discrepancies
+    private List<Discrepancy> identifyMatchDiscrepancies(List<RecordMatch> matches) {
         List<Discrepancy> discrepancies = new ArrayList<>();
         
-        // Analyze matched records for discrepancies
-        for (RecordMatch match : matchingResult.getMatches()) {
+        for (RecordMatch match : matches) {
             List<Discrepancy> matchDiscrepancies = reconciliationStrategy.identifyDiscrepancies(
                 match.getInternalRecord(), match.getExternalRecord());
             discrepancies.addAll(matchDiscrepancies);
         }
+        return discrepancies;
+    }
+        
+    // Create discrepancies for unmatched records
+    private List<Discrepancy> identifyUnmatchedDiscrepancies(MatchingResult matchingResult) {
+        List<Discrepancy> discrepancies = new ArrayList<>();
         
-        // Create discrepancies for unmatched records
         for (PaymentRecord unmatched : matchingResult.getUnmatchedInternal()) {
-            discrepancies.add(new Discrepancy(DiscrepancyType.MISSING_EXTERNAL, 
+            discrepancies.add(new Discrepancy(DiscrepancyType.MISSING_EXTERNAL,
                 "No external record found", unmatched, null, DiscrepancySeverity.HIGH));
         }
         
         for (ExternalRecord unmatched : matchingResult.getUnmatchedExternal()) {
-            discrepancies.add(new Discrepancy(DiscrepancyType.MISSING_INTERNAL, 
+            discrepancies.add(new Discrepancy(DiscrepancyType.MISSING_INTERNAL,
                 "No internal record found", null, unmatched, DiscrepancySeverity.HIGH));
         }
-        
-        return new DiscrepancyAnalysisResult(discrepancies);
+        return discrepancies;
     }
     
     private ResolutionResult resolveDiscrepancies(DiscrepancyAnalysisResult discrepancyResult) {
@@ -208,25 +653,17 @@ public class PaymentReconciliationEngine {
         List<DiscrepancyResolution> resolutions = new ArrayList<>();
         
         for (Discrepancy discrepancy : discrepancyResult.getDiscrepancies()) {
-            DiscrepancyResolution resolution = discrepancyStrategy.resolveDiscrepancy(discrepancy);
-            resolutions.add(resolution);
-            
-            if (resolution.isResolved()) {
-                metrics.incrementResolvedDiscrepancies();
-            } else {
-                metrics.incrementUnresolvedDiscrepancies();
-            }
+            resolutions.add(discrepancyStrategy.resolveDiscrepancy(discrepancy));
         }
         
         return new ResolutionResult(resolutions);
     }
     
-    private ReconciliationSummary generateSummary(MatchingResult matchingResult, 
+    private ReconciliationSummary generateSummary(int totalInternal, int totalExternal,
+                                                 MatchingResult matchingResult, 
                                                  DiscrepancyAnalysisResult discrepancyResult, 
                                                  ResolutionResult resolutionResult) {
         
-        int totalInternal = internalRecords.size();
-        int totalExternal = externalRecords.size();
         int matchedRecords = matchingResult.getMatches().size();
         int totalDiscrepancies = discrepancyResult.getDiscrepancies().size();
         int resolvedDiscrepancies = (int) resolutionResult.getResolutions().stream()
@@ -242,7 +679,19 @@ public class PaymentReconciliationEngine {
         );
     }
     
-    private void updateMetrics(ReconciliationSummary summary) {
+    // Counters only take this run's new matches and resolutions; rates come from the summary
+    private void updateMetrics(ReconciliationSummary summary, List<DiscrepancyResolution> resolutions, int matches) {
+        for (DiscrepancyResolution resolution : resolutions) {
+            if (resolution.isResolved()) {
+                metrics.incrementResolvedDiscrepancies();
+            } else {
+                metrics.incrementUnresolvedDiscrepancies();
+            }
+            metrics.recordResolutionAction(resolution.getAction());
+            metrics.recordDiscrepancyType(resolution.getDiscrepancy().getType());
+        }
+        metrics.recordMatches(matches);
+        metrics.recordDiscrepancies(resolutions.size());
         metrics.recordReconciliationRun();
         metrics.updateMatchRate(summary.getMatchRate());
         metrics.updateResolutionRate(summary.getResolutionRate());
@@ -251,10 +700,23 @@ public class PaymentReconciliationEngine {
     
     // Reporting and analysis
     public ReconciliationReport generateReport(ReportType reportType) {
+        if (ledger != null) {
+            // Incremental mode reports the maintained state as of the last run
+            ReconciliationResult result = currentResult;
+            List<ReconciliationResult> results = result != null ? Collections.singletonList(result)
+                                                                : Collections.emptyList();
+            return reportingStrategy.generateReport(results, reportType, settings);
+        }
         return reportingStrategy.generateReport(reconciliationResults.values(), reportType, settings);
     }
     
     public List<Discrepancy> getUnresolvedDiscrepancies() {
+        if (ledger != null) {
+            return ledger.getOpenResolutions().stream()
+                    .filter(resolution -> !resolution.isResolved())
+                    .map(DiscrepancyResolution::getDiscrepancy)
+                    .collect(Collectors.toList());
+        }
         return reconciliationResults.values().stream()
                 .flatMap(result -> result.getSummary().getDiscrepancyResult().getDiscrepancies().stream())
                 .filter(d -> !isDiscrepancyResolved(d))
@@ -316,6 +778,14 @@ public class PaymentReconciliationEngine {
             Thread.currentThread().interrupt();
         }
         
+        if (ledger != null) {
+            try {
+                ledger.close();
+            } catch (IOException e) {
+                notifyListeners("Failed to snapshot reconciliation state: " + e.getMessage());
+            }
+        }
+        
         notifyListeners("Reconciliation engine shutdown");
     }
     
@@ -323,8 +793,28 @@ public class PaymentReconciliationEngine {
     public String getEngineId() { return engineId; }
     public ReconciliationState getState() { return state; }
     public ReconciliationSettings getSettings() { return settings; }
-    public int getInternalRecordCount() { return internalRecords.size(); }
-    public int getExternalRecordCount() { return externalRecords.size(); }
+    public int getInternalRecordCount() { 
+        return internalRecords.size() + streamMatcher.getMatchCount() + streamMatcher.getPendingInternalCount() +
+               (ledger != null ? ledger.getInternalCount() : 0); 
+    }
+    public int getExternalRecordCount() { 
+        return externalRecords.size() + streamMatcher.getMatchCount() + streamMatcher.getPendingExternalCount() +
+               (ledger != null ? ledger.getExternalCount() : 0); 
+    }
     public long getCreatedAt() { return createdAt; }
     public long getLastReconciliationTime() { return lastReconciliationTime; }
+    public boolean isIncrementalMode() { return ledger != null; }
+    
+    private static final class PartitionOutcome {
+        private final MatchingResult matching;
+        private final List<Discrepancy> discrepancies;
+        private final List<DiscrepancyResolution> resolutions;
+        
+        PartitionOutcome(MatchingResult matching, List<Discrepancy> discrepancies,
+                         List<DiscrepancyResolution> resolutions) {
+            this.matching = matching;
+            this.discrepancies = discrepancies;
+            this.resolutions = resolutions;
+        }
+    }
 }
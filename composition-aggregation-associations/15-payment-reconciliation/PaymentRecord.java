@@ -16,7 +16,7 @@ public class PaymentRecord {
     private final long transactionDate;
     private final String customerId;
     private final String merchantId;
-    private final Map<String, Object> metadata;
+    private Map<String, Object> metadata;   // allocated on first use
     private final RecordSource source;
     private final long createdAt;
     
@@ -32,21 +32,23 @@ public class PaymentRecord {
         this.transactionDate = transactionDate;
         this.customerId = customerId;
         this.merchantId = merchantId;
-        this.metadata = new HashMap<>();
         this.source = RecordSource.INTERNAL_SYSTEM;
         this.createdAt = System.currentTimeMillis();
     }
     
     public void addMetadata(String key, Object value) {
+        if (metadata == null) {
+            metadata = new HashMap<>(4);
+        }
         metadata.put(key, value);
     }
     
     public Object getMetadata(String key) {
-        return metadata.get(key);
+        return metadata != null ? metadata.get(key) : null;
     }
     
     public boolean hasMetadata(String key) {
-        return metadata.containsKey(key);
+        return metadata != null && metadata.containsKey(key);
     }
     
     // Getters
@@ -59,7 +61,7 @@ public class PaymentRecord {
     public long getTransactionDate() { return transactionDate; }
     public String getCustomerId() { return customerId; }
     public String getMerchantId() { return merchantId; }
-    public Map<String, Object> getMetadata() { return new HashMap<>(metadata); }
+    public Map<String, Object> getMetadata() { return metadata != null ? new HashMap<>(metadata) : new HashMap<>(); }
     public RecordSource getSource() { return source; }
     public long getCreatedAt() { return createdAt; }
     
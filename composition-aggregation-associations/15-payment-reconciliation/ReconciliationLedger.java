@@ -0,0 +1,191 @@
+package composition.reconciliation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Maintained state for incremental reconciliation.
+ *
+ * Records admitted since the last run wait as arrivals; after a run they either belong
+ * to a match or stay pending, pending externals in a long-lived ExternalRecordIndex so
+ * later arrivals are matched against them without rebuilding anything. Every change is
+ * journaled through the ReconciliationStateStore, so recover() rebuilds the same state
+ * after a restart. Open discrepancies are kept per record or match key and replaced in
+ * place as records get matched; they are derived state and are not journaled.
+ */
+public class ReconciliationLedger implements Closeable {
+    static final String MATCH_REASON = "Incremental matching";
+    
+    private final ReconciliationStateStore store;
+    private final Map<String, PaymentRecord> arrivedInternal = new LinkedHashMap<>();
+    private final Map<String, ExternalRecord> arrivedExternal = new LinkedHashMap<>();
+    private final Map<String, PaymentRecord> pendingInternal = new LinkedHashMap<>();
+    private ExternalRecordIndex pendingExternal = new ExternalRecordIndex(Collections.emptyList());
+    private final List<RecordMatch> matches = new ArrayList<>();
+    private final Set<String> matchedInternalIds = new HashSet<>();
+    private final Set<String> matchedExternalIds = new HashSet<>();
+    private final Map<String, List<DiscrepancyResolution>> openDiscrepancies = new LinkedHashMap<>();
+    
+    public ReconciliationLedger(ReconciliationStateStore store) {
+        this.store = store;
+    }
+    
+    /**
+     * Restores the journaled state; returns the number of records restored.
+     */
+    public synchronized int recover() throws IOException {
+        store.recover(new ReconciliationStateStore.Replay() {
+            @Override
+            public void admitInternal(PaymentRecord record) {
+                arrivedInternal.put(record.getTransactionId(), record);
+            }
+            
+            @Override
+            public void admitExternal(ExternalRecord record) {
+                arrivedExternal.put(record.getReferenceId(), record);
+            }
+            
+            @Override
+            public void match(String transactionId, String referenceId, double confidence) {
+                PaymentRecord internal = arrivedInternal.containsKey(transactionId) ?
+                    arrivedInternal.get(transactionId) : pendingInternal.get(transactionId);
+                ExternalRecord external = arrivedExternal.containsKey(referenceId) ?
+                    arrivedExternal.get(referenceId) : pendingExternal.findByReferenceId(referenceId);
+                if (internal != null && external != null) {
+                    applyMatch(internal, external, confidence);
+                }
+            }
+            
+            @Override
+            public void settle() {
+                applySettle();
+            }
+        });
+        return getInternalCount() + getExternalCount();
+    }
+    
+    /**
+     * Journals a new internal record; false if its transaction ID is already known.
+     */
+    public synchronized boolean admitInternal(PaymentRecord record) throws IOException {
+        String id = record.getTransactionId();
+        if (arrivedInternal.containsKey(id) || pendingInternal.containsKey(id) || matchedInternalIds.contains(id)) {
+            return false;
+        }
+        store.appendInternal(record);
+        arrivedInternal.put(id, record);
+        return true;
+    }
+    
+    /**
+     * Journals a new external record; false if its reference ID is already known.
+     */
+    public synchronized boolean admitExternal(ExternalRecord record) throws IOException {
+        String id = record.getReferenceId();
+        if (arrivedExternal.containsKey(id) || pendingExternal.findByReferenceId(id) != null ||
+            matchedExternalIds.contains(id)) {
+            return false;
+        }
+        store.appendExternal(record);
+        arrivedExternal.put(id, record);
+        return true;
+    }
+    
+    public synchronized RecordMatch recordMatch(PaymentRecord internal, ExternalRecord external,
+                                                double confidence) throws IOException {
+        store.appendMatch(internal.getTransactionId(), external.getReferenceId(), confidence);
+        return applyMatch(internal, external, confidence);
+    }
+    
+    /**
+     * Makes this run's arrivals pending, syncs the journal once for the whole run and
+     * compacts it into a snapshot when it has grown large enough.
+     */
+    public synchronized void settle() throws IOException {
+        store.appendSettle();
+        applySettle();
+        store.sync();
+        if (store.isSnapshotDue()) {
+            snapshot();
+        }
+    }
+    
+    public synchronized void sync() throws IOException {
+        store.sync();
+    }
+    
+    public synchronized void snapshot() throws IOException {
+        // Rebuilding the index drops the entries of records claimed since it was created
+        pendingExternal = new ExternalRecordIndex(new ArrayList<>(pendingExternal.getUnmatched()));
+        store.writeSnapshot(matches, pendingInternal.values(), pendingExternal.getUnmatched(),
+                            arrivedInternal.values(), arrivedExternal.values());
+    }
+    
+    private RecordMatch applyMatch(PaymentRecord internal, ExternalRecord external, double confidence) {
+        if (arrivedInternal.remove(internal.getTransactionId()) == null) {
+            pendingInternal.remove(internal.getTransactionId());
+        }
+        arrivedExternal.remove(external.getReferenceId());
+        pendingExternal.claim(external);
+        matchedInternalIds.add(internal.getTransactionId());
+        matchedExternalIds.add(external.getReferenceId());
+        
+        RecordMatch match = new RecordMatch(internal, external, confidence, MATCH_REASON);
+        matches.add(match);
+        return match;
+    }
+    
+    private void applySettle() {
+        pendingInternal.putAll(arrivedInternal);
+        for (ExternalRecord external : arrivedExternal.values()) {
+            pendingExternal.add(external);
+        }
+        arrivedInternal.clear();
+        arrivedExternal.clear();
+    }
+    
+    // Open discrepancies, keyed by record or match
+    public synchronized void putDiscrepancies(String key, List<DiscrepancyResolution> resolutions) {
+        if (resolutions.isEmpty()) {
+            openDiscrepancies.remove(key);
+        } else {
+            openDiscrepancies.put(key, resolutions);
+        }
+    }
+    
+    public synchronized void clearDiscrepancies(String key) {
+        openDiscrepancies.remove(key);
+    }
+    
+    public synchronized List<DiscrepancyResolution> getOpenResolutions() {
+        List<DiscrepancyResolution> resolutions = new ArrayList<>();
+        for (List<DiscrepancyResolution> entry : openDiscrepancies.values()) {
+            resolutions.addAll(entry);
+        }
+        return resolutions;
+    }
+    
+    public synchronized List<PaymentRecord> getArrivedInternal() { return new ArrayList<>(arrivedInternal.values()); }
+    public synchronized List<ExternalRecord> getArrivedExternal() { return new ArrayList<>(arrivedExternal.values()); }
+    public synchronized List<PaymentRecord> getPendingInternal() { return new ArrayList<>(pendingInternal.values()); }
+    public synchronized List<ExternalRecord> getPendingExternal() { return new ArrayList<>(pendingExternal.getUnmatched()); }
+    public synchronized List<RecordMatch> getMatches() { return new ArrayList<>(matches); }
+    
+    // Live index of pending externals; only used by the engine while no other thread touches the ledger
+    ExternalRecordIndex getPendingExternalIndex() { return pendingExternal; }
+    
+    public synchronized int getMatchCount() { return matches.size(); }
+    public synchronized int getInternalCount() {
+        return arrivedInternal.size() + pendingInternal.size() + matches.size();
+    }
+    public synchronized int getExternalCount() {
+        return arrivedExternal.size() + pendingExternal.getUnmatchedCount() + matches.size();
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        snapshot();
+        store.close();
+    }
+}
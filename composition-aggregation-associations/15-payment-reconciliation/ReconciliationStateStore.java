@@ -0,0 +1,336 @@
+package composition.reconciliation;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Local snapshot-plus-journal store for incremental reconciliation state.
+ *
+ * The journal records admitted records, matches and run boundaries, framed as
+ * [length][crc32][type][sequence + payload]. Appends are buffered by the OS and
+ * made durable in groups by sync(). A snapshot is the same frames written for
+ * the current state only, tagged with the last journal sequence it covers; it is
+ * written to a temp file, forced and atomically swapped in before the journal is
+ * truncated, so replay after a crash at any point skips frames already covered.
+ */
+public class ReconciliationStateStore implements Closeable {
+    private static final byte SNAPSHOT_HEADER = 0;
+    private static final byte ADMIT_INTERNAL = 1;
+    private static final byte ADMIT_EXTERNAL = 2;
+    private static final byte MATCH = 3;
+    private static final byte SETTLE = 4;
+    private static final int HEADER_BYTES = 4 + 8 + 1;
+    
+    /**
+     * Receives recovered state in journal order.
+     */
+    interface Replay {
+        void admitInternal(PaymentRecord record);
+        void admitExternal(ExternalRecord record);
+        void match(String transactionId, String referenceId, double confidence);
+        void settle();
+    }
+    
+    private final Path snapshotFile;
+    private final Path journalFile;
+    private final long snapshotThresholdBytes;
+    private final ByteArrayOutputStream scratch;
+    private FileChannel journal;
+    private long nextSequence;
+    
+    public ReconciliationStateStore(Path directory) {
+        this(directory, 16L * 1024 * 1024);
+    }
+    
+    public ReconciliationStateStore(Path directory, long snapshotThresholdBytes) {
+        this.snapshotFile = directory.resolve("reconciliation.snapshot");
+        this.journalFile = directory.resolve("reconciliation.journal");
+        this.snapshotThresholdBytes = snapshotThresholdBytes;
+        this.scratch = new ByteArrayOutputStream(256);
+        this.nextSequence = 1;
+    }
+    
+    /**
+     * Replays the snapshot and then the journal entries it does not cover,
+     * truncates any torn journal tail and opens the journal for appending.
+     */
+    public synchronized void recover(Replay replay) throws IOException {
+        close();
+        Files.createDirectories(journalFile.toAbsolutePath().getParent());
+        
+        long coveredSequence = 0;
+        if (Files.exists(snapshotFile)) {
+            try (FileChannel snapshot = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+                coveredSequence = readFrames(snapshot, replay, -1);
+            }
+        }
+        
+        journal = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long lastSequence = readFrames(journal, replay, coveredSequence);
+        nextSequence = Math.max(coveredSequence, lastSequence) + 1;
+    }
+    
+    /**
+     * Reads frames until the end or the first torn/corrupt frame. Frames with a sequence at or
+     * below skipThrough are ignored; skipThrough < 0 marks a snapshot, whose header is returned.
+     * For the journal, the torn tail is truncated and the last sequence seen is returned.
+     */
+    private long readFrames(FileChannel channel, Replay replay, long skipThrough) throws IOException {
+        boolean snapshot = skipThrough < 0;
+        long covered = 0;
+        long lastSequence = 0;
+        long validLength = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        
+        while (true) {
+            header.clear();
+            if (channel.read(header, validLength) < HEADER_BYTES) {
+                break;
+            }
+            header.flip();
+            int length = header.getInt();
+            long crc = header.getLong();
+            byte type = header.get();
+            if (length < 8 || validLength + HEADER_BYTES + length > channel.size()) {
+                break;
+            }
+            
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            channel.read(payload, validLength + HEADER_BYTES);
+            if (checksum(type, payload.array()) != crc) {
+                break;
+            }
+            
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload.array()));
+            long sequence = in.readLong();
+            if (type == SNAPSHOT_HEADER) {
+                covered = sequence;
+            } else if (snapshot || sequence > skipThrough) {
+                apply(type, in, replay);
+            }
+            lastSequence = Math.max(lastSequence, sequence);
+            validLength += HEADER_BYTES + length;
+        }
+        
+        if (snapshot) {
+            return covered;
+        }
+        channel.truncate(validLength);
+        channel.position(validLength);
+        return lastSequence;
+    }
+    
+    private static void apply(byte type, DataInputStream in, Replay replay) throws IOException {
+        switch (type) {
+            case ADMIT_INTERNAL:
+                replay.admitInternal(readInternal(in));
+                break;
+            case ADMIT_EXTERNAL:
+                replay.admitExternal(readExternal(in));
+                break;
+            case MATCH:
+                replay.match(in.readUTF(), in.readUTF(), in.readDouble());
+                break;
+            case SETTLE:
+                replay.settle();
+                break;
+            default:
+                throw new IOException("Unknown journal entry type " + type);
+        }
+    }
+    
+    public synchronized void appendInternal(PaymentRecord record) throws IOException {
+        DataOutputStream out = begin();
+        writeInternal(out, record);
+        append(journal, ADMIT_INTERNAL, nextSequence++);
+    }
+    
+    public synchronized void appendExternal(ExternalRecord record) throws IOException {
+        DataOutputStream out = begin();
+        writeExternal(out, record);
+        append(journal, ADMIT_EXTERNAL, nextSequence++);
+    }
+    
+    public synchronized void appendMatch(String transactionId, String referenceId, double confidence) throws IOException {
+        DataOutputStream out = begin();
+        out.writeUTF(transactionId);
+        out.writeUTF(referenceId);
+        out.writeDouble(confidence);
+        append(journal, MATCH, nextSequence++);
+    }
+    
+    // Marks the end of a run: every admitted record not matched so far is now pending
+    public synchronized void appendSettle() throws IOException {
+        begin();
+        append(journal, SETTLE, nextSequence++);
+    }
+    
+    /**
+     * Makes every append so far durable; callers group a whole ingestion or run per sync.
+     */
+    public synchronized void sync() throws IOException {
+        requireOpen();
+        journal.force(false);
+    }
+    
+    public synchronized boolean isSnapshotDue() throws IOException {
+        return journal != null && journal.size() >= snapshotThresholdBytes;
+    }
+    
+    /**
+     * Writes the given state as the new snapshot and truncates the journal it replaces.
+     */
+    public synchronized void writeSnapshot(List<RecordMatch> matches,
+                                           Collection<PaymentRecord> pendingInternal,
+                                           Collection<ExternalRecord> pendingExternal,
+                                           Collection<PaymentRecord> arrivedInternal,
+                                           Collection<ExternalRecord> arrivedExternal) throws IOException {
+        requireOpen();
+        long covered = nextSequence - 1;
+        Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                                                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            begin();
+            append(out, SNAPSHOT_HEADER, covered);
+            for (RecordMatch match : matches) {
+                writeInternal(begin(), match.getInternalRecord());
+                append(out, ADMIT_INTERNAL, covered);
+                writeExternal(begin(), match.getExternalRecord());
+                append(out, ADMIT_EXTERNAL, covered);
+                DataOutputStream entry = begin();
+                entry.writeUTF(match.getInternalRecord().getTransactionId());
+                entry.writeUTF(match.getExternalRecord().getReferenceId());
+                entry.writeDouble(match.getConfidenceScore());
+                append(out, MATCH, covered);
+            }
+            for (PaymentRecord record : pendingInternal) {
+                writeInternal(begin(), record);
+                append(out, ADMIT_INTERNAL, covered);
+            }
+            for (ExternalRecord record : pendingExternal) {
+                writeExternal(begin(), record);
+                append(out, ADMIT_EXTERNAL, covered);
+            }
+            begin();
+            append(out, SETTLE, covered);
+            // Records admitted since the last run stay queued for the next one
+            for (PaymentRecord record : arrivedInternal) {
+                writeInternal(begin(), record);
+                append(out, ADMIT_INTERNAL, covered);
+            }
+            for (ExternalRecord record : arrivedExternal) {
+                writeExternal(begin(), record);
+                append(out, ADMIT_EXTERNAL, covered);
+            }
+            out.force(true);
+        }
+        
+        Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journal.truncate(0);
+        journal.position(0);
+        journal.force(true);
+    }
+    
+    private DataOutputStream begin() {
+        scratch.reset();
+        return new DataOutputStream(scratch);
+    }
+    
+    private void append(FileChannel channel, byte type, long sequence) throws IOException {
+        requireOpen();
+        byte[] body = scratch.toByteArray();
+        ByteBuffer payload = ByteBuffer.allocate(8 + body.length);
+        payload.putLong(sequence);
+        payload.put(body);
+        byte[] bytes = payload.array();
+        
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + bytes.length);
+        buffer.putInt(bytes.length);
+        buffer.putLong(checksum(type, bytes));
+        buffer.put(type);
+        buffer.put(bytes);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+    
+    private void requireOpen() {
+        if (journal == null) {
+            throw new IllegalStateException("State store has not been recovered");
+        }
+    }
+    
+    private static void writeInternal(DataOutputStream out, PaymentRecord record) throws IOException {
+        out.writeUTF(record.getTransactionId());
+        writeNullable(out, record.getOrderId());
+        out.writeUTF(record.getAmount().toString());
+        writeNullable(out, record.getCurrency());
+        out.writeUTF(record.getPaymentMethod().name());
+        out.writeUTF(record.getStatus().name());
+        out.writeLong(record.getTransactionDate());
+        writeNullable(out, record.getCustomerId());
+        writeNullable(out, record.getMerchantId());
+    }
+    
+    private static PaymentRecord readInternal(DataInputStream in) throws IOException {
+        return new PaymentRecord(in.readUTF(), readNullable(in), new BigDecimal(in.readUTF()),
+                                 CurrencyCodes.intern(readNullable(in)), PaymentMethod.valueOf(in.readUTF()),
+                                 PaymentStatus.valueOf(in.readUTF()), in.readLong(),
+                                 readNullable(in), readNullable(in));
+    }
+    
+    private static void writeExternal(DataOutputStream out, ExternalRecord record) throws IOException {
+        out.writeUTF(record.getReferenceId());
+        writeNullable(out, record.getBankTransactionId());
+        out.writeUTF(record.getAmount().toString());
+        writeNullable(out, record.getCurrency());
+        writeNullable(out, record.getDescription());
+        out.writeLong(record.getSettlementDate());
+        writeNullable(out, record.getAccountNumber());
+        writeNullable(out, record.getCounterpartyName());
+        out.writeUTF(record.getSource().name());
+    }
+    
+    private static ExternalRecord readExternal(DataInputStream in) throws IOException {
+        return new ExternalRecord(in.readUTF(), readNullable(in), new BigDecimal(in.readUTF()),
+                                  CurrencyCodes.intern(readNullable(in)), readNullable(in), in.readLong(),
+                                  readNullable(in), readNullable(in), RecordSource.valueOf(in.readUTF()));
+    }
+    
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+    
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+    
+    private static long checksum(byte type, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        return crc.getValue();
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        if (journal != null) {
+            journal.force(false);
+            journal.close();
+            journal = null;
+        }
+    }
+    
+    public Path getJournalFile() { return journalFile; }
+    public Path getSnapshotFile() { return snapshotFile; }
+}
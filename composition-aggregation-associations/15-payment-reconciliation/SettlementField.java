@@ -0,0 +1,27 @@
+package composition.reconciliation;
+
+/**
+ * Fields a settlement file layout can map onto a column or fixed-width slice.
+ */
+public enum SettlementField {
+    ID("Transaction / Reference ID"),
+    REFERENCE("Order / Bank Transaction ID"),
+    AMOUNT("Amount"),
+    CURRENCY("Currency"),
+    DATE("Transaction / Settlement Date"),
+    DESCRIPTION("Description"),
+    ACCOUNT("Customer / Account Number"),
+    COUNTERPARTY("Merchant / Counterparty"),
+    METHOD("Payment Method"),
+    STATUS("Payment Status");
+    
+    private final String displayName;
+    
+    SettlementField(String displayName) {
+        this.displayName = displayName;
+    }
+    
+    public String getDisplayName() {
+        return displayName;
+    }
+}
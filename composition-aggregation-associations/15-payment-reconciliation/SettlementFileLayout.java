@@ -0,0 +1,134 @@
+package composition.reconciliation;
+
+import java.util.*;
+
+/**
+ * Describes where each settlement field sits on a line of a CSV or fixed-width file.
+ * Splitting only records field boundaries; nothing is copied out of the line.
+ */
+public class SettlementFileLayout {
+    private static final int FIELD_COUNT = SettlementField.values().length;
+    
+    private final boolean fixedWidth;
+    private final byte delimiter;
+    private final int headerLines;
+    private final int[] fieldByColumn;    // CSV: column index -> field ordinal, or -1
+    private final int[] offsets;          // fixed-width: field ordinal -> start offset, or -1
+    private final int[] widths;
+    private final EnumSet<SettlementField> fields;
+    
+    private SettlementFileLayout(boolean fixedWidth, char delimiter, int headerLines, int[] fieldByColumn,
+                                 int[] offsets, int[] widths, EnumSet<SettlementField> fields) {
+        if (!fields.containsAll(EnumSet.of(SettlementField.ID, SettlementField.AMOUNT,
+                                           SettlementField.CURRENCY, SettlementField.DATE))) {
+            throw new IllegalArgumentException("Layout must locate ID, AMOUNT, CURRENCY and DATE");
+        }
+        this.fixedWidth = fixedWidth;
+        this.delimiter = (byte) delimiter;
+        this.headerLines = headerLines;
+        this.fieldByColumn = fieldByColumn;
+        this.offsets = offsets;
+        this.widths = widths;
+        this.fields = fields;
+    }
+    
+    /**
+     * CSV layout; columns maps each field to its zero-based column index.
+     */
+    public static SettlementFileLayout csv(char delimiter, int headerLines, Map<SettlementField, Integer> columns) {
+        int maxColumn = columns.values().stream().mapToInt(Integer::intValue).max().orElse(-1);
+        int[] fieldByColumn = new int[maxColumn + 1];
+        Arrays.fill(fieldByColumn, -1);
+        for (Map.Entry<SettlementField, Integer> entry : columns.entrySet()) {
+            fieldByColumn[entry.getValue()] = entry.getKey().ordinal();
+        }
+        return new SettlementFileLayout(false, delimiter, headerLines, fieldByColumn, null, null,
+                                        EnumSet.copyOf(columns.keySet()));
+    }
+    
+    /**
+     * Fixed-width layout; positions maps each field to {offset, width} in bytes.
+     */
+    public static SettlementFileLayout fixedWidth(int headerLines, Map<SettlementField, int[]> positions) {
+        int[] offsets = new int[FIELD_COUNT];
+        int[] widths = new int[FIELD_COUNT];
+        Arrays.fill(offsets, -1);
+        for (Map.Entry<SettlementField, int[]> entry : positions.entrySet()) {
+            offsets[entry.getKey().ordinal()] = entry.getValue()[0];
+            widths[entry.getKey().ordinal()] = entry.getValue()[1];
+        }
+        return new SettlementFileLayout(true, ',', headerLines, null, offsets, widths,
+                                        EnumSet.copyOf(positions.keySet()));
+    }
+    
+    /**
+     * Fills starts/ends (indexed by field ordinal) for one line; absent fields get start -1.
+     * quoted[f] is set when a CSV field was quoted and may contain doubled quotes.
+     */
+    void split(byte[] line, int length, int[] starts, int[] ends, boolean[] quoted) {
+        Arrays.fill(starts, -1);
+        Arrays.fill(quoted, false);
+        
+        if (fixedWidth) {
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                int offset = offsets[field];
+                if (offset >= 0 && offset < length) {
+                    setTrimmed(line, offset, Math.min(length, offset + widths[field]), field, starts, ends);
+                }
+            }
+            return;
+        }
+        
+        int column = 0;
+        int position = 0;
+        while (position <= length && column < fieldByColumn.length) {
+            int field = fieldByColumn[column];
+            int fieldStart = position;
+            int fieldEnd;
+            boolean isQuoted = false;
+            
+            if (position < length && line[position] == '"') {
+                // Quoted field: runs to the closing quote, "" stands for a literal quote
+                isQuoted = true;
+                fieldStart = ++position;
+                while (position < length) {
+                    if (line[position] == '"') {
+                        if (position + 1 < length && line[position + 1] == '"') {
+                            position += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    position++;
+                }
+                fieldEnd = position;
+                while (position < length && line[position] != delimiter) {
+                    position++;
+                }
+            } else {
+                while (position < length && line[position] != delimiter) {
+                    position++;
+                }
+                fieldEnd = position;
+            }
+            
+            if (field >= 0) {
+                setTrimmed(line, fieldStart, fieldEnd, field, starts, ends);
+                quoted[field] = isQuoted;
+            }
+            position++;
+            column++;
+        }
+    }
+    
+    private static void setTrimmed(byte[] line, int start, int end, int field, int[] starts, int[] ends) {
+        while (start < end && line[start] == ' ') start++;
+        while (end > start && line[end - 1] == ' ') end--;
+        starts[field] = start;
+        ends[field] = end;
+    }
+    
+    public boolean isFixedWidth() { return fixedWidth; }
+    public int getHeaderLines() { return headerLines; }
+    public boolean hasField(SettlementField field) { return fields.contains(field); }
+}
@@ -0,0 +1,278 @@
+package composition.reconciliation;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Streams a settlement file line by line through memory-mapped windows of a FileChannel.
+ *
+ * Each line is handed to the consumer as a reused SettlementLine view; amounts, dates and
+ * currency codes are parsed straight from the bytes, and text is only decoded on request.
+ */
+public class SettlementFileReader {
+    private static final long MAP_WINDOW_BYTES = 64L << 20;
+    
+    private final SettlementFileLayout layout;
+    
+    public SettlementFileReader(SettlementFileLayout layout) {
+        this.layout = layout;
+    }
+    
+    /**
+     * Returns the number of data lines (excluding headers and blank lines) passed to the consumer.
+     */
+    public long forEachLine(Path file, Consumer<SettlementLine> consumer) throws IOException {
+        SettlementLine line = new SettlementLine(layout);
+        long lineNumber = 0;
+        long delivered = 0;
+        
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += MAP_WINDOW_BYTES) {
+                // Windows keep each mapping bounded; a line crossing a boundary is carried over in the buffer
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                                                      Math.min(MAP_WINDOW_BYTES, size - position));
+                while (window.hasRemaining()) {
+                    byte b = window.get();
+                    if (b != '\n') {
+                        line.append(b);
+                        continue;
+                    }
+                    if (++lineNumber > layout.getHeaderLines() && line.complete(lineNumber)) {
+                        consumer.accept(line);
+                        delivered++;
+                    }
+                    line.reset();
+                }
+            }
+            if (line.length > 0 && ++lineNumber > layout.getHeaderLines() && line.complete(lineNumber)) {
+                consumer.accept(line);
+                delivered++;
+            }
+        }
+        return delivered;
+    }
+    
+    /**
+     * Reused view over the current line. Values are only valid inside the consumer callback.
+     */
+    public static class SettlementLine {
+        public static final int MAX_AMOUNT_SCALE = 4;
+        private static final int FIELD_COUNT = SettlementField.values().length;
+        
+        private final SettlementFileLayout layout;
+        private final int[] starts = new int[FIELD_COUNT];
+        private final int[] ends = new int[FIELD_COUNT];
+        private final boolean[] quoted = new boolean[FIELD_COUNT];
+        private final ZoneId zone = ZoneId.systemDefault();
+        private byte[] bytes = new byte[256];
+        private int length;
+        private long lineNumber;
+        
+        // Most files are sorted by date, so one cached day avoids recomputing zone offsets
+        private long cachedEpochDay = Long.MIN_VALUE;
+        private long cachedDayStartMillis;
+        
+        private long unscaledAmount;
+        private int amountScale;
+        
+        SettlementLine(SettlementFileLayout layout) {
+            this.layout = layout;
+        }
+        
+        void append(byte b) {
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, length * 2);
+            }
+            bytes[length++] = b;
+        }
+        
+        void reset() {
+            length = 0;
+        }
+        
+        boolean complete(long lineNumber) {
+            if (length > 0 && bytes[length - 1] == '\r') {
+                length--;
+            }
+            if (length == 0) {
+                return false;
+            }
+            this.lineNumber = lineNumber;
+            layout.split(bytes, length, starts, ends, quoted);
+            return true;
+        }
+        
+        public long getLineNumber() { return lineNumber; }
+        
+        public boolean has(SettlementField field) {
+            int f = field.ordinal();
+            return starts[f] >= 0 && ends[f] > starts[f];
+        }
+        
+        /**
+         * Decoded text of the field, or null when it is absent or blank.
+         */
+        public String text(SettlementField field) {
+            if (!has(field)) {
+                return null;
+            }
+            int f = field.ordinal();
+            String value = new String(bytes, starts[f], ends[f] - starts[f], StandardCharsets.UTF_8);
+            return quoted[f] ? value.replace("\"\"", "\"") : value;
+        }
+        
+        /**
+         * Parses AMOUNT as an unscaled long plus scale (at most MAX_AMOUNT_SCALE digits); false if malformed.
+         */
+        public boolean parseAmount() {
+            if (!has(SettlementField.AMOUNT)) {
+                return false;
+            }
+            int position = starts[SettlementField.AMOUNT.ordinal()];
+            int end = ends[SettlementField.AMOUNT.ordinal()];
+            boolean negative = bytes[position] == '-';
+            if (negative || bytes[position] == '+') {
+                position++;
+            }
+            
+            long value = 0;
+            int scale = -1;
+            int digits = 0;
+            for (; position < end; position++) {
+                byte b = bytes[position];
+                if (b == '.' && scale < 0) {
+                    scale = 0;
+                } else if (b >= '0' && b <= '9') {
+                    if (scale >= MAX_AMOUNT_SCALE) {
+                        // Extra precision is only accepted when it is trailing zeros
+                        if (b != '0') return false;
+                        continue;
+                    }
+                    if (value > (Long.MAX_VALUE - 9) / 10) return false;
+                    value = value * 10 + (b - '0');
+                    digits++;
+                    if (scale >= 0) scale++;
+                } else {
+                    return false;
+                }
+            }
+            if (digits == 0) {
+                return false;
+            }
+            unscaledAmount = negative ? -value : value;
+            amountScale = Math.max(scale, 0);
+            return true;
+        }
+        
+        public long getUnscaledAmount() { return unscaledAmount; }
+        public int getAmountScale() { return amountScale; }
+        
+        /**
+         * DATE as epoch millis: either all digits (already epoch millis) or yyyy-MM-dd at local midnight.
+         * Returns Long.MIN_VALUE if malformed.
+         */
+        public long parseDate() {
+            if (!has(SettlementField.DATE)) {
+                return Long.MIN_VALUE;
+            }
+            int start = starts[SettlementField.DATE.ordinal()];
+            int end = ends[SettlementField.DATE.ordinal()];
+            
+            if (end - start == 10 && bytes[start + 4] == '-' && bytes[start + 7] == '-') {
+                int year = digits(start, start + 4);
+                int month = digits(start + 5, start + 7);
+                int day = digits(start + 8, start + 10);
+                if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+                    return Long.MIN_VALUE;
+                }
+                try {
+                    long epochDay = LocalDate.of(year, month, day).toEpochDay();
+                    if (epochDay != cachedEpochDay) {
+                        cachedDayStartMillis = LocalDate.ofEpochDay(epochDay).atStartOfDay(zone).toInstant().toEpochMilli();
+                        cachedEpochDay = epochDay;
+                    }
+                    return cachedDayStartMillis;
+                } catch (java.time.DateTimeException e) {
+                    return Long.MIN_VALUE;
+                }
+            }
+            
+            long millis = 0;
+            for (int position = start; position < end; position++) {
+                byte b = bytes[position];
+                if (b < '0' || b > '9' || millis > (Long.MAX_VALUE - 9) / 10) {
+                    return Long.MIN_VALUE;
+                }
+                millis = millis * 10 + (b - '0');
+            }
+            return millis;
+        }
+        
+        private int digits(int start, int end) {
+            int value = 0;
+            for (int position = start; position < end; position++) {
+                byte b = bytes[position];
+                if (b < '0' || b > '9') return -1;
+                value = value * 10 + (b - '0');
+            }
+            return value;
+        }
+        
+        /**
+         * Interned currency code, so every record shares one String per currency.
+         */
+        public String currency() {
+            if (!has(SettlementField.CURRENCY)) {
+                return null;
+            }
+            int start = starts[SettlementField.CURRENCY.ordinal()];
+            int end = ends[SettlementField.CURRENCY.ordinal()];
+            return CurrencyCodes.intern(bytes, start, end);
+        }
+    }
+}
+
+/**
+ * Canonical String instances for currency codes; ISO-style three-letter codes resolve
+ * through a flat table without hashing or allocating.
+ */
+class CurrencyCodes {
+    private static final String[] ALPHA3 = new String[26 * 26 * 26];
+    
+    private CurrencyCodes() {
+    }
+    
+    static String intern(byte[] bytes, int start, int end) {
+        if (end - start == 3) {
+            int slot = 0;
+            boolean alpha = true;
+            for (int i = start; i < end && alpha; i++) {
+                int letter = Character.toUpperCase(bytes[i]) - 'A';
+                alpha = letter >= 0 && letter < 26;
+                slot = slot * 26 + letter;
+            }
+            if (alpha) {
+                String code = ALPHA3[slot];
+                if (code == null) {
+                    code = intern(new String(bytes, start, 3, StandardCharsets.US_ASCII).toUpperCase());
+                    ALPHA3[slot] = code;
+                }
+                return code;
+            }
+        }
+        return intern(new String(bytes, start, end - start, StandardCharsets.UTF_8));
+    }
+    
+    static String intern(String code) {
+        return code != null ? code.intern() : null;
+    }
+}
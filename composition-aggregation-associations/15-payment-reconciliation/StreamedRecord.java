@@ -0,0 +1,111 @@
+package composition.reconciliation;
+
+import java.math.BigDecimal;
+
+/**
+ * Compact form of a record read from a settlement file while it waits for a match.
+ *
+ * The amount is kept as an unscaled long, the currency as an interned code and the
+ * settlement day is precomputed; PaymentRecord / ExternalRecord objects are only
+ * built once the record is matched or reported.
+ */
+public class StreamedRecord {
+    static final int KEY_SCALE = SettlementFileReader.SettlementLine.MAX_AMOUNT_SCALE;
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1000L, 10000L};
+    
+    private final boolean internal;
+    private final String id;
+    private final String reference;
+    private final String description;
+    private final String account;
+    private final String counterparty;
+    private final long unscaledAmount;
+    private final byte amountScale;
+    private final String currency;
+    private final long timestamp;
+    private final byte methodOrdinal;
+    private final byte statusOrdinal;
+    
+    long day;                   // local settlement day, assigned by the matcher
+    boolean matched;
+    StreamedRecord nextInBucket;
+    
+    private StreamedRecord(boolean internal, String id, String reference, String description, String account,
+                           String counterparty, long unscaledAmount, int amountScale, String currency,
+                           long timestamp, PaymentMethod method, PaymentStatus status) {
+        this.internal = internal;
+        this.id = id;
+        this.reference = reference;
+        this.description = description;
+        this.account = account;
+        this.counterparty = counterparty;
+        this.unscaledAmount = unscaledAmount;
+        this.amountScale = (byte) amountScale;
+        this.currency = currency;
+        this.timestamp = timestamp;
+        this.methodOrdinal = (byte) method.ordinal();
+        this.statusOrdinal = (byte) status.ordinal();
+    }
+    
+    /**
+     * Builds an internal payment from the current line, or null if required fields are missing or malformed.
+     */
+    public static StreamedRecord internalFrom(SettlementFileReader.SettlementLine line) {
+        return from(line, true);
+    }
+    
+    /**
+     * Builds an external settlement record from the current line, or null if it is malformed.
+     */
+    public static StreamedRecord externalFrom(SettlementFileReader.SettlementLine line) {
+        return from(line, false);
+    }
+    
+    private static StreamedRecord from(SettlementFileReader.SettlementLine line, boolean internal) {
+        String id = line.text(SettlementField.ID);
+        long timestamp = line.parseDate();
+        // Same acceptance rules as the list-based ingestion: an ID and a positive amount
+        if (id == null || !line.parseAmount() || line.getUnscaledAmount() <= 0 ||
+            timestamp == Long.MIN_VALUE || !line.has(SettlementField.CURRENCY)) {
+            return null;
+        }
+        
+        PaymentMethod method = PaymentMethod.OTHER;
+        PaymentStatus status = PaymentStatus.COMPLETED;
+        try {
+            if (line.has(SettlementField.METHOD)) method = PaymentMethod.valueOf(line.text(SettlementField.METHOD));
+            if (line.has(SettlementField.STATUS)) status = PaymentStatus.valueOf(line.text(SettlementField.STATUS));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        
+        return new StreamedRecord(internal, id, line.text(SettlementField.REFERENCE),
+                                  line.text(SettlementField.DESCRIPTION), line.text(SettlementField.ACCOUNT),
+                                  line.text(SettlementField.COUNTERPARTY), line.getUnscaledAmount(),
+                                  line.getAmountScale(), line.currency(), timestamp, method, status);
+    }
+    
+    /**
+     * Amount at KEY_SCALE, so 10.5 and 10.50 compare equal as plain longs.
+     */
+    public long getNormalizedAmount() {
+        return unscaledAmount * POWERS_OF_TEN[KEY_SCALE - amountScale];
+    }
+    
+    public PaymentRecord toPaymentRecord() {
+        return new PaymentRecord(id, reference, getAmount(), currency, PaymentMethod.values()[methodOrdinal],
+                                 PaymentStatus.values()[statusOrdinal], timestamp, account, counterparty);
+    }
+    
+    public ExternalRecord toExternalRecord() {
+        return new ExternalRecord(id, reference, getAmount(), currency, description != null ? description : "",
+                                  timestamp, account, counterparty, RecordSource.FILE_IMPORT);
+    }
+    
+    public BigDecimal getAmount() { return BigDecimal.valueOf(unscaledAmount, amountScale); }
+    public boolean isInternal() { return internal; }
+    public String getId() { return id; }
+    public String getCurrency() { return currency; }
+    public long getTimestamp() { return timestamp; }
+    public boolean isMatched() { return matched; }
+}
@@ -202,6 +202,9 @@ class ReconciliationSettings {
     private boolean autoResolveMinorDiscrepancies;
     private boolean requireManualApproval;
     private int maxProcessingThreads;
+    private int partitionCount;
+    private int minRecordsForPartitioning;
+    private long partitionDateWindow;
     private boolean enableMLMatching;
     private Map<String, Object> customSettings;
     
@@ -212,6 +215,9 @@ class ReconciliationSettings {
         this.autoResolveMinorDiscrepancies = true;
         this.requireManualApproval = false;
         this.maxProcessingThreads = 5;
+        this.partitionCount = 16;
+        this.minRecordsForPartitioning = 10000;
+        this.partitionDateWindow = 7 * 24 * 60 * 60 * 1000L; // 7 days, the widest settlement lag fuzzy matching accepts
         this.enableMLMatching = false;
         this.customSettings = new HashMap<>();
     }
@@ -239,6 +245,19 @@ class ReconciliationSettings {
     public int getMaxProcessingThreads() { return maxProcessingThreads; }
     public void setMaxProcessingThreads(int maxProcessingThreads) { this.maxProcessingThreads = maxProcessingThreads; }
     
+    // Runs with fewer internal records than the threshold, or a single partition, stay single-threaded
+    public int getPartitionCount() { return partitionCount; }
+    public void setPartitionCount(int partitionCount) { this.partitionCount = partitionCount; }
+    
+    public int getMinRecordsForPartitioning() { return minRecordsForPartitioning; }
+    public void setMinRecordsForPartitioning(int minRecordsForPartitioning) { 
+        this.minRecordsForPartitioning = minRecordsForPartitioning; 
+    }
+    
+    // Width of the date buckets records are partitioned by; never narrower than the date tolerance
+    public long getPartitionDateWindow() { return partitionDateWindow; }
+    public void setPartitionDateWindow(long partitionDateWindow) { this.partitionDateWindow = partitionDateWindow; }
+    
     public boolean isEnableMLMatching() { return enableMLMatching; }
     public void setEnableMLMatching(boolean enableMLMatching) { this.enableMLMatching = enableMLMatching; }
     
@@ -261,6 +280,9 @@ class ReconciliationMetrics {
     private double averageResolutionRate;
     private long totalProcessingTime;
     private long averageProcessingTime;
+    private int partitionedRuns;
+    private int lastPartitionCount;
+    private int crossPartitionMatches;
     private final Map<DiscrepancyType, Integer> discrepancyTypeCounts;
     private final Map<ResolutionAction, Integer> resolutionActionCounts;
     
@@ -282,6 +304,9 @@ class ReconciliationMetrics {
         this.averageResolutionRate = 0.0;
         this.totalProcessingTime = 0;
         this.averageProcessingTime = 0;
+        this.partitionedRuns = 0;
+        this.lastPartitionCount = 0;
+        this.crossPartitionMatches = 0;
         this.discrepancyTypeCounts.clear();
         this.resolutionActionCounts.clear();
     }
@@ -307,6 +332,12 @@ class ReconciliationMetrics {
         averageProcessingTime = totalProcessingTime / totalReconciliationRuns;
     }
     
+    public void recordPartitionedRun(int partitionCount, int crossPartitionMatchCount) {
+        partitionedRuns++;
+        lastPartitionCount = partitionCount;
+        crossPartitionMatches += crossPartitionMatchCount;
+    }
+    
     public void recordDiscrepancyType(DiscrepancyType type) {
         discrepancyTypeCounts.merge(type, 1, Integer::sum);
     }
@@ -327,6 +358,9 @@ class ReconciliationMetrics {
     public double getAverageResolutionRate() { return averageResolutionRate; }
     public long getTotalProcessingTime() { return totalProcessingTime; }
     public long getAverageProcessingTime() { return averageProcessingTime; }
+    public int getPartitionedRuns() { return partitionedRuns; }
+    public int getLastPartitionCount() { return lastPartitionCount; }
+    public int getCrossPartitionMatches() { return crossPartitionMatches; }
     public Map<DiscrepancyType, Integer> getDiscrepancyTypeCounts() { return new HashMap<>(discrepancyTypeCounts); }
     public Map<ResolutionAction, Integer> getResolutionActionCounts() { return new HashMap<>(resolutionActionCounts); }
     